@@ -30,13 +30,21 @@ public class HpoWorkbench implements Callable<Integer> {
                 .addSubcommand("download", new DownloadCommand())
                 .addSubcommand("batch", new BatchGitPostCommand())
                 .addSubcommand("countfreq", new CountFrequencyCommand())
+                .addSubcommand("diseasesim", new DiseaseSimilarityCommand())
                 .addSubcommand("git", new GitCommand())
                 .addSubcommand("descendents", new HpoListDescendentsCommand())
                 .addSubcommand("hpo2hpo", new Hpo2HpoCommand())
                 .addSubcommand("csv", new HPO2CSVCommand())
                 .addSubcommand("matchterms", new MatchTermsCommand())
                 .addSubcommand("count", new CountGenes())
-                .addSubcommand("ranges", new CountHpoIdRanges());
+                .addSubcommand("ranges", new CountHpoIdRanges())
+                .addSubcommand("rank", new RankDiseasesCommand())
+                .addSubcommand("best", new HpoBestMatchCommand())
+                .addSubcommand("enrichment", new EnrichmentCommand())
+                .addSubcommand("redundant", new RedundantAnnotationCommand())
+                .addSubcommand("negation", new NegationConflictCommand())
+                .addSubcommand("merge", new MergeCommand())
+                .addSubcommand("search", new SearchCommand());
         cline.setToggleBooleanFlags(false);
         int exitCode = cline.execute(args);
         System.exit(exitCode);
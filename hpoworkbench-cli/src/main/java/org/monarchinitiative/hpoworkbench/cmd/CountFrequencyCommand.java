@@ -1,15 +1,18 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
+import org.monarchinitiative.hpoworkbench.analysis.TermFrequencyTable;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
 import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.io.OntologySnapshot;
 import org.monarchinitiative.phenol.ontology.data.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
-import java.io.File;
+import java.io.*;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
@@ -20,6 +23,12 @@ import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.getDe
  * The situation is that we have a list of disease annotations (which could be {@code phenotype_annotation.tab} or
  * a smaller selection of annotations) and an HPO term. We would like to find out the total number of annotations
  * to the term or any of its ancestors. This command will outpout a list of these counts to the shell.
+ * <p>
+ * With {@code --all-terms}, the direct and propagated counts of all terms are computed at once in a
+ * {@link TermFrequencyTable}, and the top terms are reported for each of the terms passed with {@code -t}. The
+ * whole table can also be written to a file with {@code --table}. Since the table only changes with the release of
+ * the annotations, later queries can read it back with {@code --from-table} instead of parsing the annotations again.
+ * </p>
  *
  * @author <a href="mailto:peter.robinson">Peter Robinson</a>
  */
@@ -30,8 +39,18 @@ import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.getDe
 public class CountFrequencyCommand extends HPOCommand implements Callable<Integer> {
     private static final Logger LOGGER = LoggerFactory.getLogger(DownloadCommand.class.getName());
 
-    @CommandLine.Option(names={"-t","--term"},required = true,description = "TermId of interest")
-    private String hpoTermId;
+    @CommandLine.Option(names={"-t","--term"},required = true,split = ",",description = "TermId(s) of interest")
+    private List<String> hpoTermIds;
+    @CommandLine.Option(names={"--all-terms"},description = "count direct and propagated annotations of all terms in one pass")
+    private boolean allTerms = false;
+    @CommandLine.Option(names={"--rank-by"},description = "count used to rank terms with --all-terms: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private TermFrequencyTable.Metric metric = TermFrequencyTable.Metric.DIRECT;
+    @CommandLine.Option(names={"-k","--top"},description = "number of terms to show per subtree (default: ${DEFAULT-VALUE})")
+    private int top = 10;
+    @CommandLine.Option(names={"--table"},description = "write the counts of all terms to this file (implies --all-terms)")
+    private String tableFile = null;
+    @CommandLine.Option(names={"--from-table"},description = "answer the queries from a table written with --table instead of the annotations (implies --all-terms)")
+    private String fromTableFile = null;
 
     private TermId termId;
 
@@ -41,7 +60,6 @@ public class CountFrequencyCommand extends HPOCommand implements Callable<Intege
      */
     private int totalAnnotationCount = 0;
 
-    private int TERMS_TO_SHOW = 10;
 
     public CountFrequencyCommand() {
 
@@ -51,14 +69,29 @@ public class CountFrequencyCommand extends HPOCommand implements Callable<Intege
 
         String hpOboPath = this.downloadDirectory + File.separator + this.hpopath;
         String annotationPath = this.downloadDirectory + File.separator + annotpath;
-        termId = TermId.of(hpoTermId);
 
 
-        Ontology ontology = OntologyLoader.loadOntology(new File(hpOboPath));
+        Ontology ontology = OntologySnapshot.load(new File(hpOboPath));
+        if (fromTableFile != null) {
+            return queryTable(ontology);
+        }
 
         Map<TermId, HpoDisease> annotationMap;
         annotationMap = HpoDiseaseAnnotationParser.loadDiseaseMap(annotationPath, ontology);
         LOGGER.trace("Annotation count total " + annotationMap.size());
+        if (allTerms || tableFile != null) {
+            return countAllTerms(ontology, annotationMap);
+        }
+        for (String hpoTermId : hpoTermIds) {
+            termId = TermId.of(hpoTermId);
+            countDescendents(ontology, annotationMap);
+        }
+        return 0;
+    }
+
+    /** Count the direct annotations to the descendents of {@link #termId}. */
+    private void countDescendents(Ontology ontology, Map<TermId, HpoDisease> annotationMap) {
+        totalAnnotationCount = 0;
         Set<TermId> descendents = getDescendents(ontology, termId);
         descendentTermCount = descendents.size();
         LOGGER.error("Descendent Term Count size " + descendentTermCount);
@@ -81,22 +114,82 @@ public class CountFrequencyCommand extends HPOCommand implements Callable<Intege
             }
         }
         outputCounts(annotationCounts, weightedAnnotationCounts, ontology);
+    }
+
+    /**
+     * Compute the counts of all terms in one pass and output the top terms in the subtree of each term of interest.
+     */
+    private int countAllTerms(Ontology ontology, Map<TermId, HpoDisease> annotationMap) {
+        TermFrequencyTable table = TermFrequencyTable.of(
+                TermDiseaseIndex.of(annotationMap, CompactOntologyGraph.of(ontology)));
+        outputTopTerms(table, ontology);
+        if (tableFile != null) {
+            return writeTable(table, ontology);
+        }
+        return 0;
+    }
+
+    /** Read the counts of all terms from {@link #fromTableFile} and output the top terms as with --all-terms. */
+    private int queryTable(Ontology ontology) {
+        TermFrequencyTable table;
+        try (BufferedReader reader = new BufferedReader(new FileReader(fromTableFile))) {
+            table = TermFrequencyTable.readTsv(reader, CompactOntologyGraph.of(ontology));
+        } catch (IOException e) {
+            LOGGER.error("Could not read {}: {}", fromTableFile, e.getMessage());
+            return 1;
+        }
+        outputTopTerms(table, ontology);
+        return 0;
+    }
+
+    /** Output the counts and the top terms in the subtree of each term of interest. */
+    private void outputTopTerms(TermFrequencyTable table, Ontology ontology) {
+        for (String hpoTermId : hpoTermIds) {
+            TermId tid = TermId.of(hpoTermId);
+            if (!ontology.getTermMap().containsKey(tid)) {
+                LOGGER.error("Could not find term {} in the HPO", hpoTermId);
+                continue;
+            }
+            String termS = String.format("%s [%s]", ontology.getTermMap().get(tid).getName(), tid.getValue());
+            System.out.println();
+            System.out.println("Annotation counts for " + termS);
+            System.out.printf("\tDirect annotations: %d (%.1f)%n", table.getDirectCount(tid),
+                    table.get(tid, TermFrequencyTable.Metric.DIRECT_WEIGHTED));
+            System.out.printf("\tTotal annotations to %s or any descendent: %d (%.1f)%n", termS,
+                    table.getPropagatedCount(tid), table.get(tid, TermFrequencyTable.Metric.PROPAGATED_WEIGHTED));
+            for (TermId t : table.topTerms(tid, top, metric)) {
+                String name = ontology.getTermMap().get(t).getName();
+                System.out.printf("%s [%s]: %d (%.1f), with descendents: %d (%.1f)%n", name, t.getValue(),
+                        table.getDirectCount(t), table.get(t, TermFrequencyTable.Metric.DIRECT_WEIGHTED),
+                        table.getPropagatedCount(t), table.get(t, TermFrequencyTable.Metric.PROPAGATED_WEIGHTED));
+            }
+        }
+    }
+
+    /** Write the counts of all terms as TSV, which can be read back with --from-table. */
+    private int writeTable(TermFrequencyTable table, Ontology ontology) {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(tableFile)))) {
+            table.writeTsv(writer, ontology);
+        } catch (IOException e) {
+            LOGGER.error("Could not write {}: {}", tableFile, e.getMessage());
+            return 1;
+        }
         return 0;
     }
 
     /**
-     * Sort a map by values and return a sorted map with the top {@link #TERMS_TO_SHOW} items.
+     * Sort a map by values and return a sorted map with the top {@link #top} items.
      *
      * @param map Here, keys are terms and values are disease annotations
      * @param <K> key
      * @param <V> value
-     * @return sorted map with top TERMS_TO_SHOW entries
+     * @return sorted map with top {@link #top} entries
      */
     private <K, V extends Comparable<? super V>> Map<K, V> sortByValue(Map<K, V> map) {
         return map.entrySet()
                 .stream()
                 .sorted(Map.Entry.comparingByValue(Collections.reverseOrder()))
-                .limit(TERMS_TO_SHOW)
+                .limit(top)
                 .collect(Collectors.toMap(
                         Map.Entry::getKey,
                         Map.Entry::getValue,
@@ -5,7 +5,7 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import org.monarchinitiative.phenol.annotations.assoc.HpoAssociationParser;
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.io.OntologySnapshot;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
@@ -73,7 +73,7 @@ public class CountGenes extends HPOCommand implements Callable<Integer> {
 
 
     private void parsePhenolFiles() {
-        Ontology ontology = OntologyLoader.loadOntology(new File(hpopath));
+        Ontology ontology = OntologySnapshot.load(new File(hpopath));
         HpoAssociationParser parser = new HpoAssociationParser(pathToGeneInfo, pathToMim2Gene, pathToOrpha, annotpath, ontology);
         this.geneToDiseaseMapPhenol = parser.getGeneToDiseaseIdMap();
     }
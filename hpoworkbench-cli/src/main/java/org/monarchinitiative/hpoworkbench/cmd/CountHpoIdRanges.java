@@ -1,6 +1,6 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.io.OntologySnapshot;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
@@ -32,7 +32,7 @@ public class CountHpoIdRanges extends HPOCommand implements Callable<Integer>  {
         if (hpopath==null) {
             hpopath = this.downloadDirectory + File.separator + "hp.obo";
         }
-        Ontology ontology = OntologyLoader.loadOntology(new File(hpopath));
+        Ontology ontology = OntologySnapshot.load(new File(hpopath));
         List<Integer> idlist = new ArrayList<>();
         for (TermId tid : ontology.getTermMap().keySet()) {
             Integer i = Integer.parseInt(tid.getId());
@@ -0,0 +1,151 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.monarchinitiative.hpoworkbench.annotation.InformationContent;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.hpoworkbench.similarity.MicaTable;
+import org.monarchinitiative.hpoworkbench.similarity.PhenotypeSimilarity;
+import org.monarchinitiative.hpoworkbench.similarity.TopKSimilaritySearch;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compute the phenotypic similarity (best-match average of the term similarities) between all pairs of diseases
+ * in {@code phenotype.hpoa}, or between the diseases of a query list and those of a target list, and write the
+ * k most similar diseases for each disease as TSV. The score matrix is computed in tiles on all cores and the
+ * results are written as they become available, see {@link TopKSimilaritySearch}.
+ */
+@CommandLine.Command(name = "diseasesim",
+        mixinStandardHelpOptions = true,
+        description = "Find the most similar diseases for each disease.")
+public class DiseaseSimilarityCommand extends HPOCommand implements Callable<Integer> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiseaseSimilarityCommand.class);
+
+    @CommandLine.Option(names={"--query"}, description = "file with query disease IDs (default: all diseases)")
+    private String queryFile = null;
+    @CommandLine.Option(names={"--target"}, description = "file with target disease IDs (default: all diseases)")
+    private String targetFile = null;
+    @CommandLine.Option(names={"-k","--top"}, description = "number of neighbours per disease (default: ${DEFAULT-VALUE})")
+    private int top = 10;
+    @CommandLine.Option(names={"--measure"}, description = "term similarity: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private PhenotypeSimilarity.Measure measure = PhenotypeSimilarity.Measure.RESNIK;
+    @CommandLine.Option(names={"--tile"}, description = "number of diseases per tile side (default: ${DEFAULT-VALUE})")
+    private int tileSize = 256;
+    @CommandLine.Option(names={"--threads"}, description = "number of threads (default: ${DEFAULT-VALUE})")
+    private int threads = Runtime.getRuntime().availableProcessors();
+    @CommandLine.Option(names={"-o","--out"}, description = "output file (default: standard output)")
+    private String outfile = null;
+
+    private static final String HEADER = "disease_id\tdisease_name\trank\tneighbour_id\tneighbour_name\tscore";
+
+    @Override
+    public Integer call() {
+        Ontology hpoOntology = new HPOParser(hpopath).getHPO();
+        if (hpoOntology == null) {
+            LOGGER.error(String.format("Could not load HPO from \"%s\". Terminating program...", hpopath));
+            return 1;
+        }
+        Map<TermId, HpoDisease> diseaseMap = HpoDiseaseAnnotationParser.loadDiseaseMap(annotpath, hpoOntology);
+        if (diseaseMap == null) {
+            LOGGER.error("Disease map was not properly initialized. Terminating program...");
+            return 1;
+        }
+        TermDiseaseIndex index = TermDiseaseIndex.of(diseaseMap, CompactOntologyGraph.of(hpoOntology));
+        PhenotypeSimilarity similarity = new PhenotypeSimilarity(MicaTable.of(InformationContent.of(index)), measure);
+        // only diseases with phenotypic abnormalities can be compared, in the order of the index
+        List<HpoDisease> annotated = new ArrayList<>();
+        for (int d = 0; d < index.diseaseCount(); d++) {
+            if (!index.disease(d).getPhenotypicAbnormalities().isEmpty()) {
+                annotated.add(index.disease(d));
+            }
+        }
+        List<HpoDisease> queries = queryFile == null ? annotated : selectDiseases(queryFile, diseaseMap);
+        List<HpoDisease> targets = targetFile == null ? annotated : selectDiseases(targetFile, diseaseMap);
+        boolean allAgainstAll = queryFile == null && targetFile == null;
+        LOGGER.info("Comparing {} query diseases with {} target diseases using {} threads",
+                queries.size(), targets.size(), threads);
+
+        TopKSimilaritySearch search = new TopKSimilaritySearch(similarity, top, tileSize);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try (PrintWriter writer = outfile == null ? new PrintWriter(System.out) :
+                new PrintWriter(new BufferedWriter(new FileWriter(outfile)))) {
+            writer.println(HEADER);
+            TopKSimilaritySearch.NeighbourConsumer consumer = (row, neighbours, scores) -> {
+                HpoDisease query = queries.get(row);
+                for (int i = 0; i < neighbours.length; i++) {
+                    HpoDisease target = targets.get(neighbours[i]);
+                    writer.printf(Locale.ROOT, "%s\t%s\t%d\t%s\t%s\t%.4f%n", query.getDiseaseDatabaseId().getValue(),
+                            query.getName(), i + 1, target.getDiseaseDatabaseId().getValue(), target.getName(),
+                            scores[i]);
+                }
+            };
+            int[][] queryProfiles = profiles(queries, similarity);
+            if (allAgainstAll) {
+                search.allAgainstAll(queryProfiles, pool, consumer);
+            } else {
+                // a disease that is both a query and a target is not reported as its own neighbour
+                Map<TermId, Integer> targetIndex = new HashMap<>();
+                for (int i = 0; i < targets.size(); i++) {
+                    targetIndex.put(targets.get(i).getDiseaseDatabaseId(), i);
+                }
+                int[] self = new int[queries.size()];
+                for (int i = 0; i < queries.size(); i++) {
+                    self[i] = targetIndex.getOrDefault(queries.get(i).getDiseaseDatabaseId(), -1);
+                }
+                search.rowsAgainstColumns(queryProfiles, profiles(targets, similarity), self, pool, consumer);
+            }
+            writer.flush();
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            LOGGER.error("Could not compute disease similarities: {}", e.getMessage());
+            return 1;
+        } finally {
+            pool.shutdown();
+        }
+        return 0;
+    }
+
+    private static int[][] profiles(List<HpoDisease> diseases, PhenotypeSimilarity similarity) {
+        int[][] profiles = new int[diseases.size()][];
+        for (int i = 0; i < diseases.size(); i++) {
+            profiles[i] = similarity.profile(diseases.get(i));
+        }
+        return profiles;
+    }
+
+    /** @return the diseases listed in the file (one id per line, e.g., OMIM:100100), in the order of the file */
+    private static List<HpoDisease> selectDiseases(String path, Map<TermId, HpoDisease> diseaseMap) {
+        Set<HpoDisease> diseases = new LinkedHashSet<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String id = line.split("\\s+")[0];
+                HpoDisease disease = id.contains(":") ? diseaseMap.get(TermId.of(id)) : null;
+                if (disease == null || disease.getPhenotypicAbnormalities().isEmpty()) {
+                    LOGGER.warn("Skipping \"{}\", which is not an annotated disease", id);
+                    continue;
+                }
+                diseases.add(disease);
+            }
+        } catch (IOException e) {
+            LOGGER.error(String.format("Could not read \"%s\". Terminating program...", path));
+            System.exit(1);
+        }
+        return new ArrayList<>(diseases);
+    }
+}
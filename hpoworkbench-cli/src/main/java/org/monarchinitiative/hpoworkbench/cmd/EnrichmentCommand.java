@@ -0,0 +1,229 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.monarchinitiative.hpoworkbench.analysis.TermEnrichment;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Find the HPO terms that are over-represented in a list of diseases compared to all diseases of
+ * {@code phenotype.hpoa}. The study set is a file with one disease id per line (the same format as the source list
+ * of the {@code best} command); with {@code --study-sets}, many study sets can be analyzed at once from a file with
+ * one set per line ({@code set-id<TAB>OMIM:100100,ORPHA:123,...}). Gene ids (NCBIGene:2200) are replaced by the
+ * diseases they are associated with if a {@code genes_to_phenotype.txt} file is passed with {@code --genes}.
+ * See {@link TermEnrichment} for the statistics.
+ */
+@CommandLine.Command(name = "enrichment",
+        mixinStandardHelpOptions = true,
+        description = "HPO term enrichment in a set of diseases or genes.")
+public class EnrichmentCommand extends HPOCommand implements Callable<Integer> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EnrichmentCommand.class);
+
+    @CommandLine.Option(names={"-s","--study"}, description = "file with one disease (or gene) id per line")
+    private String studyFile = null;
+    @CommandLine.Option(names={"--study-sets"}, description = "file with one study set per line: id<TAB>comma-separated disease (or gene) ids")
+    private String studySetFile = null;
+    @CommandLine.Option(names={"--genes"}, description = "genes_to_phenotype.txt, to map gene ids to diseases")
+    private String genesToPhenotypeFile = null;
+    @CommandLine.Option(names={"--correction"}, description = "${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private TermEnrichment.Correction correction = TermEnrichment.Correction.NONE;
+    @CommandLine.Option(names={"--min-count"}, description = "minimum number of study diseases with a term (default: ${DEFAULT-VALUE})")
+    private int minCount = 2;
+    @CommandLine.Option(names={"--max-fdr"}, description = "maximum Benjamini-Hochberg adjusted p-value (default: ${DEFAULT-VALUE})")
+    private double maxFdr = 0.05;
+    @CommandLine.Option(names={"-k","--top"}, description = "maximum number of terms per study set (default: ${DEFAULT-VALUE})")
+    private int top = 25;
+    @CommandLine.Option(names={"--threads"}, description = "number of threads (default: ${DEFAULT-VALUE})")
+    private int threads = Runtime.getRuntime().availableProcessors();
+    @CommandLine.Option(names={"-o","--out"}, description = "output file (default: standard output)")
+    private String outfile = null;
+
+    private static final String HEADER = "set_id\tterm_id\tterm_label\tstudy_count\tstudy_size\tpopulation_count\t" +
+            "population_size\tfold_enrichment\tp\tbonferroni\tfdr";
+
+    private Ontology hpoOntology;
+
+    @Override
+    public Integer call() {
+        if (studyFile == null && studySetFile == null) {
+            LOGGER.error("Either --study or --study-sets is required. Terminating program...");
+            return 1;
+        }
+        hpoOntology = new HPOParser(hpopath).getHPO();
+        if (hpoOntology == null) {
+            LOGGER.error(String.format("Could not load HPO from \"%s\". Terminating program...", hpopath));
+            return 1;
+        }
+        Map<TermId, HpoDisease> diseaseMap = HpoDiseaseAnnotationParser.loadDiseaseMap(annotpath, hpoOntology);
+        if (diseaseMap == null) {
+            LOGGER.error("Disease map was not properly initialized. Terminating program...");
+            return 1;
+        }
+        TermDiseaseIndex index = TermDiseaseIndex.of(diseaseMap, CompactOntologyGraph.of(hpoOntology));
+        TermEnrichment enrichment = TermEnrichment.of(index, correction);
+        Map<TermId, List<TermId>> geneToDiseases = genesToPhenotypeFile == null ? Map.of() :
+                readGeneToDiseases(genesToPhenotypeFile);
+
+        Map<String, List<TermId>> studySets = new LinkedHashMap<>();
+        if (studyFile != null) {
+            studySets.put("study", readIds(studyFile));
+        }
+        if (studySetFile != null) {
+            studySets.putAll(readStudySets(studySetFile));
+        }
+        LOGGER.info("Testing {} study sets against {} diseases", studySets.size(), enrichment.getPopulationSize());
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try (PrintWriter writer = outfile == null ? new PrintWriter(System.out) :
+                new PrintWriter(new BufferedWriter(new FileWriter(outfile)))) {
+            writer.println(HEADER);
+            if (studySets.size() == 1) {
+                // a single study set: test the terms in parallel
+                Map.Entry<String, List<TermId>> set = studySets.entrySet().iterator().next();
+                RoaringBitmap study = enrichment.studySet(toDiseases(set.getValue(), geneToDiseases));
+                LOGGER.info("{} of the study diseases have phenotype annotations", study.getCardinality());
+                writer.print(format(set.getKey(), enrichment.analyze(study, minCount, pool)));
+            } else {
+                // many study sets: test each set on one thread and the sets in parallel
+                pool.submit(() -> studySets.entrySet().parallelStream()
+                        .map(e -> format(e.getKey(), enrichment.analyze(
+                                enrichment.studySet(toDiseases(e.getValue(), geneToDiseases)), minCount)))
+                        .forEachOrdered(writer::print)).get();
+            }
+            writer.flush();
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            LOGGER.error("Could not run the enrichment analysis: {}", e.getMessage());
+            return 1;
+        } finally {
+            pool.shutdown();
+        }
+        return 0;
+    }
+
+    private String format(String setId, List<TermEnrichment.Result> results) {
+        StringBuilder sb = new StringBuilder();
+        int shown = 0;
+        for (TermEnrichment.Result r : results) {
+            if (shown == top) break;
+            if (r.getFdr() > maxFdr) continue;
+            Term term = hpoOntology.getTermMap().get(r.getTerm());
+            sb.append(String.format(Locale.ROOT, "%s\t%s\t%s\t%d\t%d\t%d\t%d\t%.2f\t%.3g\t%.3g\t%.3g%n", setId,
+                    r.getTerm().getValue(), term == null ? "?" : term.getName(), r.getStudyCount(), r.getStudySize(),
+                    r.getPopulationCount(), r.getPopulationSize(), r.getFoldEnrichment(), r.getPValue(),
+                    r.getBonferroni(), r.getFdr()));
+            shown++;
+        }
+        return sb.toString();
+    }
+
+    /** Replace gene ids by the diseases associated with them; other ids are kept. */
+    private static List<TermId> toDiseases(List<TermId> ids, Map<TermId, List<TermId>> geneToDiseases) {
+        List<TermId> diseases = new ArrayList<>(ids.size());
+        for (TermId id : ids) {
+            diseases.addAll(geneToDiseases.getOrDefault(id, List.of(id)));
+        }
+        return diseases;
+    }
+
+    private static TermId parseId(String id) {
+        id = id.trim();
+        int colon = id.indexOf(':');
+        if (colon < 1 || colon == id.length() - 1) {
+            LOGGER.warn("Skipping \"{}\", which is not a disease or gene id", id);
+            return null;
+        }
+        return TermId.of(id);
+    }
+
+    private static List<TermId> readIds(String path) {
+        List<TermId> ids = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                TermId id = parseId(line);
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not read \"{}\": {}", path, e.getMessage());
+        }
+        return ids;
+    }
+
+    private static Map<String, List<TermId>> readStudySets(String path) {
+        Map<String, List<TermId>> sets = new LinkedHashMap<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                if (fields.length < 2) {
+                    LOGGER.warn("Skipping malformed line \"{}\"", line);
+                    continue;
+                }
+                List<TermId> ids = new ArrayList<>();
+                for (String s : fields[1].split(",")) {
+                    TermId id = parseId(s);
+                    if (id != null) {
+                        ids.add(id);
+                    }
+                }
+                sets.put(fields[0], ids);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not read \"{}\": {}", path, e.getMessage());
+        }
+        return sets;
+    }
+
+    /**
+     * Parse genes_to_phenotype.txt, which has the NCBI gene id in the first and the disease id in the ninth column.
+     * @return map from gene ids (e.g., NCBIGene:2200) to the ids of the diseases associated with them
+     */
+    private static Map<TermId, List<TermId>> readGeneToDiseases(String path) {
+        Map<TermId, Set<TermId>> genes = new HashMap<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                if (fields.length < 9) {
+                    LOGGER.warn("Skipping malformed line with less than 9 fields: {}", line);
+                    continue;
+                }
+                TermId geneId = TermId.of("NCBIGene", fields[0]);
+                genes.computeIfAbsent(geneId, k -> new LinkedHashSet<>()).add(TermId.of(fields[8]));
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not read \"{}\": {}", path, e.getMessage());
+        }
+        Map<TermId, List<TermId>> geneToDiseases = new HashMap<>();
+        for (Map.Entry<TermId, Set<TermId>> e : genes.entrySet()) {
+            geneToDiseases.put(e.getKey(), List.copyOf(e.getValue()));
+        }
+        LOGGER.info("Read disease associations of {} genes", geneToDiseases.size());
+        return geneToDiseases;
+    }
+}
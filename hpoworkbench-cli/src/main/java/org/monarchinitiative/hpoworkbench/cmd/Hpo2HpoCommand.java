@@ -1,7 +1,12 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
 
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.analysis.TermCooccurrence;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.hpoworkbench.io.OntologySnapshot;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
 import org.monarchinitiative.phenol.ontology.data.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,12 +15,12 @@ import picocli.CommandLine;
 import java.io.File;
 import java.util.*;
 import java.util.concurrent.Callable;
-import java.util.stream.Collectors;
-
-import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.getChildTerms;
+import java.util.concurrent.ExecutionException;
 
 /**
- * This class drives the HPO term "cross-correlation" analysis.
+ * This class drives the HPO term "cross-correlation" analysis: which terms are annotated to the same diseases
+ * more often than expected by chance? For a term of interest (or, without {@code --term}, for all pairs of terms)
+ * the pairs with the highest lift are written to the shell. See {@link TermCooccurrence}.
  */
 
 @CommandLine.Command(name = "hpo2hpo",
@@ -24,10 +29,19 @@ import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.getCh
 public class Hpo2HpoCommand extends HPOCommand implements Callable<Integer>  {
     private static Logger LOGGER = LoggerFactory.getLogger(Hpo2HpoCommand.class.getName());
 
-    /** All of the ancestor terms of {@link #hpoTermId}. */
-    private Set<TermId> descendents=null;
-    @CommandLine.Option(names={"-t","--term"},required = true,description = "TermId of interest")
+    @CommandLine.Option(names={"-t","--term"},description = "TermId of interest (default: all pairs of terms)")
     private String hpoTermId;
+    @CommandLine.Option(names={"--propagate"},description = "also count the ancestors of the annotated terms")
+    private boolean propagate = false;
+    @CommandLine.Option(names={"-k","--top"},description = "number of pairs to show (default: ${DEFAULT-VALUE})")
+    private int top = 25;
+    @CommandLine.Option(names={"--min-count"},description = "minimum number of diseases with both terms (default: ${DEFAULT-VALUE})")
+    private int minCount = 3;
+    @CommandLine.Option(names={"--threads"},description = "number of threads (default: ${DEFAULT-VALUE})")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private Ontology ontology;
+    private TermDiseaseIndex index;
 
     public Hpo2HpoCommand() {
     }
@@ -40,6 +54,26 @@ public class Hpo2HpoCommand extends HPOCommand implements Callable<Integer>  {
     @Override
     public Integer call() {
         inputHpoData();
+        TermCooccurrence cooccurrence = TermCooccurrence.of(index, propagate);
+        LOGGER.info("Counting term pairs in {} diseases", cooccurrence.getDiseaseCount());
+        List<TermCooccurrence.Pair> pairs;
+        if (hpoTermId != null) {
+            TermId termId = TermId.of(hpoTermId);
+            if (!ontology.getTermMap().containsKey(termId)) {
+                LOGGER.error(String.format("Could not find term \"%s\" in the HPO. Terminating program...", hpoTermId));
+                return 1;
+            }
+            System.out.printf("%s: %d diseases%n", label(termId), cooccurrence.getTermCount(termId));
+            pairs = cooccurrence.topPartners(termId, top, minCount);
+        } else {
+            try {
+                pairs = cooccurrence.topPairs(top, minCount, threads);
+            } catch (InterruptedException | ExecutionException e) {
+                LOGGER.error("Could not count term pairs: {}", e.getMessage());
+                return 1;
+            }
+        }
+        outputPairs(pairs, cooccurrence);
         return 0;
     }
 
@@ -47,44 +81,26 @@ public class Hpo2HpoCommand extends HPOCommand implements Callable<Integer>  {
      * input the hp.obo and the annotations.
      */
     private void inputHpoData() {
-        Ontology ontology = OntologyLoader.loadOntology(new File(this.hpopath));
-        throw new UnsupportedOperationException(); // TODO REFACTOR!!!!
-    }
-
-
-
-    private static <K, V extends Comparable<? super V>> Map<K, V> sortByValue(Map<K, V> map) {
-        return map.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByValue(Collections.reverseOrder()))
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new
-                ));
-    }
-
-    private void outputCounts(HashMap<TermId,Double> hm, Ontology ontology) {
-        Map<TermId,Double> mp2 = sortByValue(hm);
-        for (TermId t: mp2.keySet()) {
-            double count = mp2.get(t);
-            String name =  ontology.getTermMap().get(t).getName();
-            System.out.println(name + " [" +t.getValue() + "]: " + count);
+        ontology = OntologySnapshot.load(new File(this.hpopath));
+        Map<TermId, HpoDisease> diseaseMap = HpoDiseaseAnnotationParser.loadDiseaseMap(annotpath, ontology);
+        if (diseaseMap == null) {
+            LOGGER.error("Disease map was not properly initialized. Terminating program...");
+            System.exit(1);
         }
+        index = TermDiseaseIndex.of(diseaseMap, CompactOntologyGraph.of(ontology));
     }
 
+    private String label(TermId tid) {
+        Term term = ontology.getTermMap().get(tid);
+        return String.format("%s [%s]", term == null ? "?" : term.getName(), tid.getValue());
+    }
 
-    public Set<TermId> getDescendents(Ontology ontology, TermId parent) {
-        Set<TermId> descset = new HashSet<>();
-        Stack<TermId> stack = new Stack<>();
-        stack.push(parent);
-        while (! stack.empty() ) {
-            TermId tid = stack.pop();
-            descset.add(tid);
-            Set<TermId> directChildrenSet = getChildTerms(ontology,tid,false);
-            directChildrenSet.forEach(stack::push);
+    private void outputPairs(List<TermCooccurrence.Pair> pairs, TermCooccurrence cooccurrence) {
+        for (TermCooccurrence.Pair pair : pairs) {
+            System.out.printf("%s + %s: %d diseases (%d/%d), lift %.2f, PMI %.2f%n",
+                    label(pair.getFirst()), label(pair.getSecond()), pair.getCount(),
+                    cooccurrence.getTermCount(pair.getFirst()), cooccurrence.getTermCount(pair.getSecond()),
+                    pair.getLift(), pair.getPmi());
         }
-        return descset;
     }
 }
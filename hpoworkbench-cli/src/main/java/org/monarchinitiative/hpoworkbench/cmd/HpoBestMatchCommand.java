@@ -1,46 +1,58 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.monarchinitiative.hpoworkbench.analysis.NeighbourhoodMatcher;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
 import org.monarchinitiative.hpoworkbench.io.HPOParser;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
 import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
+import java.io.*;
 import java.util.*;
 import java.util.concurrent.Callable;
-
-import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.getParentTerms;
-
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Match the phenotypic abnormalities of a set of target diseases to the phenotypes that are common in a cohort of
+ * source diseases. Each target annotation is reported with the nearest source term within {@code --radius} hops
+ * up or down the ontology (see {@link NeighbourhoodMatcher}). The files with the target and source diseases
+ * have one disease id per line (e.g., OMIM:100100 or ORPHA:123); empty lines and lines starting with # are skipped.
+ */
 @CommandLine.Command(name = "best",
         mixinStandardHelpOptions = true,
         description = "hpo best match.")
 public class HpoBestMatchCommand  extends HPOCommand implements Callable<Integer> {
-    private static final Logger LOGGER = LoggerFactory.getLogger(Hpo2HpoCommand.class);
+    private static final Logger LOGGER = LoggerFactory.getLogger(HpoBestMatchCommand.class);
+
+    enum Format {TSV, JSON}
+
     private Ontology hpoOntology=null;
-    /** All disease annotations for the entire ontology. */
-    private Map<TermId, HpoDisease> diseaseMap =null;
     @CommandLine.Option(names={"--target"},required = true,description = "file with target disease IDs")
     private String targetFile;
     @CommandLine.Option(names={"--source"},required = true,description = "file with source disease IDs")
     private String sourceFile;
-    @CommandLine.Option(names={"--minhits"}, description = "minimum number of diseases in source with term")
+    @CommandLine.Option(names={"--minhits"}, description = "minimum number of diseases in source with term (default: ${DEFAULT-VALUE})")
     private int minhits = 2;
+    @CommandLine.Option(names={"--radius"}, description = "maximum number of hops between target and source term (default: ${DEFAULT-VALUE})")
+    private int radius = 2;
+    @CommandLine.Option(names={"--threads"}, description = "number of threads (default: ${DEFAULT-VALUE})")
+    private int threads = Runtime.getRuntime().availableProcessors();
+    @CommandLine.Option(names={"--format"}, description = "output format: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private Format format = Format.TSV;
+    @CommandLine.Option(names={"-o","--out"}, description = "output file (default: standard output)")
+    private String outfile = null;
 
-    private Set<TermId> targets;
-    private Set<TermId> sources;
-    /** HPO Terms present in at least {@link #minhits} source diseases. */
-    private Set<TermId> sourcePhenos;
-
-    private Set<TermId> sourcesPhenosParents;
-    private Set<TermId> sourcePhenoGrandParents;
+    private static final String HEADER =
+            "disease_id\tdisease_name\tterm_id\tterm_label\tsource_term_id\tsource_term_label\trelation\tdistance\tsupport";
 
 
     /**
@@ -48,166 +60,136 @@ public class HpoBestMatchCommand  extends HPOCommand implements Callable<Integer
      */
     @Override
     public Integer call() {
-        inputHPOdata();
-        inputTargets();
-        inputSources();
-        countSourcePhenos();
-        getBestMatches();
-        return 0;
-    }
-
-
-    /**
-     * Get all of the matches for t that are within one hop in either direction
-     * @param t TermId of an HPO term
-     * @return list of matching labels
-     */
-    private List<String> getTwoHopMatches(TermId t) {
-        List<String> hits = new ArrayList<>();
-        if (sourcePhenos.contains(t)) {
-            String hpolabel = hpoOntology.getTermMap().get(t).getName();
-            hits.add(hpolabel);
-        }
-        else if (sourcesPhenosParents.contains(t)) {
-            String hpolabel = hpoOntology.getTermMap().get(t).getName();
-            hits.add(hpolabel + " (parent of source term)");
-        } else if (sourcePhenoGrandParents.contains(t)) {
-            String hpolabel = hpoOntology.getTermMap().get(t).getName();
-            hits.add(hpolabel + " (grandparent of source term)");
+        if (radius < 0) {
+            LOGGER.error("The radius must not be negative. Terminating program...");
+            return 1;
         }
-        return hits;
-    }
-
-
-    private List<String> getZeroHopMatches(TermId t) {
-        List<String> hits = new ArrayList<>();
-        if (sourcePhenos.contains(t)) {
-            String hpolabel = hpoOntology.getTermMap().get(t).getName();
-            hits.add(hpolabel);
+        TermDiseaseIndex index = inputHPOdata();
+        if (index == null) {
+            return 1;
         }
-        return hits;
-    }
-
+        List<TermId> targets = inputDiseaseIds(targetFile);
+        List<TermId> sources = inputDiseaseIds(sourceFile);
+        LOGGER.info("{} target and {} source diseases", targets.size(), sources.size());
+        NeighbourhoodMatcher matcher = NeighbourhoodMatcher.of(index, sources, minhits, radius);
+        LOGGER.info("{} HPO terms annotated to at least {} source diseases", matcher.getSourceTermCount(), minhits);
 
-    private void getBestMatches() {
+        List<HpoDisease> targetDiseases = new ArrayList<>();
         for (TermId diseaseId : targets) {
-            if (diseaseMap.containsKey(diseaseId)) {
-                HpoDisease disease = diseaseMap.get(diseaseId);
-                List<TermId> hpos = disease.getPhenotypicAbnormalityTermIdList();
-                for (TermId hpo : hpos) {
-                   List<String> hits = getTwoHopMatches(hpo);
-                   if (hits.isEmpty()) {
-                       Set<TermId> pars = getParentTerms(hpoOntology,hpo,false);
-                       for (TermId par : pars) {
-                           List<String> newHits1 = getZeroHopMatches(par);
-                           hits.addAll(newHits1);
-                       }
-                       if (hits.isEmpty()) {
-                           Set<TermId> gpars = getParentTerms(hpoOntology,pars,false);
-                           for (TermId par : gpars) {
-                               List<String> newHits1 = getZeroHopMatches(par);
-                               hits.addAll(newHits1);
-                           }
-                       }
-                   }
-                   for (String h : hits) {
-                       System.out.println(disease.getName() +": " + h);
-                   }
-                }
+            int d = index.diseaseIndex(diseaseId);
+            if (d < 0) {
+                LOGGER.warn("Could not find disease for target {}", diseaseId.getValue());
+                continue;
+            }
+            targetDiseases.add(index.disease(d));
+        }
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try (PrintWriter writer = outfile == null ? new PrintWriter(System.out) :
+                new PrintWriter(new BufferedWriter(new FileWriter(outfile)))) {
+            List<List<NeighbourhoodMatcher.Match>> matches = pool.submit(() -> targetDiseases.parallelStream()
+                    .map(matcher::match)
+                    .toList()).get();
+            if (format == Format.JSON) {
+                writer.println(toJson(targetDiseases, matches).toJSONString());
             } else {
-                System.err.println("[ERROR] could not find disease for target " + diseaseId.getValue());
+                writer.println(HEADER);
+                for (int i = 0; i < targetDiseases.size(); i++) {
+                    writeTsv(writer, targetDiseases.get(i), matches.get(i));
+                }
             }
+            writer.flush();
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            LOGGER.error("Could not match target diseases: {}", e.getMessage());
+            return 1;
+        } finally {
+            pool.shutdown();
         }
+        return 0;
     }
 
+    private String label(TermId tid) {
+        Term term = hpoOntology.getTermMap().get(tid);
+        return term == null ? "?" : term.getName();
+    }
 
-
-    private void countSourcePhenos() {
-        Map<TermId,Integer> counts = new HashMap<>();
-        for (TermId tid : sources) {
-            if (diseaseMap.containsKey(tid)) {
-                HpoDisease disease = diseaseMap.get(tid);
-                List<TermId> hpos = disease.getPhenotypicAbnormalityTermIdList();
-                for (TermId hpo : hpos) {
-                    counts.putIfAbsent(hpo,0);
-                    int c = counts.get(hpo);
-                    counts.put(hpo,c+1);
-                }
-            } else {
-                System.err.println("[ERROR] could not find disease for " + tid.getValue());
-            }
-        }
-        System.out.println("[INFO] Got counts for " + counts.size() + " HPO terms");
-        sourcePhenos = new HashSet<>();
-        for (TermId hpo : counts.keySet()) {
-            int c = counts.get(hpo);
-            if (c>=minhits) {
-                sourcePhenos.add(hpo);
-            }
+    private void writeTsv(PrintWriter writer, HpoDisease disease, List<NeighbourhoodMatcher.Match> matches) {
+        for (NeighbourhoodMatcher.Match m : matches) {
+            writer.printf("%s\t%s\t%s\t%s\t%s\t%s\t%s\t%d\t%d%n", disease.getDiseaseDatabaseId().getValue(),
+                    disease.getName(), m.getTerm().getValue(), label(m.getTerm()), m.getSourceTerm().getValue(),
+                    label(m.getSourceTerm()), m.getRelation(), m.getDistance(), m.getSupport());
         }
-        for (TermId t : sourcePhenos) {
-            String label = hpoOntology.getTermMap().get(t).getName();
-            System.out.println("\t"+label);
-        }
-        sourcesPhenosParents = getParentTerms(hpoOntology,sourcePhenos,false);
-        sourcePhenoGrandParents = getParentTerms(hpoOntology,sourcesPhenosParents,false);
     }
 
-
-    private void inputTargets() {
-        targets = new HashSet<>();
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(this.targetFile));
-            String line;
-            while ((line=br.readLine())!=null) {
-                if (line.startsWith("OMIM")) {
-                    TermId diseaseId=TermId.of(line.trim());
-                    targets.add(diseaseId);
-                }
+    @SuppressWarnings("unchecked")
+    private JSONArray toJson(List<HpoDisease> diseases, List<List<NeighbourhoodMatcher.Match>> matches) {
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < diseases.size(); i++) {
+            HpoDisease disease = diseases.get(i);
+            JSONArray jsonMatches = new JSONArray();
+            for (NeighbourhoodMatcher.Match m : matches.get(i)) {
+                JSONObject jm = new JSONObject();
+                jm.put("term_id", m.getTerm().getValue());
+                jm.put("term_label", label(m.getTerm()));
+                jm.put("source_term_id", m.getSourceTerm().getValue());
+                jm.put("source_term_label", label(m.getSourceTerm()));
+                jm.put("relation", m.getRelation().name());
+                jm.put("distance", m.getDistance());
+                jm.put("support", m.getSupport());
+                jsonMatches.add(jm);
             }
-        } catch (IOException e){
-            e.printStackTrace();
+            JSONObject jd = new JSONObject();
+            jd.put("disease_id", disease.getDiseaseDatabaseId().getValue());
+            jd.put("disease_name", disease.getName());
+            jd.put("matches", jsonMatches);
+            array.add(jd);
         }
-        System.out.println("[INFO] target diseases: " + targets.size());
+        return array;
     }
 
-    private void inputSources() {
-        sources = new HashSet<>();
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(this.sourceFile));
+    /**
+     * @param path file with one disease id (e.g., OMIM:100100) per line
+     * @return the disease ids in the order of the file, without duplicates
+     */
+    private static List<TermId> inputDiseaseIds(String path) {
+        Set<TermId> ids = new LinkedHashSet<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
             String line;
             while ((line=br.readLine())!=null) {
-                if (line.startsWith("OMIM")) {
-                    TermId diseaseId=TermId.of(line.trim());
-                    sources.add(diseaseId);
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int colon = line.indexOf(':');
+                if (colon < 1 || colon == line.length() - 1) {
+                    LOGGER.warn("Skipping \"{}\", which is not a disease id", line);
+                    continue;
                 }
+                ids.add(TermId.of(line));
             }
         } catch (IOException e){
-            e.printStackTrace();
+            LOGGER.error("Could not read \"{}\": {}", path, e.getMessage());
         }
-        System.out.println("[INFO] sources diseases: " + sources.size());
+        return new ArrayList<>(ids);
     }
 
 
-
-
-
-    private void inputHPOdata() {
+    private TermDiseaseIndex inputHPOdata() {
         File f = new File(hpopath);
         if (! f.exists()) {
             LOGGER.error(String.format("Could not find hpo ontology file at\"%s\". Terminating program...", hpopath ));
-            System.exit(1);
+            return null;
         }
         f=new File(annotpath);
         if (! f.exists()) {
             LOGGER.error(String.format("Could not find phenotype annotation file at\"%s\". Terminating program...", annotpath ));
-            System.exit(1);
+            return null;
         }
         LOGGER.trace(String.format("inputting data with files %s and %s",hpopath,annotpath));
         HPOParser parser = new HPOParser(hpopath);
         hpoOntology=parser.getHPO();
-        diseaseMap = HpoDiseaseAnnotationParser.loadDiseaseMap(annotpath,hpoOntology);
+        Map<TermId, HpoDisease> diseaseMap = HpoDiseaseAnnotationParser.loadDiseaseMap(annotpath,hpoOntology);
         LOGGER.trace("Diseases imported: " + diseaseMap.size());
+        return TermDiseaseIndex.of(diseaseMap, CompactOntologyGraph.of(hpoOntology));
     }
 
 
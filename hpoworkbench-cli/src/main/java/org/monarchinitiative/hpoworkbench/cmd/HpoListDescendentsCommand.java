@@ -1,7 +1,10 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
 import com.google.common.collect.ImmutableSet;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
 import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.hpoworkbench.io.HpoaAnnotationLine;
+import org.monarchinitiative.hpoworkbench.io.HpoaStreamParser;
 import org.monarchinitiative.phenol.base.PhenolRuntimeException;
 import org.monarchinitiative.phenol.graph.IdLabeledEdge;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
@@ -10,12 +13,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.Set;
-import java.util.Stack;
 import java.util.concurrent.Callable;
 
 /**
@@ -49,43 +50,36 @@ public class HpoListDescendentsCommand extends HPOCommand implements Callable<In
     }
 
     private void parsePhenotypeHpoa() {
-        String path = "data/phenotype.hpoa";
-        File f = new File(path);
+        File f = new File(annotpath);
         if (!f.exists()) {
             throw new PhenolRuntimeException("Could not find phenotype.hpoa. Run the download command");
         }
-        int n_omim = 0;
-        int n_orpha = 0;
-        int n_decipher = 0;
-        int n_omim_total = 0;
-        int n_orpha_total = 0;
-        int n_decipher_total = 0;
-        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-            String line;
-            while ((line=br.readLine()) != null) {
-                //System.out.println(line);
-                if (line.startsWith("#") ) {
-                    continue; // skip comments
-                }
-                if (line.startsWith("OMIM")) n_omim_total++;
-                if (line.startsWith("ORPHA")) n_orpha_total++;
-                if (line.startsWith("DECIPHER")) n_decipher_total++;
-                String [] fields = line.split("\t");
-                TermId t = TermId.of(fields[3]);
-                System.out.println(t.getValue());
-                if (descendentsOfTheTermOfInterest.contains(t)) {
-                    if (line.startsWith("OMIM")){
-                        n_omim++;
-                    } else if (line.startsWith("ORPHA")) {
-                        n_orpha++;
-                    } else if (line.startsWith("DECIPHER")) {
-                        n_decipher++;
-                    }
+        // numeric part of the descendent ids, so that the annotation lines can be checked without creating TermIds
+        BitSet descendentIds = new BitSet();
+        for (TermId tid : descendentsOfTheTermOfInterest) {
+            descendentIds.set(Integer.parseInt(tid.getId()));
+        }
+        // totals and counts of annotations to the descendents, indexed by database (OMIM, ORPHA, DECIPHER, OTHER)
+        int[] totals = new int[HpoaAnnotationLine.Database.values().length];
+        int[] counts = new int[HpoaAnnotationLine.Database.values().length];
+        try {
+            new HpoaStreamParser(f).parse(line -> {
+                int db = line.database().ordinal();
+                totals[db]++;
+                int hpoId = line.hpoIdAsInt();
+                if (hpoId >= 0 && descendentIds.get(hpoId)) {
+                    counts[db]++;
                 }
-            }
+            });
         } catch (IOException e) {
             e.printStackTrace();
         }
+        int n_omim = counts[HpoaAnnotationLine.Database.OMIM.ordinal()];
+        int n_orpha = counts[HpoaAnnotationLine.Database.ORPHA.ordinal()];
+        int n_decipher = counts[HpoaAnnotationLine.Database.DECIPHER.ordinal()];
+        int n_omim_total = totals[HpoaAnnotationLine.Database.OMIM.ordinal()];
+        int n_orpha_total = totals[HpoaAnnotationLine.Database.ORPHA.ordinal()];
+        int n_decipher_total = totals[HpoaAnnotationLine.Database.DECIPHER.ordinal()];
         System.out.printf("Total of %d terms descend from %s\n", descendentsOfTheTermOfInterest.size(), hpoTermId);
         System.out.printf("Annotations: OMIM: %d, ORPHA: %d, DECIPHER: %d\n", n_omim, n_orpha, n_decipher);
         System.out.printf("Percent omim %f%% (%d/%d)\n",(100.0*(double)n_omim/n_omim_total),n_omim,n_omim_total);
@@ -109,17 +103,23 @@ public class HpoListDescendentsCommand extends HPOCommand implements Callable<In
         LOGGER.trace("Term of interest: "+termOfInterest.getValue());
 
         inputHPOdata();
-        getDescendentsOfTermOfInterest(termOfInterest);
+        if (! getDescendentsOfTermOfInterest(termOfInterest)) {
+            return 1;
+        }
         parsePhenotypeHpoa();
         return 0;
 
     }
 
-    private void getDescendentsOfTermOfInterest(TermId termOfInterest) {
-        String name = String.format("%s [%s]",hpoOntology.getTermMap().get(termOfInterest).getName(),termOfInterest.getValue() );
+    /** @return false if the term of interest is not a current term of the ontology */
+    private boolean getDescendentsOfTermOfInterest(TermId termOfInterest) {
         descendentsOfTheTermOfInterest = countDescendentsAndSubclassRelations(hpoOntology,termOfInterest);
-
-
+        if (descendentsOfTheTermOfInterest == null) {
+            LOGGER.error(String.format("Could not find \"%s\" in the ontology (unknown or obsolete term). Terminating program...",
+                    termOfInterest.getValue()));
+            return false;
+        }
+        return true;
     }
 
     /**
@@ -128,19 +128,18 @@ public class HpoListDescendentsCommand extends HPOCommand implements Callable<In
      *
      * @param ontology The ontology to which parentTermId belongs
      * @param parentTermId The term whose descendents were are seeking
-     * @return A set of all descendents of parentTermId (including the parentTermId itself)
+     * @return A set of all descendents of parentTermId (including the parentTermId itself), or null if
+     * parentTermId is not a current term of the ontology
      */
     private Set<TermId> countDescendentsAndSubclassRelations(
             Ontology ontology, TermId parentTermId) {
-        ImmutableSet.Builder<TermId> descset = new ImmutableSet.Builder<>();
-        Stack<TermId> stack = new Stack<>();
-        stack.push(parentTermId);
-        while (!stack.empty()) {
-            TermId tid = stack.pop();
-            descset.add(tid);
-            Set<TermId> directChildrenSet = countChildTermsAndSubclassRelations(ontology, tid);
-            directChildrenSet.forEach(stack::push);
+        CompactOntologyGraph graph = CompactOntologyGraph.of(ontology);
+        int idx = graph.index(parentTermId);
+        if (idx < 0) {
+            return null;
         }
+        ImmutableSet.Builder<TermId> descset = new ImmutableSet.Builder<>();
+        graph.newTraversal().forEachDescendant(idx, true, i -> descset.add(graph.termId(i)));
         return descset.build();
     }
 
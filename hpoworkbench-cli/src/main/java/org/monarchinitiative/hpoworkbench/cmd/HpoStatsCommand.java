@@ -1,27 +1,31 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
 
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
+import org.json.simple.JSONValue;
 import org.monarchinitiative.hpoworkbench.analysis.HpoStats;
+import org.monarchinitiative.hpoworkbench.analysis.TermStatisticsTable;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.hpoworkbench.io.HpoaAnnotationLine.Database;
 import org.monarchinitiative.phenol.annotations.assoc.HpoAssociationParser;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoOnsetTermIds;
 import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
-import org.monarchinitiative.phenol.graph.IdLabeledEdge;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
-import java.io.File;
-import java.io.PrintWriter;
+import java.io.*;
 import java.util.*;
 import java.util.concurrent.Callable;
-
-import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.existsPath;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 /**
  * Extract descriptive statistics about a a certain subhierarchy of the HPO.
@@ -36,20 +40,12 @@ public class HpoStatsCommand extends HPOCommand implements Callable<Integer> {
     private Ontology hpoOntology=null;
     /** All disease annotations for the entire ontology. */
     private Map<TermId, HpoDisease> diseaseMap =null;
-
-    /** Set of all HPO terms that are descendents of {@link #termOfInterest}. */
-    private Set<TermId> descendentsOfTheTermOfInterest =null;
-    /** We use this to count the number of subclass relations underneath {@link #termOfInterest}. */
-    private Set<IdLabeledEdge> relationsUnderTermOfInterest;
+    /** Statistics for every term, computed in one pass over the ontology. */
+    private TermStatisticsTable statisticsTable=null;
     private Set<TermId> adultOnset=null;
     private Set<TermId> childhoodOnset=null;
 
 
-    private List<HpoDisease> omim;
-    private List<HpoDisease> orphanet;
-    private List<HpoDisease> decipher;
-
-
 
 
 
@@ -60,6 +56,28 @@ public class HpoStatsCommand extends HPOCommand implements Callable<Integer> {
 
     private TermId termOfInterest;
 
+    /** Batch mode: several roots of subhierarchies, e.g., --terms HP:0000707,HP:0000478. */
+    @CommandLine.Option(names={"--terms"}, split = ",", description = "comma-separated list of terms (batch mode)")
+    private List<String> batchTerms = new ArrayList<>();
+    /** Batch mode: file with one term id per line. */
+    @CommandLine.Option(names={"--term-file"}, description = "file with one term id per line (batch mode)")
+    private String batchTermFile = null;
+    /** Batch mode: all direct children of this term, e.g., HP:0000118 for all organ systems. */
+    @CommandLine.Option(names={"--children-of"}, description = "use all children of this term (batch mode)")
+    private String childrenOf = null;
+    @CommandLine.Option(names={"--format"}, description = "output format in batch mode: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private OutputFormat format = OutputFormat.tsv;
+    @CommandLine.Option(names={"-o","--out"}, description = "output file in batch mode (default: standard output)")
+    private String outfile = null;
+    @CommandLine.Option(names={"--threads"}, description = "number of threads in batch mode (default: ${DEFAULT-VALUE})")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /** Output formats of the batch mode. JSON is written as one object per line, so that it can be streamed. */
+    enum OutputFormat {tsv, json}
+
+    private static final String[] BATCH_HEADER = {"id", "label", "terms", "with_definition", "synonyms", "relations",
+            "omim_diseases", "omim_annotations", "orpha_diseases", "orpha_annotations",
+            "decipher_diseases", "decipher_annotations"};
 
 
     public HpoStatsCommand() {
@@ -75,6 +93,9 @@ public class HpoStatsCommand extends HPOCommand implements Callable<Integer> {
         if (annotpath==null) {
             annotpath = this.downloadDirectory + File.separator + "phenotype.hpoa";
         }
+        if (!batchTerms.isEmpty() || batchTermFile != null || childrenOf != null) {
+            return runBatch();
+        }
         HpoStats hpoStats = new HpoStats(hpopath, annotpath);
         PrintWriter writer = new PrintWriter(System.out);
         hpoStats.outputOntologyStats(writer);
@@ -87,12 +108,12 @@ public class HpoStatsCommand extends HPOCommand implements Callable<Integer> {
             }
             this.termOfInterest = TermId.of(term);
             LOGGER.trace("Term of interest: " + termOfInterest.getValue());
-            omim = new ArrayList<>();
-            orphanet = new ArrayList<>();
-            decipher = new ArrayList<>();
-
-            getDescendentsOfTermOfInterest();
-            filterDiseasesAccordingToDatabase();
+            inputStatistics();
+            if (!hpoOntology.getTermMap().containsKey(termOfInterest) || !statisticsTable.contains(termOfInterest)) {
+                LOGGER.error(String.format("Could not find term \"%s\" in the HPO. Terminating program...", term));
+                System.exit(1);
+            }
+            logTermStats();
             qcInheritanceModesForDiseases();
             countDiseasesWithAndWithoutAssociatedGenes();
         } else {
@@ -102,6 +123,117 @@ public class HpoStatsCommand extends HPOCommand implements Callable<Integer> {
     }
 
 
+    /** Load the HPO and the annotations and compute the statistics for all terms. */
+    private void inputStatistics() {
+        hpoOntology = new HPOParser(hpopath).getHPO();
+        if (hpoOntology == null) {
+            LOGGER.error(String.format("Could not load HPO from \"%s\". Terminating program...", hpopath));
+            System.exit(1);
+        }
+        diseaseMap = HpoDiseaseAnnotationParser.loadDiseaseMap(annotpath, hpoOntology);
+        if (diseaseMap==null) {
+            LOGGER.error("Disease map was not properly initialized. Terminating program...");
+            System.exit(1);
+        }
+        statisticsTable = TermStatisticsTable.of(hpoOntology,
+                TermDiseaseIndex.of(diseaseMap, CompactOntologyGraph.of(hpoOntology)));
+    }
+
+    /**
+     * Batch mode: load the data once and write one row of statistics for each requested term. The rows are
+     * computed concurrently on a {@link ForkJoinPool} and written in the order of the input as they become
+     * available.
+     */
+    private int runBatch() {
+        inputStatistics();
+        List<TermId> terms = getBatchTerms();
+        LOGGER.info("Calculating statistics for {} terms with {} threads", terms.size(), threads);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try (PrintWriter writer = outfile == null ? new PrintWriter(System.out) :
+                new PrintWriter(new BufferedWriter(new FileWriter(outfile)))) {
+            if (format == OutputFormat.tsv) {
+                writer.println(String.join("\t", BATCH_HEADER));
+            }
+            pool.submit(() -> terms.parallelStream()
+                    .map(this::getBatchRow)
+                    .map(row -> format == OutputFormat.tsv ? toTsv(row) : toJson(row))
+                    .forEachOrdered(writer::println)).get();
+            writer.flush();
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            LOGGER.error("Could not write batch statistics: {}", e.getMessage());
+            return 1;
+        } finally {
+            pool.shutdown();
+        }
+        return 0;
+    }
+
+    /** @return the terms from --terms, --term-file and --children-of that are part of the HPO, without duplicates */
+    private List<TermId> getBatchTerms() {
+        List<String> ids = new ArrayList<>(batchTerms);
+        if (batchTermFile != null) {
+            try (BufferedReader br = new BufferedReader(new FileReader(batchTermFile))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        ids.add(line.split("\\s+")[0]);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error(String.format("Could not read \"%s\". Terminating program...", batchTermFile));
+                System.exit(1);
+            }
+        }
+        CompactOntologyGraph graph = statisticsTable.getGraph();
+        if (childrenOf != null) {
+            int parent = childrenOf.startsWith("HP:") && childrenOf.length() == 10
+                    ? graph.index(TermId.of(childrenOf)) : -1;
+            if (parent < 0) {
+                LOGGER.error(String.format("Could not find term \"%s\" in the HPO. Terminating program...", childrenOf));
+                System.exit(1);
+            }
+            for (int k = 0; k < graph.childCount(parent); k++) {
+                ids.add(graph.termId(graph.child(parent, k)).getValue());
+            }
+        }
+        Set<TermId> terms = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (!id.startsWith("HP:") || id.length() != 10 || !statisticsTable.contains(TermId.of(id))) {
+                LOGGER.warn("Skipping \"{}\", which is not a term of the HPO", id);
+                continue;
+            }
+            terms.add(TermId.of(id));
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /** @return the statistics of one term as values in the order of {@link #BATCH_HEADER} */
+    private List<Object> getBatchRow(TermId tid) {
+        String label = hpoOntology.getTermMap().containsKey(tid) ? hpoOntology.getTermMap().get(tid).getName() : "";
+        List<Object> row = new ArrayList<>(List.of(tid.getValue(), label,
+                statisticsTable.getDescendantCount(tid), statisticsTable.getDefinitionCount(tid),
+                statisticsTable.getSynonymCount(tid), statisticsTable.getRelationCount(tid)));
+        for (Database database : List.of(Database.OMIM, Database.ORPHA, Database.DECIPHER)) {
+            row.add(statisticsTable.getDiseaseCount(tid, database));
+            row.add(statisticsTable.getSubtreeAnnotationCount(tid, database));
+        }
+        return row;
+    }
+
+    private static String toTsv(List<Object> row) {
+        return row.stream().map(String::valueOf).collect(Collectors.joining("\t"));
+    }
+
+    private static String toJson(List<Object> row) {
+        // LinkedHashMap keeps the columns in the same order as in the TSV output
+        Map<String, Object> json = new LinkedHashMap<>();
+        for (int i = 0; i < BATCH_HEADER.length; i++) {
+            json.put(BATCH_HEADER[i], row.get(i));
+        }
+        return JSONValue.toJSONString(json);
+    }
+
     private void countDiseasesWithAndWithoutAssociatedGenes() {
         String geneInfoFile = this.downloadDirectory + File.separator + "Homo_sapiens_gene_info.gz";
         String mim2genemedgenFile = this.downloadDirectory + File.separator + "mim2gene_medgen";
@@ -171,84 +303,21 @@ public class HpoStatsCommand extends HPOCommand implements Callable<Integer> {
 
 
 
-    private void getDescendentsOfTermOfInterest() {
+    /** Log the statistics for {@link #termOfInterest}, which are looked up in {@link #statisticsTable}. */
+    private void logTermStats() {
         String name = String.format("%s [%s]",hpoOntology.getTermMap().get(termOfInterest).getName(),termOfInterest.getValue() );
-        relationsUnderTermOfInterest=new HashSet<>();
-        descendentsOfTheTermOfInterest = countDescendentsAndSubclassRelations(hpoOntology,termOfInterest);
-        int n_textual_def = getNumberOfTermsWithDefinition(hpoOntology,descendentsOfTheTermOfInterest);
-        int n_synonyms = getTotalNumberOfSynonyms(hpoOntology,descendentsOfTheTermOfInterest);
-        LOGGER.trace(String.format("We found a total of %d terms annotated to %s or descendents", descendentsOfTheTermOfInterest.size(), name));
-        LOGGER.trace(String.format("Of these terms, %d has a textual definition. There were a total of %d synonyms.",n_textual_def,n_synonyms));
-        LOGGER.trace(String.format("We found a total of %d subclass relations beneath the term of interest",relationsUnderTermOfInterest.size()));
-    }
-
-
-
-    /**
-     * Find all of the descendents of parentTermId (including direct children and more distant
-     * descendents)
-     *
-     * @param ontology The ontology to which parentTermId belongs
-     * @param parentTermId The term whose descendents were are seeking
-     * @return A set of all descendents of parentTermId (including the parentTermId itself)
-     */
-    private Set<TermId> countDescendentsAndSubclassRelations(
-            Ontology ontology, TermId parentTermId) {
-        ImmutableSet.Builder<TermId> descset = new ImmutableSet.Builder<>();
-        Stack<TermId> stack = new Stack<>();
-        stack.push(parentTermId);
-        while (!stack.empty()) {
-            TermId tid = stack.pop();
-            descset.add(tid);
-            Set<TermId> directChildrenSet = countChildTermsAndSubclassRelations(ontology, tid);
-            directChildrenSet.forEach(stack::push);
-        }
-        return descset.build();
-    }
-
-    /**
-     * Find all of the direct children of parentTermId (do not include "grandchildren" and other
-     * descendents).
-     *
-     * @param ontology The ontology to which parentTermId belongs
-     * @param parentTermId The term whose children were are seeking
-     * @return A set of all child terms of parentTermId
-     */
-    public Set<TermId> countChildTermsAndSubclassRelations(
-            Ontology ontology,
-            TermId parentTermId) {
-        ImmutableSet.Builder<TermId> kids = new ImmutableSet.Builder<>();
-        //if (includeOriginalTerm) kids.add(parentTermId);
-        for (IdLabeledEdge edge : ontology.getGraph().incomingEdgesOf(parentTermId)) {
-            TermId sourceId = (TermId) edge.getSource();
-            kids.add(sourceId);
-            this.relationsUnderTermOfInterest.add(edge);
-        }
-        return kids.build();
-    }
-
-
-
-
-    private int getTotalNumberOfSynonyms(Ontology ontology, Set<TermId> terms) {
-        int n=0;
-        for (TermId tid : terms) {
-            n+=ontology.getTermMap().get(tid).getSynonyms().size();
-        }
-        return n;
-    }
-
-    private int getNumberOfTermsWithDefinition(Ontology ontology, Set<TermId> terms) {
-        int n=0;
-        for (TermId tid : terms) {
-            String def=ontology.getTermMap().get(tid).getDefinition();
-            if (def!=null && def.length()>0) n++;
-        }
-        return n;
+        LOGGER.trace(String.format("We found a total of %d terms annotated to %s or descendents", statisticsTable.getDescendantCount(termOfInterest), name));
+        LOGGER.trace(String.format("Of these terms, %d has a textual definition. There were a total of %d synonyms.",statisticsTable.getDefinitionCount(termOfInterest),statisticsTable.getSynonymCount(termOfInterest)));
+        LOGGER.trace(String.format("We found a total of %d subclass relations beneath the term of interest",statisticsTable.getRelationCount(termOfInterest)));
+        String termname=hpoOntology.getTermMap().get(termOfInterest).getName();
+        LOGGER.trace(String.format("We found %d diseases in OMIM annotated to %s or descendents with %d total annotations for the term of interest",
+                statisticsTable.getDiseaseCount(termOfInterest, Database.OMIM),termname,statisticsTable.getSubtreeAnnotationCount(termOfInterest, Database.OMIM)));
+        LOGGER.trace(String.format("We found %d diseases in Orphanet annotated to %s or descendents with %d total annotations for the term of interest",
+                statisticsTable.getDiseaseCount(termOfInterest, Database.ORPHA),termname,statisticsTable.getSubtreeAnnotationCount(termOfInterest, Database.ORPHA)));
+        LOGGER.trace(String.format("We found %d diseases in DECIPHER annotated to %s or descendents with %d total annotations for the term of interest",
+                statisticsTable.getDiseaseCount(termOfInterest, Database.DECIPHER),termname,statisticsTable.getSubtreeAnnotationCount(termOfInterest, Database.DECIPHER)));
     }
 
-
-
     private void initializeAdultOnsetTerms() {
         adultOnset=new HashSet<>();
         adultOnset.add(HpoOnsetTermIds.ADULT_ONSET);
@@ -271,56 +340,6 @@ public class HpoStatsCommand extends HPOCommand implements Callable<Integer> {
     }
 
 
-    private boolean diseaseAnnotatedToTermOfInterest(HpoDisease d) {
-        List<HpoAnnotation> tiwmlist= d.getPhenotypicAbnormalities();
-        for (HpoAnnotation id:tiwmlist) {
-          if (this.descendentsOfTheTermOfInterest.contains(id.getTermId()))
-              return true;
-        }
-        return false;
-    }
-
-
-    private void filterDiseasesAccordingToDatabase() {
-        int n_omim_annot=0;
-        int n_orpha_annot=0;
-        int n_decipher_annot=0;
-        if (diseaseMap==null) {
-            LOGGER.error("Disease map was not properly initialized. Terminating program...");
-            System.exit(1);
-        }
-        for (HpoDisease d:this.diseaseMap.values()) {
-            if (!diseaseAnnotatedToTermOfInterest(d)) {
-                continue;
-            }
-            int n_annot=0;
-            for (HpoAnnotation annot : d.getPhenotypicAbnormalities() ){
-                TermId hpoId=annot.getTermId();
-                if (existsPath(hpoOntology,hpoId,termOfInterest)) {
-                    n_annot++;
-                }
-            }
-            String database=d.getDatabase();
-            if (database.startsWith("OMIM")) {
-                omim.add(d);
-                n_omim_annot+=n_annot;
-            } else if (database.startsWith("ORPHA")){
-                orphanet.add(d);
-                n_orpha_annot+=n_annot;
-            } else if (database.startsWith("DECIPHER")) {
-                decipher.add(d);
-                n_decipher_annot+=n_annot;
-            } else {
-                LOGGER.error("Did not recognize data base"+ database);
-            }
-        }
-        String termname=hpoOntology.getTermMap().get(termOfInterest).getName();
-        LOGGER.trace(String.format("We found %d diseases in OMIM annotated to %s or descendents with %d total annotations for the term of interest",omim.size(),termname,n_omim_annot));
-        LOGGER.trace(String.format("We found %d diseases in Orphanet annotated to %s or descendents with %d total annotations for the term of interest",orphanet.size(),termname,n_orpha_annot));
-        LOGGER.trace(String.format("We found %d diseases in DECIPHER annotated to %s or descendents with %d total annotations for the term of interest",decipher.size(),termname,n_decipher_annot));
-    }
-
-
     private boolean hasAdultOnset(HpoDisease d) {
         List<HpoAnnotation> ids=d.getPhenotypicAbnormalities();
         for (HpoAnnotation id:ids) {
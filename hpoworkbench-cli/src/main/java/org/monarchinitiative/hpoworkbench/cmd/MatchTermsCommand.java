@@ -1,120 +1,138 @@
 package org.monarchinitiative.hpoworkbench.cmd;
 
-import me.xdrop.fuzzywuzzy.FuzzySearch;
-
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.io.OntologySnapshot;
+import org.monarchinitiative.hpoworkbench.search.FuzzyTermIndex;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
-import org.monarchinitiative.phenol.ontology.data.Term;
-import org.monarchinitiative.phenol.ontology.data.TermId;
-import org.monarchinitiative.phenol.ontology.data.TermSynonym;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
 import java.io.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
-
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Match the lines of a TSV file (label in the first column and an optional synonym in the second column) to the
+ * HPO term with the most similar label or synonym (see {@link FuzzyTermIndex}). Each input line is written to the
+ * output followed by the HPO id and label of the best match, the score (0-100) and the matched label or synonym;
+ * {@code n/a} is written if no match reaches {@code --min-score}. The lines are read and matched in batches on all
+ * cores, and the output is in the order of the input.
+ */
 @CommandLine.Command(name = "match",
         mixinStandardHelpOptions = true,
         description = "Match HPO terms to a list of candidates.")
 public class MatchTermsCommand extends  HPOCommand implements Callable<Integer> {
     private static final Logger logger = LoggerFactory.getLogger(MatchTermsCommand.class);
 
+    /** Number of input lines that are matched in parallel before they are written. */
+    private static final int BATCH_SIZE = 10_000;
+
     @CommandLine.Option(names = {"-f", "--file"},required = true, description = "TSV file with terms")
     private String path;
-
-    private String hpopath=null;
+    @CommandLine.Option(names={"-o","--out"}, description = "output file (default: ${DEFAULT-VALUE})")
+    private String outfile = "mapping.tsv";
+    @CommandLine.Option(names={"--min-score"}, description = "minimum score of a match, 0-100 (default: ${DEFAULT-VALUE})")
+    private int minScore = 81;
+    @CommandLine.Option(names={"--candidates"}, description = "number of candidates scored per query (default: ${DEFAULT-VALUE})")
+    private int candidates = 50;
+    @CommandLine.Option(names={"--threads"}, description = "number of threads (default: ${DEFAULT-VALUE})")
+    private int threads = Runtime.getRuntime().availableProcessors();
 
     private Ontology hpo;
 
-    private Map<String,TermId> labelToTermIdMap;
-
+    private FuzzyTermIndex index;
 
 
     @Override
     public Integer call() {
         logger.trace("Processing input file {}", path);
-        initHPOontology();
-        logger.trace("Got HPO with {} terms", hpo.countAllTerms());
-        try {
+        if (candidates < 1) {
+            logger.error("--candidates must be at least 1 but was {}", candidates);
+            return 1;
+        }
+        if (! initHPOontology()) {
+            return 1;
+        }
+        logger.trace("Got HPO with {} terms and {} labels and synonyms", hpo.countAllTerms(), index.size());
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        long start = System.currentTimeMillis();
+        int lineCount = 0;
+        int matchCount = 0;
+        try (BufferedReader br = new BufferedReader(new FileReader(path));
+             BufferedWriter writer = new BufferedWriter(new FileWriter(outfile))) {
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
             String line;
-            BufferedReader br = new BufferedReader(new FileReader(path));
-            BufferedWriter writer = new BufferedWriter(new FileWriter("mapping.tsv"));
             while ((line=br.readLine())!= null) {
-                System.err.println(line);
-                String[] fields = line.split("\t");
-                String label = fields[0];
-                String syn = fields[1];
-                System.err.println(fields.length);
-                TermId tid = findBestTerm(label,syn);
-                if (tid != null) {
-                    String hpolabel = hpo.getTermMap().get(tid).getName();
-                    String newline=String.join("\t",line,tid.getValue(),hpolabel);
-                    System.err.println(newline);
-                    writer.write(newline +"\n");
-                } else {
-                    String newline=String.join("\t",line,"n/a","n/a");
-                    writer.write(newline +"\n");
+                batch.add(line);
+                if (batch.size() == BATCH_SIZE) {
+                    matchCount += writeBatch(batch, pool, writer);
+                    lineCount += batch.size();
+                    batch.clear();
                 }
             }
-            br.close();
-            writer.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+            matchCount += writeBatch(batch, pool, writer);
+            lineCount += batch.size();
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            logger.error("Could not match terms: {}", e.getMessage());
+            return 1;
+        } finally {
+            pool.shutdown();
         }
+        logger.info("Matched {} of {} lines in {} ms", matchCount, lineCount, System.currentTimeMillis() - start);
         return 0;
     }
 
-
-    private TermId findBestTerm(String label, String synonym) {
-        TermId candidate = null;
-        int  max=0;
-        for (String s : labelToTermIdMap.keySet()) {
-            int f = FuzzySearch.partialRatio(label,s);
-            if (f>max) {
-                max=f;
-                candidate=labelToTermIdMap.get(s);
-            }
-             f = FuzzySearch.partialRatio(synonym,s);
-            if (f>max) {
-                max=f;
-                candidate=labelToTermIdMap.get(s);
+    /** @return number of lines with a match */
+    private int writeBatch(List<String> batch, ForkJoinPool pool, BufferedWriter writer)
+            throws IOException, InterruptedException, ExecutionException {
+        List<FuzzyTermIndex.Match> matches = pool.submit(() -> batch.parallelStream()
+                .map(this::findBestMatch)
+                .toList()).get();
+        int matchCount = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            FuzzyTermIndex.Match match = matches.get(i);
+            String newline;
+            if (match != null) {
+                String hpolabel = hpo.getTermMap().get(match.getTermId()).getName();
+                newline = String.join("\t", batch.get(i), match.getTermId().getValue(), hpolabel,
+                        String.valueOf(match.getScore()), match.getText());
+                matchCount++;
+            } else {
+                newline = String.join("\t", batch.get(i), "n/a", "n/a", "n/a", "n/a");
             }
+            writer.write(newline + "\n");
         }
-        if (max>80) return candidate;
-        return null;
+        return matchCount;
     }
 
-
-
-
-    private void initHPOontology() {
-        if (hpopath==null) {
-            hpopath = this.downloadDirectory + File.separator + "hp.obo";
-        }
-        this.hpo = OntologyLoader.loadOntology(new File(this.hpopath));
-        labelToTermIdMap = new HashMap<>();
-        for (Term term : hpo.getTermMap().values()){
-            TermId tid = term.getId();
-            String label = term.getName();
-            labelToTermIdMap.put(label,tid);
-            for (TermSynonym tsyn :term.getSynonyms() ) {
-                String syn = tsyn.getValue();
-                labelToTermIdMap.put(syn,tid);
+    /** @return best match of the label or the synonym of the line, or null if there is no match above the minimum score */
+    private FuzzyTermIndex.Match findBestMatch(String line) {
+        String[] fields = line.split("\t");
+        FuzzyTermIndex.Match best = index.bestMatch(fields[0], candidates);
+        if (fields.length > 1) {
+            FuzzyTermIndex.Match m = index.bestMatch(fields[1], candidates);
+            if (m != null && (best == null || m.getScore() > best.getScore())) {
+                best = m;
             }
         }
+        if (best != null && best.getScore() >= minScore) return best;
+        return null;
     }
 
 
-
-
-
-
-
-
+    private boolean initHPOontology() {
+        File f = new File(hpopath);
+        if (! f.exists()) {
+            logger.error(String.format("Could not find hpo ontology file at\"%s\". Terminating program...", hpopath ));
+            return false;
+        }
+        this.hpo = OntologySnapshot.load(f);
+        index = FuzzyTermIndex.of(hpo);
+        return true;
+    }
 
 
     public String getName() {
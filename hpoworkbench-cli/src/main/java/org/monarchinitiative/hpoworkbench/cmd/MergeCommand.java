@@ -0,0 +1,211 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.monarchinitiative.hpoworkbench.annotation.BatchAnnotationMerger;
+import org.monarchinitiative.hpoworkbench.annotation.CategoryMerge;
+import org.monarchinitiative.hpoworkbench.annotation.HpoCategoryTable;
+import org.monarchinitiative.hpoworkbench.annotation.SubClassTermPair;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Merge the annotations of pairs of diseases from different databases, typically OMIM and Orphanet entries that
+ * describe the same disease (see {@link BatchAnnotationMerger}). Each line of the mapping file is one group of
+ * tab-separated disease ids (e.g., OMIM:166450 and ORPHA:2777); if the first id is not from OMIM, ORPHA or
+ * DECIPHER, it is taken to be the id of the group (e.g., a MONDO id). All pairs of ids from different databases in a
+ * group are merged. Empty lines and lines starting with # are skipped. The output has one row (TSV) or JSON object
+ * (JSON, one per line) for each category of each pair.
+ */
+@CommandLine.Command(name = "merge",
+        mixinStandardHelpOptions = true,
+        description = "Merge the annotations of OMIM/Orphanet disease pairs by category.")
+public class MergeCommand extends HPOCommand implements Callable<Integer> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MergeCommand.class);
+
+    enum Format {TSV, JSON}
+
+    private static final Set<String> DISEASE_PREFIXES = Set.of("OMIM", "ORPHA", "DECIPHER");
+
+    @CommandLine.Option(names={"-m","--mapping"}, required = true, description = "file with groups of disease ids to merge")
+    private String mappingFile;
+    @CommandLine.Option(names={"--threads"}, description = "number of threads (default: ${DEFAULT-VALUE})")
+    private int threads = Runtime.getRuntime().availableProcessors();
+    @CommandLine.Option(names={"--format"}, description = "output format: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private Format format = Format.TSV;
+    @CommandLine.Option(names={"-o","--out"}, description = "output file (default: standard output)")
+    private String outfile = null;
+
+    private static final String HEADER = "group\tdisease1_id\tdisease2_id\tcategory\tcommon\td1_subclass_of_d2\t" +
+            "d2_subclass_of_d1\td1_only\td2_only";
+
+    @Override
+    public Integer call() {
+        List<BatchAnnotationMerger.DiseasePair> pairs = inputPairs(mappingFile);
+        if (pairs == null) {
+            return 1;
+        }
+        Ontology hpoOntology = new HPOParser(hpopath).getHPO();
+        if (hpoOntology == null) {
+            LOGGER.error(String.format("Could not load HPO from \"%s\". Terminating program...", hpopath));
+            return 1;
+        }
+        Map<TermId, HpoDisease> diseaseMap = HpoDiseaseAnnotationParser.loadDiseaseMap(annotpath, hpoOntology);
+        if (diseaseMap == null) {
+            LOGGER.error("Disease map was not properly initialized. Terminating program...");
+            return 1;
+        }
+        TermDiseaseIndex index = TermDiseaseIndex.of(diseaseMap, CompactOntologyGraph.of(hpoOntology));
+        BatchAnnotationMerger merger = BatchAnnotationMerger.of(index);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try (PrintWriter writer = outfile == null ? new PrintWriter(System.out) :
+                new PrintWriter(new BufferedWriter(new FileWriter(outfile)))) {
+            long start = System.currentTimeMillis();
+            if (format == Format.TSV) {
+                writer.println(HEADER);
+            }
+            BatchAnnotationMerger.Summary summary = merger.mergeAll(pairs, pool, merge -> write(writer, merge));
+            writer.flush();
+            LOGGER.info("Merged {} disease pairs in {} ms ({} pairs with a missing disease)", summary.getPairCount(),
+                    System.currentTimeMillis() - start, summary.getMissingDiseaseCount());
+            LOGGER.info("{} identical, {} subclass and {} unrelated annotations", summary.getIdenticalCount(),
+                    summary.getSubclassCount(), summary.getUnrelatedCount());
+            for (int c = 0; c < HpoCategoryTable.CATEGORIES.size(); c++) {
+                int identical = summary.getIdenticalCount(c);
+                int subclass = summary.getSubclassCount(c);
+                int unrelated = summary.getUnrelatedCount(c);
+                if (identical + subclass + unrelated == 0) continue;
+                LOGGER.info("{}: {} identical, {} subclass and {} unrelated",
+                        HpoCategoryTable.CATEGORIES.get(c).getLabel(), identical, subclass, unrelated);
+            }
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            LOGGER.error("Could not merge the diseases: {}", e.getMessage());
+            return 1;
+        } finally {
+            pool.shutdown();
+        }
+        return 0;
+    }
+
+    private void write(PrintWriter writer, BatchAnnotationMerger.PairMerge merge) {
+        BatchAnnotationMerger.DiseasePair pair = merge.getPair();
+        String group = pair.getGroup() == null ? "" : pair.getGroup();
+        for (CategoryMerge catmerge : merge.getMergedCategoryMap().values()) {
+            if (format == Format.JSON) {
+                writer.println(toJson(group, pair, catmerge).toJSONString());
+            } else {
+                writer.printf("%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s%n", group, pair.getDiseaseId1().getValue(),
+                        pair.getDiseaseId2().getValue(), catmerge.getCategoryLabel(),
+                        join(catmerge.getCommonTerms()), joinPairs(catmerge.getD1subclassOfd2()),
+                        joinPairs(catmerge.getD2subclassOfd1()), join(catmerge.getDisease1onlyTerms()),
+                        join(catmerge.getDisease2onlyTerms()));
+            }
+        }
+    }
+
+    private static String join(List<TermId> tids) {
+        return tids.stream().map(TermId::getValue).collect(Collectors.joining(";"));
+    }
+
+    /** @return pairs of subclass and superclass, e.g., HP:0002084&lt;HP:0002011 */
+    private static String joinPairs(List<SubClassTermPair> pairs) {
+        return pairs.stream()
+                .map(p -> p.getSubTid().getValue() + "<" + p.getSuperTid().getValue())
+                .collect(Collectors.joining(";"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONArray toJsonArray(List<TermId> tids) {
+        JSONArray array = new JSONArray();
+        for (TermId tid : tids) {
+            array.add(tid.getValue());
+        }
+        return array;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONArray toJsonPairs(List<SubClassTermPair> pairs) {
+        JSONArray array = new JSONArray();
+        for (SubClassTermPair p : pairs) {
+            JSONObject jp = new JSONObject();
+            jp.put("subclass", p.getSubTid().getValue());
+            jp.put("superclass", p.getSuperTid().getValue());
+            array.add(jp);
+        }
+        return array;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject toJson(String group, BatchAnnotationMerger.DiseasePair pair, CategoryMerge catmerge) {
+        JSONObject jm = new JSONObject();
+        jm.put("group", group);
+        jm.put("disease1_id", pair.getDiseaseId1().getValue());
+        jm.put("disease2_id", pair.getDiseaseId2().getValue());
+        jm.put("category", catmerge.getCategoryLabel());
+        jm.put("common", toJsonArray(catmerge.getCommonTerms()));
+        jm.put("d1_subclass_of_d2", toJsonPairs(catmerge.getD1subclassOfd2()));
+        jm.put("d2_subclass_of_d1", toJsonPairs(catmerge.getD2subclassOfd1()));
+        jm.put("d1_only", toJsonArray(catmerge.getDisease1onlyTerms()));
+        jm.put("d2_only", toJsonArray(catmerge.getDisease2onlyTerms()));
+        return jm;
+    }
+
+    /**
+     * @param path file with one group of tab-separated disease ids per line
+     * @return all pairs of ids from different databases within each group, or null if the file cannot be read
+     */
+    private static List<BatchAnnotationMerger.DiseasePair> inputPairs(String path) {
+        List<BatchAnnotationMerger.DiseasePair> pairs = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line=br.readLine())!=null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                String group = null;
+                List<TermId> ids = new ArrayList<>();
+                for (int i = 0; i < fields.length; i++) {
+                    String field = fields[i].trim();
+                    int colon = field.indexOf(':');
+                    if (colon < 1 || colon == field.length() - 1) {
+                        LOGGER.warn("Skipping \"{}\", which is not a disease id", field);
+                        continue;
+                    }
+                    if (i == 0 && !DISEASE_PREFIXES.contains(field.substring(0, colon))) {
+                        group = field;
+                    } else {
+                        ids.add(TermId.of(field));
+                    }
+                }
+                for (int i = 0; i < ids.size(); i++) {
+                    for (int j = i + 1; j < ids.size(); j++) {
+                        if (ids.get(i).getPrefix().equals(ids.get(j).getPrefix())) continue;
+                        pairs.add(new BatchAnnotationMerger.DiseasePair(group, ids.get(i), ids.get(j)));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not read \"{}\": {}", path, e.getMessage());
+            return null;
+        }
+        LOGGER.info("{} disease pairs to merge", pairs.size());
+        return pairs;
+    }
+}
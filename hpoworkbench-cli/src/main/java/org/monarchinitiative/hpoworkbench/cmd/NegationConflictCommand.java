@@ -0,0 +1,81 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.monarchinitiative.hpoworkbench.analysis.NegationConflicts;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Report the diseases of {@code phenotype.hpoa} that negate a term (NOT) but are annotated to the same term or one
+ * of its descendents, e.g., NOT Seizure together with Focal-onset seizure. See {@link NegationConflicts}.
+ */
+@CommandLine.Command(name = "negation",
+        mixinStandardHelpOptions = true,
+        description = "Find negated annotations that contradict a positive annotation of the same disease.")
+public class NegationConflictCommand extends HPOCommand implements Callable<Integer> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NegationConflictCommand.class);
+
+    @CommandLine.Option(names={"--threads"}, description = "number of threads (default: ${DEFAULT-VALUE})")
+    private int threads = Runtime.getRuntime().availableProcessors();
+    @CommandLine.Option(names={"-o","--out"}, description = "output file (default: standard output)")
+    private String outfile = null;
+
+    private static final String HEADER = "disease_id\tdisease_name\tnegated_term_id\tnegated_term_label\tannotated_term_id\tannotated_term_label";
+
+    @Override
+    public Integer call() {
+        Ontology hpoOntology = new HPOParser(hpopath).getHPO();
+        if (hpoOntology == null) {
+            LOGGER.error(String.format("Could not load HPO from \"%s\". Terminating program...", hpopath));
+            return 1;
+        }
+        Map<TermId, HpoDisease> diseaseMap = HpoDiseaseAnnotationParser.loadDiseaseMap(annotpath, hpoOntology);
+        if (diseaseMap == null) {
+            LOGGER.error("Disease map was not properly initialized. Terminating program...");
+            return 1;
+        }
+        TermDiseaseIndex index = TermDiseaseIndex.of(diseaseMap, CompactOntologyGraph.of(hpoOntology));
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try (PrintWriter writer = outfile == null ? new PrintWriter(System.out) :
+                new PrintWriter(new BufferedWriter(new FileWriter(outfile)))) {
+            long start = System.currentTimeMillis();
+            NegationConflicts conflicts = pool.submit(() -> NegationConflicts.of(index)).get();
+            LOGGER.info("Found {} negation conflicts in {} of {} diseases ({} ms)",
+                    conflicts.getConflictCount(), conflicts.getAffectedDiseaseCount(),
+                    index.diseaseCount(), System.currentTimeMillis() - start);
+            writer.println(HEADER);
+            for (NegationConflicts.Conflict c : conflicts.getConflicts()) {
+                HpoDisease disease = c.getDisease();
+                writer.printf("%s\t%s\t%s\t%s\t%s\t%s%n", disease.getDiseaseDatabaseId().getValue(),
+                        disease.getName(), c.getNegatedTerm().getValue(), label(hpoOntology, c.getNegatedTerm()),
+                        c.getAnnotatedTerm().getValue(), label(hpoOntology, c.getAnnotatedTerm()));
+            }
+            writer.flush();
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            LOGGER.error("Could not check the annotations: {}", e.getMessage());
+            return 1;
+        } finally {
+            pool.shutdown();
+        }
+        return 0;
+    }
+
+    private static String label(Ontology ontology, TermId tid) {
+        Term term = ontology.getTermMap().get(tid);
+        return term == null ? "?" : term.getName();
+    }
+}
@@ -0,0 +1,144 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.monarchinitiative.hpoworkbench.annotation.InformationContent;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.hpoworkbench.similarity.DiseaseRanker;
+import org.monarchinitiative.hpoworkbench.similarity.MicaTable;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Rank the diseases of {@code phenotype.hpoa} by their phenotypic similarity to the HPO terms of a patient, or of
+ * each patient in a file with one patient per line ({@code patient-id<TAB>HP:0000001,HP:0000002,...}).
+ * See {@link DiseaseRanker} for the scoring.
+ */
+@CommandLine.Command(name = "rank",
+        mixinStandardHelpOptions = true,
+        description = "Rank diseases by phenotypic similarity to a set of HPO terms.")
+public class RankDiseasesCommand extends HPOCommand implements Callable<Integer> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RankDiseasesCommand.class);
+
+    @CommandLine.Option(names={"-t","--terms"}, split = ",", description = "comma-separated HPO terms of one patient")
+    private List<String> terms = new ArrayList<>();
+    @CommandLine.Option(names={"--patients"}, description = "file with one patient per line: id<TAB>comma-separated HPO terms")
+    private String patientFile = null;
+    @CommandLine.Option(names={"-k","--top"}, description = "number of diseases per patient (default: ${DEFAULT-VALUE})")
+    private int top = 10;
+    @CommandLine.Option(names={"--threads"}, description = "number of threads (default: ${DEFAULT-VALUE})")
+    private int threads = Runtime.getRuntime().availableProcessors();
+    @CommandLine.Option(names={"-o","--out"}, description = "output file (default: standard output)")
+    private String outfile = null;
+
+    private static final String HEADER = "patient_id\trank\tdisease_id\tdisease_name\tscore";
+
+    @Override
+    public Integer call() {
+        if (terms.isEmpty() && patientFile == null) {
+            LOGGER.error("Either --terms or --patients is required. Terminating program...");
+            return 1;
+        }
+        Ontology hpoOntology = new HPOParser(hpopath).getHPO();
+        if (hpoOntology == null) {
+            LOGGER.error(String.format("Could not load HPO from \"%s\". Terminating program...", hpopath));
+            return 1;
+        }
+        Map<TermId, HpoDisease> diseaseMap = HpoDiseaseAnnotationParser.loadDiseaseMap(annotpath, hpoOntology);
+        if (diseaseMap == null) {
+            LOGGER.error("Disease map was not properly initialized. Terminating program...");
+            return 1;
+        }
+        TermDiseaseIndex index = TermDiseaseIndex.of(diseaseMap, CompactOntologyGraph.of(hpoOntology));
+        DiseaseRanker ranker = DiseaseRanker.of(index, MicaTable.of(InformationContent.of(index)));
+
+        Map<String, List<TermId>> patients = new LinkedHashMap<>();
+        if (!terms.isEmpty()) {
+            patients.put("query", parseTerms(terms));
+        }
+        if (patientFile != null) {
+            patients.putAll(readPatients(patientFile));
+        }
+        LOGGER.info("Ranking {} diseases for {} patients", ranker.diseaseCount(), patients.size());
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try (PrintWriter writer = outfile == null ? new PrintWriter(System.out) :
+                new PrintWriter(new BufferedWriter(new FileWriter(outfile)))) {
+            writer.println(HEADER);
+            if (patients.size() == 1) {
+                // a single patient: score the diseases in parallel
+                Map.Entry<String, List<TermId>> patient = patients.entrySet().iterator().next();
+                List<DiseaseRanker.RankedDisease> ranking =
+                        ranker.rank(ranker.profile(patient.getValue()), top, pool, pool.getParallelism());
+                writer.print(format(patient.getKey(), ranking));
+            } else {
+                // many patients: rank each patient on one thread and the patients in parallel
+                pool.submit(() -> patients.entrySet().parallelStream()
+                        .map(e -> format(e.getKey(), ranker.rank(e.getValue(), top)))
+                        .forEachOrdered(writer::print)).get();
+            }
+            writer.flush();
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            LOGGER.error("Could not rank diseases: {}", e.getMessage());
+            return 1;
+        } finally {
+            pool.shutdown();
+        }
+        return 0;
+    }
+
+    private static String format(String patientId, List<DiseaseRanker.RankedDisease> ranking) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < ranking.size(); i++) {
+            HpoDisease disease = ranking.get(i).getDisease();
+            sb.append(String.format("%s\t%d\t%s\t%s\t%.4f%n", patientId, i + 1,
+                    disease.getDiseaseDatabaseId().getValue(), disease.getName(), ranking.get(i).getScore()));
+        }
+        return sb.toString();
+    }
+
+    private static List<TermId> parseTerms(Collection<String> ids) {
+        List<TermId> tids = new ArrayList<>();
+        for (String id : ids) {
+            id = id.trim();
+            if (!id.startsWith("HP:") || id.length() != 10) {
+                LOGGER.warn("Skipping \"{}\", which is not an HPO id", id);
+                continue;
+            }
+            tids.add(TermId.of(id));
+        }
+        return tids;
+    }
+
+    private static Map<String, List<TermId>> readPatients(String path) {
+        Map<String, List<TermId>> patients = new LinkedHashMap<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                if (fields.length < 2) {
+                    LOGGER.warn("Skipping malformed line \"{}\"", line);
+                    continue;
+                }
+                patients.put(fields[0], parseTerms(Arrays.asList(fields[1].split(","))));
+            }
+        } catch (IOException e) {
+            LOGGER.error(String.format("Could not read \"%s\". Terminating program...", path));
+            System.exit(1);
+        }
+        return patients;
+    }
+}
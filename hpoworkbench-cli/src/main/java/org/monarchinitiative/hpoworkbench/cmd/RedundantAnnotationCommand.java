@@ -0,0 +1,84 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.monarchinitiative.hpoworkbench.analysis.RedundantAnnotations;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Report the annotations of {@code phenotype.hpoa} that are implied by a more specific annotation of the same
+ * disease, e.g., a disease annotated to both Seizure and Focal-onset seizure. See {@link RedundantAnnotations}.
+ */
+@CommandLine.Command(name = "redundant",
+        mixinStandardHelpOptions = true,
+        description = "Find annotations implied by a more specific annotation of the same disease.")
+public class RedundantAnnotationCommand extends HPOCommand implements Callable<Integer> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedundantAnnotationCommand.class);
+
+    @CommandLine.Option(names={"--threads"}, description = "number of threads (default: ${DEFAULT-VALUE})")
+    private int threads = Runtime.getRuntime().availableProcessors();
+    @CommandLine.Option(names={"-o","--out"}, description = "output file (default: standard output)")
+    private String outfile = null;
+
+    private static final String HEADER = "disease_id\tdisease_name\tterm_id\tterm_label\timplied_by";
+
+    @Override
+    public Integer call() {
+        Ontology hpoOntology = new HPOParser(hpopath).getHPO();
+        if (hpoOntology == null) {
+            LOGGER.error(String.format("Could not load HPO from \"%s\". Terminating program...", hpopath));
+            return 1;
+        }
+        Map<TermId, HpoDisease> diseaseMap = HpoDiseaseAnnotationParser.loadDiseaseMap(annotpath, hpoOntology);
+        if (diseaseMap == null) {
+            LOGGER.error("Disease map was not properly initialized. Terminating program...");
+            return 1;
+        }
+        TermDiseaseIndex index = TermDiseaseIndex.of(diseaseMap, CompactOntologyGraph.of(hpoOntology));
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try (PrintWriter writer = outfile == null ? new PrintWriter(System.out) :
+                new PrintWriter(new BufferedWriter(new FileWriter(outfile)))) {
+            long start = System.currentTimeMillis();
+            RedundantAnnotations redundant = pool.submit(() -> RedundantAnnotations.of(index)).get();
+            LOGGER.info("Found {} redundant annotations in {} of {} diseases ({} ms)",
+                    redundant.getRedundantAnnotationCount(), redundant.getAffectedDiseaseCount(),
+                    index.diseaseCount(), System.currentTimeMillis() - start);
+            writer.println(HEADER);
+            for (RedundantAnnotations.Redundancy r : redundant.getRedundancies()) {
+                HpoDisease disease = r.getDisease();
+                String impliedBy = r.getImpliedBy().stream()
+                        .map(tid -> String.format("%s [%s]", label(hpoOntology, tid), tid.getValue()))
+                        .collect(Collectors.joining("; "));
+                writer.printf("%s\t%s\t%s\t%s\t%s%n", disease.getDiseaseDatabaseId().getValue(), disease.getName(),
+                        r.getRedundantTerm().getValue(), label(hpoOntology, r.getRedundantTerm()), impliedBy);
+            }
+            writer.flush();
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            LOGGER.error("Could not check the annotations: {}", e.getMessage());
+            return 1;
+        } finally {
+            pool.shutdown();
+        }
+        return 0;
+    }
+
+    private static String label(Ontology ontology, TermId tid) {
+        Term term = ontology.getTermMap().get(tid);
+        return term == null ? "?" : term.getName();
+    }
+}
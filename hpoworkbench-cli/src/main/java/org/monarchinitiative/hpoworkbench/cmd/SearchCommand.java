@@ -0,0 +1,72 @@
+package org.monarchinitiative.hpoworkbench.cmd;
+
+import org.monarchinitiative.hpoworkbench.io.OntologySnapshot;
+import org.monarchinitiative.hpoworkbench.io.TermTextIndexCache;
+import org.monarchinitiative.hpoworkbench.search.TermTextIndex;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Full-text search of the labels, synonyms, definitions, comments and cross-references of the HPO terms, ranked
+ * by BM25 (see {@link TermTextIndex}). With {@code --cache}, the index is stored in the given directory and reused
+ * as long as the ontology file does not change.
+ */
+@CommandLine.Command(name = "search",
+        mixinStandardHelpOptions = true,
+        description = "Full-text search of HPO terms.")
+public class SearchCommand extends HPOCommand implements Callable<Integer> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchCommand.class);
+
+    @CommandLine.Parameters(arity = "1..*", paramLabel = "WORD", description = "words to search for")
+    private List<String> words = new ArrayList<>();
+    @CommandLine.Option(names={"-k","--top"}, description = "number of terms to show (default: ${DEFAULT-VALUE})")
+    private int top = 20;
+    @CommandLine.Option(names={"--cache"}, description = "directory in which the index is cached")
+    private String cacheDir = null;
+    @CommandLine.Option(names={"-o","--out"}, description = "output file (default: standard output)")
+    private String outfile = null;
+
+    private static final String HEADER = "rank\tterm_id\tlabel\tscore";
+
+    @Override
+    public Integer call() {
+        File hpoFile = new File(hpopath);
+        if (!hpoFile.isFile()) {
+            LOGGER.error(String.format("Could not find hpo ontology file at \"%s\". Terminating program...", hpopath));
+            return 1;
+        }
+        Ontology hpo = OntologySnapshot.load(hpoFile);
+        long start = System.nanoTime();
+        TermTextIndex index = cacheDir == null ? TermTextIndex.of(hpo) : TermTextIndexCache.load(hpoFile, hpo, new File(cacheDir));
+        LOGGER.info("Indexed {} terms with {} distinct words in {} ms", index.size(), index.wordCount(),
+                (System.nanoTime() - start) / 1_000_000);
+        String query = String.join(" ", words);
+        start = System.nanoTime();
+        List<TermTextIndex.Hit> hits = index.search(query, top);
+        LOGGER.info("Found {} terms for \"{}\" in {} ms", hits.size(), query,
+                String.format("%.3f", (System.nanoTime() - start) / 1e6));
+        try (PrintWriter writer = outfile == null ? new PrintWriter(System.out) :
+                new PrintWriter(new BufferedWriter(new FileWriter(outfile)))) {
+            writer.println(HEADER);
+            for (int i = 0; i < hits.size(); i++) {
+                TermTextIndex.Hit hit = hits.get(i);
+                Term term = hpo.getTermMap().get(hit.getTermId());
+                writer.printf("%d\t%s\t%s\t%.4f%n", i + 1, hit.getTermId().getValue(),
+                        term == null ? "n/a" : term.getName(), hit.getScore());
+            }
+            writer.flush();
+        } catch (IOException e) {
+            LOGGER.error("Could not write search results: {}", e.getMessage());
+            return 1;
+        }
+        return 0;
+    }
+}
@@ -3,6 +3,7 @@ package org.monarchinitiative.hpoworkbench.analysis;
 
 
 
+import org.monarchinitiative.hpoworkbench.annotation.InformationContent;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
@@ -17,19 +18,35 @@ import java.util.Map;
 public class AnnotationTlc {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AnnotationTlc.class);
+    /**
+     * Annotations to terms with an information content below this value are regarded as too general. A term with
+     * IC 1.5 is annotated to about 22% of all diseases, which is the case for the top-level organ-system terms.
+     */
+    public static final double TOO_GENERAL_IC = 1.5;
     private String hpopath;
     private String annotpath;
     private final Ontology hpoOntology;
     /** All disease annotations for the entire ontology. */
     private final Map<TermId, HpoDisease> diseaseMap;
+    /** Information content of the terms, or null to fall back to the "Abnormality of" label heuristic. */
+    private final InformationContent informationContent;
 
     private Map<String,Integer> underannotatedDiseases;
     private Map<String,String> diseasesWithTooGeneralAnnotations;
 
 
     public AnnotationTlc(Ontology ontolog,Map<TermId, HpoDisease> d2amap)  {
+        this(ontolog, d2amap, null);
+    }
+
+    /**
+     * @param ic information content of the terms; annotations to terms with an IC below {@link #TOO_GENERAL_IC}
+     *           are reported as too general. If null, terms whose label contains "Abnormality of" are reported.
+     */
+    public AnnotationTlc(Ontology ontolog, Map<TermId, HpoDisease> d2amap, InformationContent ic)  {
         hpoOntology = ontolog;
         diseaseMap = d2amap;
+        informationContent = ic;
         lookForUnderannotatedDiseases();
     }
 
@@ -57,7 +74,13 @@ public class AnnotationTlc {
                 for (HpoAnnotation ann : annotations) {
                     TermId tid=ann.getTermId();
                     String lab = hpoOntology.getTermMap().get(tid).getName();
-                    if (lab.contains("Abnormality of")) {
+                    if (informationContent != null) {
+                        double ic = informationContent.ic(tid);
+                        if (ic < TOO_GENERAL_IC) {
+                            String s = String.format("%s [%s] (IC %.2f)",lab,tid.getValue(),ic);
+                            diseasesWithTooGeneralAnnotations.put(label,s);
+                        }
+                    } else if (lab.contains("Abnormality of")) {
                         String s = String.format("%s [%s]",lab,tid.getValue());
                         diseasesWithTooGeneralAnnotations.put(label,s);
 
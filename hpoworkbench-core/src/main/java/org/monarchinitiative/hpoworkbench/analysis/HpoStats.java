@@ -1,12 +1,13 @@
 package org.monarchinitiative.hpoworkbench.analysis;
 
 
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
 import org.monarchinitiative.hpoworkbench.exception.HPOException;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
 import org.monarchinitiative.hpoworkbench.io.HPOParser;
-import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
+import org.monarchinitiative.hpoworkbench.io.HpoaAnnotationLine.Database;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
 import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
-import org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.Term;
 import org.monarchinitiative.phenol.ontology.data.TermId;
@@ -16,8 +17,6 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.util.*;
 
-import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.getDescendents;
-
 /**
  * Get all the numbers we can for the HPO and annotations to it. This will be used to display these numbers
  * in the GUI.
@@ -28,17 +27,15 @@ public class HpoStats {
     private String hpopath;
     private String annotpath;
     private Ontology hpoOntology=null;
+    /** Int-indexed view of {@link #hpoOntology}. */
+    private CompactOntologyGraph graph=null;
     /** All disease annotations for the entire ontology. */
     private Map<TermId, HpoDisease> diseaseMap =null;
-    /** Set of all HPO terms that are descendents of {@link #termIdOfInterest}. */
-    private Set<TermId> descendentsOfTheTermOfInterest =null;
+    /** Statistics for all terms, from which the numbers for {@link #termIdOfInterest} are taken. */
+    private TermStatisticsTable statisticsTable=null;
     private Set<TermId> adultOnset=null;
     private Set<TermId> childhoodOnset=null;
 
-
-    private List<HpoDisease> omim;
-    private List<HpoDisease> orphanet;
-    private List<HpoDisease> decipher;
     /** Id for root (All) */
     private static final String rootHpoTerm="HP:0000001";
 
@@ -86,24 +83,24 @@ public class HpoStats {
     }
 
     /**
-     * Note that the OntologyAlgorithm.getDescendents includes the original term
-     * which is what we want herre
+     * Note that the count includes the original term which is what we want here
      * @param t a term (should be a second level phenotype term)
-     * @param ontology reference to HPO
-     * @return count of all descendant terms from t including t
+     * @return count of all descendant terms from t including t, or 0 if t is not in the ontology
      */
-    private int getSubontologyTermCount(TermId t, Ontology ontology) {
-        return OntologyAlgorithm.getDescendents(ontology, t).size();
+    private int getSubontologyTermCount(TermId t) {
+        return statisticsTable.getDescendantCount(t);
     }
 
     public Map<String, Integer> getHpoSubTermCounts() {
         Map<String, Integer> countsmap = new HashMap<>();
-        TermId phenotypicAbnormality = TermId.of("HP:0000118");
-        Set<TermId> firstListTerms = OntologyAlgorithm.getChildTerms(this.hpoOntology, phenotypicAbnormality, false);
-        for (TermId t : firstListTerms) {
-            String label = hpoOntology.getTermMap().get(t).getName();
-            int count = getSubontologyTermCount(t, hpoOntology);
-            countsmap.put(label, count);
+        int phenotypicAbnormality = graph.index(TermId.of("HP:0000118"));
+        if (phenotypicAbnormality < 0) {
+            return countsmap;
+        }
+        for (int k = 0; k < graph.childCount(phenotypicAbnormality); k++) {
+            TermId child = graph.termId(graph.child(phenotypicAbnormality, k));
+            String label = hpoOntology.getTermMap().get(child).getName();
+            countsmap.put(label, statisticsTable.getDescendantCount(child));
         }
         return countsmap;
     }
@@ -111,19 +108,31 @@ public class HpoStats {
 
 
     public HpoStats(Ontology ontolog,Map<TermId, HpoDisease> d2amap) throws HPOException {
+        this(ontolog, TermDiseaseIndex.of(d2amap == null ? Map.of() : d2amap, CompactOntologyGraph.of(ontolog)));
+        this.diseaseMap=d2amap;
+    }
+
+    /**
+     * @param ontolog reference to HPO
+     * @param index annotation index that was built from the same ontology
+     * @throws HPOException if the root term cannot be found
+     */
+    public HpoStats(Ontology ontolog, TermDiseaseIndex index) throws HPOException {
         termIdOfInterest=TermId.of(rootHpoTerm);
         hpoOntology=ontolog;
-        omim=new ArrayList<>();
-        orphanet=new ArrayList<>();
-        decipher=new ArrayList<>();
-        this.diseaseMap=d2amap;
-        getDescendentsOfTermOfInterest();
-        filterDiseasesAccordingToDatabase();
+        graph=index.getGraph();
+        statisticsTable=TermStatisticsTable.of(ontolog, index);
+        getStatisticsForTermOfInterest();
         calculateNumberOfAnnotations();
         calculateOntologyStats();
         calculateSubontologyCounts();
     }
 
+    /** @return statistics for all terms of the ontology, which can be used to look up any other term. */
+    public TermStatisticsTable getStatisticsTable() {
+        return statisticsTable;
+    }
+
     /** @return the total number of negated annotations. */
     public int getNegatedAnnotationCount() {
         return n_negated_annotations;
@@ -177,11 +186,11 @@ public class HpoStats {
         TermId modeOfInheritance = TermId.of("HP:0000005");
         TermId phenotypicAbnormality = TermId.of("HP:0000118");
 
-        n_clinicalCourse = getDescendents(hpoOntology,clinicalCourse).size();
-        n_clinicalModifier = getDescendents(hpoOntology,clinicalModifier).size();
-        n_frequency = getDescendents(hpoOntology,frequency).size();
-        n_modeOfInheritance = getDescendents(hpoOntology,modeOfInheritance).size();
-        n_phenotypicAbnormality = getDescendents(hpoOntology,phenotypicAbnormality).size();
+        n_clinicalCourse = getSubontologyTermCount(clinicalCourse);
+        n_clinicalModifier = getSubontologyTermCount(clinicalModifier);
+        n_frequency = getSubontologyTermCount(frequency);
+        n_modeOfInheritance = getSubontologyTermCount(modeOfInheritance);
+        n_phenotypicAbnormality = getSubontologyTermCount(phenotypicAbnormality);
 
     }
 
@@ -212,68 +221,30 @@ public class HpoStats {
         } else {
             termIdOfInterest = TermId.of(term);
         }
-        omim=new ArrayList<>();
-        orphanet=new ArrayList<>();
-        decipher=new ArrayList<>();
         inputHPOdata();
-        getDescendentsOfTermOfInterest();
-        filterDiseasesAccordingToDatabase();
+        getStatisticsForTermOfInterest();
+        calculateNumberOfAnnotations();
         countNegatedAnnotations();
     }
 
-    private void getDescendentsOfTermOfInterest() throws HPOException {
+    private void getStatisticsForTermOfInterest() throws HPOException {
         if (termIdOfInterest==null) {
             throw new HPOException("The Term of interest was not initialized");
         }
-        if (! hpoOntology.getTermMap().containsKey(termIdOfInterest)) {
+        if (! hpoOntology.getTermMap().containsKey(termIdOfInterest) || ! statisticsTable.contains(termIdOfInterest)) {
             throw new HPOException("Could not retrieve term for term id: "+termIdOfInterest);
         }
         String name = String.format("%s [%s]",hpoOntology.getTermMap().get(termIdOfInterest).getName(),termIdOfInterest.getValue() );
-        descendentsOfTheTermOfInterest = getDescendents(hpoOntology,termIdOfInterest);
-        this.n_textual_def = getNumberOfTermsWithDefinition(hpoOntology,descendentsOfTheTermOfInterest);
-        this.n_synonyms = getTotalNumberOfSynonyms(hpoOntology,descendentsOfTheTermOfInterest);
-        n_terms=descendentsOfTheTermOfInterest.size();
+        n_terms=statisticsTable.getDescendantCount(termIdOfInterest);
+        n_textual_def=statisticsTable.getDefinitionCount(termIdOfInterest);
+        n_synonyms=statisticsTable.getSynonymCount(termIdOfInterest);
+        n_omim=statisticsTable.getDiseaseCount(termIdOfInterest, Database.OMIM);
+        n_orphanet=statisticsTable.getDiseaseCount(termIdOfInterest, Database.ORPHA);
+        n_decipher=statisticsTable.getDiseaseCount(termIdOfInterest, Database.DECIPHER);
         LOGGER.trace("We found a total of {} terms annotated to {} or descendents", n_terms, name);
         LOGGER.trace("Of these terms, {} has a textual definition. There were a total of {} synonyms.",n_textual_def,n_synonyms);
-    }
-
-    /**
-     * Calculates and returns the total number of synonyms
-     * @param ontology reference to Hpo ontology object
-     * @param terms the set of terms for which we want to calculate the number of synomnyms
-     * @return number of synonyms.
-     */
-    private int getTotalNumberOfSynonyms(Ontology ontology, Set<TermId> terms) {
-        int n=0;
-        for (TermId tid : terms) {
-            n+=ontology.getTermMap().get(tid).getSynonyms().size();
-        }
-        return n;
-    }
-
-    /**
-     * Calculates and returns the total number of terms that have a textual definition
-     * @param ontology reference to Hpo ontology object
-     * @param terms the set of terms for which we want to calculate the number of terms with definition
-     * @return number of terms with definition.
-     */
-    private int getNumberOfTermsWithDefinition(Ontology ontology, Set<TermId> terms) {
-        int n=0;
-        for (TermId tid : terms) {
-            String def=ontology.getTermMap().get(tid).getDefinition();
-            if (def!=null && def.length()>0) n++;
-        }
-        return n;
-    }
-
-    /** is the disease annotated to the term we are interested in? */
-    private boolean diseaseAnnotatedToTermOfInterest(HpoDisease d) {
-        List<HpoAnnotation> tiwmlist= d.getPhenotypicAbnormalities();
-        for (HpoAnnotation id:tiwmlist) {
-            if (this.descendentsOfTheTermOfInterest.contains(id.getTermId()))
-                return true;
-        }
-        return false;
+        LOGGER.trace("We found {} OMIM, {} Orphanet and {} DECIPHER diseases annotated to {} or descendents",
+                n_omim, n_orphanet, n_decipher, name);
     }
 
     public int getN_terms() {
@@ -300,36 +271,6 @@ public class HpoStats {
         return n_decipher;
     }
 
-    private void filterDiseasesAccordingToDatabase() {
-        if (diseaseMap == null) {
-            LOGGER.error("diseaseMap was not initialized");
-            return;
-        }
-        for (HpoDisease d:this.diseaseMap.values()) {
-            if (!diseaseAnnotatedToTermOfInterest(d)) {
-                continue;
-            }
-            String database=d.getDatabase();
-            if (database.startsWith("OMIM")) {
-                omim.add(d);
-            } else if (database.startsWith("ORPHA")){
-                orphanet.add(d);
-            } else if (database.startsWith("DECIPHER")) {
-                decipher.add(d);
-            } else {
-                LOGGER.error("Did not recognize data base"+ database);
-            }
-        }
-        String termname=hpoOntology.getTermMap().get(termIdOfInterest).getName();
-        n_omim=omim.size();
-        n_orphanet=orphanet.size();
-        n_decipher=decipher.size();
-
-        LOGGER.trace(String.format("We found %d diseases in OMIM annotated to %s or descendents",omim.size(),termname));
-        LOGGER.trace(String.format("We found %d diseases in Orphanet annotated to %s or descendents",orphanet.size(),termname));
-        LOGGER.trace(String.format("We found %d diseases in DECIPHER annotated to %s or descendents",decipher.size(),termname));
-    }
-
     private void countNegatedAnnotations() {
         if (diseaseMap == null) {
             LOGGER.error("diseaseMap was not initialized");
@@ -351,23 +292,17 @@ public class HpoStats {
         return n_decipher_annotations;
     }
 
+    /**
+     * Count all annotations (phenotypic abnormalities, modes of inheritance and negated terms) of the OMIM, Orphanet
+     * and DECIPHER diseases that are annotated to the term of interest or its descendents. Annotations that are
+     * implied by a more specific annotation of the same disease ({@link RedundantAnnotations}) are not counted.
+     */
     private void calculateNumberOfAnnotations() {
-        n_omim_annotations=0;
-        n_orphanet_annotations=0;
-        n_decipher_annotations=0;
-        for (HpoDisease d:omim) {
-            n_omim_annotations += (d.getPhenotypicAbnormalities().size()+d.getModesOfInheritance().size()+d.getNegativeAnnotations().size());
-        }
-        for (HpoDisease d:orphanet) {
-            n_orphanet_annotations += (d.getPhenotypicAbnormalities().size()+d.getModesOfInheritance().size()+d.getNegativeAnnotations().size());
-        }
-        for (HpoDisease d:decipher) {
-            n_decipher_annotations += (d.getPhenotypicAbnormalities().size()+d.getModesOfInheritance().size()+d.getNegativeAnnotations().size());
-        }
-
+        n_omim_annotations=statisticsTable.getAnnotationCount(termIdOfInterest, Database.OMIM);
+        n_orphanet_annotations=statisticsTable.getAnnotationCount(termIdOfInterest, Database.ORPHA);
+        n_decipher_annotations=statisticsTable.getAnnotationCount(termIdOfInterest, Database.DECIPHER);
     }
 
-
     private void inputHPOdata() throws HPOException{
         File f = new File(hpopath);
         if (! f.exists()) {
@@ -380,6 +315,8 @@ public class HpoStats {
         LOGGER.trace(String.format("inputting data with files %s and %s",hpopath,annotpath));
         HPOParser parser = new HPOParser(hpopath);
         hpoOntology=parser.getHPO();
+        graph=CompactOntologyGraph.of(hpoOntology);
         diseaseMap = HpoDiseaseAnnotationParser.loadDiseaseMap(annotpath, hpoOntology);
+        statisticsTable=TermStatisticsTable.of(hpoOntology, TermDiseaseIndex.of(diseaseMap, graph));
     }
 }
@@ -0,0 +1,115 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressed hash map (linear probing) from non-negative {@code long} keys to {@code int} counts, stored in two
+ * primitive arrays. This takes about a tenth of the memory of a {@code HashMap<Long, Integer>} and allocates
+ * nothing per entry. Not thread-safe; use one counter per thread and {@link #addAll(LongIntCounter)} to merge.
+ */
+final class LongIntCounter {
+
+    private static final long EMPTY = -1L;
+
+    private long[] keys;
+    private int[] counts;
+    private int size = 0;
+
+    LongIntCounter() {
+        this(1 << 10);
+    }
+
+    LongIntCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, 2 * expectedSize - 1)) << 1;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        counts = new int[capacity];
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /** Add {@code delta} to the count of the key, which must not be negative. */
+    void add(long key, int delta) {
+        if (2 * (size + 1) > keys.length) {
+            rehash(2 * keys.length);
+        }
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                counts[i] += delta;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        counts[i] = delta;
+        size++;
+    }
+
+    void increment(long key) {
+        add(key, 1);
+    }
+
+    /** @return the count of the key, or 0 if it was never added */
+    int get(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) return counts[i];
+            i = (i + 1) & mask;
+        }
+        return 0;
+    }
+
+    /** Add all counts of the other counter to this counter. */
+    void addAll(LongIntCounter other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != EMPTY) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** @return number of slots; use with {@link #isUsed(int)}, {@link #keyAt(int)} and {@link #countAt(int)} */
+    int capacity() {
+        return keys.length;
+    }
+
+    boolean isUsed(int slot) {
+        return keys[slot] != EMPTY;
+    }
+
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    int countAt(int slot) {
+        return counts[slot];
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        counts = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY) continue;
+            int i = hash(oldKeys[j]) & mask;
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            counts[i] = oldCounts[j];
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Quality control of the annotations: find diseases that negate a term (NOT) but are annotated to the same term
+ * or to one of its descendents, which is a logical contradiction since an annotation implies all ancestors.
+ * <p>
+ * Instead of searching for a path between every pair of a negated and a positive annotation, the ancestors of each
+ * positive annotation are taken from the {@link AncestorClosure} and looked up by binary search in the sorted
+ * negated terms of the same disease. The cost is therefore linear in the number of annotations times the average
+ * number of ancestors. Most diseases have no negated annotations and are skipped without looking at their terms.
+ * </p>
+ */
+public final class NegationConflicts {
+
+    private final List<Conflict> conflicts;
+    private final int affectedDiseaseCount;
+
+    private NegationConflicts(List<Conflict> conflicts, int affectedDiseaseCount) {
+        this.conflicts = conflicts;
+        this.affectedDiseaseCount = affectedDiseaseCount;
+    }
+
+    /** A negated annotation of a disease that contradicts a positive annotation of the same disease. */
+    public static final class Conflict {
+        private final HpoDisease disease;
+        private final TermId negatedTerm;
+        private final TermId annotatedTerm;
+
+        Conflict(HpoDisease disease, TermId negatedTerm, TermId annotatedTerm) {
+            this.disease = disease;
+            this.negatedTerm = negatedTerm;
+            this.annotatedTerm = annotatedTerm;
+        }
+
+        public HpoDisease getDisease() {
+            return disease;
+        }
+
+        public TermId getNegatedTerm() {
+            return negatedTerm;
+        }
+
+        /** @return the positive annotation, which is the negated term or one of its descendents */
+        public TermId getAnnotatedTerm() {
+            return annotatedTerm;
+        }
+    }
+
+    public static NegationConflicts of(TermDiseaseIndex index) {
+        return of(index, AncestorClosure.of(index.getGraph()));
+    }
+
+    /**
+     * @param index annotation index
+     * @param closure ancestor closure of the graph of the index
+     * @return the negation conflicts of all diseases of the index
+     */
+    public static NegationConflicts of(TermDiseaseIndex index, AncestorClosure closure) {
+        List<List<Conflict>> perDisease = IntStream.range(0, index.diseaseCount()).parallel()
+                .mapToObj(d -> check(index.disease(d), index.getGraph(), closure))
+                .toList();
+        List<Conflict> conflicts = new ArrayList<>();
+        int affected = 0;
+        for (List<Conflict> list : perDisease) {
+            if (list.isEmpty()) continue;
+            affected++;
+            conflicts.addAll(list);
+        }
+        return new NegationConflicts(List.copyOf(conflicts), affected);
+    }
+
+    private static List<Conflict> check(HpoDisease disease, CompactOntologyGraph graph, AncestorClosure closure) {
+        List<TermId> negativeAnnotations = disease.getNegativeAnnotations();
+        if (negativeAnnotations.isEmpty()) {
+            return List.of();
+        }
+        int[] negated = graph.indices(negativeAnnotations);
+        List<Conflict> conflicts = List.of();
+        for (int v : graph.indices(disease.getPhenotypicAbnormalityTermIdList())) {
+            for (int k = 0; k < closure.ancestorCount(v); k++) {
+                int a = closure.ancestor(v, k);
+                if (Arrays.binarySearch(negated, a) < 0) continue;
+                if (conflicts.isEmpty()) {
+                    conflicts = new ArrayList<>();
+                }
+                conflicts.add(new Conflict(disease, graph.termId(a), graph.termId(v)));
+            }
+        }
+        return conflicts;
+    }
+
+    /** @return all conflicts, grouped by disease */
+    public List<Conflict> getConflicts() {
+        return conflicts;
+    }
+
+    public int getConflictCount() {
+        return conflicts.size();
+    }
+
+    /** @return number of diseases with at least one conflict */
+    public int getAffectedDiseaseCount() {
+        return affectedDiseaseCount;
+    }
+}
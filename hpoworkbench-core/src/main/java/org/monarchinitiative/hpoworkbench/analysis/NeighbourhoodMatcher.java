@@ -0,0 +1,232 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Match the annotations of target diseases to the phenotypes of a cohort of source diseases. The source terms are
+ * the HPO terms that are annotated to at least {@code minHits} source diseases. A target term matches if it is
+ * within {@code radius} hops of a source term, either going up (the target term is an ancestor of the source term)
+ * or going down (the target term is a descendent of the source term). Paths that change direction, e.g. siblings,
+ * do not match.
+ * <p>
+ * The matches of all terms are precomputed with one multi-source breadth-first search over the
+ * {@link CompactOntologyGraph} in each direction, so that each target annotation is answered by an array lookup.
+ * If a term is reached from several source terms at the same distance, the one annotated to the most source
+ * diseases is kept. The matcher is immutable and can be queried from several threads.
+ * </p>
+ */
+public final class NeighbourhoodMatcher {
+
+    /** Relation of a target term to the source term it matches. */
+    public enum Relation {EXACT, ANCESTOR, DESCENDANT}
+
+    private static final int UNREACHED = -1;
+
+    private final CompactOntologyGraph graph;
+    private final int radius;
+    /** Hop distance of each term to the nearest source term, or {@link #UNREACHED}. */
+    private final int[] distance;
+    /** Index of the nearest source term of each term. */
+    private final int[] source;
+    /** Number of source diseases annotated to the nearest source term. */
+    private final int[] support;
+    private final Relation[] relation;
+    private final int sourceTermCount;
+
+    private NeighbourhoodMatcher(CompactOntologyGraph graph, int radius, int[] distance, int[] source,
+                                 int[] support, Relation[] relation, int sourceTermCount) {
+        this.graph = graph;
+        this.radius = radius;
+        this.distance = distance;
+        this.source = source;
+        this.support = support;
+        this.relation = relation;
+        this.sourceTermCount = sourceTermCount;
+    }
+
+    /**
+     * @param index annotation index
+     * @param sourceDiseases ids of the source diseases; ids that are not in the index are ignored
+     * @param minHits minimum number of source diseases annotated to a source term
+     * @param radius maximum number of hops between a target term and a source term
+     * @return matcher for the source cohort
+     */
+    public static NeighbourhoodMatcher of(TermDiseaseIndex index, Collection<TermId> sourceDiseases,
+                                          int minHits, int radius) {
+        CompactOntologyGraph graph = index.getGraph();
+        int n = graph.size();
+        int[] counts = new int[n];
+        int[] mark = new int[n];
+        int stamp = 0;
+        for (TermId diseaseId : sourceDiseases) {
+            int d = index.diseaseIndex(diseaseId);
+            if (d < 0) continue;
+            stamp++;
+            HpoDisease disease = index.disease(d);
+            for (TermId tid : disease.getPhenotypicAbnormalityTermIdList()) {
+                int v = graph.index(tid);
+                if (v < 0 || mark[v] == stamp) continue;
+                mark[v] = stamp;
+                counts[v]++;
+            }
+        }
+        int[] sources = new int[n];
+        int sourceCount = 0;
+        for (int v = 0; v < n; v++) {
+            if (counts[v] > 0 && counts[v] >= minHits) {
+                sources[sourceCount++] = v;
+            }
+        }
+        sources = Arrays.copyOf(sources, sourceCount);
+
+        int[] upDistance = new int[n];
+        int[] upSource = new int[n];
+        bfs(graph, sources, counts, radius, true, upDistance, upSource);
+        int[] downDistance = new int[n];
+        int[] downSource = new int[n];
+        bfs(graph, sources, counts, radius, false, downDistance, downSource);
+
+        int[] distance = new int[n];
+        int[] source = new int[n];
+        int[] support = new int[n];
+        Relation[] relation = new Relation[n];
+        for (int v = 0; v < n; v++) {
+            boolean up = upDistance[v] != UNREACHED;
+            boolean down = downDistance[v] != UNREACHED;
+            if (up && down) {
+                // prefer the closer source term, then the one with more support
+                up = upDistance[v] < downDistance[v] || (upDistance[v] == downDistance[v]
+                        && counts[upSource[v]] >= counts[downSource[v]]);
+                down = !up;
+            }
+            if (up) {
+                distance[v] = upDistance[v];
+                source[v] = upSource[v];
+            } else if (down) {
+                distance[v] = downDistance[v];
+                source[v] = downSource[v];
+            } else {
+                distance[v] = UNREACHED;
+                continue;
+            }
+            support[v] = counts[source[v]];
+            relation[v] = distance[v] == 0 ? Relation.EXACT : up ? Relation.ANCESTOR : Relation.DESCENDANT;
+        }
+        return new NeighbourhoodMatcher(graph, radius, distance, source, support, relation, sourceCount);
+    }
+
+    /**
+     * Level-synchronous breadth-first search from all source terms at once, following parent edges if
+     * {@code upward} and child edges otherwise.
+     */
+    private static void bfs(CompactOntologyGraph graph, int[] sources, int[] counts, int radius, boolean upward,
+                            int[] distance, int[] source) {
+        Arrays.fill(distance, UNREACHED);
+        int[] frontier = new int[graph.size()];
+        int[] next = new int[graph.size()];
+        int frontierSize = 0;
+        for (int s : sources) {
+            distance[s] = 0;
+            source[s] = s;
+            frontier[frontierSize++] = s;
+        }
+        for (int hop = 1; hop <= radius && frontierSize > 0; hop++) {
+            int nextSize = 0;
+            for (int i = 0; i < frontierSize; i++) {
+                int v = frontier[i];
+                int degree = upward ? graph.parentCount(v) : graph.childCount(v);
+                for (int k = 0; k < degree; k++) {
+                    int u = upward ? graph.parent(v, k) : graph.child(v, k);
+                    if (distance[u] == UNREACHED) {
+                        distance[u] = hop;
+                        source[u] = source[v];
+                        next[nextSize++] = u;
+                    } else if (distance[u] == hop && counts[source[v]] > counts[source[u]]) {
+                        source[u] = source[v];
+                    }
+                }
+            }
+            int[] tmp = frontier;
+            frontier = next;
+            next = tmp;
+            frontierSize = nextSize;
+        }
+    }
+
+    /** A target term together with the source term it matches. */
+    public static final class Match {
+        private final TermId term;
+        private final TermId sourceTerm;
+        private final int distance;
+        private final int support;
+        private final Relation relation;
+
+        Match(TermId term, TermId sourceTerm, int distance, int support, Relation relation) {
+            this.term = term;
+            this.sourceTerm = sourceTerm;
+            this.distance = distance;
+            this.support = support;
+            this.relation = relation;
+        }
+
+        public TermId getTerm() {
+            return term;
+        }
+
+        public TermId getSourceTerm() {
+            return sourceTerm;
+        }
+
+        /** @return number of hops between the term and the source term */
+        public int getDistance() {
+            return distance;
+        }
+
+        /** @return number of source diseases annotated to the source term */
+        public int getSupport() {
+            return support;
+        }
+
+        public Relation getRelation() {
+            return relation;
+        }
+    }
+
+    /** @return the match of the term, or null if no source term is within the radius */
+    public Match match(TermId tid) {
+        int v = graph.index(tid);
+        if (v < 0 || distance[v] == UNREACHED) {
+            return null;
+        }
+        return new Match(tid, graph.termId(source[v]), distance[v], support[v], relation[v]);
+    }
+
+    /** @return the matches of the phenotypic abnormalities of the disease, in the order of its annotations */
+    public List<Match> match(HpoDisease disease) {
+        List<Match> matches = new ArrayList<>();
+        for (TermId tid : disease.getPhenotypicAbnormalityTermIdList()) {
+            Match m = match(tid);
+            if (m != null) {
+                matches.add(m);
+            }
+        }
+        return matches;
+    }
+
+    /** @return number of terms annotated to at least {@code minHits} source diseases */
+    public int getSourceTermCount() {
+        return sourceTermCount;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+}
@@ -0,0 +1,131 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Quality control of the annotations: find diseases that are annotated both to a term and to one of its
+ * ancestors. The annotation to the ancestor is implied by the more specific annotation and is therefore redundant
+ * (and inflates the annotation counts). Only phenotypic abnormalities are checked, not negated annotations.
+ * <p>
+ * For every annotation of a disease, the ancestors are taken from the {@link AncestorClosure} and looked up by
+ * binary search in the sorted term indices of the same disease, so the cost is linear in the total size of the
+ * ancestor sets of the annotated terms. The diseases are checked in parallel (on the common fork-join pool, or on
+ * the pool that the factory method is called from).
+ * </p>
+ */
+public final class RedundantAnnotations {
+
+    private final List<Redundancy> redundancies;
+    private final int affectedDiseaseCount;
+
+    private RedundantAnnotations(List<Redundancy> redundancies, int affectedDiseaseCount) {
+        this.redundancies = redundancies;
+        this.affectedDiseaseCount = affectedDiseaseCount;
+    }
+
+    /** An annotation of a disease to a term that is implied by more specific annotations of the same disease. */
+    public static final class Redundancy {
+        private final HpoDisease disease;
+        private final TermId redundantTerm;
+        private final List<TermId> impliedBy;
+
+        Redundancy(HpoDisease disease, TermId redundantTerm, List<TermId> impliedBy) {
+            this.disease = disease;
+            this.redundantTerm = redundantTerm;
+            this.impliedBy = impliedBy;
+        }
+
+        public HpoDisease getDisease() {
+            return disease;
+        }
+
+        public TermId getRedundantTerm() {
+            return redundantTerm;
+        }
+
+        /** @return the descendents of the redundant term that the disease is annotated to */
+        public List<TermId> getImpliedBy() {
+            return impliedBy;
+        }
+    }
+
+    public static RedundantAnnotations of(TermDiseaseIndex index) {
+        return of(index, AncestorClosure.of(index.getGraph()));
+    }
+
+    /**
+     * @param index annotation index
+     * @param closure ancestor closure of the graph of the index
+     * @return the redundant annotations of all diseases of the index
+     */
+    public static RedundantAnnotations of(TermDiseaseIndex index, AncestorClosure closure) {
+        List<List<Redundancy>> perDisease = IntStream.range(0, index.diseaseCount()).parallel()
+                .mapToObj(d -> check(index.disease(d), index.getGraph(), closure))
+                .toList();
+        List<Redundancy> redundancies = new ArrayList<>();
+        int affected = 0;
+        for (List<Redundancy> list : perDisease) {
+            if (list.isEmpty()) continue;
+            affected++;
+            redundancies.addAll(list);
+        }
+        return new RedundantAnnotations(List.copyOf(redundancies), affected);
+    }
+
+    private static List<Redundancy> check(HpoDisease disease, CompactOntologyGraph graph, AncestorClosure closure) {
+        int[] terms = graph.indices(disease.getPhenotypicAbnormalityTermIdList());
+        // impliedBy[i] collects the annotated descendents of terms[i]
+        List<List<TermId>> impliedBy = null;
+        for (int v : terms) {
+            for (int k = 0; k < closure.ancestorCount(v); k++) {
+                int a = closure.ancestor(v, k);
+                if (a == v) continue;
+                int i = Arrays.binarySearch(terms, a);
+                if (i < 0) continue;
+                if (impliedBy == null) {
+                    impliedBy = new ArrayList<>(terms.length);
+                    for (int j = 0; j < terms.length; j++) {
+                        impliedBy.add(null);
+                    }
+                }
+                if (impliedBy.get(i) == null) {
+                    impliedBy.set(i, new ArrayList<>(2));
+                }
+                impliedBy.get(i).add(graph.termId(v));
+            }
+        }
+        if (impliedBy == null) {
+            return List.of();
+        }
+        List<Redundancy> redundancies = new ArrayList<>();
+        for (int i = 0; i < terms.length; i++) {
+            if (impliedBy.get(i) != null) {
+                redundancies.add(new Redundancy(disease, graph.termId(terms[i]), List.copyOf(impliedBy.get(i))));
+            }
+        }
+        return redundancies;
+    }
+
+    /** @return all redundant annotations, grouped by disease */
+    public List<Redundancy> getRedundancies() {
+        return redundancies;
+    }
+
+    public int getRedundantAnnotationCount() {
+        return redundancies.size();
+    }
+
+    /** @return number of diseases with at least one redundant annotation */
+    public int getAffectedDiseaseCount() {
+        return affectedDiseaseCount;
+    }
+}
@@ -0,0 +1,252 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Co-occurrence of pairs of HPO terms across the diseases of {@code phenotype.hpoa}. For two terms a and b that are
+ * annotated to n_a and n_b of N diseases, and that occur together in n_ab diseases, the lift is
+ * {@code N n_ab / (n_a n_b)} (1 if the terms are independent) and the pointwise mutual information is log2(lift).
+ * <p>
+ * Optionally, the annotations are propagated, i.e., each disease is taken to be annotated to all ancestors of its
+ * terms. Pairs of a term with one of its own ancestors are then skipped, since they co-occur by construction. Only
+ * phenotypic abnormalities (descendents of HP:0000118) are counted.
+ * </p>
+ * <p>
+ * The partners of a single term are counted in an int array. For all pairs, the diseases are split into chunks
+ * that are counted on separate threads, each into its own {@link LongIntCounter} keyed by the packed pair of term
+ * indices; the counters are merged at the end.
+ * </p>
+ */
+public final class TermCooccurrence {
+
+    private static final TermId PHENOTYPIC_ABNORMALITY = TermId.of("HP:0000118");
+
+    private final CompactOntologyGraph graph;
+    private final AncestorClosure closure;
+    private final boolean propagate;
+    /** Sorted, distinct term indices of each disease that has at least one phenotypic abnormality. */
+    private final int[][] diseaseTerms;
+    /** Number of diseases annotated to each term. */
+    private final int[] termCounts;
+
+    private TermCooccurrence(CompactOntologyGraph graph, AncestorClosure closure, boolean propagate,
+                             int[][] diseaseTerms, int[] termCounts) {
+        this.graph = graph;
+        this.closure = closure;
+        this.propagate = propagate;
+        this.diseaseTerms = diseaseTerms;
+        this.termCounts = termCounts;
+    }
+
+    /**
+     * @param index annotation index
+     * @param propagate if true, each disease is also counted for all ancestors of its terms
+     * @return co-occurrence data for the diseases of the index
+     */
+    public static TermCooccurrence of(TermDiseaseIndex index, boolean propagate) {
+        CompactOntologyGraph graph = index.getGraph();
+        AncestorClosure closure = AncestorClosure.of(graph);
+        int root = graph.index(PHENOTYPIC_ABNORMALITY);
+        int n = graph.size();
+        int[] mark = new int[n];
+        int[] buffer = new int[n];
+        int[] termCounts = new int[n];
+        List<int[]> diseaseTerms = new ArrayList<>();
+        for (int d = 0; d < index.diseaseCount(); d++) {
+            HpoDisease disease = index.disease(d);
+            int stamp = d + 1;
+            int len = 0;
+            for (HpoAnnotation annotation : disease.getPhenotypicAbnormalities()) {
+                int v = graph.index(annotation.getTermId());
+                if (v < 0) continue;
+                int count = propagate ? closure.ancestorCount(v) : 1;
+                for (int k = 0; k < count; k++) {
+                    int u = propagate ? closure.ancestor(v, k) : v;
+                    if (mark[u] != stamp && (root < 0 || closure.isAncestorOrSelf(root, u))) {
+                        mark[u] = stamp;
+                        buffer[len++] = u;
+                    }
+                }
+            }
+            if (len == 0) continue;
+            int[] terms = Arrays.copyOf(buffer, len);
+            Arrays.sort(terms);
+            for (int t : terms) {
+                termCounts[t]++;
+            }
+            diseaseTerms.add(terms);
+        }
+        return new TermCooccurrence(graph, closure, propagate, diseaseTerms.toArray(new int[0][]), termCounts);
+    }
+
+    /** A pair of terms with the number of diseases in which they co-occur. */
+    public static final class Pair {
+        private final TermId first;
+        private final TermId second;
+        private final int count;
+        private final double lift;
+
+        Pair(TermId first, TermId second, int count, double lift) {
+            this.first = first;
+            this.second = second;
+            this.count = count;
+            this.lift = lift;
+        }
+
+        public TermId getFirst() {
+            return first;
+        }
+
+        public TermId getSecond() {
+            return second;
+        }
+
+        /** @return number of diseases annotated to both terms */
+        public int getCount() {
+            return count;
+        }
+
+        public double getLift() {
+            return lift;
+        }
+
+        /** @return pointwise mutual information in bits */
+        public double getPmi() {
+            return Math.log(lift) / Math.log(2);
+        }
+    }
+
+    /** @return number of diseases with at least one (counted) phenotypic abnormality */
+    public int getDiseaseCount() {
+        return diseaseTerms.length;
+    }
+
+    /** @return number of diseases annotated to the term */
+    public int getTermCount(TermId tid) {
+        int v = graph.index(tid);
+        return v < 0 ? 0 : termCounts[v];
+    }
+
+    private boolean isSkipped(int a, int b) {
+        return a == b || (propagate && (closure.isAncestorOrSelf(a, b) || closure.isAncestorOrSelf(b, a)));
+    }
+
+    private double lift(int a, int b, int count) {
+        return (double) diseaseTerms.length * count / ((double) termCounts[a] * termCounts[b]);
+    }
+
+    /**
+     * @param tid term of interest
+     * @param k maximum number of partners to return
+     * @param minCount minimum number of diseases in which a partner co-occurs with the term
+     * @return the terms with the highest lift with the term of interest
+     */
+    public List<Pair> topPartners(TermId tid, int k, int minCount) {
+        int t = graph.index(tid);
+        if (t < 0) {
+            return List.of();
+        }
+        int[] counts = new int[graph.size()];
+        for (int[] terms : diseaseTerms) {
+            if (Arrays.binarySearch(terms, t) < 0) continue;
+            for (int u : terms) {
+                counts[u]++;
+            }
+        }
+        PriorityQueue<Pair> heap = new PriorityQueue<>(Comparator.comparingDouble(Pair::getLift));
+        for (int u = 0; u < counts.length; u++) {
+            if (counts[u] < Math.max(1, minCount) || isSkipped(t, u)) continue;
+            offer(heap, k, t, u, counts[u]);
+        }
+        return sorted(heap);
+    }
+
+    /**
+     * Count all pairs of terms that co-occur in at least one disease, on the given number of threads.
+     * @param k maximum number of pairs to return
+     * @param minCount minimum number of diseases in which the terms of a pair co-occur
+     * @return the pairs with the highest lift
+     */
+    public List<Pair> topPairs(int k, int minCount, int threads) throws InterruptedException, ExecutionException {
+        LongIntCounter pairs = countPairs(threads);
+        PriorityQueue<Pair> heap = new PriorityQueue<>(Comparator.comparingDouble(Pair::getLift));
+        for (int slot = 0; slot < pairs.capacity(); slot++) {
+            if (!pairs.isUsed(slot) || pairs.countAt(slot) < minCount) continue;
+            long key = pairs.keyAt(slot);
+            offer(heap, k, (int) (key >>> 32), (int) key, pairs.countAt(slot));
+        }
+        return sorted(heap);
+    }
+
+    private void offer(PriorityQueue<Pair> heap, int k, int a, int b, int count) {
+        double lift = lift(a, b, count);
+        if (heap.size() < k) {
+            heap.add(new Pair(graph.termId(a), graph.termId(b), count, lift));
+        } else if (k > 0 && lift > heap.peek().getLift()) {
+            heap.poll();
+            heap.add(new Pair(graph.termId(a), graph.termId(b), count, lift));
+        }
+    }
+
+    private static List<Pair> sorted(PriorityQueue<Pair> heap) {
+        List<Pair> pairs = new ArrayList<>(heap);
+        pairs.sort(Comparator.comparingDouble(Pair::getLift).reversed()
+                .thenComparing(Comparator.comparingInt(Pair::getCount).reversed()));
+        return pairs;
+    }
+
+    /** @return number of diseases for every pair (a, b), a &lt; b, packed as {@code a << 32 | b} */
+    LongIntCounter countPairs(int threads) throws InterruptedException, ExecutionException {
+        int chunks = Math.max(1, Math.min(threads, diseaseTerms.length));
+        List<Callable<LongIntCounter>> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) diseaseTerms.length * c / chunks);
+            int to = (int) ((long) diseaseTerms.length * (c + 1) / chunks);
+            tasks.add(() -> countPairs(from, to));
+        }
+        ForkJoinPool pool = new ForkJoinPool(chunks);
+        try {
+            LongIntCounter merged = null;
+            for (Future<LongIntCounter> future : pool.invokeAll(tasks)) {
+                LongIntCounter counter = future.get();
+                if (merged == null) {
+                    merged = counter;
+                } else if (counter.size() > merged.size()) {
+                    counter.addAll(merged);
+                    merged = counter;
+                } else {
+                    merged.addAll(counter);
+                }
+            }
+            return merged == null ? new LongIntCounter() : merged;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private LongIntCounter countPairs(int from, int to) {
+        LongIntCounter counter = new LongIntCounter();
+        for (int d = from; d < to; d++) {
+            int[] terms = diseaseTerms[d];
+            for (int i = 0; i < terms.length; i++) {
+                for (int j = i + 1; j < terms.length; j++) {
+                    if (!isSkipped(terms[i], terms[j])) {
+                        counter.increment(((long) terms[i] << 32) | terms[j]);
+                    }
+                }
+            }
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,341 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Over-representation of HPO terms in a study set of diseases compared to all diseases of {@code phenotype.hpoa}
+ * (the population, i.e., all diseases with at least one phenotypic abnormality). Annotations are propagated, so a
+ * disease counts for a term if it is annotated to the term or to any of its descendents. The p-value of a term is
+ * the upper tail of the hypergeometric distribution, computed from a precomputed table of log-factorials.
+ * <p>
+ * With the parent-child correction (Grossmann et al., Bioinformatics 23:3024, 2007) the population of a term is
+ * restricted to the diseases annotated to the union (or the intersection) of its parents, and the study set to the
+ * study diseases among them. This removes most of the inheritance of significance from a term to its ancestors.
+ * </p>
+ * <p>
+ * Population counts and parent sets are taken from the propagated term to disease bitmaps of the
+ * {@link TermDiseaseIndex} once. The study counts are obtained by one pass over the precomputed, propagated terms
+ * of the study diseases, so that only terms annotated to at least one study disease are tested; the tests can be
+ * run in parallel. The object is immutable and can be used for many study sets from several threads.
+ * </p>
+ */
+public final class TermEnrichment {
+
+    /** Population against which the study count of a term is tested. */
+    public enum Correction {NONE, PARENT_CHILD_UNION, PARENT_CHILD_INTERSECTION}
+
+    private static final TermId PHENOTYPIC_ABNORMALITY = TermId.of("HP:0000118");
+
+    private final TermDiseaseIndex index;
+    private final Correction correction;
+    /** Diseases with at least one phenotypic abnormality. */
+    private final RoaringBitmap population;
+    /**
+     * Propagated, distinct term indices of each disease (empty for diseases outside the population). HP:0000118
+     * itself, which every disease of the population is annotated to, is not tested.
+     */
+    private final int[][] diseaseTerms;
+    /** Number of diseases of the population annotated to each term. */
+    private final int[] populationCounts;
+    /** Diseases annotated to the parents of each term; only used with a parent-child correction. */
+    private final RoaringBitmap[] parentSets;
+    /** logFactorial[i] = ln(i!) for i = 0 ... number of diseases. */
+    private final double[] logFactorial;
+
+    private TermEnrichment(TermDiseaseIndex index, Correction correction, RoaringBitmap population,
+                           int[][] diseaseTerms, int[] populationCounts, RoaringBitmap[] parentSets,
+                           double[] logFactorial) {
+        this.index = index;
+        this.correction = correction;
+        this.population = population;
+        this.diseaseTerms = diseaseTerms;
+        this.populationCounts = populationCounts;
+        this.parentSets = parentSets;
+        this.logFactorial = logFactorial;
+    }
+
+    /**
+     * @param index annotation index
+     * @param correction population against which each term is tested
+     * @return enrichment analysis against all diseases of the index
+     */
+    public static TermEnrichment of(TermDiseaseIndex index, Correction correction) {
+        CompactOntologyGraph graph = index.getGraph();
+        AncestorClosure closure = AncestorClosure.of(graph);
+        int n = graph.size();
+        int root = graph.index(PHENOTYPIC_ABNORMALITY);
+        if (root < 0) {
+            root = graph.root();
+        }
+        RoaringBitmap population = root < 0 ? new RoaringBitmap() : index.annotatedDiseases(root);
+        int[] populationCounts = new int[n];
+        for (int v = 0; v < n; v++) {
+            if (root >= 0 && closure.isAncestorOrSelf(root, v)) {
+                populationCounts[v] = index.annotatedDiseases(v).getCardinality();
+            }
+        }
+        int[][] diseaseTerms = new int[index.diseaseCount()][];
+        int[] mark = new int[n];
+        int[] buffer = new int[n];
+        for (int d = 0; d < index.diseaseCount(); d++) {
+            int stamp = d + 1;
+            int len = 0;
+            if (population.contains(d)) {
+                HpoDisease disease = index.disease(d);
+                for (TermId tid : disease.getPhenotypicAbnormalityTermIdList()) {
+                    int v = graph.index(tid);
+                    if (v < 0) continue;
+                    for (int k = 0; k < closure.ancestorCount(v); k++) {
+                        int u = closure.ancestor(v, k);
+                        if (mark[u] != stamp && u != root && populationCounts[u] > 0) {
+                            mark[u] = stamp;
+                            buffer[len++] = u;
+                        }
+                    }
+                }
+            }
+            diseaseTerms[d] = Arrays.copyOf(buffer, len);
+        }
+        RoaringBitmap[] parentSets = null;
+        if (correction != Correction.NONE) {
+            parentSets = new RoaringBitmap[n];
+            for (int v = 0; v < n; v++) {
+                if (populationCounts[v] == 0 || v == root) continue;
+                List<RoaringBitmap> parents = new ArrayList<>(graph.parentCount(v));
+                for (int k = 0; k < graph.parentCount(v); k++) {
+                    parents.add(index.annotatedDiseases(graph.parent(v, k)));
+                }
+                if (parents.size() == 1) {
+                    parentSets[v] = parents.get(0);
+                } else if (correction == Correction.PARENT_CHILD_UNION) {
+                    parentSets[v] = FastAggregation.or(parents.iterator());
+                } else {
+                    parentSets[v] = FastAggregation.and(parents.iterator());
+                }
+            }
+        }
+        double[] logFactorial = new double[index.diseaseCount() + 1];
+        for (int i = 1; i < logFactorial.length; i++) {
+            logFactorial[i] = logFactorial[i - 1] + Math.log(i);
+        }
+        return new TermEnrichment(index, correction, population, diseaseTerms, populationCounts,
+                parentSets, logFactorial);
+    }
+
+    /** The result of the test of one term. */
+    public static final class Result {
+        private final TermId term;
+        private final int studyCount;
+        private final int studySize;
+        private final int populationCount;
+        private final int populationSize;
+        private final double pValue;
+        private double bonferroni;
+        private double fdr;
+
+        Result(TermId term, int studyCount, int studySize, int populationCount, int populationSize, double pValue) {
+            this.term = term;
+            this.studyCount = studyCount;
+            this.studySize = studySize;
+            this.populationCount = populationCount;
+            this.populationSize = populationSize;
+            this.pValue = pValue;
+        }
+
+        public TermId getTerm() {
+            return term;
+        }
+
+        /** @return number of study diseases annotated to the term */
+        public int getStudyCount() {
+            return studyCount;
+        }
+
+        /** @return number of study diseases tested (with a parent-child correction, those annotated to the parents) */
+        public int getStudySize() {
+            return studySize;
+        }
+
+        /** @return number of population diseases annotated to the term */
+        public int getPopulationCount() {
+            return populationCount;
+        }
+
+        /** @return number of population diseases tested (with a parent-child correction, those annotated to the parents) */
+        public int getPopulationSize() {
+            return populationSize;
+        }
+
+        /** @return ratio of the frequency of the term in the study set to its frequency in the population */
+        public double getFoldEnrichment() {
+            return (double) studyCount * populationSize / ((double) studySize * populationCount);
+        }
+
+        public double getPValue() {
+            return pValue;
+        }
+
+        /** @return p-value multiplied by the number of tested terms (at most 1) */
+        public double getBonferroni() {
+            return bonferroni;
+        }
+
+        /** @return Benjamini-Hochberg adjusted p-value */
+        public double getFdr() {
+            return fdr;
+        }
+    }
+
+    /**
+     * @param diseaseIds ids of the study diseases, e.g., OMIM:100100; unknown ids are ignored
+     * @return dense ids of the study diseases with at least one phenotypic abnormality
+     */
+    public RoaringBitmap studySet(Collection<TermId> diseaseIds) {
+        RoaringBitmap study = new RoaringBitmap();
+        for (TermId diseaseId : diseaseIds) {
+            int d = index.diseaseIndex(diseaseId);
+            if (d >= 0) {
+                study.add(d);
+            }
+        }
+        study.and(population);
+        return study;
+    }
+
+    /**
+     * Test all terms annotated to at least {@code minStudyCount} study diseases on the calling thread.
+     * @param study dense ids of the study diseases, see {@link #studySet(Collection)}
+     * @param minStudyCount minimum number of study diseases annotated to a tested term
+     * @return the results, by ascending p-value
+     */
+    public List<Result> analyze(RoaringBitmap study, int minStudyCount) {
+        int[] counts = studyCounts(study);
+        int[] candidates = candidates(counts, minStudyCount);
+        Result[] results = new Result[candidates.length];
+        int studySize = study.getCardinality();
+        for (int i = 0; i < candidates.length; i++) {
+            results[i] = test(candidates[i], counts[candidates[i]], study, studySize);
+        }
+        return adjust(results);
+    }
+
+    /**
+     * Test all terms annotated to at least {@code minStudyCount} study diseases in parallel on the given pool.
+     */
+    public List<Result> analyze(RoaringBitmap study, int minStudyCount, ForkJoinPool pool)
+            throws InterruptedException, ExecutionException {
+        int[] counts = studyCounts(study);
+        int[] candidates = candidates(counts, minStudyCount);
+        Result[] results = new Result[candidates.length];
+        int studySize = study.getCardinality();
+        pool.submit(() -> IntStream.range(0, candidates.length).parallel()
+                .forEach(i -> results[i] = test(candidates[i], counts[candidates[i]], study, studySize))).get();
+        return adjust(results);
+    }
+
+    /** @return number of study diseases annotated to each term */
+    private int[] studyCounts(RoaringBitmap study) {
+        int[] counts = new int[populationCounts.length];
+        for (int d : study) {
+            for (int v : diseaseTerms[d]) {
+                counts[v]++;
+            }
+        }
+        return counts;
+    }
+
+    /** @return the terms annotated to at least minStudyCount study diseases, in ascending order */
+    private static int[] candidates(int[] counts, int minStudyCount) {
+        int threshold = Math.max(1, minStudyCount);
+        int len = 0;
+        for (int count : counts) {
+            if (count >= threshold) len++;
+        }
+        int[] candidates = new int[len];
+        len = 0;
+        for (int v = 0; v < counts.length; v++) {
+            if (counts[v] >= threshold) {
+                candidates[len++] = v;
+            }
+        }
+        return candidates;
+    }
+
+    private Result test(int v, int k, RoaringBitmap study, int studySize) {
+        int bigK = populationCounts[v];
+        int bigN;
+        int n;
+        if (correction == Correction.NONE) {
+            bigN = population.getCardinality();
+            n = studySize;
+        } else {
+            bigN = parentSets[v].getCardinality();
+            n = RoaringBitmap.andCardinality(study, parentSets[v]);
+        }
+        return new Result(index.getGraph().termId(v), k, n, bigK, bigN, upperTail(bigN, bigK, n, k));
+    }
+
+    /** Sort the results by p-value and set the Bonferroni and Benjamini-Hochberg adjusted p-values. */
+    private static List<Result> adjust(Result[] results) {
+        Arrays.sort(results, Comparator.comparingDouble(Result::getPValue)
+                .thenComparing(r -> r.getTerm().getValue()));
+        int m = results.length;
+        double min = 1.0;
+        for (int i = m - 1; i >= 0; i--) {
+            Result r = results[i];
+            r.bonferroni = Math.min(1.0, r.pValue * m);
+            min = Math.min(min, r.pValue * m / (i + 1));
+            r.fdr = min;
+        }
+        return Arrays.asList(results);
+    }
+
+    private double logChoose(int n, int k) {
+        return logFactorial[n] - logFactorial[k] - logFactorial[n - k];
+    }
+
+    /**
+     * @param bigN population size
+     * @param bigK number of population items with the property
+     * @param n sample size
+     * @param k number of sample items with the property
+     * @return P(X &ge; k) for a hypergeometric random variable X
+     */
+    double upperTail(int bigN, int bigK, int n, int k) {
+        int max = Math.min(n, bigK);
+        if (k <= Math.max(0, n + bigK - bigN)) {
+            return 1.0;
+        }
+        if (k > max) {
+            return 0.0;
+        }
+        double term = Math.exp(logChoose(bigK, k) + logChoose(bigN - bigK, n - k) - logChoose(bigN, n));
+        double sum = 0.0;
+        for (int i = k; i <= max; i++) {
+            sum += term;
+            // ratio of P(X = i + 1) to P(X = i)
+            term *= (double) (bigK - i) * (n - i) / ((double) (i + 1) * (bigN - bigK - n + i + 1));
+        }
+        return Math.min(1.0, sum);
+    }
+
+    /** @return number of diseases with at least one phenotypic abnormality */
+    public int getPopulationSize() {
+        return population.getCardinality();
+    }
+
+    public Correction getCorrection() {
+        return correction;
+    }
+}
@@ -0,0 +1,208 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Annotation counts for every HPO term, computed in one pass over the phenotypic abnormalities of all diseases.
+ * For each term we store the number of annotations directly to the term and the number of annotations to the term
+ * or any of its descendents (i.e., each annotation is also counted for all ancestors of the annotated term), both
+ * as raw counts and weighted by the frequency of the annotation. The counts are kept in primitive arrays indexed
+ * by the terms of a {@link CompactOntologyGraph}, so that the table can be queried for any number of subtrees
+ * without touching the annotations again. The table can be saved as TSV with {@link #writeTsv(PrintWriter, Ontology)}
+ * and read back with {@link #readTsv(BufferedReader, CompactOntologyGraph)}, so that the annotations only need to
+ * be parsed once per release.
+ */
+public final class TermFrequencyTable {
+
+    /** The count by which terms are ranked in {@link #topTerms(TermId, int, Metric)}. */
+    public enum Metric {DIRECT, DIRECT_WEIGHTED, PROPAGATED, PROPAGATED_WEIGHTED}
+
+    private static final String TSV_HEADER = "id\tlabel\tdirect\tdirect_weighted\tpropagated\tpropagated_weighted";
+
+    private final CompactOntologyGraph graph;
+    private final int[] directCount;
+    private final double[] directWeighted;
+    private final int[] propagatedCount;
+    private final double[] propagatedWeighted;
+
+    private TermFrequencyTable(CompactOntologyGraph graph, int[] directCount, double[] directWeighted,
+                               int[] propagatedCount, double[] propagatedWeighted) {
+        this.graph = graph;
+        this.directCount = directCount;
+        this.directWeighted = directWeighted;
+        this.propagatedCount = propagatedCount;
+        this.propagatedWeighted = propagatedWeighted;
+    }
+
+    /**
+     * @param index annotation index
+     * @return the counts for all terms of the graph of the index
+     */
+    public static TermFrequencyTable of(TermDiseaseIndex index) {
+        return of(index, AncestorClosure.of(index.getGraph()));
+    }
+
+    public static TermFrequencyTable of(TermDiseaseIndex index, AncestorClosure closure) {
+        CompactOntologyGraph graph = index.getGraph();
+        int n = graph.size();
+        int[] directCount = new int[n];
+        double[] directWeighted = new double[n];
+        int[] propagatedCount = new int[n];
+        double[] propagatedWeighted = new double[n];
+        for (int d = 0; d < index.diseaseCount(); d++) {
+            HpoDisease disease = index.disease(d);
+            for (HpoAnnotation annotation : disease.getPhenotypicAbnormalities()) {
+                int v = graph.index(annotation.getTermId());
+                if (v < 0) continue;
+                double frequency = annotation.getFrequency();
+                directCount[v]++;
+                directWeighted[v] += frequency;
+                for (int k = 0; k < closure.ancestorCount(v); k++) {
+                    int u = closure.ancestor(v, k);
+                    propagatedCount[u]++;
+                    propagatedWeighted[u] += frequency;
+                }
+            }
+        }
+        return new TermFrequencyTable(graph, directCount, directWeighted, propagatedCount, propagatedWeighted);
+    }
+
+    /** @return the count of the term with the given graph index */
+    public double get(int termIdx, Metric metric) {
+        return switch (metric) {
+            case DIRECT -> directCount[termIdx];
+            case DIRECT_WEIGHTED -> directWeighted[termIdx];
+            case PROPAGATED -> propagatedCount[termIdx];
+            case PROPAGATED_WEIGHTED -> propagatedWeighted[termIdx];
+        };
+    }
+
+    /** @return the count of the term, or 0 if the term is not part of the ontology */
+    public double get(TermId tid, Metric metric) {
+        int v = graph.index(tid);
+        return v < 0 ? 0.0 : get(v, metric);
+    }
+
+    /** @return number of annotations directly to the term */
+    public int getDirectCount(TermId tid) {
+        int v = graph.index(tid);
+        return v < 0 ? 0 : directCount[v];
+    }
+
+    /** @return number of annotations to the term or any of its descendents */
+    public int getPropagatedCount(TermId tid) {
+        int v = graph.index(tid);
+        return v < 0 ? 0 : propagatedCount[v];
+    }
+
+    /**
+     * @param root root of the subtree
+     * @param k maximum number of terms to return
+     * @param metric the count by which the terms are ranked
+     * @return the k terms of the subtree of root (including root) with the highest counts, best first; terms with
+     * a count of zero are not returned
+     */
+    public List<TermId> topTerms(TermId root, int k, Metric metric) {
+        int r = graph.index(root);
+        if (r < 0 || k < 1) {
+            return List.of();
+        }
+        Comparator<Integer> byCount = Comparator.<Integer>comparingDouble(v -> get(v, metric))
+                .thenComparing(Comparator.reverseOrder());
+        // bounded min-heap: the root is the term with the lowest count among the k best so far
+        PriorityQueue<Integer> heap = new PriorityQueue<>(k + 1, byCount);
+        graph.newTraversal().forEachDescendant(r, true, v -> {
+            if (get(v, metric) <= 0.0) return;
+            if (heap.size() < k) {
+                heap.add(v);
+            } else if (byCount.compare(v, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(v);
+            }
+        });
+        List<Integer> best = new ArrayList<>(heap);
+        best.sort(byCount.reversed());
+        List<TermId> terms = new ArrayList<>(best.size());
+        for (int v : best) {
+            terms.add(graph.termId(v));
+        }
+        return terms;
+    }
+
+    /**
+     * Write the counts of all terms as TSV, one line per term with its id, label and the four counts.
+     * @param writer destination
+     * @param ontology ontology from which the labels are taken
+     */
+    public void writeTsv(PrintWriter writer, Ontology ontology) {
+        writer.println(TSV_HEADER);
+        for (int v = 0; v < graph.size(); v++) {
+            TermId t = graph.termId(v);
+            String name = ontology.getTermMap().containsKey(t) ? ontology.getTermMap().get(t).getName() : "";
+            // Double.toString is independent of the locale and keeps full precision, so the file reads back exactly
+            writer.printf("%s\t%s\t%d\t%s\t%d\t%s%n", t.getValue(), name, directCount[v],
+                    Double.toString(directWeighted[v]), propagatedCount[v], Double.toString(propagatedWeighted[v]));
+        }
+    }
+
+    /**
+     * Read a table written by {@link #writeTsv(PrintWriter, Ontology)}. Terms that are not part of the graph (e.g.,
+     * because the table was written for another release of the HPO) are skipped and terms that are missing from the
+     * file have counts of zero.
+     * @param reader source
+     * @param graph graph of the current ontology
+     * @return the table
+     * @throws IOException if the source cannot be read or is not a frequency table
+     */
+    public static TermFrequencyTable readTsv(BufferedReader reader, CompactOntologyGraph graph) throws IOException {
+        String header = reader.readLine();
+        if (!TSV_HEADER.equals(header)) {
+            throw new IOException("Not a term frequency table (unexpected header \"" + header + "\")");
+        }
+        int n = graph.size();
+        int[] directCount = new int[n];
+        double[] directWeighted = new double[n];
+        int[] propagatedCount = new int[n];
+        double[] propagatedWeighted = new double[n];
+        String line;
+        int lineNo = 1;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 6) {
+                throw new IOException(String.format("Expected 6 fields in line %d but got %d", lineNo, fields.length));
+            }
+            int v = graph.index(TermId.of(fields[0]));
+            if (v < 0) {
+                continue;
+            }
+            try {
+                directCount[v] = Integer.parseInt(fields[2]);
+                directWeighted[v] = Double.parseDouble(fields[3]);
+                propagatedCount[v] = Integer.parseInt(fields[4]);
+                propagatedWeighted[v] = Double.parseDouble(fields[5]);
+            } catch (NumberFormatException e) {
+                throw new IOException(String.format("Malformed count in line %d: %s", lineNo, e.getMessage()));
+            }
+        }
+        return new TermFrequencyTable(graph, directCount, directWeighted, propagatedCount, propagatedWeighted);
+    }
+
+    public CompactOntologyGraph getGraph() {
+        return graph;
+    }
+}
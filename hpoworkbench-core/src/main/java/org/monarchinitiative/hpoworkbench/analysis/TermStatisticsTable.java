@@ -0,0 +1,274 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.hpoworkbench.io.HpoaAnnotationLine.Database;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precomputed statistics for every term of the HPO: the number of terms in the subtree of the term (including the
+ * term itself), how many of these have a textual definition, how many synonyms and subclass relations they have, and
+ * how many diseases of each database are annotated to the term or its descendents together with the number of
+ * annotations of these diseases. The table is built in one pass over the ontology in reverse topological order,
+ * after which each statistic can be looked up in constant time for any term.
+ * <p>
+ * The counting rules are those of {@link HpoStats}: a disease is counted for a term if one of its phenotypic
+ * abnormalities is the term or one of its descendents (modes of inheritance and negated annotations do not count),
+ * {@link #getAnnotationCount} is the total number of annotations of these diseases without the
+ * {@link RedundantAnnotations redundant} ones (unless the table is built with {@code redundant == null}), and
+ * {@link #getSubtreeAnnotationCount} is the number of phenotypic abnormalities below the term, not counting
+ * annotations to the term itself.
+ * </p>
+ * <p>
+ * Since the HPO is a DAG, the subtree counts cannot simply be summed over the children. Instead, the set of
+ * descendents of each term and the set of diseases annotated to them are built as the unions of the sets of its
+ * children.
+ * </p>
+ */
+public final class TermStatisticsTable {
+
+    private static final Database[] DATABASES = Database.values();
+
+    private final CompactOntologyGraph graph;
+    /** Number of terms in the subtree of each term (including the term itself). */
+    private final int[] descendantCount;
+    /** Number of terms in the subtree of each term that have a textual definition. */
+    private final int[] definitionCount;
+    /** Total number of synonyms of the terms in the subtree of each term. */
+    private final int[] synonymCount;
+    /** Number of subclass relations whose parent is in the subtree of each term. */
+    private final int[] relationCount;
+    /** Number of diseases with a phenotypic abnormality in the subtree of each term, by {@link Database#ordinal()}. */
+    private final int[][] diseaseCount;
+    /** Total number of annotations of the diseases counted in {@link #diseaseCount}. */
+    private final int[][] annotationCount;
+    /** Number of phenotypic abnormalities annotated to the descendents of each term (not to the term itself). */
+    private final int[][] subtreeAnnotationCount;
+
+    private TermStatisticsTable(CompactOntologyGraph graph, int[] descendantCount, int[] definitionCount,
+                                int[] synonymCount, int[] relationCount, int[][] diseaseCount,
+                                int[][] annotationCount, int[][] subtreeAnnotationCount) {
+        this.graph = graph;
+        this.descendantCount = descendantCount;
+        this.definitionCount = definitionCount;
+        this.synonymCount = synonymCount;
+        this.relationCount = relationCount;
+        this.diseaseCount = diseaseCount;
+        this.annotationCount = annotationCount;
+        this.subtreeAnnotationCount = subtreeAnnotationCount;
+    }
+
+    /**
+     * @param ontology reference to HPO
+     * @param index annotation index that was built with a graph of the same ontology
+     * @return the statistics for all terms, without the {@link RedundantAnnotations redundant} annotations in
+     * {@link #getAnnotationCount}
+     */
+    public static TermStatisticsTable of(Ontology ontology, TermDiseaseIndex index) {
+        return of(ontology, index, RedundantAnnotations.of(index));
+    }
+
+    /**
+     * @param ontology reference to HPO
+     * @param index annotation index that was built with a graph of the same ontology
+     * @param redundant redundant annotations of the index, which are not counted by {@link #getAnnotationCount}, or
+     *                  null to count all annotations
+     * @return the statistics for all terms
+     */
+    public static TermStatisticsTable of(Ontology ontology, TermDiseaseIndex index, RedundantAnnotations redundant) {
+        CompactOntologyGraph graph = index.getGraph();
+        int n = graph.size();
+        boolean[] hasDefinition = new boolean[n];
+        int[] synonyms = new int[n];
+        for (int v = 0; v < n; v++) {
+            Term term = ontology.getTermMap().get(graph.termId(v));
+            if (term == null) {
+                continue;
+            }
+            String def = term.getDefinition();
+            hasDefinition[v] = def != null && def.length() > 0;
+            synonyms[v] = term.getSynonyms() == null ? 0 : term.getSynonyms().size();
+        }
+        int[][] directAnnotations = new int[DATABASES.length][n];
+        RoaringBitmap[] directDiseases = new RoaringBitmap[n];
+        int[] diseaseDatabase = new int[index.diseaseCount()];
+        int[] diseaseAnnotations = new int[index.diseaseCount()];
+        for (int d = 0; d < index.diseaseCount(); d++) {
+            HpoDisease disease = index.disease(d);
+            int db = database(disease).ordinal();
+            diseaseDatabase[d] = db;
+            diseaseAnnotations[d] = disease.getPhenotypicAbnormalities().size()
+                    + disease.getModesOfInheritance().size() + disease.getNegativeAnnotations().size();
+            for (HpoAnnotation annot : disease.getPhenotypicAbnormalities()) {
+                int v = graph.index(annot.getTermId());
+                if (v < 0) {
+                    continue;
+                }
+                directAnnotations[db][v]++;
+                if (directDiseases[v] == null) {
+                    directDiseases[v] = new RoaringBitmap();
+                }
+                directDiseases[v].add(d);
+            }
+        }
+        if (redundant != null) {
+            for (RedundantAnnotations.Redundancy r : redundant.getRedundancies()) {
+                int d = index.diseaseIndex(r.getDisease().getDiseaseDatabaseId());
+                int v = graph.index(r.getRedundantTerm());
+                for (HpoAnnotation annot : r.getDisease().getPhenotypicAbnormalities()) {
+                    if (graph.index(annot.getTermId()) == v) {
+                        diseaseAnnotations[d]--;
+                    }
+                }
+            }
+        }
+
+        int[] descendantCount = new int[n];
+        int[] definitionCount = new int[n];
+        int[] synonymCount = new int[n];
+        int[] relationCount = new int[n];
+        int[][] diseaseCount = new int[DATABASES.length][n];
+        int[][] annotationCount = new int[DATABASES.length][n];
+        int[][] subtreeAnnotationCount = new int[DATABASES.length][n];
+        RoaringBitmap[] descendants = new RoaringBitmap[n];
+        RoaringBitmap[] diseases = new RoaringBitmap[n];
+        RoaringBitmap empty = new RoaringBitmap();
+        List<RoaringBitmap> parts = new ArrayList<>();
+        List<RoaringBitmap> diseaseParts = new ArrayList<>();
+        for (int pos = graph.topologicalOrderLength() - 1; pos >= 0; pos--) {
+            int v = graph.topologicalOrder(pos);
+            parts.clear();
+            diseaseParts.clear();
+            parts.add(RoaringBitmap.bitmapOf(v));
+            if (directDiseases[v] != null) {
+                diseaseParts.add(directDiseases[v]);
+            }
+            for (int k = 0; k < graph.childCount(v); k++) {
+                int child = graph.child(v, k);
+                parts.add(descendants[child]);
+                if (!diseases[child].isEmpty()) {
+                    diseaseParts.add(diseases[child]);
+                }
+            }
+            RoaringBitmap subtree = parts.size() == 1 ? parts.get(0) : FastAggregation.or(parts.iterator());
+            descendants[v] = subtree;
+            diseases[v] = diseaseParts.isEmpty() ? empty : diseaseParts.size() == 1 ? diseaseParts.get(0)
+                    : FastAggregation.or(diseaseParts.iterator());
+            descendantCount[v] = subtree.getCardinality();
+            PeekableIntIterator it = subtree.getIntIterator();
+            while (it.hasNext()) {
+                int u = it.next();
+                if (hasDefinition[u]) definitionCount[v]++;
+                synonymCount[v] += synonyms[u];
+                relationCount[v] += graph.childCount(u);
+                if (u != v) {
+                    for (int db = 0; db < DATABASES.length; db++) {
+                        subtreeAnnotationCount[db][v] += directAnnotations[db][u];
+                    }
+                }
+            }
+            it = diseases[v].getIntIterator();
+            while (it.hasNext()) {
+                int d = it.next();
+                diseaseCount[diseaseDatabase[d]][v]++;
+                annotationCount[diseaseDatabase[d]][v] += diseaseAnnotations[d];
+            }
+        }
+        return new TermStatisticsTable(graph, descendantCount, definitionCount, synonymCount, relationCount,
+                diseaseCount, annotationCount, subtreeAnnotationCount);
+    }
+
+    private static Database database(HpoDisease disease) {
+        String database = disease.getDatabase();
+        if (database.startsWith("OMIM")) return Database.OMIM;
+        if (database.startsWith("ORPHA")) return Database.ORPHA;
+        if (database.startsWith("DECIPHER")) return Database.DECIPHER;
+        return Database.OTHER;
+    }
+
+    /** @return true if the term (or its primary id, if tid is an alternate id) is part of the table. */
+    public boolean contains(TermId tid) {
+        return graph.index(tid) >= 0;
+    }
+
+    /** @return number of terms in the subtree of tid including tid itself, or 0 if tid is not in the ontology */
+    public int getDescendantCount(TermId tid) {
+        int v = graph.index(tid);
+        return v < 0 ? 0 : descendantCount[v];
+    }
+
+    /** @return number of terms in the subtree of tid that have a textual definition */
+    public int getDefinitionCount(TermId tid) {
+        int v = graph.index(tid);
+        return v < 0 ? 0 : definitionCount[v];
+    }
+
+    /** @return total number of synonyms of the terms in the subtree of tid */
+    public int getSynonymCount(TermId tid) {
+        int v = graph.index(tid);
+        return v < 0 ? 0 : synonymCount[v];
+    }
+
+    /** @return number of subclass relations between the terms in the subtree of tid */
+    public int getRelationCount(TermId tid) {
+        int v = graph.index(tid);
+        return v < 0 ? 0 : relationCount[v];
+    }
+
+    /**
+     * @return number of diseases from the database with a phenotypic abnormality that is tid or one of its
+     * descendents
+     */
+    public int getDiseaseCount(TermId tid, Database database) {
+        int v = graph.index(tid);
+        return v < 0 ? 0 : diseaseCount[database.ordinal()][v];
+    }
+
+    /**
+     * @return number of diseases from all databases with a phenotypic abnormality that is tid or one of its
+     * descendents
+     */
+    public int getDiseaseCount(TermId tid) {
+        int v = graph.index(tid);
+        if (v < 0) {
+            return 0;
+        }
+        int n = 0;
+        for (int[] counts : diseaseCount) {
+            n += counts[v];
+        }
+        return n;
+    }
+
+    /**
+     * @return total number of annotations (phenotypic abnormalities, modes of inheritance and negated terms) of the
+     * diseases counted by {@link #getDiseaseCount(TermId, Database)}
+     */
+    public int getAnnotationCount(TermId tid, Database database) {
+        int v = graph.index(tid);
+        return v < 0 ? 0 : annotationCount[database.ordinal()][v];
+    }
+
+    /**
+     * @return number of phenotypic abnormalities of diseases from the database that are descendents of tid
+     * (annotations to tid itself are not counted)
+     */
+    public int getSubtreeAnnotationCount(TermId tid, Database database) {
+        int v = graph.index(tid);
+        return v < 0 ? 0 : subtreeAnnotationCount[database.ordinal()][v];
+    }
+
+    public CompactOntologyGraph getGraph() {
+        return graph;
+    }
+}
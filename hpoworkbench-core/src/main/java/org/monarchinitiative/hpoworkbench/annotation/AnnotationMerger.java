@@ -4,17 +4,15 @@ package org.monarchinitiative.hpoworkbench.annotation;
 import com.google.common.collect.ImmutableList;
 
 
+import org.monarchinitiative.hpoworkbench.graph.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
-import org.monarchinitiative.phenol.annotations.formats.hpo.category.HpoCategory;
-import org.monarchinitiative.phenol.annotations.formats.hpo.category.HpoCategoryMap;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.*;
-
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -28,6 +26,10 @@ import java.util.stream.Collectors;
 public class AnnotationMerger {
     private static final Logger logger = LoggerFactory.getLogger(AnnotationMerger.class);
     private final Ontology ontology;
+    /** Used to decide whether one annotation is a subclass of another one. */
+    private final AncestorClosure closure;
+    /** Used to group the annotations of each disease by category. */
+    private final HpoCategoryTable categories;
 
     private final HpoDisease disease1;
     private final HpoDisease disease2;
@@ -38,14 +40,30 @@ public class AnnotationMerger {
     private List<TermId> sharedTerms;
 
 
-    private final Map<HpoCategory,Set<TermId>> disease1ByCategory;
-    private final Map<HpoCategory,Set<TermId>> disease2ByCategory;
-    private final Set<HpoCategory> allCategorySet;
+    private final Map<HpoCategoryTable.Category,Set<TermId>> disease1ByCategory;
+    private final Map<HpoCategoryTable.Category,Set<TermId>> disease2ByCategory;
+    private final Set<HpoCategoryTable.Category> allCategorySet;
 
-    private final Map<HpoCategory,CategoryMerge> mergedCategoryMap;
+    private final Map<HpoCategoryTable.Category,CategoryMerge> mergedCategoryMap;
 
 
+    /** Builds the ancestor closure and the category table for this pair of diseases only. */
     public AnnotationMerger(HpoDisease d1, HpoDisease d2, Ontology honto) {
+        this(d1, d2, honto, CompactOntologyGraph.of(honto));
+    }
+
+    private AnnotationMerger(HpoDisease d1, HpoDisease d2, Ontology honto, CompactOntologyGraph graph) {
+        this(d1, d2, honto, AncestorClosure.of(graph), HpoCategoryTable.of(graph));
+    }
+
+    /**
+     * Use this constructor when merging many pairs of diseases, so that the ancestor closure and the category table
+     * are built only once.
+     * @param closure ancestor closure for {@code honto}
+     * @param categories category table for {@code honto}
+     */
+    public AnnotationMerger(HpoDisease d1, HpoDisease d2, Ontology honto, AncestorClosure closure,
+                            HpoCategoryTable categories) {
         disease1=d1;
         disease2=d2;
         if (disease1==null) {
@@ -64,10 +82,12 @@ public class AnnotationMerger {
         }
 
         ontology=honto;
+        this.closure=closure;
+        this.categories=categories;
         disease1ByCategory=new HashMap<>();
         disease2ByCategory=new HashMap<>();
-        allCategorySet=new HashSet<>();
-        mergedCategoryMap =new HashMap<>();
+        allCategorySet=new TreeSet<>(Comparator.comparingInt(HpoCategoryTable.CATEGORIES::indexOf));
+        mergedCategoryMap =new LinkedHashMap<>();
     }
 
 
@@ -87,13 +107,13 @@ public class AnnotationMerger {
 
 
     private void outputByCategory() {
-        for (HpoCategory hcat: allCategorySet) {
+        for (HpoCategoryTable.Category hcat: allCategorySet) {
             outputCategory(hcat);
         }
 
     }
 
-    private void outputCategory(HpoCategory hcat) {
+    private void outputCategory(HpoCategoryTable.Category hcat) {
         System.out.println("############## " + hcat.getLabel() + " ##############");
         CategoryMerge catmerge = mergedCategoryMap.get(hcat);
         if (catmerge.onlyDisease1()) {
@@ -162,29 +182,25 @@ public class AnnotationMerger {
         } else {
             lst2 = disease2.getPhenotypicAbnormalities().stream().map(HpoAnnotation::getTermId).collect(Collectors.toList());
         }
-        HpoCategoryMap catmap1 =  new HpoCategoryMap();
-        catmap1.addAnnotatedTerms(lst1,ontology);
-        List<HpoCategory> catlist1=catmap1.getActiveCategoryList();
-        for (HpoCategory hcat : catlist1) {
-            List<TermId> annotatingTerms = hcat.getAnnotatingTermIds();
-            this.disease1ByCategory.put(hcat,new HashSet<>(annotatingTerms));
+        HpoCategoryTable.CategorizedTerms catterms1 = categories.categorize(lst1);
+        for (HpoCategoryTable.Category hcat : catterms1.getActiveCategories()) {
+            List<TermId> annotatingTerms = catterms1.getTerms(hcat);
+            this.disease1ByCategory.put(hcat,new LinkedHashSet<>(annotatingTerms));
             allCategorySet.add(hcat);
         }
-        HpoCategoryMap catmap2 =  new HpoCategoryMap();
-        catmap2.addAnnotatedTerms(lst2,ontology);
-        List<HpoCategory> catlist2=catmap2.getActiveCategoryList();
-        for (HpoCategory hcat : catlist2) {
-            List<TermId> annotatingTerms = hcat.getAnnotatingTermIds();
-            this.disease2ByCategory.put(hcat,new HashSet<>(annotatingTerms));
+        HpoCategoryTable.CategorizedTerms catterms2 = categories.categorize(lst2);
+        for (HpoCategoryTable.Category hcat : catterms2.getActiveCategories()) {
+            List<TermId> annotatingTerms = catterms2.getTerms(hcat);
+            this.disease2ByCategory.put(hcat,new LinkedHashSet<>(annotatingTerms));
             allCategorySet.add(hcat);
         }
-        for (HpoCategory hcat : allCategorySet) {
+        for (HpoCategoryTable.Category hcat : allCategorySet) {
             MergeOneCategory(hcat);
         }
     }
 
 
-    private void MergeOneCategory(HpoCategory hcat) {
+    private void MergeOneCategory(HpoCategoryTable.Category hcat) {
         CategoryMerge catmerge = new CategoryMerge(hcat.getLabel(), disease1,disease2);
         if (disease2ByCategory.containsKey(hcat) && ! disease1ByCategory.containsKey(hcat)) {
             catmerge.addDisease2OnlyTermIdSet(disease2ByCategory.get(hcat));
@@ -201,7 +217,7 @@ public class AnnotationMerger {
                     catmerge.addCommonTerm(t1);
                 } else {
                     for (TermId t2 : tidl2) {
-                        if (existsPath(ontology, t1, t2)) {
+                        if (closure.isAncestor(t2, t1)) {
                             // t1 is a subclass of t2
                             accountedFor.add(t1);
                             accountedFor.add(t2);
@@ -213,7 +229,7 @@ public class AnnotationMerger {
             // now try from other direction. No need to look for identical terms here
             for (TermId t2 : tidl2) {
                 for (TermId t1 : tidl1) {
-                    if (existsPath(ontology, t2, t1)) {
+                    if (closure.isAncestor(t1, t2)) {
                         // t2 is a subclass of t1
                         accountedFor.add(t1);
                         accountedFor.add(t2);
@@ -235,7 +251,7 @@ public class AnnotationMerger {
     }
 
 
-    public Map<HpoCategory,CategoryMerge> getMergedCategoryMap() {
+    public Map<HpoCategoryTable.Category,CategoryMerge> getMergedCategoryMap() {
         return mergedCategoryMap;
     }
 
@@ -0,0 +1,292 @@
+package org.monarchinitiative.hpoworkbench.annotation;
+
+import org.monarchinitiative.hpoworkbench.graph.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Merge the annotations of many pairs of diseases (typically the OMIM and the Orphanet entry for the same disease)
+ * in the same way as {@link AnnotationMerger}, i.e., per category, the terms are split into terms that are common
+ * to both diseases, pairs of terms where one is a subclass of the other, and terms that are unique to one disease.
+ * <p>
+ * {@link AnnotationMerger} compares every term of one disease with every term of the other in the same category.
+ * Here, the subclass pairs are found by looking up the ancestors of each term (from the {@link AncestorClosure}) by
+ * binary search in the sorted terms of the other disease. The tables are built once and shared by all pairs, which are
+ * merged in parallel.
+ * </p>
+ */
+public final class BatchAnnotationMerger {
+
+    private final TermDiseaseIndex index;
+    private final AncestorClosure closure;
+    private final HpoCategoryTable categories;
+
+    /** Two disease ids to be merged, optionally with the id of the group (e.g., MONDO:0007915) they belong to. */
+    public static final class DiseasePair {
+        private final String group;
+        private final TermId diseaseId1;
+        private final TermId diseaseId2;
+
+        public DiseasePair(String group, TermId diseaseId1, TermId diseaseId2) {
+            this.group = group;
+            this.diseaseId1 = diseaseId1;
+            this.diseaseId2 = diseaseId2;
+        }
+
+        /** @return the group id, or null if the pair was not given as part of a group */
+        public String getGroup() {
+            return group;
+        }
+
+        public TermId getDiseaseId1() {
+            return diseaseId1;
+        }
+
+        public TermId getDiseaseId2() {
+            return diseaseId2;
+        }
+    }
+
+    /** The result of merging one pair of diseases. */
+    public static final class PairMerge {
+        private final DiseasePair pair;
+        private final HpoDisease disease1;
+        private final HpoDisease disease2;
+        private final Map<HpoCategoryTable.Category, CategoryMerge> mergedCategoryMap;
+
+        PairMerge(DiseasePair pair, HpoDisease disease1, HpoDisease disease2,
+                  Map<HpoCategoryTable.Category, CategoryMerge> mergedCategoryMap) {
+            this.pair = pair;
+            this.disease1 = disease1;
+            this.disease2 = disease2;
+            this.mergedCategoryMap = mergedCategoryMap;
+        }
+
+        public DiseasePair getPair() {
+            return pair;
+        }
+
+        /** @return the first disease, or null if it is not in the annotation data */
+        public HpoDisease getDisease1() {
+            return disease1;
+        }
+
+        /** @return the second disease, or null if it is not in the annotation data */
+        public HpoDisease getDisease2() {
+            return disease2;
+        }
+
+        /** @return merge for each category with terms of at least one of the diseases, in the order of the categories */
+        public Map<HpoCategoryTable.Category, CategoryMerge> getMergedCategoryMap() {
+            return mergedCategoryMap;
+        }
+    }
+
+    /** Aggregate counts over all merged pairs. */
+    public static final class Summary {
+        private int pairCount;
+        private int missingDiseaseCount;
+        private final int[] identical = new int[HpoCategoryTable.CATEGORIES.size()];
+        private final int[] subclass = new int[HpoCategoryTable.CATEGORIES.size()];
+        private final int[] unrelated = new int[HpoCategoryTable.CATEGORIES.size()];
+
+        void add(PairMerge merge) {
+            pairCount++;
+            if (merge.getDisease1() == null || merge.getDisease2() == null) {
+                missingDiseaseCount++;
+            }
+            for (Map.Entry<HpoCategoryTable.Category, CategoryMerge> e : merge.getMergedCategoryMap().entrySet()) {
+                int c = HpoCategoryTable.CATEGORIES.indexOf(e.getKey());
+                CategoryMerge catmerge = e.getValue();
+                identical[c] += catmerge.getCommonTerms().size();
+                subclass[c] += catmerge.getD1subclassOfd2().size() + catmerge.getD2subclassOfd1().size();
+                unrelated[c] += catmerge.getDisease1onlyTerms().size() + catmerge.getDisease2onlyTerms().size();
+            }
+        }
+
+        public int getPairCount() {
+            return pairCount;
+        }
+
+        /** @return number of pairs where at least one of the diseases is not in the annotation data */
+        public int getMissingDiseaseCount() {
+            return missingDiseaseCount;
+        }
+
+        /** @param c index into {@link HpoCategoryTable#CATEGORIES} */
+        public int getIdenticalCount(int c) {
+            return identical[c];
+        }
+
+        /** @param c index into {@link HpoCategoryTable#CATEGORIES} */
+        public int getSubclassCount(int c) {
+            return subclass[c];
+        }
+
+        /** @param c index into {@link HpoCategoryTable#CATEGORIES} */
+        public int getUnrelatedCount(int c) {
+            return unrelated[c];
+        }
+
+        public int getIdenticalCount() {
+            return Arrays.stream(identical).sum();
+        }
+
+        public int getSubclassCount() {
+            return Arrays.stream(subclass).sum();
+        }
+
+        public int getUnrelatedCount() {
+            return Arrays.stream(unrelated).sum();
+        }
+    }
+
+    public BatchAnnotationMerger(TermDiseaseIndex index, AncestorClosure closure, HpoCategoryTable categories) {
+        this.index = index;
+        this.closure = closure;
+        this.categories = categories;
+    }
+
+    public static BatchAnnotationMerger of(TermDiseaseIndex index) {
+        CompactOntologyGraph graph = index.getGraph();
+        return new BatchAnnotationMerger(index, AncestorClosure.of(graph), HpoCategoryTable.of(graph));
+    }
+
+    /**
+     * Merge all pairs in parallel on the given pool.
+     * @param pairs pairs of diseases to merge
+     * @param pool pool to run the merges on
+     * @param consumer receives the merges in the order of {@code pairs}
+     * @return counts over all pairs
+     */
+    public Summary mergeAll(List<DiseasePair> pairs, ForkJoinPool pool, Consumer<PairMerge> consumer)
+            throws InterruptedException, ExecutionException {
+        Summary summary = new Summary();
+        pool.submit(() -> pairs.parallelStream()
+                .map(this::merge)
+                .forEachOrdered(merge -> {
+                    summary.add(merge);
+                    consumer.accept(merge);
+                })).get();
+        return summary;
+    }
+
+    public PairMerge merge(DiseasePair pair) {
+        HpoDisease d1 = disease(pair.getDiseaseId1());
+        HpoDisease d2 = disease(pair.getDiseaseId2());
+        long[] keys1 = categorizedTerms(d1);
+        long[] keys2 = categorizedTerms(d2);
+        Map<HpoCategoryTable.Category, CategoryMerge> mergedCategoryMap = new LinkedHashMap<>();
+        int i = 0;
+        int j = 0;
+        while (i < keys1.length || j < keys2.length) {
+            int c1 = i < keys1.length ? category(keys1[i]) : Integer.MAX_VALUE;
+            int c2 = j < keys2.length ? category(keys2[j]) : Integer.MAX_VALUE;
+            int c = Math.min(c1, c2);
+            int end1 = i;
+            while (end1 < keys1.length && category(keys1[end1]) == c) end1++;
+            int end2 = j;
+            while (end2 < keys2.length && category(keys2[end2]) == c) end2++;
+            HpoCategoryTable.Category category = HpoCategoryTable.CATEGORIES.get(c);
+            CategoryMerge catmerge = new CategoryMerge(category.getLabel(), d1, d2);
+            mergeOneCategory(catmerge, terms(keys1, i, end1), terms(keys2, j, end2));
+            mergedCategoryMap.put(category, catmerge);
+            i = end1;
+            j = end2;
+        }
+        return new PairMerge(pair, d1, d2, mergedCategoryMap);
+    }
+
+    private HpoDisease disease(TermId diseaseId) {
+        int d = index.diseaseIndex(diseaseId);
+        return d < 0 ? null : index.disease(d);
+    }
+
+    /**
+     * @return the distinct terms of the disease that have a category, encoded as category in the upper and term
+     * index in the lower 32 bits, in ascending order (i.e., grouped by category and sorted by term within each group)
+     */
+    private long[] categorizedTerms(HpoDisease disease) {
+        if (disease == null) {
+            return new long[0];
+        }
+        List<TermId> tids = disease.getPhenotypicAbnormalityTermIdList();
+        CompactOntologyGraph graph = index.getGraph();
+        long[] keys = new long[tids.size()];
+        int len = 0;
+        for (TermId tid : tids) {
+            int v = graph.index(tid);
+            if (v < 0) continue;
+            int c = categories.category(v);
+            if (c == HpoCategoryTable.NO_CATEGORY) continue;
+            keys[len++] = ((long) c << 32) | v;
+        }
+        return Arrays.stream(keys, 0, len).sorted().distinct().toArray();
+    }
+
+    private static int category(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int[] terms(long[] keys, int from, int to) {
+        int[] terms = new int[to - from];
+        for (int k = from; k < to; k++) {
+            terms[k - from] = (int) keys[k];
+        }
+        return terms;
+    }
+
+    /** Same classification as {@code AnnotationMerger}, with the terms of each disease as sorted graph indices. */
+    private void mergeOneCategory(CategoryMerge catmerge, int[] terms1, int[] terms2) {
+        CompactOntologyGraph graph = index.getGraph();
+        boolean[] accounted1 = new boolean[terms1.length];
+        boolean[] accounted2 = new boolean[terms2.length];
+        for (int i = 0; i < terms1.length; i++) {
+            int t1 = terms1[i];
+            int j = Arrays.binarySearch(terms2, t1);
+            if (j >= 0) {
+                accounted1[i] = true;
+                accounted2[j] = true;
+                catmerge.addCommonTerm(graph.termId(t1));
+                continue;
+            }
+            for (int k = 0; k < closure.ancestorCount(t1); k++) {
+                int a = closure.ancestor(t1, k);
+                j = Arrays.binarySearch(terms2, a);
+                if (a == t1 || j < 0) continue;
+                // t1 is a subclass of t2
+                accounted1[i] = true;
+                accounted2[j] = true;
+                catmerge.addTermId1SubclassOfubOfTermId2(graph.termId(t1), graph.termId(a));
+            }
+        }
+        for (int j = 0; j < terms2.length; j++) {
+            int t2 = terms2[j];
+            for (int k = 0; k < closure.ancestorCount(t2); k++) {
+                int a = closure.ancestor(t2, k);
+                int i = Arrays.binarySearch(terms1, a);
+                if (a == t2 || i < 0) continue;
+                // t2 is a subclass of t1
+                accounted1[i] = true;
+                accounted2[j] = true;
+                catmerge.addTermId2SubclassOfubOfTermId1(graph.termId(t2), graph.termId(a));
+            }
+        }
+        for (int i = 0; i < terms1.length; i++) {
+            if (!accounted1[i]) {
+                catmerge.addDisease1OnlyTermId(graph.termId(terms1[i]));
+            }
+        }
+        for (int j = 0; j < terms2.length; j++) {
+            if (!accounted2[j]) {
+                catmerge.addDisease2OnlyTermId(graph.termId(terms2[j]));
+            }
+        }
+    }
+}
@@ -12,7 +12,7 @@ import java.util.Set;
 
 /**
  * This class represents the results of merging two diseases for one
- * {@link org.monarchinitiative.phenol.annotations.formats.hpo.category.HpoCategory}.
+ * {@link HpoCategoryTable.Category}.
  * @author <a href="mailto:peter.robinson@jax.org">Peter Robinson</a>
  */
 public class CategoryMerge {
@@ -0,0 +1,219 @@
+package org.monarchinitiative.hpoworkbench.annotation;
+
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The top-level category (organ system) of every HPO term, computed once per ontology. The categories are those of
+ * phenol's {@code HpoCategoryMap}, and a term belongs to the nearest categories above it, i.e., the ancestors are
+ * not searched beyond a category. The memberships of a term are stored as a bitmask (bit {@code c} stands for
+ * {@code CATEGORIES.get(c)}). If a term has several categories, its primary category is Neoplasm if that is one of
+ * them, and otherwise the first in the order of {@link #CATEGORIES}. A category term belongs to its own category.
+ * <p>
+ * {@code HpoCategoryMap} walks the ancestors of each term every time a disease is categorized. Here the categories
+ * are propagated once over the terms in topological order, so that the category of a term is an array lookup, and
+ * {@link #categorize(List)} groups the annotations of a disease with a counting sort over the primary categories.
+ * </p>
+ */
+public final class HpoCategoryTable {
+
+    /** Returned by {@link #category(int)} for terms that are not below any category. */
+    public static final int NO_CATEGORY = -1;
+
+    /** A top-level category with its HPO term and label. */
+    public static final class Category {
+        private final TermId tid;
+        private final String label;
+
+        private Category(String id, String label) {
+            this.tid = TermId.of(id);
+            this.label = label;
+        }
+
+        public TermId getTid() {
+            return tid;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /** The categories of {@code HpoCategoryMap}, in the same order. */
+    public static final List<Category> CATEGORIES = List.of(
+            new Category("HP:0000005", "Inheritance"),
+            new Category("HP:0025354", "Cellular phenotype"),
+            new Category("HP:0001871", "Blood and blood-forming tissues"),
+            new Category("HP:0003549", "Connective tissue"),
+            new Category("HP:0000152", "Head and neck"),
+            new Category("HP:0040064", "Limbs"),
+            new Category("HP:0001939", "Metabolism/Laboratory abnormality"),
+            new Category("HP:0001197", "Prenatal and Birth"),
+            new Category("HP:0000769", "Breast"),
+            new Category("HP:0001626", "Cardiovascular"),
+            new Category("HP:0025031", "Digestive System"),
+            new Category("HP:0031797", "Clinical course"),
+            new Category("HP:0000598", "Ear"),
+            new Category("HP:0000818", "Endocrine"),
+            new Category("HP:0000478", "Eye"),
+            new Category("HP:0000119", "Genitourinary system"),
+            new Category("HP:0002715", "Immunology"),
+            new Category("HP:0001574", "Skin, Hair, and Nails"),
+            new Category("HP:0003011", "Musculature"),
+            new Category("HP:0000707", "Nervous System"),
+            new Category("HP:0002086", "Respiratory System"),
+            new Category("HP:0000924", "Skeletal system"),
+            new Category("HP:0045027", "Thoracic cavity"),
+            new Category("HP:0001608", "Voice"),
+            new Category("HP:0001507", "Growth"),
+            new Category("HP:0025142", "Constitutional Symptom"),
+            new Category("HP:0002664", "Neoplasm"));
+
+    private static final int NEOPLASM = CATEGORIES.size() - 1;
+
+    /** The terms of an annotation list grouped by their primary category, see {@link #categorize(List)}. */
+    public static final class CategorizedTerms {
+        /** The terms of category c are terms[offsets[c]] ... terms[offsets[c+1]-1], in the order of the input. */
+        private final TermId[] terms;
+        private final int[] offsets;
+
+        private CategorizedTerms(TermId[] terms, int[] offsets) {
+            this.terms = terms;
+            this.offsets = offsets;
+        }
+
+        /** @return the categories with at least one term, in the order of {@link #CATEGORIES} */
+        public List<Category> getActiveCategories() {
+            List<Category> active = new ArrayList<>();
+            for (int c = 0; c < CATEGORIES.size(); c++) {
+                if (offsets[c + 1] > offsets[c]) {
+                    active.add(CATEGORIES.get(c));
+                }
+            }
+            return active;
+        }
+
+        /** @return the terms of the category, in the order of the input (empty if there are none) */
+        public List<TermId> getTerms(Category category) {
+            int c = CATEGORIES.indexOf(category);
+            return c < 0 ? List.of() : Arrays.asList(terms).subList(offsets[c], offsets[c + 1]);
+        }
+
+        /** @return the number of terms that have a category */
+        public int size() {
+            return terms.length;
+        }
+    }
+
+    private final CompactOntologyGraph graph;
+    /** Bitmask of the categories of each term (0 if there are none). */
+    private final int[] masks;
+
+    private HpoCategoryTable(CompactOntologyGraph graph, int[] masks) {
+        this.graph = graph;
+        this.masks = masks;
+    }
+
+    public static HpoCategoryTable of(Ontology ontology) {
+        return of(CompactOntologyGraph.of(ontology));
+    }
+
+    public static HpoCategoryTable of(CompactOntologyGraph graph) {
+        int n = graph.size();
+        int[] categoryOfTerm = new int[n];
+        Arrays.fill(categoryOfTerm, NO_CATEGORY);
+        for (int c = 0; c < CATEGORIES.size(); c++) {
+            int v = graph.index(CATEGORIES.get(c).getTid());
+            if (v >= 0) {
+                categoryOfTerm[v] = c;
+            }
+        }
+        // bit c is set if category c is one of the nearest categories of the term
+        int[] masks = new int[n];
+        for (int pos = 0; pos < graph.topologicalOrderLength(); pos++) {
+            int v = graph.topologicalOrder(pos);
+            if (categoryOfTerm[v] != NO_CATEGORY) {
+                masks[v] = 1 << categoryOfTerm[v];
+                continue;
+            }
+            int mask = 0;
+            for (int k = 0; k < graph.parentCount(v); k++) {
+                mask |= masks[graph.parent(v, k)];
+            }
+            masks[v] = mask;
+        }
+        return new HpoCategoryTable(graph, masks);
+    }
+
+    private static int primary(int mask) {
+        if (mask == 0) {
+            return NO_CATEGORY;
+        }
+        if ((mask & (1 << NEOPLASM)) != 0) {
+            return NEOPLASM;
+        }
+        return Integer.numberOfTrailingZeros(mask);
+    }
+
+    /** @return index into {@link #CATEGORIES} of the primary category of the term, or {@link #NO_CATEGORY} */
+    public int category(int termIdx) {
+        return primary(masks[termIdx]);
+    }
+
+    /** @return index into {@link #CATEGORIES} of the primary category of the term, or {@link #NO_CATEGORY} */
+    public int category(TermId tid) {
+        int v = graph.index(tid);
+        return v < 0 ? NO_CATEGORY : primary(masks[v]);
+    }
+
+    /** @return bitmask of all categories of the term, where bit c stands for {@code CATEGORIES.get(c)} */
+    public int categories(int termIdx) {
+        return masks[termIdx];
+    }
+
+    /** @return bitmask of all categories of the term (0 if the term is unknown or has no category) */
+    public int categories(TermId tid) {
+        int v = graph.index(tid);
+        return v < 0 ? 0 : masks[v];
+    }
+
+    /**
+     * Group terms by their primary category. Terms without a category (or that are not in the ontology) are
+     * skipped, as in {@code HpoCategoryMap}.
+     * @param tids terms, e.g., the phenotypic abnormalities of a disease
+     * @return the terms grouped by category
+     */
+    public CategorizedTerms categorize(List<TermId> tids) {
+        int[] offsets = new int[CATEGORIES.size() + 1];
+        byte[] cats = new byte[tids.size()];
+        int len = 0;
+        for (int i = 0; i < cats.length; i++) {
+            int c = category(tids.get(i));
+            cats[i] = (byte) c;
+            if (c != NO_CATEGORY) {
+                offsets[c + 1]++;
+                len++;
+            }
+        }
+        for (int c = 0; c < CATEGORIES.size(); c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        TermId[] terms = new TermId[len];
+        int[] next = Arrays.copyOf(offsets, CATEGORIES.size());
+        for (int i = 0; i < cats.length; i++) {
+            if (cats[i] != NO_CATEGORY) {
+                terms[next[cats[i]]++] = tids.get(i);
+            }
+        }
+        return new CategorizedTerms(terms, offsets);
+    }
+
+    public CompactOntologyGraph getGraph() {
+        return graph;
+    }
+}
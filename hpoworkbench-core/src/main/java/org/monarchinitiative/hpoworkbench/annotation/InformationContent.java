@@ -0,0 +1,75 @@
+package org.monarchinitiative.hpoworkbench.annotation;
+
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Annotation-based information content (IC) of every HPO term, i.e., {@code IC(t) = -ln(n_t / N)} where
+ * {@code n_t} is the number of diseases annotated to t or to one of its descendents and {@code N} is the number of
+ * diseases annotated to the root. The counts are taken from the propagated bitmaps of a {@link TermDiseaseIndex},
+ * so the whole table is computed in one pass over the terms. General terms such as "Abnormality of the nervous
+ * system" have an IC close to zero, whereas terms that are used for only a few diseases have a high IC.
+ * <p>
+ * Terms without annotations are given the IC of a term annotated to a single disease (the maximum IC), so that
+ * the IC is finite for every term.
+ * </p>
+ */
+public final class InformationContent {
+
+    private final CompactOntologyGraph graph;
+    /** IC of each term of {@link #graph}. */
+    private final double[] ic;
+    /** Number of diseases annotated to the root. */
+    private final int diseaseCount;
+
+    private InformationContent(CompactOntologyGraph graph, double[] ic, int diseaseCount) {
+        this.graph = graph;
+        this.ic = ic;
+        this.diseaseCount = diseaseCount;
+    }
+
+    /**
+     * @param index annotation index with the propagated annotations
+     * @return the IC of every term of the graph of the index
+     */
+    public static InformationContent of(TermDiseaseIndex index) {
+        CompactOntologyGraph graph = index.getGraph();
+        int n = graph.size();
+        double[] ic = new double[n];
+        int total = n == 0 ? 0 : index.annotatedDiseases(graph.root()).getCardinality();
+        if (total == 0) {
+            return new InformationContent(graph, ic, 0);
+        }
+        double logTotal = Math.log(total);
+        for (int v = 0; v < n; v++) {
+            int count = index.annotatedDiseases(v).getCardinality();
+            ic[v] = logTotal - Math.log(Math.max(1, count));
+        }
+        return new InformationContent(graph, ic, total);
+    }
+
+    /** @return IC of the term with the given graph index */
+    public double ic(int termIdx) {
+        return ic[termIdx];
+    }
+
+    /** @return IC of the term, or 0 if the term is not part of the ontology */
+    public double ic(TermId tid) {
+        int v = graph.index(tid);
+        return v < 0 ? 0.0 : ic[v];
+    }
+
+    /** @return the largest possible IC, i.e., that of a term annotated to a single disease */
+    public double maxIc() {
+        return diseaseCount == 0 ? 0.0 : Math.log(diseaseCount);
+    }
+
+    /** @return number of diseases annotated to the root, i.e., the size of the corpus */
+    public int diseaseCount() {
+        return diseaseCount;
+    }
+
+    public CompactOntologyGraph getGraph() {
+        return graph;
+    }
+}
@@ -0,0 +1,293 @@
+package org.monarchinitiative.hpoworkbench.annotation;
+
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Inverted index from HPO terms to the diseases annotated to them. Every disease is given a dense int id and every
+ * term of the {@link CompactOntologyGraph} is mapped to a compressed {@link RoaringBitmap} of disease ids, both for
+ * the direct annotations and for the annotations propagated along the is-a hierarchy (annotation to a term implies
+ * annotation to all of its ancestors). Phenotypic abnormalities and modes of inheritance are indexed.
+ * <p>
+ * The propagated bitmaps are built in a single sweep over the ontology in reverse topological order, i.e., the
+ * bitmap of each term is the union of its own direct bitmap and the propagated bitmaps of its children. Bitmaps
+ * returned by this class are shared and must not be modified; the query methods return new bitmaps.
+ * </p>
+ */
+public final class TermDiseaseIndex {
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final CompactOntologyGraph graph;
+    /** Disease for each disease id. */
+    private final HpoDisease[] diseases;
+    /** Key: disease id such as OMIM:100100; value: dense disease id. */
+    private final Map<TermId, Integer> diseaseIndexMap;
+    /** Diseases directly annotated to each term of {@link #graph} (null if there are none). */
+    private final RoaringBitmap[] direct;
+    /** Diseases directly or indirectly annotated to each term of {@link #graph} (null if there are none). */
+    private final RoaringBitmap[] total;
+    /** Annotations to terms that are not part of the graph (e.g., obsolete or alternate ids), not propagated. */
+    private final Map<TermId, RoaringBitmap> unpropagated;
+
+    private TermDiseaseIndex(CompactOntologyGraph graph, HpoDisease[] diseases, Map<TermId, Integer> diseaseIndexMap,
+                             RoaringBitmap[] direct, RoaringBitmap[] total, Map<TermId, RoaringBitmap> unpropagated) {
+        this.graph = graph;
+        this.diseases = diseases;
+        this.diseaseIndexMap = diseaseIndexMap;
+        this.direct = direct;
+        this.total = total;
+        this.unpropagated = unpropagated;
+    }
+
+    /**
+     * @param diseaseMap all diseases, e.g., from {@code HpoDiseaseAnnotationParser.loadDiseaseMap}
+     * @param graph int-indexed view of HPO
+     * @return inverted index
+     */
+    public static TermDiseaseIndex of(Map<TermId, HpoDisease> diseaseMap, CompactOntologyGraph graph) {
+        HpoDisease[] diseases = diseaseMap.values().toArray(new HpoDisease[0]);
+        // sort by disease id so that the ids are stable for a given phenotype.hpoa file
+        Arrays.sort(diseases, Comparator.comparing(HpoDisease::getDiseaseDatabaseId));
+        Map<TermId, Integer> diseaseIndexMap = new HashMap<>(2 * diseases.length);
+        int n = graph.size();
+        RoaringBitmap[] direct = new RoaringBitmap[n];
+        Map<TermId, RoaringBitmap> unpropagated = new HashMap<>();
+        for (int d = 0; d < diseases.length; d++) {
+            HpoDisease disease = diseases[d];
+            diseaseIndexMap.put(disease.getDiseaseDatabaseId(), d);
+            for (HpoAnnotation annot : disease.getPhenotypicAbnormalities()) {
+                addDirect(annot.getTermId(), d, graph, direct, unpropagated);
+            }
+            for (TermId inheritanceId : disease.getModesOfInheritance()) {
+                addDirect(inheritanceId, d, graph, direct, unpropagated);
+            }
+        }
+        RoaringBitmap[] total = new RoaringBitmap[n];
+        List<RoaringBitmap> parts = new ArrayList<>();
+        for (int pos = graph.topologicalOrderLength() - 1; pos >= 0; pos--) {
+            int v = graph.topologicalOrder(pos);
+            parts.clear();
+            if (direct[v] != null) {
+                direct[v].runOptimize();
+                parts.add(direct[v]);
+            }
+            for (int k = 0; k < graph.childCount(v); k++) {
+                RoaringBitmap childTotal = total[graph.child(v, k)];
+                if (childTotal != null) {
+                    parts.add(childTotal);
+                }
+            }
+            if (parts.isEmpty()) {
+                continue;
+            }
+            RoaringBitmap bm = parts.size() == 1 ? parts.get(0) : FastAggregation.or(parts.iterator());
+            bm.runOptimize();
+            total[v] = bm;
+        }
+        return new TermDiseaseIndex(graph, diseases, diseaseIndexMap, direct, total, unpropagated);
+    }
+
+    /**
+     * Write the bitmaps of this index. Terms are written as ids rather than graph indices, so that the data can be
+     * read back with a graph built from the same ontology. The diseases themselves are not written, callers need to
+     * store them in the order given by {@link #disease(int)}.
+     * @param out destination
+     * @throws IOException if the bitmaps cannot be written
+     */
+    public void write(DataOutput out) throws IOException {
+        int n = 0;
+        for (int v = 0; v < graph.size(); v++) {
+            if (direct[v] != null || total[v] != null) n++;
+        }
+        out.writeInt(n);
+        for (int v = 0; v < graph.size(); v++) {
+            if (direct[v] == null && total[v] == null) {
+                continue;
+            }
+            out.writeUTF(graph.termId(v).getValue());
+            writeBitmap(out, direct[v]);
+            writeBitmap(out, total[v]);
+        }
+        out.writeInt(unpropagated.size());
+        for (Map.Entry<TermId, RoaringBitmap> e : unpropagated.entrySet()) {
+            out.writeUTF(e.getKey().getValue());
+            e.getValue().serialize(out);
+        }
+    }
+
+    /**
+     * Read the bitmaps written by {@link #write(DataOutput)}.
+     * @param in source
+     * @param diseases the diseases in the order of their ids when the index was written
+     * @param graph int-indexed view of the same ontology that was used to build the index
+     * @return the restored index
+     * @throws IOException if the data cannot be read or refers to terms that are not in the graph
+     */
+    public static TermDiseaseIndex read(DataInput in, List<HpoDisease> diseases, CompactOntologyGraph graph) throws IOException {
+        HpoDisease[] diseaseArray = diseases.toArray(new HpoDisease[0]);
+        Map<TermId, Integer> diseaseIndexMap = new HashMap<>(2 * diseaseArray.length);
+        for (int d = 0; d < diseaseArray.length; d++) {
+            diseaseIndexMap.put(diseaseArray[d].getDiseaseDatabaseId(), d);
+        }
+        RoaringBitmap[] direct = new RoaringBitmap[graph.size()];
+        RoaringBitmap[] total = new RoaringBitmap[graph.size()];
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            TermId tid = TermId.of(in.readUTF());
+            int v = graph.index(tid);
+            if (v < 0 || !graph.termId(v).equals(tid)) {
+                throw new IOException("Term " + tid.getValue() + " is not part of the ontology");
+            }
+            direct[v] = readBitmap(in);
+            total[v] = readBitmap(in);
+        }
+        n = in.readInt();
+        Map<TermId, RoaringBitmap> unpropagated = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            TermId tid = TermId.of(in.readUTF());
+            RoaringBitmap bm = new RoaringBitmap();
+            bm.deserialize(in);
+            unpropagated.put(tid, bm);
+        }
+        return new TermDiseaseIndex(graph, diseaseArray, diseaseIndexMap, direct, total, unpropagated);
+    }
+
+    private static void writeBitmap(DataOutput out, RoaringBitmap bm) throws IOException {
+        out.writeBoolean(bm != null);
+        if (bm != null) {
+            bm.serialize(out);
+        }
+    }
+
+    private static RoaringBitmap readBitmap(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        RoaringBitmap bm = new RoaringBitmap();
+        bm.deserialize(in);
+        return bm;
+    }
+
+    /** @return an index without diseases, used if phenotype.hpoa could not be loaded. */
+    public static TermDiseaseIndex empty() {
+        return of(Map.of(), CompactOntologyGraph.empty());
+    }
+
+    private static void addDirect(TermId hpoId, int diseaseIdx, CompactOntologyGraph graph,
+                                  RoaringBitmap[] direct, Map<TermId, RoaringBitmap> unpropagated) {
+        int v = graph.index(hpoId);
+        if (v < 0 || !graph.termId(v).equals(hpoId)) {
+            unpropagated.computeIfAbsent(hpoId, k -> new RoaringBitmap()).add(diseaseIdx);
+            return;
+        }
+        if (direct[v] == null) {
+            direct[v] = new RoaringBitmap();
+        }
+        direct[v].add(diseaseIdx);
+    }
+
+    public CompactOntologyGraph getGraph() {
+        return graph;
+    }
+
+    /** @return total number of diseases in the index. */
+    public int diseaseCount() {
+        return diseases.length;
+    }
+
+    /** @return the disease with the given dense id. */
+    public HpoDisease disease(int idx) {
+        return diseases[idx];
+    }
+
+    /** @return dense id of the disease (e.g., OMIM:100100), or -1 if the disease is not in the index. */
+    public int diseaseIndex(TermId diseaseId) {
+        Integer idx = diseaseIndexMap.get(diseaseId);
+        return idx == null ? -1 : idx;
+    }
+
+    /** @return ids of the diseases directly annotated to the term (do not modify). */
+    public RoaringBitmap directDiseases(TermId tid) {
+        int v = graph.index(tid);
+        if (v < 0 || !graph.termId(v).equals(tid)) {
+            return unpropagated.getOrDefault(tid, EMPTY);
+        }
+        return direct[v] == null ? EMPTY : direct[v];
+    }
+
+    /** @return ids of the diseases annotated to the term or to any of its descendants (do not modify). */
+    public RoaringBitmap annotatedDiseases(TermId tid) {
+        int v = graph.index(tid);
+        if (v < 0 || !graph.termId(v).equals(tid)) {
+            return unpropagated.getOrDefault(tid, EMPTY);
+        }
+        return annotatedDiseases(v);
+    }
+
+    /** @return ids of the diseases directly annotated to the term with the given graph index (do not modify). */
+    public RoaringBitmap directDiseases(int termIdx) {
+        return direct[termIdx] == null ? EMPTY : direct[termIdx];
+    }
+
+    /** @return ids of the diseases annotated to the term with the given graph index or its descendants (do not modify). */
+    public RoaringBitmap annotatedDiseases(int termIdx) {
+        return total[termIdx] == null ? EMPTY : total[termIdx];
+    }
+
+    /** @return number of diseases annotated to the term or to any of its descendants. */
+    public int countAnnotatedDiseases(TermId tid) {
+        return annotatedDiseases(tid).getCardinality();
+    }
+
+    /**
+     * Find the diseases that are annotated (directly or indirectly) to all of the required terms and to none of the
+     * excluded terms, e.g., "annotated to A and B but not C".
+     * @param required terms all of which must be annotated (if empty, all diseases qualify)
+     * @param excluded terms none of which may be annotated
+     * @return new bitmap with the matching disease ids
+     */
+    public RoaringBitmap query(Collection<TermId> required, Collection<TermId> excluded) {
+        RoaringBitmap result;
+        if (required.isEmpty()) {
+            result = new RoaringBitmap();
+            result.add(0L, diseases.length);
+        } else {
+            List<RoaringBitmap> bitmaps = new ArrayList<>(required.size());
+            for (TermId tid : required) {
+                bitmaps.add(annotatedDiseases(tid));
+            }
+            result = FastAggregation.and(bitmaps.iterator());
+        }
+        for (TermId tid : excluded) {
+            result.andNot(annotatedDiseases(tid));
+        }
+        return result;
+    }
+
+    /** @return the diseases for the given ids, in ascending id order. */
+    public List<HpoDisease> toDiseaseList(RoaringBitmap ids) {
+        List<HpoDisease> list = new ArrayList<>(ids.getCardinality());
+        ids.forEach((int d) -> list.add(diseases[d]));
+        return list;
+    }
+
+    /** @return the diseases annotated to the term or to any of its descendants. */
+    public List<HpoDisease> annotatedDiseaseList(TermId tid) {
+        return toDiseaseList(annotatedDiseases(tid));
+    }
+
+    /** @return the diseases directly annotated to the term. */
+    public List<HpoDisease> directDiseaseList(TermId tid) {
+        return toDiseaseList(directDiseases(tid));
+    }
+}
@@ -0,0 +1,343 @@
+package org.monarchinitiative.hpoworkbench.graph;
+
+import org.monarchinitiative.phenol.graph.IdLabeledEdge;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable, int-indexed view of the is-a hierarchy of an {@link Ontology}. Each non-obsolete term is assigned
+ * a dense index in {@code [0, size())}, and the parent and child edges are stored in compressed-sparse-row (CSR)
+ * arrays, i.e., the parents of term {@code i} are {@code parents[parentOffsets[i]] ... parents[parentOffsets[i+1]-1]}.
+ * Alternate ids are mapped to the index of the primary term.
+ * <p>
+ * Direct parents and children can be iterated without allocation with {@link #parentCount(int)} and
+ * {@link #parent(int, int)} (and likewise for children). Transitive traversals are done with a {@link Traversal},
+ * which owns the scratch arrays and can be reused for any number of queries. The graph itself is thread-safe, a
+ * {@link Traversal} is not and should be created per thread.
+ * </p>
+ */
+public final class CompactOntologyGraph {
+
+    /** Primary term id for each index. */
+    private final TermId[] termIds;
+    /** Map from primary and alternate term ids to the index of the primary term. */
+    private final Map<TermId, Integer> indexMap;
+    private final int[] parentOffsets;
+    private final int[] parents;
+    private final int[] childOffsets;
+    private final int[] children;
+    /** All indices ordered such that each term comes after all of its ancestors. */
+    private final int[] topologicalOrder;
+    private final int root;
+
+    private CompactOntologyGraph(TermId[] termIds, Map<TermId, Integer> indexMap, int[] parentOffsets, int[] parents,
+                                 int[] childOffsets, int[] children, int root) {
+        this.termIds = termIds;
+        this.indexMap = indexMap;
+        this.parentOffsets = parentOffsets;
+        this.parents = parents;
+        this.childOffsets = childOffsets;
+        this.children = children;
+        this.root = root;
+        this.topologicalOrder = topologicalSort();
+    }
+
+    /**
+     * Build the compact graph from the is-a edges of a phenol ontology.
+     * @param ontology reference to HPO (or another phenol ontology)
+     * @return compact graph
+     */
+    public static CompactOntologyGraph of(Ontology ontology) {
+        List<TermId> ids = new ArrayList<>(ontology.getNonObsoleteTermIds());
+        // sort so that the indices are stable for a given release of the ontology
+        ids.sort(Comparator.naturalOrder());
+        int n = ids.size();
+        TermId[] termIds = ids.toArray(new TermId[0]);
+        Map<TermId, Integer> indexMap = new HashMap<>(2 * n);
+        for (int i = 0; i < n; i++) {
+            indexMap.put(termIds[i], i);
+        }
+        for (Map.Entry<TermId, Term> e : ontology.getTermMap().entrySet()) {
+            Integer idx = indexMap.get(e.getValue().getId());
+            if (idx != null) {
+                indexMap.putIfAbsent(e.getKey(), idx);
+            }
+        }
+        Set<IdLabeledEdge> edges = ontology.getGraph().edgeSet();
+        int[] src = new int[edges.size()];
+        int[] tgt = new int[edges.size()];
+        int m = 0;
+        for (IdLabeledEdge edge : edges) {
+            Integer child = indexMap.get((TermId) edge.getSource());
+            Integer parent = indexMap.get((TermId) edge.getTarget());
+            if (child == null || parent == null) {
+                continue;
+            }
+            src[m] = child;
+            tgt[m] = parent;
+            m++;
+        }
+        int[] parentOffsets = new int[n + 1];
+        int[] childOffsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            parentOffsets[src[e] + 1]++;
+            childOffsets[tgt[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            parentOffsets[i + 1] += parentOffsets[i];
+            childOffsets[i + 1] += childOffsets[i];
+        }
+        int[] parents = new int[m];
+        int[] children = new int[m];
+        int[] parentFill = Arrays.copyOf(parentOffsets, n);
+        int[] childFill = Arrays.copyOf(childOffsets, n);
+        for (int e = 0; e < m; e++) {
+            parents[parentFill[src[e]]++] = tgt[e];
+            children[childFill[tgt[e]]++] = src[e];
+        }
+        for (int i = 0; i < n; i++) {
+            Arrays.sort(parents, parentOffsets[i], parentOffsets[i + 1]);
+            Arrays.sort(children, childOffsets[i], childOffsets[i + 1]);
+        }
+        Integer root = indexMap.get(ontology.getRootTermId());
+        return new CompactOntologyGraph(termIds, indexMap, parentOffsets, parents, childOffsets, children,
+                root == null ? -1 : root);
+    }
+
+    /** @return a graph without terms. */
+    public static CompactOntologyGraph empty() {
+        return new CompactOntologyGraph(new TermId[0], Map.of(), new int[1], new int[0], new int[1], new int[0], -1);
+    }
+
+    /** Kahn's algorithm, starting from all terms without parents. */
+    private int[] topologicalSort() {
+        int n = termIds.length;
+        int[] pending = new int[n];
+        int[] order = new int[n];
+        int head = 0, tail = 0;
+        for (int i = 0; i < n; i++) {
+            pending[i] = parentCount(i);
+            if (pending[i] == 0) {
+                order[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int v = order[head++];
+            for (int k = childOffsets[v]; k < childOffsets[v + 1]; k++) {
+                int c = children[k];
+                if (--pending[c] == 0) {
+                    order[tail++] = c;
+                }
+            }
+        }
+        if (tail != n) {
+            throw new IllegalStateException("Ontology graph contains a cycle");
+        }
+        return order;
+    }
+
+    /** @return number of (non-obsolete) terms in the graph. */
+    public int size() {
+        return termIds.length;
+    }
+
+    /** @return number of is-a edges in the graph. */
+    public int edgeCount() {
+        return parents.length;
+    }
+
+    /** @return index of the root term, or -1 if the root could not be determined. */
+    public int root() {
+        return root;
+    }
+
+    /**
+     * @param tid a primary or alternate term id
+     * @return the index of the term, or -1 if the term is not part of the graph
+     */
+    public int index(TermId tid) {
+        Integer idx = indexMap.get(tid);
+        return idx == null ? -1 : idx;
+    }
+
+    /**
+     * @param tids primary or alternate term ids
+     * @return the distinct indices of the terms that are part of the graph, in ascending order (e.g., for binary
+     * search)
+     */
+    public int[] indices(Collection<TermId> tids) {
+        int[] indices = new int[tids.size()];
+        int len = 0;
+        for (TermId tid : tids) {
+            int v = index(tid);
+            if (v >= 0) {
+                indices[len++] = v;
+            }
+        }
+        return Arrays.stream(indices, 0, len).sorted().distinct().toArray();
+    }
+
+    /** @return the primary term id of the term with the given index. */
+    public TermId termId(int idx) {
+        return termIds[idx];
+    }
+
+    public int parentCount(int idx) {
+        return parentOffsets[idx + 1] - parentOffsets[idx];
+    }
+
+    /** @return index of the k'th parent of the term with index {@code idx}. */
+    public int parent(int idx, int k) {
+        return parents[parentOffsets[idx] + k];
+    }
+
+    public int childCount(int idx) {
+        return childOffsets[idx + 1] - childOffsets[idx];
+    }
+
+    /** @return index of the k'th child of the term with index {@code idx}. */
+    public int child(int idx, int k) {
+        return children[childOffsets[idx] + k];
+    }
+
+    public void forEachParent(int idx, IntConsumer consumer) {
+        for (int k = parentOffsets[idx]; k < parentOffsets[idx + 1]; k++) {
+            consumer.accept(parents[k]);
+        }
+    }
+
+    public void forEachChild(int idx, IntConsumer consumer) {
+        for (int k = childOffsets[idx]; k < childOffsets[idx + 1]; k++) {
+            consumer.accept(children[k]);
+        }
+    }
+
+    /** @return number of terms in the topological order, i.e., {@link #size()}. */
+    public int topologicalOrderLength() {
+        return topologicalOrder.length;
+    }
+
+    /** @return the index at position {@code pos} of an order in which every term comes after all of its ancestors. */
+    public int topologicalOrder(int pos) {
+        return topologicalOrder[pos];
+    }
+
+    /** @return a new traversal object with scratch space for this graph. */
+    public Traversal newTraversal() {
+        return new Traversal();
+    }
+
+    /**
+     * Reusable scratch space for transitive traversals. Visited terms are marked with a stamp that is incremented
+     * for each query, so that the visited array never needs to be cleared.
+     */
+    public final class Traversal {
+        private final int[] stack = new int[termIds.length];
+        private final int[] visited = new int[termIds.length];
+        private int stamp = 0;
+
+        private Traversal() {
+        }
+
+        private void nextStamp() {
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(visited, 0);
+                stamp = 1;
+            }
+        }
+
+        /**
+         * Visit every ancestor of the term once (in no particular order).
+         * @param idx index of the start term
+         * @param includeSelf if true, the start term is also passed to the consumer
+         * @param consumer receives the index of each ancestor
+         */
+        public void forEachAncestor(int idx, boolean includeSelf, IntConsumer consumer) {
+            traverse(idx, includeSelf, consumer, parentOffsets, parents);
+        }
+
+        /**
+         * Visit every descendant of the term once (in no particular order).
+         * @param idx index of the start term
+         * @param includeSelf if true, the start term is also passed to the consumer
+         * @param consumer receives the index of each descendant
+         */
+        public void forEachDescendant(int idx, boolean includeSelf, IntConsumer consumer) {
+            traverse(idx, includeSelf, consumer, childOffsets, children);
+        }
+
+        /** @return the number of descendants of the term including the term itself. */
+        public int countDescendants(int idx) {
+            return count(idx, childOffsets, children);
+        }
+
+        /** @return the number of ancestors of the term including the term itself. */
+        public int countAncestors(int idx) {
+            return count(idx, parentOffsets, parents);
+        }
+
+        /** @return true if {@code ancestor} is {@code idx} or one of its ancestors. */
+        public boolean isAncestorOrSelf(int ancestor, int idx) {
+            if (ancestor == idx) return true;
+            nextStamp();
+            int top = 0;
+            stack[top++] = idx;
+            visited[idx] = stamp;
+            while (top > 0) {
+                int v = stack[--top];
+                for (int k = parentOffsets[v]; k < parentOffsets[v + 1]; k++) {
+                    int p = parents[k];
+                    if (p == ancestor) return true;
+                    if (visited[p] != stamp) {
+                        visited[p] = stamp;
+                        stack[top++] = p;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private void traverse(int idx, boolean includeSelf, IntConsumer consumer, int[] offsets, int[] targets) {
+            nextStamp();
+            int top = 0;
+            stack[top++] = idx;
+            visited[idx] = stamp;
+            if (includeSelf) consumer.accept(idx);
+            while (top > 0) {
+                int v = stack[--top];
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    int w = targets[k];
+                    if (visited[w] != stamp) {
+                        visited[w] = stamp;
+                        stack[top++] = w;
+                        consumer.accept(w);
+                    }
+                }
+            }
+        }
+
+        private int count(int idx, int[] offsets, int[] targets) {
+            nextStamp();
+            int top = 0;
+            int n = 1;
+            stack[top++] = idx;
+            visited[idx] = stamp;
+            while (top > 0) {
+                int v = stack[--top];
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    int w = targets[k];
+                    if (visited[w] != stamp) {
+                        visited[w] = stamp;
+                        stack[top++] = w;
+                        n++;
+                    }
+                }
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.annotations.formats.EvidenceCode;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoOnset;
+import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A versioned binary cache of the {@link TermDiseaseIndex} that is derived from hp.json and phenotype.hpoa.
+ * Parsing phenotype.hpoa into disease models and propagating the annotations takes much longer than reading back
+ * the disease models and the serialized bitmaps, so the GUI stores the index in the HPO Workbench directory after
+ * the first parse. The cache is keyed by the size and CRC32C checksum of both input files and is rebuilt whenever
+ * either of them changes.
+ * <p>
+ * The file consists of a header (magic number, format version, size and checksum of hp.json and of
+ * phenotype.hpoa), the disease models in the order of their index in the {@link TermDiseaseIndex}, and the bitmaps
+ * written by {@link TermDiseaseIndex#write(DataOutput)}. Problems with the cache are logged and never prevent the
+ * annotations from being loaded.
+ * </p>
+ * <p>
+ * Loading is split into {@link #prepare(File, File, File)}, which does not need the ontology, and
+ * {@link Pending#resolve(Ontology)}, so that callers can overlap the first stage with loading the ontology. If the
+ * cache is missing or outdated, phenotype.hpoa is parsed by {@code HpoDiseaseAnnotationParser} in the second stage,
+ * because the parser needs the ontology.
+ * </p>
+ */
+public class AnnotationIndexCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnnotationIndexCache.class);
+    /** "HPWA" in ASCII. */
+    private static final int MAGIC = 0x48505741;
+    /** Increment whenever the layout of the file changes. */
+    private static final int FORMAT_VERSION = 2;
+    /** Name of the cache file in the HPO Workbench directory. */
+    public static final String CACHE_FILE_NAME = "annotation-index.bin";
+
+    private AnnotationIndexCache() {
+    }
+
+    /** @return the location of the cache in the given directory. */
+    public static File cacheFileFor(File cacheDir) {
+        return new File(cacheDir, CACHE_FILE_NAME);
+    }
+
+    /**
+     * Load the annotation index from the cache if it was made from the current versions of both input files,
+     * otherwise parse phenotype.hpoa and write a new cache for the next invocation.
+     * @param hpoFile hp.json file from which {@code ontology} was loaded
+     * @param hpoaFile phenotype.hpoa file
+     * @param ontology reference to the HPO
+     * @param cacheDir directory in which the cache is stored (usually ~/.hpowb)
+     * @return the annotation index, or null if phenotype.hpoa could not be parsed
+     */
+    public static TermDiseaseIndex load(File hpoFile, File hpoaFile, Ontology ontology, File cacheDir) {
+        return prepare(hpoFile, hpoaFile, cacheDir).resolve(ontology);
+    }
+
+    /**
+     * First stage of {@link #load(File, File, Ontology, File)}, which does not need the ontology and can therefore
+     * run while the ontology is being loaded. The input files are checksummed and, if the cache is valid, the
+     * disease models are decoded.
+     * @param hpoFile hp.json file
+     * @param hpoaFile phenotype.hpoa file
+     * @param cacheDir directory in which the cache is stored (usually ~/.hpowb)
+     * @return the intermediate result that is completed with {@link Pending#resolve(Ontology)}
+     */
+    public static Pending prepare(File hpoFile, File hpoaFile, File cacheDir) {
+        Pending pending = new Pending(hpoFile, hpoaFile, cacheDir);
+        try {
+            pending.hpoCrc = OntologySnapshot.checksum(hpoFile);
+            pending.hpoaCrc = OntologySnapshot.checksum(hpoaFile);
+            pending.checksummed = true;
+        } catch (IOException e) {
+            LOGGER.warn("Could not calculate checksums of {} and {}: {}", hpoFile, hpoaFile, e.getMessage());
+            return pending;
+        }
+        if (pending.cache.isFile()) {
+            try {
+                read(pending);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not read annotation cache {}: {}", pending.cache.getAbsolutePath(), e.getMessage());
+                pending.diseases = null;
+                pending.bitmaps = null;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Annotation data that has been prepared without the ontology. If the cache was valid, this holds the decoded
+     * disease models and the still encoded bitmaps, whose term ids are resolved once the ontology is available.
+     */
+    public static final class Pending {
+        private final File hpoFile;
+        private final File hpoaFile;
+        private final File cacheDir;
+        private final File cache;
+        private boolean checksummed = false;
+        private long hpoCrc;
+        private long hpoaCrc;
+        private List<HpoDisease> diseases;
+        private byte[] bitmaps;
+
+        private Pending(File hpoFile, File hpoaFile, File cacheDir) {
+            this.hpoFile = hpoFile;
+            this.hpoaFile = hpoaFile;
+            this.cacheDir = cacheDir;
+            this.cache = cacheFileFor(cacheDir);
+        }
+
+        /** @return true if the annotations will be taken from the cache rather than parsed. */
+        public boolean isCached() {
+            return bitmaps != null;
+        }
+
+        /**
+         * Second stage of {@link #load(File, File, Ontology, File)}: resolve the cached bitmaps against the ontology,
+         * or parse phenotype.hpoa and write a new cache if there was no valid cache.
+         * @param ontology reference to the HPO
+         * @return the annotation index, or null if phenotype.hpoa could not be parsed
+         */
+        public TermDiseaseIndex resolve(Ontology ontology) {
+            CompactOntologyGraph graph = CompactOntologyGraph.of(ontology);
+            if (isCached()) {
+                try {
+                    TermDiseaseIndex index = TermDiseaseIndex.read(
+                            new DataInputStream(new ByteArrayInputStream(bitmaps)), diseases, graph);
+                    LOGGER.info("Loaded annotation index from cache {}", cache.getAbsolutePath());
+                    return index;
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Could not read annotation cache {}: {}", cache.getAbsolutePath(), e.getMessage());
+                }
+            }
+            TermDiseaseIndex index = parse(hpoaFile, ontology, graph);
+            if (index != null && checksummed && cacheDir.isDirectory()) {
+                try {
+                    write(index, cache, hpoFile, hpoCrc, hpoaFile, hpoaCrc);
+                    LOGGER.info("Wrote annotation cache to {}", cache.getAbsolutePath());
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Could not write annotation cache {}: {}", cache.getAbsolutePath(), e.getMessage());
+                }
+            }
+            return index;
+        }
+    }
+
+    /** Parse phenotype.hpoa with {@code HpoDiseaseAnnotationParser} and build the index. */
+    private static TermDiseaseIndex parse(File hpoaFile, Ontology ontology, CompactOntologyGraph graph) {
+        try {
+            Map<TermId, HpoDisease> diseases = HpoDiseaseAnnotationParser.loadDiseaseMap(hpoaFile.getAbsolutePath(), ontology);
+            return TermDiseaseIndex.of(diseases, graph);
+        } catch (Exception e) {
+            LOGGER.error("Could not parse {}: {}", hpoaFile.getAbsolutePath(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Decode the disease models of the cache if it was made from the current versions of the input files. The
+     * remaining bytes hold the bitmaps and are kept for {@link Pending#resolve(Ontology)}. Nothing is set if the
+     * cache is outdated or has a different format version.
+     */
+    private static void read(Pending pending) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(pending.cache), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                LOGGER.trace("Annotation cache {} has an unknown format", pending.cache);
+                return;
+            }
+            if (in.readLong() != pending.hpoFile.length() || in.readLong() != pending.hpoCrc
+                    || in.readLong() != pending.hpoaFile.length() || in.readLong() != pending.hpoaCrc) {
+                LOGGER.trace("Annotation cache {} is outdated", pending.cache);
+                return;
+            }
+            int n = in.readInt();
+            List<HpoDisease> diseases = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                diseases.add(readDisease(in));
+            }
+            pending.diseases = diseases;
+            pending.bitmaps = in.readAllBytes();
+        }
+    }
+
+    /** Write the cache (see {@link CacheFiles#writeAtomically}). */
+    static void write(TermDiseaseIndex index, File cache, File hpoFile, long hpoCrc, File hpoaFile, long hpoaCrc)
+            throws IOException {
+        CacheFiles.writeAtomically(cache, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(hpoFile.length());
+            out.writeLong(hpoCrc);
+            out.writeLong(hpoaFile.length());
+            out.writeLong(hpoaCrc);
+            out.writeInt(index.diseaseCount());
+            for (int d = 0; d < index.diseaseCount(); d++) {
+                writeDisease(out, index.disease(d));
+            }
+            index.write(out);
+        });
+    }
+
+    private static void writeDisease(DataOutputStream out, HpoDisease disease) throws IOException {
+        writeString(out, disease.getName());
+        writeString(out, disease.getDiseaseDatabaseId().getValue());
+        List<HpoAnnotation> annotations = disease.getPhenotypicAbnormalities();
+        out.writeInt(annotations.size());
+        for (HpoAnnotation annot : annotations) {
+            writeString(out, annot.getTermId().getValue());
+            out.writeDouble(annot.getFrequency());
+            writeString(out, annot.getFrequencyString());
+            out.writeByte(annot.getOnset() == null ? -1 : annot.getOnset().ordinal());
+            writeTermIds(out, annot.getModifiers());
+            List<String> citations = annot.getCitations() == null ? List.of() : annot.getCitations();
+            out.writeInt(citations.size());
+            for (String citation : citations) {
+                writeString(out, citation);
+            }
+            writeString(out, evidenceCode(annot));
+        }
+        writeTermIds(out, disease.getModesOfInheritance());
+        writeTermIds(out, disease.getNegativeAnnotations());
+        writeTermIds(out, disease.getClinicalModifiers());
+        writeTermIds(out, disease.getClinicalCourseList());
+    }
+
+    /**
+     * @return name of the evidence code that the parser assigned to the annotation, or null if it assigned none
+     */
+    private static String evidenceCode(HpoAnnotation annot) {
+        // getEvidenceCodeString() dereferences the code without checking for null
+        try {
+            return annot.getEvidenceCodeString();
+        } catch (NullPointerException e) {
+            return null;
+        }
+    }
+
+    private static HpoDisease readDisease(DataInputStream in) throws IOException {
+        String name = readString(in);
+        TermId diseaseId = TermId.of(readString(in));
+        HpoOnset[] onsets = HpoOnset.values();
+        int n = in.readInt();
+        List<HpoAnnotation> annotations = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            TermId tid = TermId.of(readString(in));
+            double frequency = in.readDouble();
+            String frequencyString = readString(in);
+            byte onset = in.readByte();
+            List<TermId> modifiers = readTermIds(in);
+            int m = in.readInt();
+            List<String> citations = new ArrayList<>(m);
+            for (int j = 0; j < m; j++) {
+                citations.add(readString(in));
+            }
+            String evidence = readString(in);
+            annotations.add(new HpoAnnotation(tid, frequency, frequencyString, onset < 0 ? null : onsets[onset],
+                    modifiers, citations, evidence == null ? null : EvidenceCode.valueOf(evidence)));
+        }
+        List<TermId> modesOfInheritance = readTermIds(in);
+        List<TermId> negativeAnnotations = readTermIds(in);
+        List<TermId> clinicalModifiers = readTermIds(in);
+        List<TermId> clinicalCourse = readTermIds(in);
+        return new HpoDisease(name, diseaseId, annotations, modesOfInheritance, negativeAnnotations,
+                clinicalModifiers, clinicalCourse);
+    }
+
+    private static void writeTermIds(DataOutputStream out, List<TermId> tids) throws IOException {
+        if (tids == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(tids.size());
+        for (TermId tid : tids) {
+            writeString(out, tid.getValue());
+        }
+    }
+
+    private static List<TermId> readTermIds(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        List<TermId> tids = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            tids.add(TermId.of(readString(in)));
+        }
+        return tids;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,44 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writing of the binary caches ({@link OntologySnapshot} and the caches derived from it). A cache is written to a
+ * temporary file in the target directory that is then moved into place, so that readers (including concurrent
+ * invocations) never see a partially written file. The temporary file is removed if anything goes wrong.
+ */
+final class CacheFiles {
+
+    /** Writes the contents of a cache file. */
+    @FunctionalInterface
+    interface Contents {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private CacheFiles() {
+    }
+
+    /**
+     * @param target final location of the cache
+     * @param contents writes the cache
+     * @throws IOException if the cache could not be written or moved into place
+     */
+    static void writeAtomically(File target, Contents contents) throws IOException {
+        Path targetPath = target.toPath().toAbsolutePath();
+        Path tmp = Files.createTempFile(targetPath.getParent(), target.getName(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                contents.write(out);
+            }
+            Files.move(tmp, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
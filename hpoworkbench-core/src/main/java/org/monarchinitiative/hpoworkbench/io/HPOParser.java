@@ -1,7 +1,6 @@
 package org.monarchinitiative.hpoworkbench.io;
 
 
-import org.monarchinitiative.phenol.io.OntologyLoader;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,7 +8,8 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 
 /**
- * Use <a href="https://github.com/Phenomics/ontolib">ontolib</a> to parse the HPO OBO file.
+ * Use <a href="https://github.com/monarch-initiative/phenol">phenol</a> to parse the HPO OBO file. A binary
+ * {@link OntologySnapshot} is written next to the OBO file on the first invocation and is used for subsequent loads.
  */
 public class HPOParser {
     private static Logger LOGGER = LoggerFactory.getLogger(HPOParser.class);
@@ -27,7 +27,7 @@ public class HPOParser {
             LOGGER.error(String.format("Unable to find HPO file at %s",path));
             return;
         }
-        this.hpo = OntologyLoader.loadOntology(new File(path));
+        this.hpo = OntologySnapshot.load(new File(path));
     }
 
     /** @return an initiliazed HPO ontology or null in case of errors. */
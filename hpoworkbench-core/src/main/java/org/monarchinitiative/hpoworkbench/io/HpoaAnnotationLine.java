@@ -0,0 +1,182 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A reusable view of one line of phenotype.hpoa that is handed to the callback of {@link HpoaStreamParser}. The
+ * view only records the offsets of the tab-separated fields in the underlying buffer; Strings and {@link TermId}s
+ * are created only if the corresponding accessor is called. The object is overwritten by the next line and must not
+ * be retained by the callback.
+ * <p>
+ * The columns are DatabaseID, DiseaseName, Qualifier, HPO_ID, Reference, Evidence, Onset, Frequency, Sex, Modifier,
+ * Aspect and Biocuration.
+ * </p>
+ */
+public final class HpoaAnnotationLine {
+
+    public static final int DATABASE_ID = 0;
+    public static final int DISEASE_NAME = 1;
+    public static final int QUALIFIER = 2;
+    public static final int HPO_ID = 3;
+    public static final int REFERENCE = 4;
+    public static final int EVIDENCE = 5;
+    public static final int ONSET = 6;
+    public static final int FREQUENCY = 7;
+    public static final int SEX = 8;
+    public static final int MODIFIER = 9;
+    public static final int ASPECT = 10;
+    public static final int BIOCURATION = 11;
+    private static final int MAX_FIELDS = 12;
+
+    private static final byte[] OMIM = "OMIM:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ORPHA = "ORPHA:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DECIPHER = "DECIPHER:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NOT = "NOT".getBytes(StandardCharsets.US_ASCII);
+
+    /** Source databases of the disease annotations. */
+    public enum Database {OMIM, ORPHA, DECIPHER, OTHER}
+
+    private ByteBuffer buffer;
+    private final int[] start = new int[MAX_FIELDS];
+    private final int[] end = new int[MAX_FIELDS];
+    private int fieldCount;
+    private long lineNumber;
+
+    HpoaAnnotationLine() {
+    }
+
+    /**
+     * Record the field boundaries of the line {@code [from, to)}.
+     * @return false if the line does not have enough fields to hold an annotation
+     */
+    boolean set(ByteBuffer buf, int from, int to, long lineNo) {
+        this.buffer = buf;
+        this.lineNumber = lineNo;
+        int n = 0;
+        int s = from;
+        for (int i = from; i < to && n < MAX_FIELDS; i++) {
+            if (buf.get(i) == '\t') {
+                start[n] = s;
+                end[n] = i;
+                n++;
+                s = i + 1;
+            }
+        }
+        if (n < MAX_FIELDS) {
+            start[n] = s;
+            end[n] = to;
+            n++;
+        }
+        this.fieldCount = n;
+        return n > HPO_ID;
+    }
+
+    /** @return 1-based line number in the file (only meaningful for sequential parsing). */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    public int fieldLength(int field) {
+        return field < fieldCount ? end[field] - start[field] : 0;
+    }
+
+    public boolean fieldStartsWith(int field, byte[] prefix) {
+        if (fieldLength(field) < prefix.length) {
+            return false;
+        }
+        int s = start[field];
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(s + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean fieldEquals(int field, byte[] value) {
+        return fieldLength(field) == value.length && fieldStartsWith(field, value);
+    }
+
+    /** @return the field as a String (allocates). */
+    public String field(int field) {
+        int len = fieldLength(field);
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) {
+            bytes[i] = buffer.get(start[field] + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public Database database() {
+        if (fieldStartsWith(DATABASE_ID, OMIM)) return Database.OMIM;
+        if (fieldStartsWith(DATABASE_ID, ORPHA)) return Database.ORPHA;
+        if (fieldStartsWith(DATABASE_ID, DECIPHER)) return Database.DECIPHER;
+        return Database.OTHER;
+    }
+
+    /** @return true if the qualifier is NOT, i.e., the feature was explicitly excluded. */
+    public boolean isNegated() {
+        return fieldEquals(QUALIFIER, NOT);
+    }
+
+    /** @return the aspect (P, I, C or M), or 0 if the column is empty. */
+    public char aspect() {
+        return fieldLength(ASPECT) == 0 ? 0 : (char) buffer.get(start[ASPECT]);
+    }
+
+    /** @return the numeric part of the HPO id, e.g., 1234 for HP:0001234, or -1 if the id is malformed. */
+    public int hpoIdAsInt() {
+        return parseLocalId(HPO_ID);
+    }
+
+    /** @return the numeric part of the disease id, e.g., 100100 for OMIM:100100, or -1 if it is not numeric. */
+    public int diseaseIdAsInt() {
+        return parseLocalId(DATABASE_ID);
+    }
+
+    private int parseLocalId(int field) {
+        int s = start[field];
+        int e = end[field];
+        int i = s;
+        while (i < e && buffer.get(i) != ':') i++;
+        if (i >= e - 1) {
+            return -1;
+        }
+        int value = 0;
+        for (i = i + 1; i < e; i++) {
+            int c = buffer.get(i) - '0';
+            if (c < 0 || c > 9 || value > (Integer.MAX_VALUE - c) / 10) {
+                return -1;
+            }
+            value = 10 * value + c;
+        }
+        return value;
+    }
+
+    /** @return the HPO term of this annotation (allocates). */
+    public TermId hpoTermId() {
+        return TermId.of(field(HPO_ID));
+    }
+
+    /** @return the disease of this annotation, e.g., OMIM:100100 (allocates). */
+    public TermId diseaseId() {
+        return TermId.of(field(DATABASE_ID));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) sb.append('\t');
+            sb.append(field(i));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,135 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Streaming parser for phenotype.hpoa. The file is memory-mapped and each annotation line is passed to a callback
+ * as a reusable {@link HpoaAnnotationLine} view, so that no Strings or disease models are created unless the
+ * callback asks for them. This is intended for counting-style analyses that do not need the full
+ * {@link org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease} objects produced by
+ * {@code HpoDiseaseAnnotationParser}.
+ * <p>
+ * Comment lines (starting with #) and the header line are skipped. With {@link #parseParallel(Supplier, int)} the
+ * file is cut into chunks at line boundaries that are parsed concurrently, each into its own accumulator.
+ * </p>
+ */
+public class HpoaStreamParser {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HpoaStreamParser.class);
+
+    private static final byte[] HEADER = "DatabaseID".getBytes();
+
+    private final File hpoaFile;
+
+    /** @param path path to phenotype.hpoa */
+    public HpoaStreamParser(String path) {
+        this.hpoaFile = new File(path);
+    }
+
+    public HpoaStreamParser(File file) {
+        this.hpoaFile = file;
+    }
+
+    private ByteBuffer map() throws IOException {
+        try (FileChannel channel = FileChannel.open(hpoaFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("%s is too large to be mapped (%d bytes)", hpoaFile, size));
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Parse the file sequentially.
+     * @param consumer receives each annotation line (the view is reused, do not retain it)
+     * @return number of annotation lines
+     * @throws IOException if the file cannot be read
+     */
+    public long parse(Consumer<HpoaAnnotationLine> consumer) throws IOException {
+        ByteBuffer buffer = map();
+        long n = parseRange(buffer, 0, buffer.limit(), consumer, true);
+        LOGGER.trace("Parsed {} annotation lines from {}", n, hpoaFile.getAbsolutePath());
+        return n;
+    }
+
+    /**
+     * Parse the file in {@code chunks} pieces concurrently. Each piece is fed to its own accumulator, which
+     * therefore does not need to be thread-safe; the caller combines the accumulators afterwards. Line numbers are
+     * not available in this mode.
+     * @param factory creates one accumulator per chunk
+     * @param chunks number of chunks, typically the number of available processors
+     * @return the accumulators in file order
+     * @throws IOException if the file cannot be read
+     */
+    public <A extends Consumer<HpoaAnnotationLine>> List<A> parseParallel(Supplier<A> factory, int chunks) throws IOException {
+        ByteBuffer buffer = map();
+        int size = buffer.limit();
+        int k = Math.max(1, Math.min(chunks, size / (1 << 16) + 1));
+        int[] bounds = new int[k + 1];
+        bounds[k] = size;
+        for (int i = 1; i < k; i++) {
+            int b = Math.max(bounds[i - 1], (int) ((long) size * i / k));
+            while (b < size && buffer.get(b - 1) != '\n') {
+                b++;
+            }
+            bounds[i] = b;
+        }
+        List<A> accumulators = new ArrayList<>(k);
+        for (int i = 0; i < k; i++) {
+            accumulators.add(factory.get());
+        }
+        IntStream.range(0, k).parallel().forEach(i ->
+                parseRange(buffer.duplicate(), bounds[i], bounds[i + 1], accumulators.get(i), false));
+        return accumulators;
+    }
+
+    private static long parseRange(ByteBuffer buffer, int from, int to, Consumer<? super HpoaAnnotationLine> consumer,
+                                   boolean countLines) {
+        HpoaAnnotationLine line = new HpoaAnnotationLine();
+        long lineNo = 0;
+        long n = 0;
+        int s = from;
+        while (s < to) {
+            int e = s;
+            while (e < to && buffer.get(e) != '\n') {
+                e++;
+            }
+            int next = e + 1;
+            if (e > s && buffer.get(e - 1) == '\r') {
+                e--;
+            }
+            lineNo++;
+            if (e > s && buffer.get(s) != '#' && !startsWith(buffer, s, e, HEADER)
+                    && line.set(buffer, s, e, countLines ? lineNo : -1)) {
+                consumer.accept(line);
+                n++;
+            }
+            s = next;
+        }
+        return n;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int s, int e, byte[] prefix) {
+        if (e - s < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(s + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
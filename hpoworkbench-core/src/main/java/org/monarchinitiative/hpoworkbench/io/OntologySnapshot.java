@@ -0,0 +1,362 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * A compact binary snapshot of a parsed {@link Ontology}. Parsing hp.obo or hp.json with phenol takes several
+ * seconds, whereas decoding the snapshot and handing the terms and relationships to
+ * {@link ImmutableOntology#builder()} takes a small fraction of that. The snapshot is written next to the source
+ * file (e.g., {@code hp.json.snapshot}) and is keyed by the size and CRC32C checksum of the source file, so that a
+ * new release of the ontology is picked up automatically. The modification time of the source file is also stored,
+ * but only for information, since copying a file changes it without changing the contents.
+ * <p>
+ * All integers are written big-endian. Strings are written as a UTF-8 byte count (-1 for {@code null}) followed
+ * by the bytes. Relationships refer to terms by their position in the term section.
+ * </p>
+ */
+public class OntologySnapshot {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OntologySnapshot.class);
+    /** "HPWB" in ASCII. */
+    private static final int MAGIC = 0x48505742;
+    /** Increment whenever the layout of the file changes. */
+    private static final int FORMAT_VERSION = 1;
+    /** Suffix appended to the name of the source file to obtain the name of the snapshot. */
+    public static final String SNAPSHOT_SUFFIX = ".snapshot";
+    /** Synonym type names that are recognized by phenol's {@code SynonymType.fromString}. */
+    private static final String LAYPERSON = "layperson";
+    private static final String ABBREVIATION = "abbreviation";
+    private static final String UK_SPELLING = "UK spelling";
+    private static final String PLURAL_FORM = "plural form";
+    private static final String OBSOLETE_SYNONYM = "obsolete synonym";
+
+    private OntologySnapshot() {
+    }
+
+    /** @return the default location of the snapshot that belongs to the given ontology file. */
+    public static File snapshotFileFor(File source) {
+        return new File(source.getAbsolutePath() + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Load the ontology from the snapshot if a valid snapshot exists, otherwise parse the source file with
+     * phenol and write a new snapshot for the next invocation. Problems with the snapshot are logged and never
+     * prevent the ontology from being loaded.
+     * @param source hp.obo or hp.json file
+     * @return the parsed ontology
+     */
+    public static Ontology load(File source) {
+        File snapshot = snapshotFileFor(source);
+        long crc = -1L;
+        if (snapshot.isFile()) {
+            try {
+                crc = checksum(source);
+                Optional<Ontology> opt = read(snapshot, source, crc);
+                if (opt.isPresent()) {
+                    LOGGER.trace("Loaded ontology from snapshot {}", snapshot.getAbsolutePath());
+                    return opt.get();
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not read ontology snapshot {}: {}", snapshot.getAbsolutePath(), e.getMessage());
+            }
+        }
+        Ontology ontology = OntologyLoader.loadOntology(source);
+        try {
+            if (crc == -1L) {
+                crc = checksum(source);
+            }
+            write(ontology, source, snapshot, crc);
+            LOGGER.trace("Wrote ontology snapshot to {}", snapshot.getAbsolutePath());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Could not write ontology snapshot {}: {}", snapshot.getAbsolutePath(), e.getMessage());
+        }
+        return ontology;
+    }
+
+    /**
+     * Calculate the CRC32C checksum of a file. The file is memory-mapped so that the checksum can be calculated
+     * without copying the file contents onto the heap.
+     */
+    static long checksum(File file) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long len = Math.min(Integer.MAX_VALUE, size - position);
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, len));
+                position += len;
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Decode the snapshot if it was made from the current version of the source file.
+     * @param snapshot the snapshot file
+     * @param source hp.obo or hp.json file that the snapshot was made from
+     * @param crc CRC32C checksum of the source file
+     * @return the ontology, or an empty Optional if the snapshot is stale or was written by another version
+     */
+    static Optional<Ontology> read(File snapshot, File source, long crc) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            return Optional.empty();
+        }
+        long size = buffer.getLong();
+        buffer.getLong(); // modification time, only informative
+        long storedCrc = buffer.getLong();
+        if (size != source.length() || storedCrc != crc) {
+            LOGGER.trace("Snapshot {} is stale", snapshot.getAbsolutePath());
+            return Optional.empty();
+        }
+        int n = buffer.getInt();
+        Map<String, String> metaInfo = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            metaInfo.put(readString(buffer), readString(buffer));
+        }
+        n = buffer.getInt();
+        List<Term> terms = new ArrayList<>(n);
+        TermId[] termIds = new TermId[n];
+        for (int i = 0; i < n; i++) {
+            Term term = readTerm(buffer);
+            termIds[i] = term.getId();
+            terms.add(term);
+        }
+        n = buffer.getInt();
+        List<Relationship> relationships = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            TermId src = termIds[buffer.getInt()];
+            TermId tgt = termIds[buffer.getInt()];
+            int id = buffer.getInt();
+            RelationshipType type = relationshipType(readString(buffer), readString(buffer));
+            relationships.add(new Relationship(src, tgt, id, type));
+        }
+        return Optional.of(ImmutableOntology.builder()
+                .metaInfo(metaInfo)
+                .terms(terms)
+                .relationships(relationships)
+                .build());
+    }
+
+    /**
+     * Write a snapshot of the ontology (see {@link CacheFiles#writeAtomically}, so that concurrent invocations never
+     * see a partially written snapshot).
+     */
+    static void write(Ontology ontology, File source, File snapshot, long crc) throws IOException {
+        List<Term> terms = new ArrayList<>();
+        Map<TermId, Integer> termIndex = new HashMap<>();
+        for (Map.Entry<TermId, Term> e : ontology.getTermMap().entrySet()) {
+            // the term map also contains entries for the alternate ids
+            if (e.getKey().equals(e.getValue().getId())) {
+                termIndex.put(e.getKey(), terms.size());
+                terms.add(e.getValue());
+            }
+        }
+        CacheFiles.writeAtomically(snapshot, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(source.length());
+            out.writeLong(source.lastModified());
+            out.writeLong(crc);
+            Map<String, String> metaInfo = ontology.getMetaInfo();
+            out.writeInt(metaInfo.size());
+            for (Map.Entry<String, String> e : metaInfo.entrySet()) {
+                writeString(out, e.getKey());
+                writeString(out, e.getValue());
+            }
+            out.writeInt(terms.size());
+            for (Term term : terms) {
+                writeTerm(out, term);
+            }
+            Collection<Relationship> relationships = ontology.getRelationMap().values();
+            out.writeInt(relationships.size());
+            for (Relationship rel : relationships) {
+                Integer src = termIndex.get(rel.getSource());
+                Integer tgt = termIndex.get(rel.getTarget());
+                if (src == null || tgt == null) {
+                    throw new IOException("Relationship " + rel + " refers to a term that is not in the term map");
+                }
+                out.writeInt(src);
+                out.writeInt(tgt);
+                out.writeInt(rel.getId());
+                writeString(out, rel.getRelationshipType().getId());
+                writeString(out, rel.getRelationshipType().getLabel());
+            }
+        });
+    }
+
+    private static void writeTerm(DataOutputStream out, Term term) throws IOException {
+        writeString(out, term.getId().getValue());
+        writeString(out, term.getName());
+        writeString(out, term.getDefinition());
+        writeString(out, term.getComment());
+        out.writeBoolean(term.isObsolete());
+        writeString(out, term.getCreatedBy());
+        out.writeLong(term.getCreationDate().map(Date::getTime).orElse(Long.MIN_VALUE));
+        List<TermId> altIds = nullToEmpty(term.getAltTermIds());
+        out.writeInt(altIds.size());
+        for (TermId alt : altIds) {
+            writeString(out, alt.getValue());
+        }
+        List<String> subsets = nullToEmpty(term.getSubsets());
+        out.writeInt(subsets.size());
+        for (String s : subsets) {
+            writeString(out, s);
+        }
+        List<SimpleXref> databaseXrefs = nullToEmpty(term.getDatabaseXrefs());
+        out.writeInt(databaseXrefs.size());
+        for (SimpleXref x : databaseXrefs) {
+            writeString(out, x.getCurie());
+        }
+        List<Dbxref> xrefs = nullToEmpty(term.getXrefs());
+        out.writeInt(xrefs.size());
+        for (Dbxref x : xrefs) {
+            writeString(out, x.getName());
+            writeString(out, x.getDescription());
+            Map<String, String> modifiers = x.getTrailingModifiers() == null ? Map.of() : x.getTrailingModifiers();
+            out.writeInt(modifiers.size());
+            for (Map.Entry<String, String> e : modifiers.entrySet()) {
+                writeString(out, e.getKey());
+                writeString(out, e.getValue());
+            }
+        }
+        List<TermSynonym> synonyms = nullToEmpty(term.getSynonyms());
+        out.writeInt(synonyms.size());
+        for (TermSynonym syn : synonyms) {
+            writeString(out, syn.getValue());
+            out.writeByte(syn.getScope() == null ? -1 : syn.getScope().ordinal());
+            writeString(out, syn.getSynonymTypeName());
+            writeString(out, synonymTypeKey(syn));
+            List<TermXref> synXrefs = nullToEmpty(syn.getTermXrefs());
+            out.writeInt(synXrefs.size());
+            for (TermXref x : synXrefs) {
+                writeString(out, x.getId().getValue());
+                writeString(out, x.getDescription());
+            }
+        }
+    }
+
+    private static Term readTerm(ByteBuffer buffer) {
+        Term.Builder builder = Term.builder()
+                .id(TermId.of(readString(buffer)))
+                .name(readString(buffer))
+                .definition(readString(buffer))
+                .comment(readString(buffer))
+                .obsolete(buffer.get() != 0)
+                .createdBy(readString(buffer));
+        long creationDate = buffer.getLong();
+        if (creationDate != Long.MIN_VALUE) {
+            builder.creationDate(new Date(creationDate));
+        }
+        int n = buffer.getInt();
+        List<TermId> altIds = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            altIds.add(TermId.of(readString(buffer)));
+        }
+        n = buffer.getInt();
+        List<String> subsets = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            subsets.add(readString(buffer));
+        }
+        n = buffer.getInt();
+        List<SimpleXref> databaseXrefs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            databaseXrefs.add(new SimpleXref(readString(buffer)));
+        }
+        n = buffer.getInt();
+        List<Dbxref> xrefs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String name = readString(buffer);
+            String description = readString(buffer);
+            int m = buffer.getInt();
+            Map<String, String> modifiers = m == 0 ? null : new LinkedHashMap<>();
+            for (int j = 0; j < m; j++) {
+                modifiers.put(readString(buffer), readString(buffer));
+            }
+            xrefs.add(new Dbxref(name, description, modifiers));
+        }
+        n = buffer.getInt();
+        List<TermSynonym> synonyms = new ArrayList<>(n);
+        TermSynonymScope[] scopes = TermSynonymScope.values();
+        for (int i = 0; i < n; i++) {
+            String value = readString(buffer);
+            byte scope = buffer.get();
+            String typeName = readString(buffer);
+            String typeKey = readString(buffer);
+            int m = buffer.getInt();
+            List<TermXref> synXrefs = new ArrayList<>(m);
+            for (int j = 0; j < m; j++) {
+                synXrefs.add(new TermXref(TermId.of(readString(buffer)), readString(buffer)));
+            }
+            synonyms.add(new TermSynonym(value, scope < 0 ? null : scopes[scope], typeName, synXrefs, typeKey));
+        }
+        return builder.altTermIds(altIds)
+                .subsets(subsets)
+                .databaseXrefs(databaseXrefs)
+                .xrefs(xrefs)
+                .synonyms(synonyms)
+                .build();
+    }
+
+    /**
+     * phenol does not expose the synonym type directly, so we record a name from which
+     * {@code SynonymType.fromString} reconstructs the same type.
+     */
+    private static String synonymTypeKey(TermSynonym syn) {
+        if (syn.isLayperson()) return LAYPERSON;
+        if (syn.isAbbreviation()) return ABBREVIATION;
+        if (syn.isUKspelling()) return UK_SPELLING;
+        if (syn.isPluralForm()) return PLURAL_FORM;
+        if (syn.isObsoleteSynonym()) return OBSOLETE_SYNONYM;
+        return null;
+    }
+
+    private static RelationshipType relationshipType(String id, String label) {
+        for (RelationshipType t : List.of(RelationshipType.IS_A, RelationshipType.PART_OF,
+                RelationshipType.SUBPROPERTY_OF, RelationshipType.HAS_MODIFIER)) {
+            if (t.getId().equals(id)) {
+                return t;
+            }
+        }
+        return RelationshipType.of(id, label);
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int len = buffer.getInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
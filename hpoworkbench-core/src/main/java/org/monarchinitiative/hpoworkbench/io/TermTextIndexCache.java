@@ -0,0 +1,99 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.monarchinitiative.hpoworkbench.search.TermTextIndex;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+
+/**
+ * A versioned binary cache of the {@link TermTextIndex} of hp.json. The cache is keyed by the size and CRC32C
+ * checksum of hp.json and is rebuilt whenever a new release of the ontology is used. The file consists of a header
+ * (magic number, format version, size and checksum of hp.json) followed by the index written by
+ * {@link TermTextIndex#write(DataOutput)}. Problems with the cache are logged and the index is then built from the
+ * ontology.
+ */
+public class TermTextIndexCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TermTextIndexCache.class);
+    /** "HPWT" in ASCII. */
+    private static final int MAGIC = 0x48505754;
+    /** Increment whenever the layout of the file or the tokenization of {@link TermTextIndex} changes. */
+    private static final int FORMAT_VERSION = 3;
+    /** Name of the cache file in the HPO Workbench directory. */
+    public static final String CACHE_FILE_NAME = "term-text-index.bin";
+
+    private TermTextIndexCache() {
+    }
+
+    /** @return the location of the cache in the given directory. */
+    public static File cacheFileFor(File cacheDir) {
+        return new File(cacheDir, CACHE_FILE_NAME);
+    }
+
+    /**
+     * Load the full-text index from the cache if it was made from the current version of hp.json, otherwise build
+     * it from the ontology and write a new cache for the next invocation.
+     * @param hpoFile hp.json file from which {@code ontology} was loaded
+     * @param ontology reference to the HPO
+     * @param cacheDir directory in which the cache is stored (usually ~/.hpowb)
+     * @return the full-text index
+     */
+    public static TermTextIndex load(File hpoFile, Ontology ontology, File cacheDir) {
+        File cache = cacheFileFor(cacheDir);
+        long crc;
+        try {
+            crc = OntologySnapshot.checksum(hpoFile);
+        } catch (IOException e) {
+            LOGGER.warn("Could not calculate checksum of {}: {}", hpoFile, e.getMessage());
+            return TermTextIndex.of(ontology);
+        }
+        if (cache.isFile()) {
+            try {
+                TermTextIndex index = read(cache, hpoFile, crc);
+                if (index != null) {
+                    LOGGER.info("Loaded full-text index from cache {}", cache.getAbsolutePath());
+                    return index;
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not read full-text index cache {}: {}", cache.getAbsolutePath(), e.getMessage());
+            }
+        }
+        TermTextIndex index = TermTextIndex.of(ontology);
+        if (cacheDir.isDirectory()) {
+            try {
+                write(index, cache, hpoFile, crc);
+                LOGGER.info("Wrote full-text index cache to {}", cache.getAbsolutePath());
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not write full-text index cache {}: {}", cache.getAbsolutePath(), e.getMessage());
+            }
+        }
+        return index;
+    }
+
+    /** @return the cached index, or null if the cache is outdated or has a different format version */
+    private static TermTextIndex read(File cache, File hpoFile, long hpoCrc) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cache), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                LOGGER.trace("Full-text index cache {} has an unknown format", cache);
+                return null;
+            }
+            if (in.readLong() != hpoFile.length() || in.readLong() != hpoCrc) {
+                LOGGER.trace("Full-text index cache {} is outdated", cache);
+                return null;
+            }
+            return TermTextIndex.read(in);
+        }
+    }
+
+    /** Write the cache (see {@link CacheFiles#writeAtomically}). */
+    static void write(TermTextIndex index, File cache, File hpoFile, long hpoCrc) throws IOException {
+        CacheFiles.writeAtomically(cache, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(hpoFile.length());
+            out.writeLong(hpoCrc);
+            index.write(out);
+        });
+    }
+}
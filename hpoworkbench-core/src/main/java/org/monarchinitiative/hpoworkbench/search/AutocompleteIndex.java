@@ -0,0 +1,225 @@
+package org.monarchinitiative.hpoworkbench.search;
+
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.data.TermSynonym;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * Autocompletion of the labels, synonyms and ids of the terms of an ontology. Every word of a label or synonym
+ * (and the id with and without its prefix) is a key, so that typing "seiz" suggests "Focal-onset seizure". The
+ * lower-case keys are kept in one sorted array, i.e., the keys with a given prefix are a contiguous range that is
+ * found by binary search, which plays the role of a trie. A segment tree over the array holds the position of the
+ * highest ranked key below each node, so that the k best suggestions of a range are extracted best-first without
+ * looking at the other keys of the range. A query thus takes time O(log n + k log k · log n), independent of how
+ * many keys share the prefix.
+ * <p>
+ * Suggestions are ranked by the popularity of the term (e.g., the number of annotated diseases), then keys at the
+ * start of the text before keys in the middle, then shorter texts first. Each term is suggested at most once.
+ * </p>
+ */
+public final class AutocompleteIndex {
+
+    /** Label, synonym or id of each entry. */
+    private final String[] texts;
+    private final TermId[] termIds;
+    /** Lower-case suffixes of the texts that start at a word, in ascending order. */
+    private final String[] keys;
+    /** Entry of each key. */
+    private final int[] keyEntry;
+    /** Rank of each key (higher is better). */
+    private final long[] keyRank;
+    /** Segment tree: position of the best key below each node (-1 for empty nodes); leaves start at {@link #leaves}. */
+    private final int[] best;
+    private final int leaves;
+
+    /** One suggestion: a label, synonym or id and the term it belongs to. */
+    public static final class Suggestion {
+        private final String text;
+        private final TermId termId;
+
+        Suggestion(String text, TermId termId) {
+            this.text = text;
+            this.termId = termId;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public TermId getTermId() {
+            return termId;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private AutocompleteIndex(String[] texts, TermId[] termIds, int[] popularity) {
+        this.texts = texts;
+        this.termIds = termIds;
+        List<String> keyList = new ArrayList<>();
+        List<long[]> keyInfo = new ArrayList<>();
+        for (int e = 0; e < texts.length; e++) {
+            String normalized = normalize(texts[e]);
+            for (int i = 0; i < normalized.length(); i++) {
+                if (!isWordStart(normalized, i)) continue;
+                keyList.add(normalized.substring(i));
+                keyInfo.add(new long[]{e, rank(popularity[e], i == 0, normalized.length())});
+            }
+        }
+        Integer[] order = new Integer[keyList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(keyList::get));
+        int n = order.length;
+        keys = new String[n];
+        keyEntry = new int[n];
+        keyRank = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = keyList.get(order[i]);
+            keyEntry[i] = (int) keyInfo.get(order[i])[0];
+            keyRank[i] = keyInfo.get(order[i])[1];
+        }
+        int m = 1;
+        while (m < n) m <<= 1;
+        leaves = m;
+        best = new int[2 * m];
+        Arrays.fill(best, -1);
+        for (int i = 0; i < n; i++) {
+            best[m + i] = i;
+        }
+        for (int node = m - 1; node >= 1; node--) {
+            best[node] = better(best[2 * node], best[2 * node + 1]);
+        }
+    }
+
+    /** @return index of the suggestions for the labels, synonyms and ids of all terms, all equally popular */
+    public static AutocompleteIndex of(Ontology ontology) {
+        return of(ontology, tid -> 0);
+    }
+
+    /**
+     * @param ontology ontology whose labels, synonyms and ids are indexed
+     * @param popularity non-negative popularity of each term, e.g., the number of annotated diseases
+     * @return index of the suggestions
+     */
+    public static AutocompleteIndex of(Ontology ontology, ToIntFunction<TermId> popularity) {
+        List<String> texts = new ArrayList<>();
+        List<TermId> termIds = new ArrayList<>();
+        for (Term term : ontology.getTerms()) {
+            TermId tid = term.getId();
+            texts.add(term.getName());
+            termIds.add(tid);
+            texts.add(tid.getValue());
+            termIds.add(tid);
+            for (TermSynonym tsyn : term.getSynonyms()) {
+                texts.add(tsyn.getValue());
+                termIds.add(tid);
+            }
+        }
+        Map<TermId, Integer> cache = new HashMap<>();
+        int[] pop = new int[termIds.size()];
+        for (int e = 0; e < pop.length; e++) {
+            pop[e] = cache.computeIfAbsent(termIds.get(e), popularity::applyAsInt);
+        }
+        return new AutocompleteIndex(texts.toArray(new String[0]), termIds.toArray(new TermId[0]), pop);
+    }
+
+    private static String normalize(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isWordStart(String s, int i) {
+        return Character.isLetterOrDigit(s.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(s.charAt(i - 1)));
+    }
+
+    private static long rank(int popularity, boolean atStart, int length) {
+        return ((long) Math.max(0, popularity) << 32) | (atStart ? 1L << 31 : 0L) | (Integer.MAX_VALUE - length);
+    }
+
+    /** @return the better of two key positions (-1 stands for no key) */
+    private int better(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        return keyRank[b] > keyRank[a] ? b : a;
+    }
+
+    /** @return the first position whose key is not less than {@code s} */
+    private int lowerBound(String s) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(s) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @param prefix text typed by the user (case-insensitive, leading white space is ignored)
+     * @param k maximum number of suggestions
+     * @return at most {@code k} suggestions for distinct terms, best first
+     */
+    public List<Suggestion> complete(String prefix, int k) {
+        String p = normalize(prefix).stripLeading();
+        if (p.isEmpty() || k <= 0) {
+            return List.of();
+        }
+        int from = lowerBound(p);
+        // every key with prefix p sorts before p followed by the largest char
+        int to = lowerBound(p + Character.MAX_VALUE);
+        if (from >= to) {
+            return List.of();
+        }
+        PriorityQueue<Integer> queue = new PriorityQueue<>((n1, n2) -> Long.compare(keyRank[best[n2]], keyRank[best[n1]]));
+        addCanonicalNodes(1, 0, leaves, from, to, queue);
+        List<Suggestion> suggestions = new ArrayList<>(k);
+        Set<TermId> seen = new HashSet<>();
+        while (!queue.isEmpty() && suggestions.size() < k) {
+            int node = queue.poll();
+            if (node >= leaves) {
+                int e = keyEntry[best[node]];
+                if (seen.add(termIds[e])) {
+                    suggestions.add(new Suggestion(texts[e], termIds[e]));
+                }
+                continue;
+            }
+            for (int child = 2 * node; child <= 2 * node + 1; child++) {
+                if (best[child] >= 0) {
+                    queue.add(child);
+                }
+            }
+        }
+        return suggestions;
+    }
+
+    /** Add the nodes that exactly cover [from, to) to the queue; the node covers [lo, hi). */
+    private void addCanonicalNodes(int node, int lo, int hi, int from, int to, PriorityQueue<Integer> queue) {
+        if (to <= lo || hi <= from || best[node] < 0) {
+            return;
+        }
+        if (from <= lo && hi <= to) {
+            queue.add(node);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        addCanonicalNodes(2 * node, lo, mid, from, to, queue);
+        addCanonicalNodes(2 * node + 1, mid, hi, from, to, queue);
+    }
+
+    /** @return number of keys, i.e., of word starts in all texts */
+    public int size() {
+        return keys.length;
+    }
+}
@@ -0,0 +1,188 @@
+package org.monarchinitiative.hpoworkbench.search;
+
+import me.xdrop.fuzzywuzzy.FuzzySearch;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.data.TermSynonym;
+
+import java.util.*;
+
+/**
+ * Approximate matching of free text to the labels and synonyms of the terms of an ontology. Comparing a query with
+ * {@link FuzzySearch#partialRatio(String, String)} against each of the ~60,000 labels and synonyms of HPO is far
+ * too slow for large input files, so the labels and synonyms are indexed by their character trigrams. For a query,
+ * the entries are ranked by the fraction of trigrams they share with the query (relative to the shorter of the
+ * two, since partial matching looks for the shorter string within the longer one), and only the best candidates
+ * are scored with {@code partialRatio}. Matching is case-insensitive.
+ * <p>
+ * The index is immutable and {@link #bestMatch(String, int)} may be called from several threads at once.
+ * </p>
+ */
+public final class FuzzyTermIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    /** Label or synonym of each entry, as in the ontology. */
+    private final String[] texts;
+    /** Lower-case label or synonym of each entry. */
+    private final String[] normalized;
+    private final TermId[] termIds;
+    /** Number of distinct trigrams of each entry. */
+    private final int[] gramCounts;
+    /** Key: trigram; value: ascending ids of the entries that contain it. */
+    private final Map<String, int[]> postings;
+    /** Per-thread count of shared trigrams for each entry, reset after every query. */
+    private final ThreadLocal<int[]> sharedCounts;
+
+    /** The best match of a query. */
+    public static final class Match {
+        private final TermId termId;
+        private final String text;
+        private final int score;
+
+        Match(TermId termId, String text, int score) {
+            this.termId = termId;
+            this.text = text;
+            this.score = score;
+        }
+
+        public TermId getTermId() {
+            return termId;
+        }
+
+        /** @return the label or synonym that matched the query */
+        public String getText() {
+            return text;
+        }
+
+        /** @return {@code partialRatio} of query and matched text (0-100) */
+        public int getScore() {
+            return score;
+        }
+    }
+
+    private FuzzyTermIndex(String[] texts, TermId[] termIds) {
+        this.texts = texts;
+        this.termIds = termIds;
+        int n = texts.length;
+        normalized = new String[n];
+        gramCounts = new int[n];
+        Map<String, List<Integer>> lists = new HashMap<>();
+        for (int e = 0; e < n; e++) {
+            normalized[e] = normalize(texts[e]);
+            Set<String> grams = grams(normalized[e]);
+            gramCounts[e] = grams.size();
+            for (String gram : grams) {
+                lists.computeIfAbsent(gram, k -> new ArrayList<>()).add(e);
+            }
+        }
+        postings = new HashMap<>(2 * lists.size());
+        for (Map.Entry<String, List<Integer>> entry : lists.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        sharedCounts = ThreadLocal.withInitial(() -> new int[n]);
+    }
+
+    /**
+     * @param ontology ontology whose labels and synonyms are indexed
+     * @return index of all distinct labels and synonyms (the first term with a given text wins)
+     */
+    public static FuzzyTermIndex of(Ontology ontology) {
+        Map<String, TermId> textToTermId = new LinkedHashMap<>();
+        for (Term term : ontology.getTerms()) {
+            textToTermId.putIfAbsent(term.getName(), term.getId());
+            for (TermSynonym tsyn : term.getSynonyms()) {
+                textToTermId.putIfAbsent(tsyn.getValue(), term.getId());
+            }
+        }
+        return of(textToTermId);
+    }
+
+    /**
+     * @param textToTermId labels and synonyms with the term they stand for
+     * @return index of the texts
+     */
+    public static FuzzyTermIndex of(Map<String, TermId> textToTermId) {
+        String[] texts = new String[textToTermId.size()];
+        TermId[] termIds = new TermId[textToTermId.size()];
+        int e = 0;
+        for (Map.Entry<String, TermId> entry : textToTermId.entrySet()) {
+            texts[e] = entry.getKey();
+            termIds[e] = entry.getValue();
+            e++;
+        }
+        return new FuzzyTermIndex(texts, termIds);
+    }
+
+    private static String normalize(String s) {
+        return s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** @return the distinct trigrams of the string padded with one space at either end */
+    static Set<String> grams(String s) {
+        String padded = " " + s + " ";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * @param query free text
+     * @param candidates number of entries with the most shared trigrams that are scored with {@code partialRatio} (at
+     *                   least one)
+     * @return the best scoring label or synonym, or null if no entry shares a trigram with the query
+     */
+    public Match bestMatch(String query, int candidates) {
+        if (query == null || query.isBlank()) {
+            return null;
+        }
+        String q = normalize(query);
+        Set<String> queryGrams = grams(q);
+        int[] shared = sharedCounts.get();
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for (String gram : queryGrams) {
+            int[] posting = postings.get(gram);
+            if (posting == null) continue;
+            for (int e : posting) {
+                if (shared[e]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, 2 * touchedCount);
+                    }
+                    touched[touchedCount++] = e;
+                }
+            }
+        }
+        if (touchedCount == 0) {
+            return null;
+        }
+        // rank by the fraction of shared trigrams; the key sorts by that fraction, then by ascending entry id
+        long[] keys = new long[touchedCount];
+        for (int i = 0; i < touchedCount; i++) {
+            int e = touched[i];
+            float overlap = (float) shared[e] / Math.min(queryGrams.size(), gramCounts[e]);
+            keys[i] = ((long) Float.floatToIntBits(overlap) << 32) | (Integer.MAX_VALUE - e);
+            shared[e] = 0;
+        }
+        Arrays.sort(keys);
+        int best = -1;
+        int bestScore = -1;
+        for (int i = keys.length - 1; i >= Math.max(0, keys.length - Math.max(1, candidates)); i--) {
+            int e = Integer.MAX_VALUE - (int) keys[i];
+            int score = FuzzySearch.partialRatio(q, normalized[e]);
+            if (score > bestScore) {
+                best = e;
+                bestScore = score;
+            }
+        }
+        return new Match(termIds[best], texts[best], bestScore);
+    }
+
+    /** @return number of indexed labels and synonyms */
+    public int size() {
+        return texts.length;
+    }
+}
@@ -0,0 +1,330 @@
+package org.monarchinitiative.hpoworkbench.search;
+
+import org.monarchinitiative.phenol.ontology.data.Dbxref;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.data.TermSynonym;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Full-text search of the terms of an ontology with BM25 ranking. Each term is one document made of its label,
+ * synonyms, definition, comment and the names of its cross-references (e.g., {@code UMLS:C0015393}). The text is
+ * split into lower-case words, common English stop words are dropped and the remaining words are reduced by a light
+ * suffix stemmer, so that "seizures" finds "Seizure" and "abnormalities" finds "abnormality". Words of the label
+ * count three times and words of the synonyms twice, so that a term whose label matches the query is ranked above
+ * a term that merely mentions the query in its definition.
+ * <p>
+ * The words are kept in a sorted array, and the postings of each word are two parallel arrays with the ascending
+ * document numbers and the weighted word counts. A query only visits the postings of its own words and keeps the
+ * k best documents in a bounded heap, which takes well under a millisecond for HPO. The documents are tokenized in
+ * parallel. The index is immutable and {@link #search(String, int)} may be called from several threads at once.
+ * </p>
+ */
+public final class TermTextIndex {
+
+    /** BM25 saturation of the word counts. */
+    private static final double K1 = 1.2;
+    /** BM25 normalization of the document length. */
+    private static final double B = 0.75;
+    private static final int LABEL_WEIGHT = 3;
+    private static final int SYNONYM_WEIGHT = 2;
+    private static final int TEXT_WEIGHT = 1;
+
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "by", "for",
+            "from", "has", "in", "into", "is", "it", "its", "of", "on", "or", "such", "that", "the", "their", "this",
+            "to", "was", "which", "with");
+
+    private final TermId[] termIds;
+    /** Weighted number of words of each document. */
+    private final int[] docLengths;
+    private final double avgDocLength;
+    /** Distinct (stemmed) words in ascending order. */
+    private final String[] words;
+    /** Ascending documents that contain each word. */
+    private final int[][] postingDocs;
+    /** Weighted count of each word in the documents of {@link #postingDocs}. */
+    private final int[][] postingCounts;
+    /** Per-thread score of each document, reset after every query. */
+    private final ThreadLocal<double[]> scores;
+
+    /** A term that matches a query, with its BM25 score. */
+    public static final class Hit {
+        private final TermId termId;
+        private final double score;
+
+        Hit(TermId termId, double score) {
+            this.termId = termId;
+            this.score = score;
+        }
+
+        public TermId getTermId() {
+            return termId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    private TermTextIndex(TermId[] termIds, int[] docLengths, String[] words, int[][] postingDocs, int[][] postingCounts) {
+        this.termIds = termIds;
+        this.docLengths = docLengths;
+        this.words = words;
+        this.postingDocs = postingDocs;
+        this.postingCounts = postingCounts;
+        long total = 0;
+        for (int len : docLengths) {
+            total += len;
+        }
+        avgDocLength = docLengths.length == 0 ? 1.0 : Math.max(1.0, (double) total / docLengths.length);
+        int n = termIds.length;
+        scores = ThreadLocal.withInitial(() -> new double[n]);
+    }
+
+    /**
+     * @param ontology ontology whose current (non-obsolete) terms are indexed
+     * @return index of the text of the terms
+     */
+    public static TermTextIndex of(Ontology ontology) {
+        // the term map also lists the alternative ids, so we collect each term once, in the order of the ids
+        Map<TermId, Term> terms = new TreeMap<>();
+        for (Term term : ontology.getTerms()) {
+            if (!term.isObsolete()) {
+                terms.putIfAbsent(term.getId(), term);
+            }
+        }
+        List<Term> docs = new ArrayList<>(terms.values());
+        List<Map<String, Integer>> counts = docs.parallelStream()
+                .map(TermTextIndex::countWords)
+                .toList();
+        int n = docs.size();
+        TermId[] termIds = new TermId[n];
+        int[] docLengths = new int[n];
+        SortedMap<String, List<int[]>> postings = new TreeMap<>();
+        for (int d = 0; d < n; d++) {
+            termIds[d] = docs.get(d).getId();
+            for (Map.Entry<String, Integer> entry : counts.get(d).entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(new int[]{d, entry.getValue()});
+                docLengths[d] += entry.getValue();
+            }
+        }
+        String[] words = new String[postings.size()];
+        int[][] postingDocs = new int[words.length][];
+        int[][] postingCounts = new int[words.length][];
+        int w = 0;
+        for (Map.Entry<String, List<int[]>> entry : postings.entrySet()) {
+            List<int[]> list = entry.getValue();
+            words[w] = entry.getKey();
+            postingDocs[w] = new int[list.size()];
+            postingCounts[w] = new int[list.size()];
+            for (int i = 0; i < list.size(); i++) {
+                postingDocs[w][i] = list.get(i)[0];
+                postingCounts[w][i] = list.get(i)[1];
+            }
+            w++;
+        }
+        return new TermTextIndex(termIds, docLengths, words, postingDocs, postingCounts);
+    }
+
+    /** @return weighted count of each word of the label, synonyms, definition, comment and cross-references */
+    private static Map<String, Integer> countWords(Term term) {
+        Map<String, Integer> counts = new HashMap<>();
+        addWords(term.getName(), LABEL_WEIGHT, counts);
+        for (TermSynonym tsyn : term.getSynonyms()) {
+            addWords(tsyn.getValue(), SYNONYM_WEIGHT, counts);
+        }
+        addWords(term.getDefinition(), TEXT_WEIGHT, counts);
+        addWords(term.getComment(), TEXT_WEIGHT, counts);
+        for (Dbxref xref : term.getXrefs()) {
+            addWords(xref.getName(), TEXT_WEIGHT, counts);
+        }
+        return counts;
+    }
+
+    private static void addWords(String text, int weight, Map<String, Integer> counts) {
+        for (String word : tokenize(text)) {
+            counts.merge(word, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * Split a text into lower-case words (maximal runs of letters and digits), drop the stop words and stem the rest.
+     * The same steps are applied to the documents and to the queries.
+     * @param text any text, may be null
+     * @return the stemmed words in the order of the text
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        String s = text.toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean wordChar = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = s.substring(start, i);
+                if (!STOP_WORDS.contains(word)) {
+                    tokens.add(stem(word));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * A light English stemmer that removes plural and a few inflectional endings ("abnormalities" → "abnormality",
+     * "delayed" → "delay", "hearing" → "hear"). The plural is removed first, so that "findings" and "finding" both
+     * become "find". As in the last step of the Porter stemmer, a final "e" is removed, so that "increased",
+     * "increasing" and "increase" all become "increas". Words that end in "ss", "us" or "is" (e.g., "stenosis") keep
+     * their last letter, and short words are left alone.
+     */
+    static String stem(String word) {
+        int n = word.length();
+        if (n <= 3 || !Character.isLetter(word.charAt(n - 1))) {
+            return word;
+        }
+        if (word.endsWith("ies") && n > 4) {
+            return word.substring(0, n - 3) + "y";
+        }
+        if (word.endsWith("sses")) {
+            word = word.substring(0, n - 2);
+        } else if (word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is")) {
+            word = word.substring(0, n - 1);
+        }
+        n = word.length();
+        if (word.endsWith("ing") && n > 6) {
+            return word.substring(0, n - 3);
+        }
+        if (word.endsWith("ed") && n > 5) {
+            return word.substring(0, n - 2);
+        }
+        if (word.endsWith("e") && n > 4) {
+            return word.substring(0, n - 1);
+        }
+        return word;
+    }
+
+    /**
+     * @param query free text; the order of the words does not matter
+     * @param k maximum number of hits
+     * @return at most {@code k} terms that contain at least one word of the query, best first
+     */
+    public List<Hit> search(String query, int k) {
+        if (query == null || k <= 0) {
+            return List.of();
+        }
+        Set<String> queryWords = new LinkedHashSet<>(tokenize(query));
+        double[] score = scores.get();
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        int n = termIds.length;
+        for (String word : queryWords) {
+            int w = Arrays.binarySearch(words, word);
+            if (w < 0) continue;
+            int[] docs = postingDocs[w];
+            int[] counts = postingCounts[w];
+            double idf = Math.log(1.0 + (n - docs.length + 0.5) / (docs.length + 0.5));
+            for (int i = 0; i < docs.length; i++) {
+                int d = docs[i];
+                double tf = counts[i];
+                double norm = K1 * (1.0 - B + B * docLengths[d] / avgDocLength);
+                if (score[d] == 0.0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, 2 * touchedCount);
+                    }
+                    touched[touchedCount++] = d;
+                }
+                score[d] += idf * tf * (K1 + 1.0) / (tf + norm);
+            }
+        }
+        // the head of the heap is the worst of the k best documents so far; ties go to the lower document number
+        PriorityQueue<Integer> heap = new PriorityQueue<>(k + 1, (d1, d2) -> score[d1] != score[d2]
+                ? Double.compare(score[d1], score[d2]) : Integer.compare(d2, d1));
+        for (int i = 0; i < touchedCount; i++) {
+            heap.add(touched[i]);
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+        Hit[] hits = new Hit[heap.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            int d = heap.poll();
+            hits[i] = new Hit(termIds[d], score[d]);
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            score[touched[i]] = 0.0;
+        }
+        return Arrays.asList(hits);
+    }
+
+    /** @return number of indexed terms */
+    public int size() {
+        return termIds.length;
+    }
+
+    /** @return number of distinct words */
+    public int wordCount() {
+        return words.length;
+    }
+
+    /**
+     * Write the documents and postings, e.g., to a cache (see {@link #read(DataInput)}).
+     * @param out destination
+     * @throws IOException if the index could not be written
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(termIds.length);
+        for (int d = 0; d < termIds.length; d++) {
+            out.writeUTF(termIds[d].getValue());
+            out.writeInt(docLengths[d]);
+        }
+        out.writeInt(words.length);
+        for (int w = 0; w < words.length; w++) {
+            out.writeUTF(words[w]);
+            out.writeInt(postingDocs[w].length);
+            for (int i = 0; i < postingDocs[w].length; i++) {
+                out.writeInt(postingDocs[w][i]);
+                out.writeInt(postingCounts[w][i]);
+            }
+        }
+    }
+
+    /**
+     * @param in source written by {@link #write(DataOutput)}
+     * @return the index
+     * @throws IOException if the index could not be read
+     */
+    public static TermTextIndex read(DataInput in) throws IOException {
+        int n = in.readInt();
+        TermId[] termIds = new TermId[n];
+        int[] docLengths = new int[n];
+        for (int d = 0; d < n; d++) {
+            termIds[d] = TermId.of(in.readUTF());
+            docLengths[d] = in.readInt();
+        }
+        int wordCount = in.readInt();
+        String[] words = new String[wordCount];
+        int[][] postingDocs = new int[wordCount][];
+        int[][] postingCounts = new int[wordCount][];
+        for (int w = 0; w < wordCount; w++) {
+            words[w] = in.readUTF();
+            int m = in.readInt();
+            postingDocs[w] = new int[m];
+            postingCounts[w] = new int[m];
+            for (int i = 0; i < m; i++) {
+                postingDocs[w][i] = in.readInt();
+                postingCounts[w][i] = in.readInt();
+            }
+        }
+        return new TermTextIndex(termIds, docLengths, words, postingDocs, postingCounts);
+    }
+}
@@ -0,0 +1,267 @@
+package org.monarchinitiative.hpoworkbench.similarity;
+
+import org.monarchinitiative.hpoworkbench.annotation.InformationContent;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rank the diseases of {@code phenotype.hpoa} by their phenotypic similarity to a set of query terms (e.g., the
+ * HPO terms of a patient). The score of a disease is the average over the query terms of the best match among the
+ * disease terms, where a match is the Resnik similarity weighted by the frequency of the disease annotation, so
+ * that a feature seen in 5% of the patients with a disease contributes less than an obligate one.
+ * <p>
+ * The terms and frequencies of each disease are precomputed as primitive arrays. Since the Resnik similarity of two
+ * terms cannot exceed the IC of either term, we also precompute for each disease an upper bound of its score for
+ * any query term. Diseases whose bound is below the lowest score currently in the top-k heap are skipped, and the
+ * scoring of a disease is abandoned as soon as the remaining query terms can no longer lift it into the top k.
+ * For a single query, the diseases can be split into partitions that are scored in parallel and share the pruning
+ * threshold; for batches of queries, it is better to rank each query on one thread and process the queries in
+ * parallel.
+ * </p>
+ * This class is thread-safe.
+ */
+public final class DiseaseRanker {
+
+    /** Slack for rounding errors when comparing upper bounds with actual scores. */
+    private static final double EPSILON = 1e-12;
+
+    private final MicaTable micaTable;
+    private final InformationContent informationContent;
+    private final CompactOntologyGraph graph;
+    /** Diseases with at least one phenotypic abnormality. */
+    private final HpoDisease[] diseases;
+    /** Graph indices of the phenotypic abnormalities of each disease. */
+    private final int[][] terms;
+    /** Frequency of each annotation in {@link #terms} (1 if unknown). */
+    private final double[][] weights;
+    /** Largest frequency of any annotation of each disease. */
+    private final double[] maxWeight;
+    /** Largest product of IC and frequency of any annotation of each disease. */
+    private final double[] maxWeightedIc;
+
+    private DiseaseRanker(MicaTable micaTable, HpoDisease[] diseases, int[][] terms, double[][] weights,
+                          double[] maxWeight, double[] maxWeightedIc) {
+        this.micaTable = micaTable;
+        this.informationContent = micaTable.getInformationContent();
+        this.graph = micaTable.getGraph();
+        this.diseases = diseases;
+        this.terms = terms;
+        this.weights = weights;
+        this.maxWeight = maxWeight;
+        this.maxWeightedIc = maxWeightedIc;
+    }
+
+    /**
+     * @param index annotation index
+     * @param micaTable MICA table built from the information content of the same index
+     * @return ranker for all diseases of the index that have phenotypic abnormalities
+     */
+    public static DiseaseRanker of(TermDiseaseIndex index, MicaTable micaTable) {
+        CompactOntologyGraph graph = micaTable.getGraph();
+        InformationContent ic = micaTable.getInformationContent();
+        List<HpoDisease> diseaseList = new ArrayList<>();
+        List<int[]> termList = new ArrayList<>();
+        List<double[]> weightList = new ArrayList<>();
+        for (int d = 0; d < index.diseaseCount(); d++) {
+            HpoDisease disease = index.disease(d);
+            List<HpoAnnotation> annotations = disease.getPhenotypicAbnormalities();
+            int[] t = new int[annotations.size()];
+            double[] w = new double[annotations.size()];
+            int n = 0;
+            for (HpoAnnotation annotation : annotations) {
+                int v = graph.index(annotation.getTermId());
+                if (v < 0) continue;
+                double frequency = annotation.getFrequency();
+                t[n] = v;
+                w[n] = frequency > 0.0 && frequency <= 1.0 ? frequency : 1.0;
+                n++;
+            }
+            if (n > 0) {
+                diseaseList.add(disease);
+                termList.add(Arrays.copyOf(t, n));
+                weightList.add(Arrays.copyOf(w, n));
+            }
+        }
+        int n = diseaseList.size();
+        int[][] terms = termList.toArray(new int[0][]);
+        double[][] weights = weightList.toArray(new double[0][]);
+        double[] maxWeight = new double[n];
+        double[] maxWeightedIc = new double[n];
+        for (int d = 0; d < n; d++) {
+            for (int i = 0; i < terms[d].length; i++) {
+                maxWeight[d] = Math.max(maxWeight[d], weights[d][i]);
+                maxWeightedIc[d] = Math.max(maxWeightedIc[d], weights[d][i] * ic.ic(terms[d][i]));
+            }
+        }
+        return new DiseaseRanker(micaTable, diseaseList.toArray(new HpoDisease[0]), terms, weights, maxWeight,
+                maxWeightedIc);
+    }
+
+    /** One disease of a ranking. */
+    public static final class RankedDisease {
+        private final HpoDisease disease;
+        private final double score;
+
+        RankedDisease(HpoDisease disease, double score) {
+            this.disease = disease;
+            this.score = score;
+        }
+
+        public HpoDisease getDisease() {
+            return disease;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /** @return number of diseases that can be ranked */
+    public int diseaseCount() {
+        return diseases.length;
+    }
+
+    /** @return the sorted, distinct graph indices of the query terms; unknown terms are skipped */
+    public int[] profile(Collection<TermId> query) {
+        return PhenotypeSimilarity.profile(graph, query);
+    }
+
+    /** @return the k diseases with the highest score for the query terms */
+    public List<RankedDisease> rank(Collection<TermId> query, int k) {
+        return rank(profile(query), k);
+    }
+
+    /**
+     * Rank all diseases on the calling thread.
+     * @param query profile from {@link #profile(Collection)}
+     * @param k number of diseases to return
+     * @return the k diseases with the highest score, best first
+     */
+    public List<RankedDisease> rank(int[] query, int k) {
+        if (query.length == 0 || k < 1) {
+            return List.of();
+        }
+        return toList(rankRange(query, 0, diseases.length, k, null));
+    }
+
+    /**
+     * Rank the diseases in parallel, split into the given number of partitions.
+     * @param query profile from {@link #profile(Collection)}
+     * @param k number of diseases to return
+     * @return the k diseases with the highest score, best first
+     */
+    public List<RankedDisease> rank(int[] query, int k, ExecutorService executor, int partitions)
+            throws InterruptedException, ExecutionException {
+        if (query.length == 0 || k < 1) {
+            return List.of();
+        }
+        int p = Math.max(1, Math.min(partitions, diseases.length));
+        // best lower bound for the k'th score found by any partition; scores are never negative, so the bits of
+        // the doubles can be compared as longs
+        AtomicLong sharedThreshold = new AtomicLong(Double.doubleToLongBits(0.0));
+        List<Callable<TopK>> tasks = new ArrayList<>(p);
+        for (int i = 0; i < p; i++) {
+            int from = (int) ((long) diseases.length * i / p);
+            int to = (int) ((long) diseases.length * (i + 1) / p);
+            tasks.add(() -> rankRange(query, from, to, k, sharedThreshold));
+        }
+        TopK merged = new TopK(k);
+        for (Future<TopK> future : executor.invokeAll(tasks)) {
+            merged.addAll(future.get());
+        }
+        return toList(merged);
+    }
+
+    /** @return the frequency-weighted best-match average of the query with the disease */
+    public double score(int[] query, int diseaseIdx) {
+        if (query.length == 0) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        for (int q : query) {
+            sum += bestMatch(q, diseaseIdx);
+        }
+        return sum / query.length;
+    }
+
+    private double bestMatch(int q, int d) {
+        int[] t = terms[d];
+        double[] w = weights[d];
+        double best = 0.0;
+        for (int i = 0; i < t.length; i++) {
+            double s = micaTable.resnik(q, t[i]) * w[i];
+            if (s > best) best = s;
+        }
+        return best;
+    }
+
+    private TopK rankRange(int[] query, int from, int to, int k, AtomicLong sharedThreshold) {
+        TopK heap = new TopK(k);
+        int n = query.length;
+        double[] queryIc = new double[n];
+        for (int i = 0; i < n; i++) {
+            queryIc[i] = informationContent.ic(query[i]);
+        }
+        double[] bounds = new double[n];
+        for (int d = from; d < to; d++) {
+            double threshold = heap.threshold();
+            if (sharedThreshold != null) {
+                threshold = Math.max(threshold, Double.longBitsToDouble(sharedThreshold.get()));
+            }
+            // upper bound of the sum of the best matches: resnik(q, t) * w <= min(IC(q) * w, IC(t) * w)
+            double bound = 0.0;
+            for (int i = 0; i < n; i++) {
+                bounds[i] = Math.min(queryIc[i] * maxWeight[d], maxWeightedIc[d]);
+                bound += bounds[i];
+            }
+            if (bound / n < threshold - EPSILON) {
+                continue;
+            }
+            double sum = 0.0;
+            double remaining = bound;
+            boolean pruned = false;
+            for (int i = 0; i < n; i++) {
+                remaining -= bounds[i];
+                sum += bestMatch(query[i], d);
+                if ((sum + remaining) / n < threshold - EPSILON) {
+                    pruned = true;
+                    break;
+                }
+            }
+            if (pruned) {
+                continue;
+            }
+            heap.offer(d, sum / n);
+            if (sharedThreshold != null && heap.isFull()) {
+                long bits = Double.doubleToLongBits(heap.threshold());
+                sharedThreshold.accumulateAndGet(bits, Math::max);
+            }
+        }
+        return heap;
+    }
+
+    private List<RankedDisease> toList(TopK heap) {
+        int[] ids = new int[heap.size()];
+        double[] scores = new double[heap.size()];
+        heap.drainSorted(ids, scores);
+        List<RankedDisease> ranking = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            ranking.add(new RankedDisease(diseases[ids[i]], scores[i]));
+        }
+        return ranking;
+    }
+
+    public CompactOntologyGraph getGraph() {
+        return graph;
+    }
+}
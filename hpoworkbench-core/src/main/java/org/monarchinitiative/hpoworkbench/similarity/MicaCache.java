@@ -0,0 +1,144 @@
+package org.monarchinitiative.hpoworkbench.similarity;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Bounded, thread-safe cache from term pairs to the index of their most informative common ancestor. The pairs are
+ * packed into one {@code long} and stored in open-addressed hash tables (linear probing), one per stripe, so that
+ * no objects are allocated per entry. Each stripe is guarded by its own {@link StampedLock}; lookups use an
+ * optimistic read and only take the read lock if a writer interfered. A stripe that reaches its capacity is
+ * cleared, which is cheap and good enough since the values can always be recomputed.
+ */
+final class MicaCache {
+
+    private static final int STRIPE_BITS = 6;
+    private static final long EMPTY = -1L;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    /** @param capacity maximum number of pairs kept in the cache (all stripes together) */
+    MicaCache(int capacity) {
+        int perStripe = Math.max(16, capacity >> STRIPE_BITS);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /** @return key for the unordered pair of term indices {a, b} */
+    static long pack(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /** @return the cached value for the key, or -1 if there is none */
+    int get(long key) {
+        long h = mix(key);
+        Stripe stripe = stripes[(int) (h >>> (64 - STRIPE_BITS))];
+        long stamp = stripe.lock.tryOptimisticRead();
+        int value = stripe.find(key, h);
+        if (!stripe.lock.validate(stamp)) {
+            stamp = stripe.lock.readLock();
+            try {
+                value = stripe.find(key, h);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    void put(long key, int value) {
+        long h = mix(key);
+        Stripe stripe = stripes[(int) (h >>> (64 - STRIPE_BITS))];
+        long stamp = stripe.lock.writeLock();
+        try {
+            stripe.insert(key, h, value);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    private static final class Stripe {
+        private final StampedLock lock = new StampedLock();
+        private final int maxSize;
+        private long[] keys;
+        private int[] values;
+        private int size = 0;
+
+        Stripe(int maxSize) {
+            this.maxSize = maxSize;
+            allocate(16);
+        }
+
+        private void allocate(int capacity) {
+            long[] k = new long[capacity];
+            Arrays.fill(k, EMPTY);
+            values = new int[capacity];
+            keys = k;
+        }
+
+        /** May be called without holding the lock, so the arrays are read once and the probe is bounded. */
+        int find(long key, long h) {
+            long[] k = keys;
+            int[] v = values;
+            if (k.length != v.length) {
+                return -1;
+            }
+            int mask = k.length - 1;
+            int i = (int) h & mask;
+            for (int probe = 0; probe < k.length; probe++) {
+                long current = k[i];
+                if (current == key) return v[i];
+                if (current == EMPTY) return -1;
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        void insert(long key, long h, int value) {
+            if (size >= maxSize) {
+                allocate(16);
+                size = 0;
+            } else if (2 * (size + 1) > keys.length) {
+                rehash(2 * keys.length);
+            }
+            int mask = keys.length - 1;
+            int i = (int) h & mask;
+            while (keys[i] != EMPTY) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            values[i] = value;
+            keys[i] = key;
+            size++;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            long[] k = new long[capacity];
+            int[] v = new int[capacity];
+            Arrays.fill(k, EMPTY);
+            int mask = capacity - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == EMPTY) continue;
+                int i = (int) mix(oldKeys[j]) & mask;
+                while (k[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                k[i] = oldKeys[j];
+                v[i] = oldValues[j];
+            }
+            values = v;
+            keys = k;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.monarchinitiative.hpoworkbench.similarity;
+
+import org.monarchinitiative.hpoworkbench.annotation.InformationContent;
+import org.monarchinitiative.hpoworkbench.graph.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.Arrays;
+
+/**
+ * Semantic similarity of pairs of HPO terms based on the information content (IC) of their most informative common
+ * ancestor (MICA). For every term we precompute the list of its ancestors (including itself) sorted by decreasing
+ * IC. The MICA of two terms is then the first entry of the shorter list that is also an ancestor of the other term,
+ * which is found with a few binary searches in the {@link AncestorClosure} and without allocating any objects.
+ * Optionally, the results are kept in a bounded, striped cache keyed by the packed pair of term indices, which pays
+ * off when the same pairs are queried repeatedly, e.g., when comparing the same query against many diseases.
+ * <p>
+ * The following similarity measures are provided:
+ * </p>
+ * <ul>
+ *     <li>Resnik: IC(MICA)</li>
+ *     <li>Lin: 2 IC(MICA) / (IC(a) + IC(b))</li>
+ *     <li>Jiang-Conrath: 1 / (1 + IC(a) + IC(b) - 2 IC(MICA))</li>
+ * </ul>
+ * This class is thread-safe.
+ */
+public final class MicaTable {
+
+    /** Default number of term pairs that are kept in the cache. */
+    public static final int DEFAULT_CACHE_CAPACITY = 1 << 20;
+
+    private final InformationContent informationContent;
+    private final AncestorClosure closure;
+    private final CompactOntologyGraph graph;
+    /** The ancestors of term i are byIc[offsets[i]] ... byIc[offsets[i+1]-1], in order of decreasing IC. */
+    private final int[] offsets;
+    private final int[] byIc;
+    /** Cache of MICA indices, or null if caching is disabled. */
+    private final MicaCache cache;
+
+    private MicaTable(InformationContent informationContent, AncestorClosure closure, int[] offsets, int[] byIc,
+                      MicaCache cache) {
+        this.informationContent = informationContent;
+        this.closure = closure;
+        this.graph = closure.getGraph();
+        this.offsets = offsets;
+        this.byIc = byIc;
+        this.cache = cache;
+    }
+
+    /** @return MICA table for the graph of the information content, with a cache of the default size */
+    public static MicaTable of(InformationContent ic) {
+        return of(ic, AncestorClosure.of(ic.getGraph()), DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param ic information content of all terms
+     * @param closure ancestor closure of the same graph as {@code ic}
+     * @param cacheCapacity maximum number of term pairs to cache, or 0 to compute every MICA on demand
+     * @return MICA table
+     */
+    public static MicaTable of(InformationContent ic, AncestorClosure closure, int cacheCapacity) {
+        if (ic.getGraph() != closure.getGraph()) {
+            throw new IllegalArgumentException("Information content and ancestor closure must use the same graph");
+        }
+        int n = closure.getGraph().size();
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] = offsets[v] + closure.ancestorCount(v);
+        }
+        int[] byIc = new int[offsets[n]];
+        Integer[] scratch = new Integer[0];
+        for (int v = 0; v < n; v++) {
+            int len = closure.ancestorCount(v);
+            if (scratch.length < len) {
+                scratch = new Integer[Math.max(len, 2 * scratch.length)];
+            }
+            for (int k = 0; k < len; k++) {
+                scratch[k] = closure.ancestor(v, k);
+            }
+            // decreasing IC, ties broken by index so that the MICA is deterministic
+            Arrays.sort(scratch, 0, len, (x, y) -> {
+                int c = Double.compare(ic.ic(y), ic.ic(x));
+                return c != 0 ? c : Integer.compare(x, y);
+            });
+            for (int k = 0; k < len; k++) {
+                byIc[offsets[v] + k] = scratch[k];
+            }
+        }
+        MicaCache cache = cacheCapacity > 0 ? new MicaCache(cacheCapacity) : null;
+        return new MicaTable(ic, closure, offsets, byIc, cache);
+    }
+
+    /** @return index of the most informative common ancestor of the terms with the indices a and b */
+    public int mica(int a, int b) {
+        if (a == b) {
+            return a;
+        }
+        if (cache == null) {
+            return computeMica(a, b);
+        }
+        long key = MicaCache.pack(a, b);
+        int mica = cache.get(key);
+        if (mica < 0) {
+            mica = computeMica(a, b);
+            cache.put(key, mica);
+        }
+        return mica;
+    }
+
+    private int computeMica(int a, int b) {
+        int x = a, y = b;
+        if (offsets[a + 1] - offsets[a] > offsets[b + 1] - offsets[b]) {
+            x = b;
+            y = a;
+        }
+        for (int k = offsets[x]; k < offsets[x + 1]; k++) {
+            int c = byIc[k];
+            if (closure.isAncestorOrSelf(c, y)) {
+                return c;
+            }
+        }
+        // only reached if the terms are in different components of the graph
+        return graph.root();
+    }
+
+    /** @return Resnik similarity, i.e., the IC of the MICA of the terms with the indices a and b */
+    public double resnik(int a, int b) {
+        return informationContent.ic(mica(a, b));
+    }
+
+    /** @return Lin similarity of the terms with the indices a and b, between 0 and 1 */
+    public double lin(int a, int b) {
+        double denominator = informationContent.ic(a) + informationContent.ic(b);
+        if (denominator == 0.0) {
+            // both terms are annotated to every disease and cannot be told apart
+            return 1.0;
+        }
+        return 2.0 * resnik(a, b) / denominator;
+    }
+
+    /** @return Jiang-Conrath similarity of the terms with the indices a and b, between 0 and 1 */
+    public double jiangConrath(int a, int b) {
+        double distance = informationContent.ic(a) + informationContent.ic(b) - 2.0 * resnik(a, b);
+        return 1.0 / (1.0 + Math.max(0.0, distance));
+    }
+
+    /** @return Resnik similarity of the terms, or 0 if one of them is not part of the ontology */
+    public double resnik(TermId a, TermId b) {
+        int x = graph.index(a);
+        int y = graph.index(b);
+        return x < 0 || y < 0 ? 0.0 : resnik(x, y);
+    }
+
+    /** @return Lin similarity of the terms, or 0 if one of them is not part of the ontology */
+    public double lin(TermId a, TermId b) {
+        int x = graph.index(a);
+        int y = graph.index(b);
+        return x < 0 || y < 0 ? 0.0 : lin(x, y);
+    }
+
+    /** @return Jiang-Conrath similarity of the terms, or 0 if one of them is not part of the ontology */
+    public double jiangConrath(TermId a, TermId b) {
+        int x = graph.index(a);
+        int y = graph.index(b);
+        return x < 0 || y < 0 ? 0.0 : jiangConrath(x, y);
+    }
+
+    /** @return the MICA of the terms, or null if one of them is not part of the ontology */
+    public TermId mica(TermId a, TermId b) {
+        int x = graph.index(a);
+        int y = graph.index(b);
+        return x < 0 || y < 0 ? null : graph.termId(mica(x, y));
+    }
+
+    public InformationContent getInformationContent() {
+        return informationContent;
+    }
+
+    public CompactOntologyGraph getGraph() {
+        return graph;
+    }
+}
@@ -0,0 +1,135 @@
+package org.monarchinitiative.hpoworkbench.similarity;
+
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Similarity of two sets of HPO terms (e.g., the phenotypic abnormalities of two diseases) by the best-match average
+ * (BMA): each term of one set is matched with the most similar term of the other set, and the similarities of the
+ * best matches are averaged. Term sets are represented as sorted arrays of graph indices ("profiles"), so that
+ * scoring two diseases does not allocate anything but one small array.
+ * This class is thread-safe.
+ */
+public final class PhenotypeSimilarity {
+
+    /** Similarity measure used for pairs of terms, see {@link MicaTable}. */
+    public enum Measure {RESNIK, LIN, JIANG_CONRATH}
+
+    private static final int[] EMPTY_PROFILE = new int[0];
+
+    private final MicaTable micaTable;
+    private final CompactOntologyGraph graph;
+    private final Measure measure;
+
+    public PhenotypeSimilarity(MicaTable micaTable, Measure measure) {
+        this.micaTable = micaTable;
+        this.graph = micaTable.getGraph();
+        this.measure = measure;
+    }
+
+    /** @return the sorted, distinct graph indices of the terms; terms that are not part of the ontology are skipped */
+    public int[] profile(Collection<TermId> terms) {
+        return profile(graph, terms);
+    }
+
+    static int[] profile(CompactOntologyGraph graph, Collection<TermId> terms) {
+        if (terms.isEmpty()) {
+            return EMPTY_PROFILE;
+        }
+        int[] profile = new int[terms.size()];
+        int n = 0;
+        for (TermId tid : terms) {
+            int v = graph.index(tid);
+            if (v >= 0) {
+                profile[n++] = v;
+            }
+        }
+        Arrays.sort(profile, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || profile[distinct - 1] != profile[i]) {
+                profile[distinct++] = profile[i];
+            }
+        }
+        return Arrays.copyOf(profile, distinct);
+    }
+
+    /** @return profile of the phenotypic abnormalities of the disease */
+    public int[] profile(HpoDisease disease) {
+        List<TermId> terms = new ArrayList<>(disease.getPhenotypicAbnormalities().size());
+        for (HpoAnnotation annotation : disease.getPhenotypicAbnormalities()) {
+            terms.add(annotation.getTermId());
+        }
+        return profile(terms);
+    }
+
+    /** @return similarity of the terms with the graph indices a and b according to {@link #measure} */
+    public double termSimilarity(int a, int b) {
+        return switch (measure) {
+            case RESNIK -> micaTable.resnik(a, b);
+            case LIN -> micaTable.lin(a, b);
+            case JIANG_CONRATH -> micaTable.jiangConrath(a, b);
+        };
+    }
+
+    /**
+     * @return the average over the terms of {@code query} of the similarity to the best matching term of
+     * {@code target}, or 0 if one of the profiles is empty
+     */
+    public double bestMatchAverageAsymmetric(int[] query, int[] target) {
+        if (query.length == 0 || target.length == 0) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        for (int a : query) {
+            double best = 0.0;
+            for (int b : target) {
+                best = Math.max(best, termSimilarity(a, b));
+            }
+            sum += best;
+        }
+        return sum / query.length;
+    }
+
+    /**
+     * Symmetric best-match average, i.e., the mean of the best-match averages in both directions. Each pair of
+     * terms is scored only once.
+     * @return symmetric best-match average, or 0 if one of the profiles is empty
+     */
+    public double bestMatchAverage(int[] first, int[] second) {
+        if (first.length == 0 || second.length == 0) {
+            return 0.0;
+        }
+        double[] columnBest = new double[second.length];
+        double rowSum = 0.0;
+        for (int a : first) {
+            double best = 0.0;
+            for (int j = 0; j < second.length; j++) {
+                double s = termSimilarity(a, second[j]);
+                if (s > best) best = s;
+                if (s > columnBest[j]) columnBest[j] = s;
+            }
+            rowSum += best;
+        }
+        double columnSum = 0.0;
+        for (double s : columnBest) {
+            columnSum += s;
+        }
+        return 0.5 * (rowSum / first.length + columnSum / second.length);
+    }
+
+    public Measure getMeasure() {
+        return measure;
+    }
+
+    public CompactOntologyGraph getGraph() {
+        return graph;
+    }
+}
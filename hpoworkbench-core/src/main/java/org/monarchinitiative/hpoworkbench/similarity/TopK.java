@@ -0,0 +1,93 @@
+package org.monarchinitiative.hpoworkbench.similarity;
+
+/**
+ * Bounded min-heap of the k best (index, score) pairs seen so far, stored in two primitive arrays. Ties are broken
+ * in favour of the smaller index, so that the result does not depend on the order in which the pairs are offered.
+ * Not thread-safe.
+ */
+final class TopK {
+    private final int[] ids;
+    private final double[] scores;
+    private int size = 0;
+
+    TopK(int k) {
+        ids = new int[k];
+        scores = new double[k];
+    }
+
+    /** @return true if (id1, s1) ranks below (id2, s2) */
+    static boolean worse(int id1, double s1, int id2, double s2) {
+        return s1 < s2 || (s1 == s2 && id1 > id2);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == ids.length;
+    }
+
+    /** @return the lowest score in the heap, or negative infinity if the heap is not yet full */
+    double threshold() {
+        return isFull() ? scores[0] : Double.NEGATIVE_INFINITY;
+    }
+
+    void offer(int id, double score) {
+        if (size < ids.length) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!worse(id, score, ids[parent], scores[parent])) break;
+                ids[i] = ids[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        } else if (worse(ids[0], scores[0], id, score)) {
+            siftDown(id, score, size);
+        }
+    }
+
+    /** Offer all entries of the other heap to this heap. */
+    void addAll(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.scores[i]);
+        }
+    }
+
+    /** Place (id, score) at the root and restore the heap property for the first n entries. */
+    private void siftDown(int id, double score, int n) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) break;
+            if (child + 1 < n && worse(ids[child + 1], scores[child + 1], ids[child], scores[child])) {
+                child++;
+            }
+            if (!worse(ids[child], scores[child], id, score)) break;
+            ids[i] = ids[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        ids[i] = id;
+        scores[i] = score;
+    }
+
+    /**
+     * Copy the entries in order of decreasing score to the arrays, which must have room for {@link #size()}
+     * entries. The heap is empty afterwards.
+     */
+    void drainSorted(int[] sortedIds, double[] sortedScores) {
+        for (int pos = size - 1; pos >= 0; pos--) {
+            // the root is the worst remaining entry
+            sortedIds[pos] = ids[0];
+            sortedScores[pos] = scores[0];
+            if (pos > 0) {
+                siftDown(ids[pos], scores[pos], pos);
+            }
+        }
+        size = 0;
+    }
+}
@@ -0,0 +1,177 @@
+package org.monarchinitiative.hpoworkbench.similarity;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Find the k most similar profiles (e.g., diseases) for each profile of a list, either within the list itself
+ * (all against all) or in a second list. The score matrix is partitioned into square tiles that are processed
+ * concurrently by an {@link Executor}; each tile is scored into a small local buffer and then merged into bounded
+ * per-row heaps, so that only {@code n * k} results are held in memory instead of the full matrix. In the
+ * all-against-all case, the matrix is symmetric and only the tiles on and above the diagonal are computed.
+ * <p>
+ * Results are passed to a {@link NeighbourConsumer} in the order of the rows, one block of rows at a time, as
+ * soon as all tiles that contribute to the block have been scored.
+ * </p>
+ */
+public final class TopKSimilaritySearch {
+
+    /** Receives the neighbours of one row, sorted by decreasing score. */
+    @FunctionalInterface
+    public interface NeighbourConsumer {
+        /**
+         * @param row index of the profile in the list of rows
+         * @param neighbours indices of the neighbours in the list of columns (the rows in the all-against-all case)
+         * @param scores similarity scores of the neighbours
+         */
+        void accept(int row, int[] neighbours, double[] scores) throws IOException;
+    }
+
+    private final PhenotypeSimilarity similarity;
+    private final int k;
+    private final int tileSize;
+
+    /**
+     * @param similarity similarity of two profiles
+     * @param k number of neighbours to report for each row
+     * @param tileSize number of rows and columns of each tile of the score matrix
+     */
+    public TopKSimilaritySearch(PhenotypeSimilarity similarity, int k, int tileSize) {
+        if (k < 1 || tileSize < 1) {
+            throw new IllegalArgumentException("k and the tile size must be positive");
+        }
+        this.similarity = similarity;
+        this.k = k;
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Compare each profile with all other profiles of the same list.
+     * @param profiles profiles from {@link PhenotypeSimilarity#profile}
+     */
+    public void allAgainstAll(int[][] profiles, Executor executor, NeighbourConsumer consumer)
+            throws IOException, InterruptedException, ExecutionException {
+        run(profiles, profiles, true, null, executor, consumer);
+    }
+
+    /** Compare each profile of {@code rows} with all profiles of {@code columns}. */
+    public void rowsAgainstColumns(int[][] rows, int[][] columns, Executor executor, NeighbourConsumer consumer)
+            throws IOException, InterruptedException, ExecutionException {
+        rowsAgainstColumns(rows, columns, null, executor, consumer);
+    }
+
+    /**
+     * Compare each profile of {@code rows} with all profiles of {@code columns} except itself, for lists that share
+     * some of their items.
+     * @param self for each row, the index of the same item in the list of columns (which is not reported as a
+     *             neighbour of the row), or -1 if the item is not one of the columns
+     */
+    public void rowsAgainstColumns(int[][] rows, int[][] columns, int[] self, Executor executor,
+                                   NeighbourConsumer consumer)
+            throws IOException, InterruptedException, ExecutionException {
+        if (self != null && self.length != rows.length) {
+            throw new IllegalArgumentException("Expected one column index per row");
+        }
+        run(rows, columns, false, self, executor, consumer);
+    }
+
+    private void run(int[][] rows, int[][] columns, boolean symmetric, int[] self, Executor executor,
+                     NeighbourConsumer consumer) throws IOException, InterruptedException, ExecutionException {
+        int rowBlocks = (rows.length + tileSize - 1) / tileSize;
+        int columnBlocks = (columns.length + tileSize - 1) / tileSize;
+        TopK[] heaps = new TopK[rows.length];
+        for (int r = 0; r < rows.length; r++) {
+            heaps[r] = new TopK(k);
+        }
+        AtomicInteger[] remaining = new AtomicInteger[rowBlocks];
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Void>[] ready = new CompletableFuture[rowBlocks];
+        for (int b = 0; b < rowBlocks; b++) {
+            // in the symmetric case, block b is touched by the tiles (b, j) for j >= b and (i, b) for i < b
+            remaining[b] = new AtomicInteger(columnBlocks);
+            ready[b] = columns.length == 0 ? CompletableFuture.completedFuture(null) : new CompletableFuture<>();
+        }
+        for (int i = 0; i < rowBlocks; i++) {
+            for (int j = symmetric ? i : 0; j < columnBlocks; j++) {
+                final int rowBlock = i;
+                final int columnBlock = j;
+                executor.execute(() -> {
+                    try {
+                        scoreTile(rows, columns, symmetric, self, rowBlock, columnBlock, heaps);
+                        done(rowBlock, remaining, ready);
+                        if (symmetric && columnBlock != rowBlock) {
+                            done(columnBlock, remaining, ready);
+                        }
+                    } catch (RuntimeException | Error e) {
+                        ready[rowBlock].completeExceptionally(e);
+                        if (symmetric) {
+                            ready[columnBlock].completeExceptionally(e);
+                        }
+                    }
+                });
+            }
+        }
+        for (int b = 0; b < rowBlocks; b++) {
+            ready[b].get();
+            for (int r = b * tileSize; r < Math.min(rows.length, (b + 1) * tileSize); r++) {
+                TopK heap = heaps[r];
+                int[] neighbours = new int[heap.size()];
+                double[] scores = new double[heap.size()];
+                heap.drainSorted(neighbours, scores);
+                consumer.accept(r, neighbours, scores);
+                // the results of this row are no longer needed
+                heaps[r] = null;
+            }
+        }
+    }
+
+    private static void done(int block, AtomicInteger[] remaining, CompletableFuture<Void>[] ready) {
+        if (remaining[block].decrementAndGet() == 0) {
+            ready[block].complete(null);
+        }
+    }
+
+    private void scoreTile(int[][] rows, int[][] columns, boolean symmetric, int[] self, int rowBlock,
+                           int columnBlock, TopK[] heaps) {
+        int r0 = rowBlock * tileSize;
+        int r1 = Math.min(rows.length, r0 + tileSize);
+        int c0 = columnBlock * tileSize;
+        int c1 = Math.min(columns.length, c0 + tileSize);
+        int width = c1 - c0;
+        double[] scores = new double[(r1 - r0) * width];
+        boolean diagonal = symmetric && rowBlock == columnBlock;
+        for (int r = r0; r < r1; r++) {
+            for (int c = diagonal ? r + 1 : c0; c < c1; c++) {
+                double s = similarity.bestMatchAverage(rows[r], columns[c]);
+                scores[(r - r0) * width + (c - c0)] = s;
+                if (diagonal) {
+                    scores[(c - r0) * width + (r - c0)] = s;
+                }
+            }
+        }
+        for (int r = r0; r < r1; r++) {
+            TopK heap = heaps[r];
+            synchronized (heap) {
+                for (int c = c0; c < c1; c++) {
+                    if ((!diagonal || c != r) && (self == null || self[r] != c)) {
+                        heap.offer(c, scores[(r - r0) * width + (c - c0)]);
+                    }
+                }
+            }
+        }
+        if (symmetric && !diagonal) {
+            // the transposed tile (columnBlock, rowBlock) is not computed separately
+            for (int c = c0; c < c1; c++) {
+                TopK heap = heaps[c];
+                synchronized (heap) {
+                    for (int r = r0; r < r1; r++) {
+                        heap.offer(r, scores[(r - r0) * width + (c - c0)]);
+                    }
+                }
+            }
+        }
+    }
+}
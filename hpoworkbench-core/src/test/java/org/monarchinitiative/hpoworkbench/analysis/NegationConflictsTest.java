@@ -0,0 +1,29 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.annotation.AnnotationTestData;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NegationConflictsTest {
+
+    /** ORPHA:3 negates the ear, which does not conflict with its nervous system annotation. */
+    @Test
+    public void testNoConflict() {
+        NegationConflicts conflicts = NegationConflicts.of(AnnotationTestData.index(AnnotationTestData.SMALL_HPOA));
+        assertEquals(0, conflicts.getConflictCount());
+    }
+
+    /** ORPHA:4 negates CNS morphology but is annotated to encephalocele. */
+    @Test
+    public void testConflict() {
+        NegationConflicts conflicts = NegationConflicts.of(AnnotationTestData.index(AnnotationTestData.REDUNDANT_HPOA));
+        assertEquals(1, conflicts.getConflictCount());
+        assertEquals(1, conflicts.getAffectedDiseaseCount());
+        NegationConflicts.Conflict conflict = conflicts.getConflicts().get(0);
+        assertEquals(TermId.of("ORPHA:4"), conflict.getDisease().getDiseaseDatabaseId());
+        assertEquals(TermId.of("HP:0002011"), conflict.getNegatedTerm());
+        assertEquals(TermId.of("HP:0002084"), conflict.getAnnotatedTerm());
+    }
+}
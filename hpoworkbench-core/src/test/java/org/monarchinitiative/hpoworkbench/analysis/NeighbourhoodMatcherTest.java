@@ -0,0 +1,69 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.annotation.AnnotationTestData;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NeighbourhoodMatcherTest {
+
+    private static TermDiseaseIndex index;
+
+    private static final TermId DISEASE_ONE = TermId.of("OMIM:100001");
+    private static final TermId DISEASE_TWO = TermId.of("OMIM:100002");
+    private static final TermId PHENOTYPIC_ABNORMALITY = TermId.of("HP:0000118");
+    private static final TermId NERVOUS_SYSTEM = TermId.of("HP:0000707");
+    private static final TermId NERVOUS_SYSTEM_MORPHOLOGY = TermId.of("HP:0012639");
+    private static final TermId CNS_MORPHOLOGY = TermId.of("HP:0002011");
+    private static final TermId PYRAMIDAL_TRACT = TermId.of("HP:0002062");
+    private static final TermId ENCEPHALOCELE = TermId.of("HP:0002084");
+    private static final TermId EYE = TermId.of("HP:0000478");
+
+    @BeforeAll
+    public static void setup() {
+        index = AnnotationTestData.index(AnnotationTestData.SMALL_HPOA);
+    }
+
+    @Test
+    public void testUpwardMatches() {
+        NeighbourhoodMatcher matcher = NeighbourhoodMatcher.of(index, List.of(DISEASE_ONE), 1, 2);
+        assertEquals(2, matcher.getSourceTermCount());
+        assertEquals(NeighbourhoodMatcher.Relation.EXACT, matcher.match(ENCEPHALOCELE).getRelation());
+        NeighbourhoodMatcher.Match m = matcher.match(CNS_MORPHOLOGY);
+        assertEquals(NeighbourhoodMatcher.Relation.ANCESTOR, m.getRelation());
+        assertEquals(1, m.getDistance());
+        assertEquals(1, m.getSupport());
+        assertEquals(2, matcher.match(NERVOUS_SYSTEM_MORPHOLOGY).getDistance());
+        // three hops away
+        assertNull(matcher.match(NERVOUS_SYSTEM));
+        // siblings do not match
+        assertNull(matcher.match(PYRAMIDAL_TRACT));
+        List<NeighbourhoodMatcher.Match> matches = matcher.match(index.disease(index.diseaseIndex(DISEASE_TWO)));
+        assertEquals(1, matches.size());
+        assertEquals(CNS_MORPHOLOGY, matches.get(0).getTerm());
+    }
+
+    @Test
+    public void testDownwardMatches() {
+        NeighbourhoodMatcher matcher = NeighbourhoodMatcher.of(index, List.of(DISEASE_TWO), 1, 1);
+        NeighbourhoodMatcher.Match m = matcher.match(ENCEPHALOCELE);
+        assertEquals(NeighbourhoodMatcher.Relation.DESCENDANT, m.getRelation());
+        assertEquals(CNS_MORPHOLOGY, m.getSourceTerm());
+        assertEquals(EYE, matcher.match(PHENOTYPIC_ABNORMALITY).getSourceTerm());
+        assertEquals(NeighbourhoodMatcher.Relation.ANCESTOR, matcher.match(NERVOUS_SYSTEM_MORPHOLOGY).getRelation());
+        assertNull(matcher.match(NERVOUS_SYSTEM));
+    }
+
+    @Test
+    public void testMinHitsAndRadius() {
+        assertEquals(0, NeighbourhoodMatcher.of(index, List.of(DISEASE_ONE), 2, 2).getSourceTermCount());
+        NeighbourhoodMatcher matcher = NeighbourhoodMatcher.of(index, List.of(DISEASE_ONE, TermId.of("OMIM:999999")), 1, 0);
+        assertNotNull(matcher.match(ENCEPHALOCELE));
+        assertNull(matcher.match(CNS_MORPHOLOGY));
+    }
+}
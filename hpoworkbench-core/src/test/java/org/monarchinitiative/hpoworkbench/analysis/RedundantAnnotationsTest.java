@@ -0,0 +1,40 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.annotation.AnnotationTestData;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RedundantAnnotationsTest {
+
+    private static final TermId NERVOUS_SYSTEM = TermId.of("HP:0000707");
+    private static final TermId CNS_MORPHOLOGY = TermId.of("HP:0002011");
+    private static final TermId ENCEPHALOCELE = TermId.of("HP:0002084");
+
+    @Test
+    public void testNoRedundancy() {
+        RedundantAnnotations redundant = RedundantAnnotations.of(AnnotationTestData.index(AnnotationTestData.SMALL_HPOA));
+        assertEquals(0, redundant.getRedundantAnnotationCount());
+        assertEquals(0, redundant.getAffectedDiseaseCount());
+    }
+
+    @Test
+    public void testRedundantAnnotations() {
+        RedundantAnnotations redundant = RedundantAnnotations.of(AnnotationTestData.index(AnnotationTestData.REDUNDANT_HPOA));
+        // only OMIM:200001; the NOT annotation of ORPHA:4 is not checked
+        assertEquals(1, redundant.getAffectedDiseaseCount());
+        assertEquals(2, redundant.getRedundantAnnotationCount());
+        for (RedundantAnnotations.Redundancy r : redundant.getRedundancies()) {
+            assertEquals(TermId.of("OMIM:200001"), r.getDisease().getDiseaseDatabaseId());
+            if (r.getRedundantTerm().equals(CNS_MORPHOLOGY)) {
+                assertEquals(List.of(ENCEPHALOCELE), r.getImpliedBy());
+            } else {
+                assertEquals(NERVOUS_SYSTEM, r.getRedundantTerm());
+                assertEquals(2, r.getImpliedBy().size());
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.annotation.AnnotationTestData;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TermCooccurrenceTest {
+
+    private static TermDiseaseIndex index;
+
+    private static final TermId EYE = TermId.of("HP:0000478");
+    private static final TermId CNS_MORPHOLOGY = TermId.of("HP:0002011");
+    private static final TermId ENCEPHALOCELE = TermId.of("HP:0002084");
+    private static final TermId SPINAL_CORD = TermId.of("HP:0002143");
+
+    @BeforeAll
+    public static void setup() {
+        index = AnnotationTestData.index(AnnotationTestData.SMALL_HPOA);
+    }
+
+    @Test
+    public void testDirectPairs() throws Exception {
+        TermCooccurrence cooccurrence = TermCooccurrence.of(index, false);
+        assertEquals(3, cooccurrence.getDiseaseCount());
+        List<TermCooccurrence.Pair> pairs = cooccurrence.topPairs(10, 1, 2);
+        assertEquals(2, pairs.size());
+        for (TermCooccurrence.Pair pair : pairs) {
+            assertEquals(1, pair.getCount());
+            assertEquals(3.0, pair.getLift(), 1e-9);
+        }
+        assertTrue(cooccurrence.topPairs(10, 2, 2).isEmpty());
+    }
+
+    @Test
+    public void testPropagatedPairsSkipAncestors() throws Exception {
+        TermCooccurrence cooccurrence = TermCooccurrence.of(index, true);
+        assertEquals(2, cooccurrence.getTermCount(CNS_MORPHOLOGY));
+        List<TermCooccurrence.Pair> partners = cooccurrence.topPartners(EYE, 10, 1);
+        // the eye co-occurs with three nervous system terms in OMIM:100002
+        assertEquals(3, partners.size());
+        assertEquals(CNS_MORPHOLOGY, partners.get(0).getSecond());
+        assertEquals(1.5, partners.get(0).getLift(), 1e-9);
+        assertEquals(1.0, partners.get(2).getLift(), 1e-9);
+        assertEquals(0.0, partners.get(2).getPmi(), 1e-9);
+        // encephalocele and spinal cord abnormality share their ancestors, which are not reported
+        List<TermCooccurrence.Pair> encephalocele = cooccurrence.topPartners(ENCEPHALOCELE, 10, 1);
+        assertEquals(1, encephalocele.size());
+        assertEquals(SPINAL_CORD, encephalocele.get(0).getSecond());
+
+        // the partner counts agree with the parallel pair counts
+        LongIntCounter pairs = cooccurrence.countPairs(3);
+        assertEquals(cooccurrence.countPairs(1).size(), pairs.size());
+        assertEquals(4, pairs.size());
+        assertEquals(4, cooccurrence.topPairs(10, 1, 3).size());
+    }
+}
@@ -0,0 +1,90 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.annotation.AnnotationTestData;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TermEnrichmentTest {
+
+    private static TermDiseaseIndex index;
+
+    private static final TermId DISEASE_ONE = TermId.of("OMIM:100001");
+    private static final TermId CNS_MORPHOLOGY = TermId.of("HP:0002011");
+    private static final TermId ENCEPHALOCELE = TermId.of("HP:0002084");
+
+    @BeforeAll
+    public static void setup() {
+        index = AnnotationTestData.index(AnnotationTestData.SMALL_HPOA);
+    }
+
+    private static double choose(int n, int k) {
+        double c = 1.0;
+        for (int i = 0; i < k; i++) {
+            c = c * (n - i) / (i + 1);
+        }
+        return c;
+    }
+
+    /** The hypergeometric upper tail must match the sum of the probabilities computed from binomial coefficients. */
+    @Test
+    public void testUpperTail() {
+        TermEnrichment enrichment = TermEnrichment.of(index, TermEnrichment.Correction.NONE);
+        // the log-factorial table goes up to the number of diseases, 3
+        int bigN = 3;
+        for (int bigK = 0; bigK <= bigN; bigK++) {
+            for (int n = 0; n <= bigN; n++) {
+                for (int k = 0; k <= n; k++) {
+                    double expected = 0.0;
+                    for (int i = k; i <= Math.min(n, bigK); i++) {
+                        expected += choose(bigK, i) * choose(bigN - bigK, n - i) / choose(bigN, n);
+                    }
+                    assertEquals(Math.min(1.0, expected), enrichment.upperTail(bigN, bigK, n, k), 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStudySet() throws Exception {
+        TermEnrichment enrichment = TermEnrichment.of(index, TermEnrichment.Correction.NONE);
+        assertEquals(3, enrichment.getPopulationSize());
+        RoaringBitmap study = enrichment.studySet(List.of(DISEASE_ONE, TermId.of("OMIM:999999")));
+        assertEquals(1, study.getCardinality());
+        List<TermEnrichment.Result> results = enrichment.analyze(study, 1);
+        // encephalocele, spinal cord, CNS morphology, nervous system morphology and nervous system
+        assertEquals(5, results.size());
+        assertEquals(ENCEPHALOCELE, results.get(0).getTerm());
+        assertEquals(1.0 / 3, results.get(0).getPValue(), 1e-12);
+        assertEquals(3.0, results.get(0).getFoldEnrichment(), 1e-12);
+        assertEquals(1.0, results.get(0).getBonferroni(), 1e-12);
+        assertEquals(5.0 / 6, results.get(0).getFdr(), 1e-12);
+        assertEquals(CNS_MORPHOLOGY, results.get(2).getTerm());
+        assertEquals(2.0 / 3, results.get(2).getPValue(), 1e-12);
+        List<TermEnrichment.Result> parallel = enrichment.analyze(study, 1, ForkJoinPool.commonPool());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(results.get(i).getTerm(), parallel.get(i).getTerm());
+            assertEquals(results.get(i).getPValue(), parallel.get(i).getPValue(), 1e-15);
+        }
+        assertTrue(enrichment.analyze(study, 2).isEmpty());
+    }
+
+    @Test
+    public void testParentChild() {
+        TermEnrichment enrichment = TermEnrichment.of(index, TermEnrichment.Correction.PARENT_CHILD_UNION);
+        List<TermEnrichment.Result> results = enrichment.analyze(enrichment.studySet(List.of(DISEASE_ONE)), 1);
+        TermEnrichment.Result encephalocele = results.stream()
+                .filter(r -> r.getTerm().equals(ENCEPHALOCELE)).findFirst().orElseThrow();
+        // tested against the two diseases annotated to its parent, CNS morphology
+        assertEquals(2, encephalocele.getPopulationSize());
+        assertEquals(1, encephalocele.getStudySize());
+        assertEquals(0.5, encephalocele.getPValue(), 1e-12);
+    }
+}
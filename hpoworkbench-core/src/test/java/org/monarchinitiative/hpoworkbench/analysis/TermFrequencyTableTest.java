@@ -0,0 +1,82 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.annotation.AnnotationTestData;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TermFrequencyTableTest {
+
+    private static TermFrequencyTable table;
+
+    private static final TermId PHENOTYPIC_ABNORMALITY = TermId.of("HP:0000118");
+    private static final TermId NERVOUS_SYSTEM = TermId.of("HP:0000707");
+    private static final TermId EYE = TermId.of("HP:0000478");
+    private static final TermId CNS_MORPHOLOGY = TermId.of("HP:0002011");
+    private static final TermId ENCEPHALOCELE = TermId.of("HP:0002084");
+    private static final TermId SPINAL_CORD = TermId.of("HP:0002143");
+
+    @BeforeAll
+    public static void setup() {
+        table = TermFrequencyTable.of(AnnotationTestData.index(AnnotationTestData.SMALL_HPOA));
+    }
+
+    @Test
+    public void testCounts() {
+        assertEquals(1, table.getDirectCount(EYE));
+        assertEquals(1, table.getPropagatedCount(EYE));
+        assertEquals(1, table.getDirectCount(CNS_MORPHOLOGY));
+        assertEquals(3, table.getPropagatedCount(CNS_MORPHOLOGY));
+        assertEquals(4, table.getPropagatedCount(NERVOUS_SYSTEM));
+        assertEquals(0, table.getDirectCount(NERVOUS_SYSTEM));
+        // the NOT annotation is not counted
+        assertEquals(5, table.getPropagatedCount(PHENOTYPIC_ABNORMALITY));
+        // annotations without a frequency have a weight of 1
+        assertEquals(5.0, table.get(PHENOTYPIC_ABNORMALITY, TermFrequencyTable.Metric.PROPAGATED_WEIGHTED), 1e-9);
+        assertEquals(0, table.getPropagatedCount(TermId.of("HP:9999999")));
+    }
+
+    @Test
+    public void testTopTerms() {
+        List<TermId> top = table.topTerms(CNS_MORPHOLOGY, 10, TermFrequencyTable.Metric.DIRECT);
+        assertEquals(3, top.size());
+        assertTrue(top.containsAll(List.of(CNS_MORPHOLOGY, ENCEPHALOCELE, SPINAL_CORD)));
+        // with propagated counts, the subtree root comes first
+        top = table.topTerms(NERVOUS_SYSTEM, 2, TermFrequencyTable.Metric.PROPAGATED);
+        assertEquals(2, top.size());
+        assertEquals(NERVOUS_SYSTEM, top.get(0));
+        assertTrue(table.topTerms(EYE, 0, TermFrequencyTable.Metric.DIRECT).isEmpty());
+    }
+
+    /** A table that was written as TSV can be queried without the annotations. */
+    @Test
+    public void testTsvRoundTrip() throws IOException {
+        Ontology ontology = AnnotationTestData.ontology();
+        StringWriter out = new StringWriter();
+        try (PrintWriter writer = new PrintWriter(out)) {
+            table.writeTsv(writer, ontology);
+        }
+        TermFrequencyTable read = TermFrequencyTable.readTsv(new BufferedReader(new StringReader(out.toString())),
+                CompactOntologyGraph.of(ontology));
+        for (TermFrequencyTable.Metric metric : TermFrequencyTable.Metric.values()) {
+            for (int v = 0; v < table.getGraph().size(); v++) {
+                TermId tid = table.getGraph().termId(v);
+                assertEquals(table.get(tid, metric), read.get(tid, metric), tid.getValue());
+            }
+            assertEquals(table.topTerms(NERVOUS_SYSTEM, 3, metric), read.topTerms(NERVOUS_SYSTEM, 3, metric));
+        }
+        assertThrows(IOException.class, () -> TermFrequencyTable.readTsv(
+                new BufferedReader(new StringReader("not a table\n")), CompactOntologyGraph.of(ontology)));
+    }
+}
@@ -0,0 +1,107 @@
+package org.monarchinitiative.hpoworkbench.analysis;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.annotation.AnnotationTestData;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.exception.HPOException;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.hpoworkbench.io.HpoaAnnotationLine.Database;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TermStatisticsTableTest {
+
+    private static Ontology ontology;
+    private static CompactOntologyGraph graph;
+    private static TermStatisticsTable table;
+
+    private static final TermId NERVOUS_SYSTEM = TermId.of("HP:0000707");
+    private static final TermId EYE = TermId.of("HP:0000478");
+
+    @BeforeAll
+    public static void setup() {
+        ontology = AnnotationTestData.ontology();
+        graph = CompactOntologyGraph.of(ontology);
+        table = TermStatisticsTable.of(ontology, AnnotationTestData.index(AnnotationTestData.SMALL_HPOA, graph));
+    }
+
+    @Test
+    public void testSubtreeCountsMatchTraversal() {
+        CompactOntologyGraph.Traversal traversal = graph.newTraversal();
+        for (int v = 0; v < graph.size(); v++) {
+            TermId tid = graph.termId(v);
+            assertEquals(traversal.countDescendants(v), table.getDescendantCount(tid), tid.getValue());
+            int[] synonyms = new int[1];
+            int[] relations = new int[1];
+            traversal.forEachDescendant(v, true, u -> {
+                synonyms[0] += ontology.getTermMap().get(graph.termId(u)).getSynonyms().size();
+                relations[0] += graph.childCount(u);
+            });
+            assertEquals(synonyms[0], table.getSynonymCount(tid), tid.getValue());
+            assertEquals(relations[0], table.getRelationCount(tid), tid.getValue());
+        }
+        assertEquals(12, table.getDescendantCount(NERVOUS_SYSTEM));
+        assertEquals(0, table.getDescendantCount(TermId.of("HP:9999999")));
+    }
+
+    @Test
+    public void testDiseaseCounts() {
+        assertEquals(2, table.getDiseaseCount(NERVOUS_SYSTEM, Database.OMIM));
+        assertEquals(1, table.getDiseaseCount(NERVOUS_SYSTEM, Database.ORPHA));
+        assertEquals(3, table.getDiseaseCount(NERVOUS_SYSTEM));
+        assertEquals(1, table.getDiseaseCount(EYE));
+        // OMIM:100001 has two annotations in the nervous system, OMIM:100002 has one (the other is to the eye)
+        assertEquals(3, table.getSubtreeAnnotationCount(NERVOUS_SYSTEM, Database.OMIM));
+        assertEquals(1, table.getSubtreeAnnotationCount(NERVOUS_SYSTEM, Database.ORPHA));
+        assertEquals(4, table.getAnnotationCount(NERVOUS_SYSTEM, Database.OMIM));
+    }
+
+    /** Only phenotypic abnormalities select a disease, and the subtree annotations do not include the term itself. */
+    @Test
+    public void testCountingRules() {
+        TermId spinalCord = TermId.of("HP:0002143");
+        assertEquals(1, table.getDiseaseCount(spinalCord, Database.OMIM));
+        assertEquals(0, table.getSubtreeAnnotationCount(spinalCord, Database.OMIM));
+        Map<TermId, HpoDisease> diseaseMap = new HashMap<>(AnnotationTestData.diseaseMap(AnnotationTestData.SMALL_HPOA));
+        TermId inheritanceOnly = TermId.of("OMIM:100009");
+        diseaseMap.put(inheritanceOnly, new HpoDisease("Disease nine", inheritanceOnly, List.of(), List.of(spinalCord),
+                List.of(), List.of(), List.of()));
+        TermStatisticsTable withInheritance = TermStatisticsTable.of(ontology, TermDiseaseIndex.of(diseaseMap, graph));
+        assertEquals(2, withInheritance.getDiseaseCount(NERVOUS_SYSTEM, Database.OMIM));
+        assertEquals(4, withInheritance.getAnnotationCount(NERVOUS_SYSTEM, Database.OMIM));
+    }
+
+    /** The annotations that are implied by more specific annotations of the same disease can be left out. */
+    @Test
+    public void testRedundantAnnotationsNotCounted() throws HPOException {
+        TermDiseaseIndex index = AnnotationTestData.index(AnnotationTestData.REDUNDANT_HPOA, graph);
+        TermId root = TermId.of("HP:0000001");
+        // OMIM:200001 has four annotations, two of which are redundant, and OMIM:200002 has two
+        assertEquals(6, TermStatisticsTable.of(ontology, index, null).getAnnotationCount(root, Database.OMIM));
+        TermStatisticsTable table = TermStatisticsTable.of(ontology, index);
+        assertEquals(4, table.getAnnotationCount(root, Database.OMIM));
+        assertEquals(2, table.getAnnotationCount(root, Database.ORPHA));
+        assertEquals(4, new HpoStats(ontology, index).getN_omim_annotations());
+    }
+
+    /** Both ways of building the statistics count the annotations in the same way. */
+    @Test
+    public void testHpoStatsConstructorsAgree() throws HPOException {
+        String hpoa = AnnotationTestData.REDUNDANT_HPOA;
+        HpoStats fromIndex = new HpoStats(ontology, AnnotationTestData.index(hpoa, graph));
+        HpoStats fromFiles = new HpoStats(AnnotationTestData.path("hp-smalltest.obo"), AnnotationTestData.path(hpoa),
+                "HP:0000001");
+        assertEquals(4, fromFiles.getN_omim_annotations());
+        assertEquals(fromIndex.getN_omim_annotations(), fromFiles.getN_omim_annotations());
+        assertEquals(fromIndex.getN_orphanet_annotations(), fromFiles.getN_orphanet_annotations());
+        assertEquals(fromIndex.getN_decipher_annotations(), fromFiles.getN_decipher_annotations());
+    }
+}
@@ -0,0 +1,55 @@
+package org.monarchinitiative.hpoworkbench.annotation;
+
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.Map;
+
+/**
+ * Shared fixture of the tests that need annotated diseases: hp-smalltest.obo (parsed once per test run) and the
+ * disease models and {@link TermDiseaseIndex} of one of the small annotation files in the test resources.
+ */
+public final class AnnotationTestData {
+
+    /** Three diseases: OMIM:100001, OMIM:100002 and ORPHA:3. */
+    public static final String SMALL_HPOA = "small.hpoa";
+    /** Diseases with redundant and contradictory annotations. */
+    public static final String REDUNDANT_HPOA = "redundant.hpoa";
+
+    private static Ontology ontology = null;
+
+    private AnnotationTestData() {
+    }
+
+    /** @return absolute path of a test resource */
+    public static String path(String resource) {
+        return AnnotationTestData.class.getClassLoader().getResource(resource).getFile();
+    }
+
+    /** @return hp-smalltest.obo */
+    public static synchronized Ontology ontology() {
+        if (ontology == null) {
+            ontology = new HPOParser(path("hp-smalltest.obo")).getHPO();
+        }
+        return ontology;
+    }
+
+    /** @return disease models of the given annotation file */
+    public static Map<TermId, HpoDisease> diseaseMap(String hpoa) {
+        return HpoDiseaseAnnotationParser.loadDiseaseMap(path(hpoa), ontology());
+    }
+
+    /** @return index of the diseases of the given annotation file */
+    public static TermDiseaseIndex index(String hpoa) {
+        return index(hpoa, CompactOntologyGraph.of(ontology()));
+    }
+
+    /** @return index of the diseases of the given annotation file over the given graph of hp-smalltest.obo */
+    public static TermDiseaseIndex index(String hpoa, CompactOntologyGraph graph) {
+        return TermDiseaseIndex.of(diseaseMap(hpoa), graph);
+    }
+}
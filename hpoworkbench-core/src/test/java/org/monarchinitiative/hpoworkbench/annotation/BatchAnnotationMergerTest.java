@@ -0,0 +1,67 @@
+package org.monarchinitiative.hpoworkbench.annotation;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchAnnotationMergerTest {
+
+    private static TermDiseaseIndex index;
+    private static BatchAnnotationMerger merger;
+
+    private static final HpoCategoryTable.Category EYE = HpoCategoryTable.CATEGORIES.get(14);
+    private static final HpoCategoryTable.Category NERVOUS_SYSTEM = HpoCategoryTable.CATEGORIES.get(19);
+
+    @BeforeAll
+    public static void setup() {
+        index = AnnotationTestData.index(AnnotationTestData.REDUNDANT_HPOA);
+        merger = BatchAnnotationMerger.of(index);
+    }
+
+    /**
+     * OMIM:200001 (encephalocele, CNS morphology, nervous system, eye) and OMIM:200002 (encephalocele, ataxia).
+     */
+    @Test
+    public void testMerge() {
+        BatchAnnotationMerger.PairMerge merge = merger.merge(new BatchAnnotationMerger.DiseasePair(null,
+                TermId.of("OMIM:200001"), TermId.of("OMIM:200002")));
+        assertEquals(List.of(EYE, NERVOUS_SYSTEM), new ArrayList<>(merge.getMergedCategoryMap().keySet()));
+        CategoryMerge eye = merge.getMergedCategoryMap().get(EYE);
+        assertTrue(eye.onlyDisease1());
+        assertEquals(List.of(TermId.of("HP:0000478")), eye.getDisease1onlyTerms());
+        CategoryMerge nervous = merge.getMergedCategoryMap().get(NERVOUS_SYSTEM);
+        assertEquals(List.of(TermId.of("HP:0002084")), nervous.getCommonTerms());
+        assertTrue(nervous.getD1subclassOfd2().isEmpty());
+        // as in AnnotationMerger, both terms of OMIM:200002 are also subclasses of CNS morphology and nervous system
+        assertEquals(4, nervous.getD2subclassOfd1().size());
+        assertTrue(nervous.getDisease1onlyTerms().isEmpty());
+        assertTrue(nervous.getDisease2onlyTerms().isEmpty());
+    }
+
+    @Test
+    public void testMergeAll() throws Exception {
+        List<BatchAnnotationMerger.DiseasePair> pairs = List.of(
+                new BatchAnnotationMerger.DiseasePair("MONDO:1", TermId.of("OMIM:200002"), TermId.of("ORPHA:4")),
+                new BatchAnnotationMerger.DiseasePair("MONDO:2", TermId.of("OMIM:200001"), TermId.of("ORPHA:999")));
+        List<BatchAnnotationMerger.PairMerge> merges = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        BatchAnnotationMerger.Summary summary = merger.mergeAll(pairs, pool, merges::add);
+        pool.shutdown();
+        assertEquals(2, merges.size());
+        assertEquals("MONDO:1", merges.get(0).getPair().getGroup());
+        assertNull(merges.get(1).getDisease2());
+        assertEquals(2, summary.getPairCount());
+        assertEquals(1, summary.getMissingDiseaseCount());
+        // encephalocele is common to the first pair; ataxia and all terms of OMIM:200001 are unrelated
+        assertEquals(1, summary.getIdenticalCount());
+        assertEquals(0, summary.getSubclassCount());
+        assertEquals(5, summary.getUnrelatedCount());
+        assertEquals(1, summary.getUnrelatedCount(14));
+    }
+}
@@ -0,0 +1,51 @@
+package org.monarchinitiative.hpoworkbench.annotation;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HpoCategoryTableTest {
+
+    private static HpoCategoryTable table;
+
+    private static final HpoCategoryTable.Category EYE = HpoCategoryTable.CATEGORIES.get(14);
+    private static final HpoCategoryTable.Category NERVOUS_SYSTEM = HpoCategoryTable.CATEGORIES.get(19);
+
+    @BeforeAll
+    public static void setup() {
+        ClassLoader classLoader = HpoCategoryTableTest.class.getClassLoader();
+        Ontology ontology = new HPOParser(classLoader.getResource("hp-smalltest.obo").getFile()).getHPO();
+        table = HpoCategoryTable.of(ontology);
+    }
+
+    @Test
+    public void testCategory() {
+        assertEquals("Eye", EYE.getLabel());
+        assertEquals("Nervous System", NERVOUS_SYSTEM.getLabel());
+        assertEquals(19, table.category(TermId.of("HP:0002084")));
+        assertEquals(19, table.category(TermId.of("HP:0000707")));
+        assertEquals(14, table.category(TermId.of("HP:0000478")));
+        assertEquals(HpoCategoryTable.NO_CATEGORY, table.category(TermId.of("HP:0000118")));
+        assertEquals(1 << 19, table.categories(TermId.of("HP:0002084")));
+        assertEquals(0, table.categories(TermId.of("HP:0000118")));
+    }
+
+    /** Terms without a category are dropped, the others keep their order within the category. */
+    @Test
+    public void testCategorize() {
+        List<TermId> tids = List.of(TermId.of("HP:0002143"), TermId.of("HP:0000478"), TermId.of("HP:0000118"),
+                TermId.of("HP:0002084"));
+        HpoCategoryTable.CategorizedTerms catterms = table.categorize(tids);
+        assertEquals(3, catterms.size());
+        assertEquals(List.of(EYE, NERVOUS_SYSTEM), catterms.getActiveCategories());
+        assertEquals(List.of(TermId.of("HP:0000478")), catterms.getTerms(EYE));
+        assertEquals(List.of(TermId.of("HP:0002143"), TermId.of("HP:0002084")), catterms.getTerms(NERVOUS_SYSTEM));
+        assertTrue(catterms.getTerms(HpoCategoryTable.CATEGORIES.get(0)).isEmpty());
+    }
+}
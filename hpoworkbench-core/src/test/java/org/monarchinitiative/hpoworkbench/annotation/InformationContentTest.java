@@ -0,0 +1,36 @@
+package org.monarchinitiative.hpoworkbench.annotation;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InformationContentTest {
+
+    private static TermDiseaseIndex index;
+    private static InformationContent ic;
+
+    @BeforeAll
+    public static void setup() {
+        index = AnnotationTestData.index(AnnotationTestData.SMALL_HPOA);
+        ic = InformationContent.of(index);
+    }
+
+    @Test
+    public void testInformationContent() {
+        assertEquals(3, ic.diseaseCount());
+        assertEquals(Math.log(3), ic.maxIc(), 1e-9);
+        // all three diseases are annotated to a descendent of Abnormality of the nervous system
+        assertEquals(0.0, ic.ic(TermId.of("HP:0000707")), 1e-9);
+        // only OMIM:100002 is annotated to Abnormality of the eye
+        assertEquals(Math.log(3), ic.ic(TermId.of("HP:0000478")), 1e-9);
+        assertEquals(0.0, ic.ic(TermId.of("HP:9999999")));
+        CompactOntologyGraph graph = index.getGraph();
+        for (int v = 0; v < graph.size(); v++) {
+            int n = Math.max(1, index.annotatedDiseases(v).getCardinality());
+            assertEquals(-Math.log(n / 3.0), ic.ic(v), 1e-9, graph.termId(v).getValue());
+        }
+    }
+}
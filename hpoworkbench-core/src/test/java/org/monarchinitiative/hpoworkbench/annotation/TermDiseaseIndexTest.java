@@ -0,0 +1,54 @@
+package org.monarchinitiative.hpoworkbench.annotation;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * small.hpoa has three diseases: OMIM:100001 (Encephalocele, Abnormality of the spinal cord), OMIM:100002
+ * (Abnormality of the eye, Morphological abnormality of the central nervous system) and ORPHA:3 (Abnormal neuron
+ * morphology, NOT Abnormality of the ear).
+ */
+public class TermDiseaseIndexTest {
+
+    private static TermDiseaseIndex index;
+
+    private static final TermId OMIM_1 = TermId.of("OMIM:100001");
+    private static final TermId OMIM_2 = TermId.of("OMIM:100002");
+    private static final TermId ORPHA_3 = TermId.of("ORPHA:3");
+    private static final TermId NERVOUS_SYSTEM = TermId.of("HP:0000707");
+    private static final TermId CNS_MORPHOLOGY = TermId.of("HP:0002011");
+    private static final TermId EYE = TermId.of("HP:0000478");
+
+    @BeforeAll
+    public static void setup() {
+        index = AnnotationTestData.index(AnnotationTestData.SMALL_HPOA);
+    }
+
+    private static List<TermId> ids(RoaringBitmap bitmap) {
+        return index.toDiseaseList(bitmap).stream().map(HpoDisease::getDiseaseDatabaseId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testDirectAndPropagatedAnnotations() {
+        assertEquals(3, index.diseaseCount());
+        assertEquals(List.of(OMIM_2), ids(index.directDiseases(CNS_MORPHOLOGY)));
+        assertEquals(List.of(OMIM_1, OMIM_2), ids(index.annotatedDiseases(CNS_MORPHOLOGY)));
+        assertEquals(List.of(OMIM_1, OMIM_2, ORPHA_3), ids(index.annotatedDiseases(NERVOUS_SYSTEM)));
+        assertEquals(0, index.countAnnotatedDiseases(TermId.of("HP:0000598")));
+    }
+
+    @Test
+    public void testQuery() {
+        assertEquals(List.of(OMIM_1, ORPHA_3), ids(index.query(List.of(NERVOUS_SYSTEM), List.of(EYE))));
+        assertEquals(List.of(OMIM_2), ids(index.query(List.of(NERVOUS_SYSTEM, EYE), List.of())));
+        assertEquals(3, index.query(List.of(), List.of()).getCardinality());
+    }
+}
@@ -0,0 +1,47 @@
+package org.monarchinitiative.hpoworkbench.graph;
+
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm.existsPath;
+
+public class AncestorClosureTest {
+
+    private static Ontology ontology;
+    private static AncestorClosure closure;
+
+    @BeforeAll
+    public static void setup() {
+        ClassLoader classLoader = AncestorClosureTest.class.getClassLoader();
+        String path = classLoader.getResource("hp-smalltest.obo").getFile();
+        ontology = new HPOParser(path).getHPO();
+        closure = AncestorClosure.of(ontology);
+    }
+
+    @Test
+    public void testAgreesWithExistsPath() {
+        for (TermId a : ontology.getNonObsoleteTermIds()) {
+            for (TermId b : ontology.getNonObsoleteTermIds()) {
+                if (a.equals(b)) {
+                    assertTrue(closure.isAncestorOrSelf(a, b));
+                    assertFalse(closure.isAncestor(a, b));
+                } else {
+                    assertEquals(existsPath(ontology, b, a), closure.isAncestor(a, b), a.getValue() + " / " + b.getValue());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAncestorCount() {
+        int encephalocele = closure.getGraph().index(TermId.of("HP:0002084"));
+        assertEquals(6, closure.ancestorCount(encephalocele));
+        assertTrue(closure.isDescendant(TermId.of("HP:0002084"), TermId.of("HP:0000707")));
+        assertFalse(closure.isAncestor(TermId.of("HP:0000707"), TermId.of("HP:9999999")));
+    }
+}
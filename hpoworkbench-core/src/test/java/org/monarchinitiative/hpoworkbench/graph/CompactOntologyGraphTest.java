@@ -0,0 +1,88 @@
+package org.monarchinitiative.hpoworkbench.graph;
+
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactOntologyGraphTest {
+
+    private static Ontology ontology;
+    private static CompactOntologyGraph graph;
+
+    private static final TermId NERVOUS_SYSTEM = TermId.of("HP:0000707");
+    private static final TermId ENCEPHALOCELE = TermId.of("HP:0002084");
+
+    @BeforeAll
+    public static void setup() {
+        ClassLoader classLoader = CompactOntologyGraphTest.class.getClassLoader();
+        String path = classLoader.getResource("hp-smalltest.obo").getFile();
+        ontology = new HPOParser(path).getHPO();
+        graph = CompactOntologyGraph.of(ontology);
+    }
+
+    @Test
+    public void testSize() {
+        assertEquals(ontology.countNonObsoleteTerms(), graph.size());
+        assertEquals(ontology.getRootTermId(), graph.termId(graph.root()));
+        assertEquals(graph.size() - 1, graph.edgeCount());
+    }
+
+    @Test
+    public void testParentsAndChildren() {
+        int idx = graph.index(ENCEPHALOCELE);
+        assertEquals(1, graph.parentCount(idx));
+        assertEquals(TermId.of("HP:0002011"), graph.termId(graph.parent(idx, 0)));
+        assertEquals(0, graph.childCount(idx));
+        int nervous = graph.index(NERVOUS_SYSTEM);
+        assertEquals(OntologyAlgorithm.getChildTerms(ontology, NERVOUS_SYSTEM, false).size(), graph.childCount(nervous));
+    }
+
+    @Test
+    public void testDescendentsMatchPhenol() {
+        Set<TermId> descendents = new HashSet<>();
+        graph.newTraversal().forEachDescendant(graph.index(NERVOUS_SYSTEM), true, i -> descendents.add(graph.termId(i)));
+        assertEquals(OntologyAlgorithm.getDescendents(ontology, NERVOUS_SYSTEM), descendents);
+        assertEquals(12, graph.newTraversal().countDescendants(graph.index(NERVOUS_SYSTEM)));
+    }
+
+    @Test
+    public void testAncestors() {
+        CompactOntologyGraph.Traversal traversal = graph.newTraversal();
+        int idx = graph.index(ENCEPHALOCELE);
+        // Encephalocele, 2011, 12639, 707, 118, 1
+        assertEquals(6, traversal.countAncestors(idx));
+        assertTrue(traversal.isAncestorOrSelf(graph.index(NERVOUS_SYSTEM), idx));
+        assertFalse(traversal.isAncestorOrSelf(idx, graph.index(NERVOUS_SYSTEM)));
+    }
+
+    @Test
+    public void testTopologicalOrder() {
+        int[] position = new int[graph.size()];
+        for (int pos = 0; pos < graph.topologicalOrderLength(); pos++) {
+            position[graph.topologicalOrder(pos)] = pos;
+        }
+        for (int i = 0; i < graph.size(); i++) {
+            for (int k = 0; k < graph.parentCount(i); k++) {
+                assertTrue(position[graph.parent(i, k)] < position[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testIndices() {
+        int[] indices = graph.indices(List.of(NERVOUS_SYSTEM, ENCEPHALOCELE, TermId.of("HP:9999999"), NERVOUS_SYSTEM));
+        int a = graph.index(NERVOUS_SYSTEM);
+        int b = graph.index(ENCEPHALOCELE);
+        assertArrayEquals(new int[]{Math.min(a, b), Math.max(a, b)}, indices);
+    }
+}
@@ -0,0 +1,75 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnnotationIndexCacheTest {
+
+    private static final TermId NERVOUS_SYSTEM = TermId.of("HP:0000707");
+
+    @Test
+    public void testCacheRoundtrip(@TempDir Path tempDir) throws IOException {
+        ClassLoader classLoader = AnnotationIndexCacheTest.class.getClassLoader();
+        File hpoFile = new File(classLoader.getResource("hp-smalltest.obo").getFile());
+        Path hpoa = tempDir.resolve("phenotype.hpoa");
+        Files.copy(new File(classLoader.getResource("small.hpoa").getFile()).toPath(), hpoa);
+        Ontology ontology = new HPOParser(hpoFile.getAbsolutePath()).getHPO();
+
+        TermDiseaseIndex parsed = AnnotationIndexCache.load(hpoFile, hpoa.toFile(), ontology, tempDir.toFile());
+        File cache = AnnotationIndexCache.cacheFileFor(tempDir.toFile());
+        assertTrue(cache.isFile());
+        TermDiseaseIndex cached = AnnotationIndexCache.load(hpoFile, hpoa.toFile(), ontology, tempDir.toFile());
+        assertEquals(parsed.diseaseCount(), cached.diseaseCount());
+        for (int d = 0; d < parsed.diseaseCount(); d++) {
+            HpoDisease expected = parsed.disease(d);
+            HpoDisease actual = cached.disease(d);
+            assertEquals(expected.getDiseaseDatabaseId(), actual.getDiseaseDatabaseId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getPhenotypicAbnormalities(), actual.getPhenotypicAbnormalities());
+            assertEquals(expected.getNegativeAnnotations(), actual.getNegativeAnnotations());
+        }
+        assertEquals(parsed.annotatedDiseases(NERVOUS_SYSTEM), cached.annotatedDiseases(NERVOUS_SYSTEM));
+
+        // a changed annotation file invalidates the cache
+        Files.write(hpoa, Files.readAllLines(hpoa).stream().filter(line -> !line.startsWith("ORPHA")).collect(Collectors.toList()));
+        assertEquals(2, AnnotationIndexCache.load(hpoFile, hpoa.toFile(), ontology, tempDir.toFile()).diseaseCount());
+    }
+
+    /** Every evidence code survives the round trip. */
+    @Test
+    public void testEvidenceCodes(@TempDir Path tempDir) throws IOException {
+        ClassLoader classLoader = AnnotationIndexCacheTest.class.getClassLoader();
+        File hpoFile = new File(classLoader.getResource("hp-smalltest.obo").getFile());
+        Path hpoa = tempDir.resolve("phenotype.hpoa");
+        Files.write(hpoa, Files.readAllLines(new File(classLoader.getResource("small.hpoa").getFile()).toPath()).stream()
+                .map(line -> line.startsWith("OMIM:100002") ? line.replace("\tTAS\t", "\tPCS\t")
+                        : line.startsWith("ORPHA") ? line.replace("\tTAS\t", "\tIEA\t") : line)
+                .collect(Collectors.toList()));
+        Ontology ontology = new HPOParser(hpoFile.getAbsolutePath()).getHPO();
+
+        TermDiseaseIndex parsed = AnnotationIndexCache.load(hpoFile, hpoa.toFile(), ontology, tempDir.toFile());
+        TermDiseaseIndex cached = AnnotationIndexCache.load(hpoFile, hpoa.toFile(), ontology, tempDir.toFile());
+        for (int d = 0; d < parsed.diseaseCount(); d++) {
+            for (int i = 0; i < parsed.disease(d).getPhenotypicAbnormalities().size(); i++) {
+                HpoAnnotation expected = parsed.disease(d).getPhenotypicAbnormalities().get(i);
+                HpoAnnotation actual = cached.disease(d).getPhenotypicAbnormalities().get(i);
+                assertEquals(expected.getEvidenceCodeString(), actual.getEvidenceCodeString());
+            }
+        }
+        assertTrue(cached.disease(cached.diseaseIndex(TermId.of("ORPHA:3"))).getPhenotypicAbnormalities().get(0).isIEA());
+        assertTrue(cached.disease(cached.diseaseIndex(TermId.of("OMIM:100002"))).getPhenotypicAbnormalities().get(0).isPCS());
+    }
+}
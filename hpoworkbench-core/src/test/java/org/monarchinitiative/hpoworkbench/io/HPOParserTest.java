@@ -3,13 +3,26 @@ package org.monarchinitiative.hpoworkbench.io;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
 
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class HPOParserTest {
 
     private static String hpoSmallOboFilePath=null;
 
+    @TempDir
+    Path tempDir;
+
     @BeforeEach
     public void setup() {
         ClassLoader classLoader = HPOParserTest.class.getClassLoader();
@@ -22,4 +35,28 @@ public class HPOParserTest {
         assertNotNull(parser);
     }
 
+    @Test
+    public void testSnapshotRoundtrip() throws IOException {
+        File obo = tempDir.resolve("hp-smalltest.obo").toFile();
+        Files.copy(new File(hpoSmallOboFilePath).toPath(), obo.toPath());
+        Ontology expected = OntologyLoader.loadOntology(obo);
+        // the first load parses the OBO file and writes the snapshot, the second one reads the snapshot
+        assertNotNull(new HPOParser(obo.getAbsolutePath()).getHPO());
+        assertTrue(OntologySnapshot.snapshotFileFor(obo).isFile());
+        Ontology actual = new HPOParser(obo.getAbsolutePath()).getHPO();
+        assertEquals(expected.getTermMap().keySet(), actual.getTermMap().keySet());
+        assertEquals(expected.getNonObsoleteTermIds(), actual.getNonObsoleteTermIds());
+        assertEquals(expected.getRootTermId(), actual.getRootTermId());
+        assertEquals(expected.getRelationMap().size(), actual.getRelationMap().size());
+        for (Term term : expected.getTerms()) {
+            Term other = actual.getTermMap().get(term.getId());
+            assertEquals(term.getName(), other.getName());
+            assertEquals(term.getDefinition(), other.getDefinition());
+            assertEquals(term.getAltTermIds(), other.getAltTermIds());
+            assertEquals(term.getSynonyms().size(), other.getSynonyms().size());
+            TermId tid = term.getId();
+            assertEquals(expected.getGraph().incomingEdgesOf(tid).size(), actual.getGraph().incomingEdgesOf(tid).size());
+        }
+    }
+
 }
@@ -0,0 +1,78 @@
+package org.monarchinitiative.hpoworkbench.io;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HpoaStreamParserTest {
+
+    private static HpoaStreamParser parser;
+
+    @BeforeAll
+    public static void setup() {
+        ClassLoader classLoader = HpoaStreamParserTest.class.getClassLoader();
+        parser = new HpoaStreamParser(classLoader.getResource("small.hpoa").getFile());
+    }
+
+    @Test
+    public void testSequentialParse() throws IOException {
+        List<String> hpoIds = new ArrayList<>();
+        int[] negated = new int[1];
+        long n = parser.parse(line -> {
+            hpoIds.add(line.hpoTermId().getValue());
+            if (line.isNegated()) negated[0]++;
+        });
+        assertEquals(6, n);
+        assertEquals(List.of("HP:0002084", "HP:0002143", "HP:0000478", "HP:0002011", "HP:0012757", "HP:0000598"), hpoIds);
+        assertEquals(1, negated[0]);
+    }
+
+    @Test
+    public void testLineAccessors() throws IOException {
+        List<String> descriptions = new ArrayList<>();
+        parser.parse(line -> descriptions.add(String.format("%s %s %d %d %c",
+                line.database(), line.diseaseId().getValue(), line.diseaseIdAsInt(), line.hpoIdAsInt(), line.aspect())));
+        assertEquals("OMIM OMIM:100001 100001 2084 P", descriptions.get(0));
+        assertEquals("ORPHA ORPHA:3 3 12757 P", descriptions.get(4));
+    }
+
+    /** Collects the HPO ids of one chunk. */
+    private static class Collector implements Consumer<HpoaAnnotationLine> {
+        final List<Integer> ids = new ArrayList<>();
+        @Override
+        public void accept(HpoaAnnotationLine line) {
+            ids.add(line.hpoIdAsInt());
+        }
+    }
+
+    @Test
+    public void testParallelParseMatchesSequential(@TempDir Path tempDir) throws IOException {
+        // large enough to be split into several chunks
+        StringBuilder sb = new StringBuilder("#description: test\n");
+        for (int i = 0; i < 20_000; i++) {
+            sb.append(String.format("OMIM:%d\tDisease %d\t\tHP:%07d\tOMIM:%d\tTAS\t\t\t\t\tP\tHPO:probinson[2021-01-01]\n",
+                    i, i, i % 5000, i));
+        }
+        Path hpoa = tempDir.resolve("large.hpoa");
+        Files.writeString(hpoa, sb.toString());
+        HpoaStreamParser largeParser = new HpoaStreamParser(hpoa.toFile());
+        List<Integer> expected = new ArrayList<>();
+        assertEquals(20_000, largeParser.parse(line -> expected.add(line.hpoIdAsInt())));
+        List<Collector> collectors = largeParser.parseParallel(Collector::new, 4);
+        assertEquals(4, collectors.size());
+        List<Integer> actual = new ArrayList<>();
+        for (Collector c : collectors) {
+            actual.addAll(c.ids);
+        }
+        assertEquals(expected, actual);
+    }
+}
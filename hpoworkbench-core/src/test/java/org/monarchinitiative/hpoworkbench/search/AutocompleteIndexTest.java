@@ -0,0 +1,46 @@
+package org.monarchinitiative.hpoworkbench.search;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AutocompleteIndexTest {
+
+    private static Ontology ontology;
+
+    @BeforeAll
+    public static void setup() {
+        ClassLoader classLoader = AutocompleteIndexTest.class.getClassLoader();
+        ontology = new HPOParser(classLoader.getResource("hp-smalltest.obo").getFile()).getHPO();
+    }
+
+    @Test
+    public void testPrefixOfWord() {
+        AutocompleteIndex index = AutocompleteIndex.of(ontology);
+        List<AutocompleteIndex.Suggestion> suggestions = index.complete("ENCEPH", 10);
+        assertEquals("Encephalocele", suggestions.get(0).getText());
+        assertEquals(TermId.of("HP:0002084"), suggestions.get(0).getTermId());
+        // a word in the middle of the label
+        assertTrue(index.complete("eye", 10).stream().anyMatch(s -> s.getTermId().equals(TermId.of("HP:0000478"))));
+        assertEquals(TermId.of("HP:0000478"), index.complete("HP:000047", 10).get(0).getTermId());
+        assertEquals(TermId.of("HP:0000478"), index.complete("0000478", 10).get(0).getTermId());
+        assertTrue(index.complete("xyzzy", 10).isEmpty());
+    }
+
+    /** Each term is suggested once, at most k terms are returned, and popular terms come first. */
+    @Test
+    public void testRanking() {
+        AutocompleteIndex index = AutocompleteIndex.of(ontology,
+                tid -> tid.equals(TermId.of("HP:0000707")) ? 10 : 0);
+        List<AutocompleteIndex.Suggestion> suggestions = index.complete("a", 3);
+        assertEquals(3, suggestions.size());
+        assertEquals(TermId.of("HP:0000707"), suggestions.get(0).getTermId());
+        assertEquals(3, suggestions.stream().map(AutocompleteIndex.Suggestion::getTermId).distinct().count());
+    }
+}
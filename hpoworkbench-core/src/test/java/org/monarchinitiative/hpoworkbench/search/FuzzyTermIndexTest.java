@@ -0,0 +1,52 @@
+package org.monarchinitiative.hpoworkbench.search;
+
+import me.xdrop.fuzzywuzzy.FuzzySearch;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+import org.monarchinitiative.phenol.ontology.data.TermSynonym;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FuzzyTermIndexTest {
+
+    private static Ontology ontology;
+    private static FuzzyTermIndex index;
+
+    @BeforeAll
+    public static void setup() {
+        ClassLoader classLoader = FuzzyTermIndexTest.class.getClassLoader();
+        ontology = new HPOParser(classLoader.getResource("hp-smalltest.obo").getFile()).getHPO();
+        index = FuzzyTermIndex.of(ontology);
+    }
+
+    @Test
+    public void testExactLabel() {
+        FuzzyTermIndex.Match match = index.bestMatch("ENCEPHALOCELE", 10);
+        assertEquals(TermId.of("HP:0002084"), match.getTermId());
+        assertEquals(100, match.getScore());
+        assertEquals("Encephalocele", match.getText());
+        assertNull(index.bestMatch("  ", 10));
+        // at least the candidate with the most shared trigrams is scored
+        assertEquals(match.getTermId(), index.bestMatch("ENCEPHALOCELE", 0).getTermId());
+    }
+
+    /** With enough candidates, the result is the same as scoring every label and synonym. */
+    @Test
+    public void testSameAsExhaustiveSearch() {
+        String query = "abnormality of the eyes";
+        int max = 0;
+        for (Term term : ontology.getTerms()) {
+            max = Math.max(max, FuzzySearch.partialRatio(query, term.getName().toLowerCase()));
+            for (TermSynonym tsyn : term.getSynonyms()) {
+                max = Math.max(max, FuzzySearch.partialRatio(query, tsyn.getValue().toLowerCase()));
+            }
+        }
+        FuzzyTermIndex.Match match = index.bestMatch(query, index.size());
+        assertEquals(max, match.getScore());
+        assertEquals(match.getScore(), index.bestMatch(query, 5).getScore());
+    }
+}
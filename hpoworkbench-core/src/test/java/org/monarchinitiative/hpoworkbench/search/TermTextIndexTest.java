@@ -0,0 +1,81 @@
+package org.monarchinitiative.hpoworkbench.search;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.monarchinitiative.hpoworkbench.io.HPOParser;
+import org.monarchinitiative.hpoworkbench.io.TermTextIndexCache;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TermTextIndexTest {
+
+    private static final TermId EYE = TermId.of("HP:0000478");
+    private static final TermId PYRAMIDAL_TRACT = TermId.of("HP:0002062");
+
+    private static File hpoFile;
+    private static Ontology ontology;
+    private static TermTextIndex index;
+
+    @BeforeAll
+    public static void setup() {
+        ClassLoader classLoader = TermTextIndexTest.class.getClassLoader();
+        hpoFile = new File(classLoader.getResource("hp-smalltest.obo").getFile());
+        ontology = new HPOParser(hpoFile.getAbsolutePath()).getHPO();
+        index = TermTextIndex.of(ontology);
+    }
+
+    @Test
+    public void testStem() {
+        assertEquals("abnormality", TermTextIndex.stem("abnormalities"));
+        assertEquals(TermTextIndex.stem("seizure"), TermTextIndex.stem("seizures"));
+        assertEquals("stenosis", TermTextIndex.stem("stenosis"));
+        assertEquals("hear", TermTextIndex.stem("hearing"));
+        assertEquals("find", TermTextIndex.stem("findings"));
+        assertEquals("find", TermTextIndex.stem("finding"));
+        assertEquals("delay", TermTextIndex.stem("delayed"));
+        assertEquals(TermTextIndex.stem("increase"), TermTextIndex.stem("increased"));
+        assertEquals(TermTextIndex.stem("increase"), TermTextIndex.stem("increasing"));
+        assertEquals(TermTextIndex.stem("decrease"), TermTextIndex.stem("decreased"));
+        assertEquals(TermTextIndex.stem("enlarge"), TermTextIndex.stem("enlarged"));
+        assertEquals(List.of("abnormality", "eye"), TermTextIndex.tokenize("Abnormalities of the EYES"));
+    }
+
+    @Test
+    public void testSearch() {
+        List<TermTextIndex.Hit> hits = index.search("eyes", 5);
+        assertEquals(EYE, hits.get(0).getTermId());
+        assertEquals(PYRAMIDAL_TRACT, index.search("pyramidal tracts", 5).get(0).getTermId());
+        // the label counts more than the text of the definition and comment
+        assertEquals(PYRAMIDAL_TRACT, index.search("corticospinal", 5).get(0).getTermId());
+        // cross-references are searchable
+        assertEquals(EYE, index.search("C0015393", 5).get(0).getTermId());
+        assertTrue(index.search("of the", 5).isEmpty());
+        List<TermTextIndex.Hit> nervous = index.search("nervous system", 3);
+        assertEquals(3, nervous.size());
+        assertTrue(nervous.get(0).getScore() >= nervous.get(1).getScore());
+        assertTrue(nervous.get(1).getScore() >= nervous.get(2).getScore());
+    }
+
+    @Test
+    public void testCacheRoundtrip(@TempDir Path tempDir) {
+        TermTextIndex built = TermTextIndexCache.load(hpoFile, ontology, tempDir.toFile());
+        assertTrue(TermTextIndexCache.cacheFileFor(tempDir.toFile()).isFile());
+        TermTextIndex cached = TermTextIndexCache.load(hpoFile, ontology, tempDir.toFile());
+        assertEquals(built.size(), cached.size());
+        assertEquals(built.wordCount(), cached.wordCount());
+        List<TermTextIndex.Hit> expected = built.search("abnormality of the nervous system", 10);
+        List<TermTextIndex.Hit> actual = cached.search("abnormality of the nervous system", 10);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTermId(), actual.get(i).getTermId());
+            assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.monarchinitiative.hpoworkbench.similarity;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.annotation.AnnotationTestData;
+import org.monarchinitiative.hpoworkbench.annotation.InformationContent;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiseaseRankerTest {
+
+    private static CompactOntologyGraph graph;
+    private static DiseaseRanker ranker;
+
+    @BeforeAll
+    public static void setup() {
+        graph = CompactOntologyGraph.of(AnnotationTestData.ontology());
+        TermDiseaseIndex index = AnnotationTestData.index(AnnotationTestData.SMALL_HPOA, graph);
+        ranker = DiseaseRanker.of(index, MicaTable.of(InformationContent.of(index)));
+    }
+
+    @Test
+    public void testEyeQueryRanksDiseaseTwoFirst() {
+        List<DiseaseRanker.RankedDisease> ranking = ranker.rank(List.of(TermId.of("HP:0000478")), 3);
+        assertEquals(3, ranking.size());
+        assertEquals(TermId.of("OMIM:100002"), ranking.get(0).getDisease().getDiseaseDatabaseId());
+        assertEquals(Math.log(3), ranking.get(0).getScore(), 1e-9);
+        assertTrue(ranker.rank(List.of(TermId.of("HP:9999999")), 3).isEmpty());
+    }
+
+    @Test
+    public void testPrunedRankingMatchesExhaustiveScores() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (int a = 0; a < graph.size(); a++) {
+                for (int b = a; b < graph.size(); b += 3) {
+                    int[] query = a == b ? new int[]{a} : new int[]{a, b};
+                    for (int k = 1; k <= ranker.diseaseCount(); k++) {
+                        List<DiseaseRanker.RankedDisease> sequential = ranker.rank(query, k);
+                        List<DiseaseRanker.RankedDisease> parallel = ranker.rank(query, k, executor, 3);
+                        assertEquals(k, sequential.size());
+                        double[] all = new double[ranker.diseaseCount()];
+                        for (int d = 0; d < all.length; d++) {
+                            all[d] = ranker.score(query, d);
+                        }
+                        Arrays.sort(all);
+                        for (int i = 0; i < k; i++) {
+                            assertEquals(all[all.length - 1 - i], sequential.get(i).getScore(), 1e-9);
+                            assertSame(sequential.get(i).getDisease(), parallel.get(i).getDisease());
+                        }
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
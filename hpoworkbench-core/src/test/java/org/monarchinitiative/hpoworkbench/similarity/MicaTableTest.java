@@ -0,0 +1,66 @@
+package org.monarchinitiative.hpoworkbench.similarity;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.annotation.AnnotationTestData;
+import org.monarchinitiative.hpoworkbench.annotation.InformationContent;
+import org.monarchinitiative.hpoworkbench.graph.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MicaTableTest {
+
+    private static CompactOntologyGraph graph;
+    private static AncestorClosure closure;
+    private static InformationContent ic;
+
+    @BeforeAll
+    public static void setup() {
+        graph = CompactOntologyGraph.of(AnnotationTestData.ontology());
+        closure = AncestorClosure.of(graph);
+        ic = InformationContent.of(AnnotationTestData.index(AnnotationTestData.SMALL_HPOA, graph));
+    }
+
+    /** IC of the MICA by intersecting the ancestor sets. */
+    private static double bruteForceResnik(int a, int b) {
+        double best = 0.0;
+        for (int c = 0; c < graph.size(); c++) {
+            if (closure.isAncestorOrSelf(c, a) && closure.isAncestorOrSelf(c, b)) {
+                best = Math.max(best, ic.ic(c));
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void testResnikMatchesBruteForce() {
+        // no cache, a small cache and the default cache must all give the same results
+        for (MicaTable table : new MicaTable[]{MicaTable.of(ic, closure, 0), MicaTable.of(ic, closure, 64), MicaTable.of(ic)}) {
+            for (int round = 0; round < 2; round++) {
+                for (int a = 0; a < graph.size(); a++) {
+                    for (int b = 0; b < graph.size(); b++) {
+                        assertEquals(bruteForceResnik(a, b), table.resnik(a, b), 1e-9);
+                        assertEquals(table.mica(a, b), table.mica(b, a));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSimilarityMeasures() {
+        MicaTable table = MicaTable.of(ic);
+        TermId eye = TermId.of("HP:0000478");
+        TermId nervousSystem = TermId.of("HP:0000707");
+        assertEquals(1.0, table.lin(eye, eye), 1e-9);
+        assertEquals(1.0, table.jiangConrath(eye, eye), 1e-9);
+        assertEquals(Math.log(3), table.resnik(eye, eye), 1e-9);
+        // all diseases are annotated to the nervous system, so its IC and thus the similarity to the eye is zero
+        assertEquals(0.0, table.resnik(eye, nervousSystem), 1e-9);
+        assertEquals(0.0, table.lin(eye, nervousSystem), 1e-9);
+        assertEquals(0.0, table.resnik(eye, TermId.of("HP:9999999")));
+        assertNull(table.mica(eye, TermId.of("HP:9999999")));
+    }
+}
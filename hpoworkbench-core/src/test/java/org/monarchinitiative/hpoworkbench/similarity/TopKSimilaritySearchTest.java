@@ -0,0 +1,88 @@
+package org.monarchinitiative.hpoworkbench.similarity;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.monarchinitiative.hpoworkbench.annotation.AnnotationTestData;
+import org.monarchinitiative.hpoworkbench.annotation.InformationContent;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopKSimilaritySearchTest {
+
+    private static CompactOntologyGraph graph;
+    private static PhenotypeSimilarity similarity;
+
+    @BeforeAll
+    public static void setup() {
+        graph = CompactOntologyGraph.of(AnnotationTestData.ontology());
+        InformationContent ic = InformationContent.of(AnnotationTestData.index(AnnotationTestData.SMALL_HPOA, graph));
+        similarity = new PhenotypeSimilarity(MicaTable.of(ic), PhenotypeSimilarity.Measure.RESNIK);
+    }
+
+    @Test
+    public void testBestMatchAverage() {
+        int[] eye = similarity.profile(List.of(TermId.of("HP:0000478")));
+        int[] both = similarity.profile(List.of(TermId.of("HP:0000478"), TermId.of("HP:0000707"), TermId.of("HP:0000478")));
+        assertEquals(2, both.length);
+        assertEquals(Math.log(3), similarity.bestMatchAverage(eye, eye), 1e-9);
+        // eye -> eye: log 3; nervous system -> eye: 0; so the average is (log 3 + 0.5 log 3) / 2
+        assertEquals(0.75 * Math.log(3), similarity.bestMatchAverage(eye, both), 1e-9);
+        assertEquals(0.5 * Math.log(3), similarity.bestMatchAverageAsymmetric(both, eye), 1e-9);
+        assertEquals(0.0, similarity.bestMatchAverage(eye, new int[0]));
+    }
+
+    @Test
+    public void testTiledSearchMatchesBruteForce() throws Exception {
+        // every single term and every pair of neighbouring terms as a profile
+        List<int[]> list = new ArrayList<>();
+        for (int v = 0; v < graph.size(); v++) {
+            list.add(new int[]{v});
+            if (v + 1 < graph.size()) list.add(new int[]{v, v + 1});
+        }
+        int[][] profiles = list.toArray(new int[0][]);
+        int k = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Map<Integer, int[]> results = new HashMap<>();
+            List<Integer> order = new ArrayList<>();
+            new TopKSimilaritySearch(similarity, k, 5).allAgainstAll(profiles, executor, (row, neighbours, scores) -> {
+                order.add(row);
+                results.put(row, neighbours);
+                for (int i = 0; i < neighbours.length; i++) {
+                    assertEquals(similarity.bestMatchAverage(profiles[row], profiles[neighbours[i]]), scores[i], 1e-9);
+                }
+            });
+            assertEquals(profiles.length, order.size());
+            for (int r = 0; r < profiles.length; r++) {
+                assertEquals(r, order.get(r));
+                assertArrayEquals(bruteForce(profiles[r], profiles, r, k), results.get(r));
+            }
+            new TopKSimilaritySearch(similarity, k, 3).rowsAgainstColumns(profiles, profiles, executor,
+                    (row, neighbours, scores) -> assertArrayEquals(bruteForce(profiles[row], profiles, -1, k), neighbours));
+            // the rows are the first profiles, which are not their own neighbours
+            int[][] rows = Arrays.copyOf(profiles, 7);
+            int[] self = {0, 1, 2, 3, 4, 5, 6};
+            new TopKSimilaritySearch(similarity, k, 3).rowsAgainstColumns(rows, profiles, self, executor,
+                    (row, neighbours, scores) -> assertArrayEquals(bruteForce(rows[row], profiles, row, k), neighbours));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** @return the k best columns for the query by sorting all scores, ties broken by the smaller index */
+    private static int[] bruteForce(int[] query, int[][] columns, int exclude, int k) {
+        List<Integer> candidates = new ArrayList<>();
+        for (int c = 0; c < columns.length; c++) {
+            if (c != exclude) candidates.add(c);
+        }
+        candidates.sort(Comparator.comparingDouble((Integer c) -> -similarity.bestMatchAverage(query, columns[c]))
+                .thenComparingInt(c -> c));
+        return candidates.subList(0, Math.min(k, candidates.size())).stream().mapToInt(Integer::intValue).toArray();
+    }
+}
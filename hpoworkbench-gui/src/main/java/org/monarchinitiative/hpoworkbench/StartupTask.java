@@ -1,15 +1,26 @@
 package org.monarchinitiative.hpoworkbench;
 
 import javafx.concurrent.Task;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.graph.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoResource;
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoaResource;
-import org.monarchinitiative.phenol.io.OntologyLoader;
+import org.monarchinitiative.hpoworkbench.io.AnnotationIndexCache;
+import org.monarchinitiative.hpoworkbench.io.OntologySnapshot;
+import org.monarchinitiative.hpoworkbench.io.TermTextIndexCache;
+import org.monarchinitiative.hpoworkbench.search.TermTextIndex;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.DoubleAdder;
 
 /**
  * Initialization of the GUI resources is being done here. Information from {@link Properties} parsed from
@@ -35,10 +46,19 @@ public final class StartupTask extends Task<Void> {
 
 
     private final Properties pgProperties;
+    /** Directory with the cached annotation index (~/.hpowb). */
+    private final File hpoWorkbenchDir;
+    /** Runs the stages of the startup pipeline that do not depend on each other. */
+    private final Executor executor;
+    /** Sum of the progress shares of the stages that have finished. */
+    private final DoubleAdder progress = new DoubleAdder();
 
     public StartupTask(OptionalHpoResource hpoResource,
-                       OptionalHpoaResource hpoaResource, Properties pgProperties) {
+                       OptionalHpoaResource hpoaResource, Properties pgProperties, File hpoWorkbenchDir,
+                       Executor executor) {
         this.pgProperties = pgProperties;
+        this.hpoWorkbenchDir = hpoWorkbenchDir;
+        this.executor = executor;
         this.optionalHpoResource = hpoResource;
         this.optionalHpoaResource = hpoaResource;
     }
@@ -48,12 +68,18 @@ public final class StartupTask extends Task<Void> {
      *
      * <ul>
      * <li>HPO ontology</li>
+     * <li>phenotype.hpoa annotations</li>
      * </ul>
+     * The stages run as a small pipeline. Checksumming phenotype.hpoa and decoding the cached disease models
+     * ({@link AnnotationIndexCache#prepare}) do not need the ontology and run while hp.json is being loaded. Once the ontology is available, building the ancestor closure and the full-text
+     * index (or reading the latter from {@link TermTextIndexCache}) and resolving the annotations against the
+     * ontology run concurrently. The results are published on the thread of this task, the ontology before the
+     * annotations.
      *
      * @return nothing
      */
     @Override
-    protected Void call() {
+    protected Void call() throws Exception {
         /*
         This is the place where we deserialize HPO ontology if we know path to the OBO file.
         We need to make sure to set ontology property of `optionalResources` to null if loading fails.
@@ -63,42 +89,61 @@ public final class StartupTask extends Task<Void> {
         String hpoJsonPath = pgProperties.getProperty(OptionalHpoResource.HP_JSON_PATH_PROPERTY);
         String hpoAnnotPath = pgProperties.getProperty(OptionalHpoaResource.HPOA_PATH_PROPERTY);
         updateProgress(0.02, 1);
-        if (hpoJsonPath != null) {
-            final File hpJsonFile = new File(hpoJsonPath);
+        final File hpJsonFile = hpoJsonPath == null ? null : new File(hpoJsonPath);
+        final File hpoAnnotFile = hpoAnnotPath == null ? null : new File(hpoAnnotPath);
+        FutureTask<AnnotationIndexCache.Pending> annotationStage = null;
+        if (hpJsonFile != null && hpJsonFile.isFile() && hpoAnnotFile != null && hpoAnnotFile.isFile()) {
+            annotationStage = fork(() -> {
+                AnnotationIndexCache.Pending pending = AnnotationIndexCache.prepare(hpJsonFile, hpoAnnotFile, hpoWorkbenchDir);
+                advance(0.15, pending.isCached() ? "Read cached annotations" : "Read phenotype.hpoa");
+                return pending;
+            });
+        }
+        Ontology ontology = null;
+        if (hpJsonFile != null) {
             updateProgress(0.03, 1);
             if (hpJsonFile.isFile()) {
                 String msg = String.format("Loading HPO from file '%s'", hpJsonFile.getAbsoluteFile());
                 updateMessage(msg);
                 LOGGER.info(msg);
-                final Ontology ontology = OntologyLoader.loadOntology(hpJsonFile);
-                updateProgress(0.25, 1);
-                optionalHpoResource.setOntology(ontology);
-                updateProgress(0.30, 1);
-                updateMessage("HPO loaded");
+                ontology = OntologySnapshot.load(hpJsonFile);
+                advance(0.30, "HPO loaded");
                 LOGGER.info("Loaded HPO ontology");
-            } else {
-                optionalHpoResource.setOntology(null);
             }
         } else {
             String msg = "Need to set path to hp.json file (See edit menu)";
             updateMessage(msg);
             LOGGER.info(msg);
+        }
+        final Ontology hpo = ontology;
+        // the CPU work runs concurrently, but the resources are published on this thread in a fixed order (ontology
+        // first, then annotations), since the GUI listens to both of them
+        FutureTask<AncestorClosure> closureStage = null;
+        FutureTask<TermTextIndex> textIndexStage = null;
+        FutureTask<TermDiseaseIndex> resolveStage = null;
+        if (hpo != null) {
+            closureStage = fork(() -> AncestorClosure.of(CompactOntologyGraph.of(hpo)));
+            textIndexStage = fork(() -> TermTextIndexCache.load(hpJsonFile, hpo, hpoWorkbenchDir));
+            if (hpoAnnotFile != null && annotationStage != null) {
+                final FutureTask<AnnotationIndexCache.Pending> prepared = annotationStage;
+                resolveStage = fork(() -> join(prepared).resolve(hpo));
+            }
+        }
+        if (hpo == null) {
             optionalHpoResource.setOntology(null);
+        } else {
+            optionalHpoResource.setOntology(hpo, join(closureStage), join(textIndexStage));
+            advance(0.15, "Built ancestor closure and full-text index");
         }
-        if (hpoAnnotPath != null) {
+        if (hpoAnnotFile != null) {
             String msg = String.format("Loading phenotype.hpoa from file '%s'", hpoAnnotPath);
             updateMessage(msg);
             LOGGER.info(msg);
-            final File hpoAnnotFile = new File(hpoAnnotPath);
-            updateProgress(0.71, 1);
-            if (optionalHpoResource.getOntology() == null) {
+            if (hpo == null) {
                 LOGGER.error("Cannot load phenotype.hpoa because HP ontology not loaded");
-                return null;
-            }
-            if (hpoAnnotFile.isFile()) {
-                updateProgress(0.78, 1);
-                this.optionalHpoaResource.setAnnotationResources(hpoAnnotPath, optionalHpoResource.getOntology());
-                updateProgress(0.95, 1);
+            } else if (resolveStage != null) {
+                this.optionalHpoaResource.setAnnotationIndex(join(resolveStage));
+                advance(0.35, "Loaded annotation maps");
                 LOGGER.info("Loaded annotation maps");
             } else {
                 optionalHpoaResource.initializeWithEmptyMaps();
@@ -110,4 +155,31 @@ public final class StartupTask extends Task<Void> {
         updateProgress(1, 1);
         return null;
     }
+
+    /** Start a stage on the executor. */
+    private <T> FutureTask<T> fork(Callable<T> stage) {
+        FutureTask<T> future = new FutureTask<>(stage);
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * Wait for a stage to complete. If no thread of the executor has picked up the stage yet (e.g., because the
+     * pool is busy or has a single thread that runs this task), the stage is run on the current thread instead.
+     */
+    private static <T> T join(FutureTask<T> future) throws Exception {
+        future.run();
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /** Stages finish in an arbitrary order, so each one adds its share to the total progress. */
+    private void advance(double share, String message) {
+        progress.add(share);
+        updateProgress(Math.min(0.99, 0.02 + progress.sum()), 1);
+        updateMessage(message);
+    }
 }
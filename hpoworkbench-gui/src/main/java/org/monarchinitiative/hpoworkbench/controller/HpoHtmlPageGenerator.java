@@ -2,11 +2,13 @@ package org.monarchinitiative.hpoworkbench.controller;
 
 
 import com.google.common.collect.ImmutableList;
+import org.monarchinitiative.hpoworkbench.analysis.TermStatisticsTable;
+import org.monarchinitiative.hpoworkbench.annotation.HpoCategoryTable;
+import org.monarchinitiative.hpoworkbench.annotation.InformationContent;
+import org.monarchinitiative.hpoworkbench.io.HpoaAnnotationLine.Database;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoOnset;
-import org.monarchinitiative.phenol.annotations.formats.hpo.category.HpoCategory;
-import org.monarchinitiative.phenol.annotations.formats.hpo.category.HpoCategoryMap;
 import org.monarchinitiative.phenol.ontology.data.*;
 
 import java.util.HashMap;
@@ -23,6 +25,16 @@ import java.util.stream.Collectors;
 class HpoHtmlPageGenerator {
     /**@return A String with the HTML for representing one HPO term and the diseases it is annotated to. */
     static String getHTML(Term term, List<HpoDisease> annotatedDiseases) {
+        return getHTML(term, annotatedDiseases, null, null);
+    }
+
+    /**
+     * @param stats statistics for all terms, used to show counts for the subtree of the term (may be null)
+     * @param ic information content of all terms (may be null)
+     * @return A String with the HTML for representing one HPO term and the diseases it is annotated to.
+     */
+    static String getHTML(Term term, List<HpoDisease> annotatedDiseases, TermStatisticsTable stats,
+                          InformationContent ic) {
 
         String termID = term.getId().getValue();
         String synonyms = (term.getSynonyms() == null) ? "" : term.getSynonyms().stream().map(TermSynonym::getValue)
@@ -36,7 +48,29 @@ class HpoHtmlPageGenerator {
             pmidList="-";
         else
         pmidList= pmids.stream().map(SimpleXref::getCurie).collect(Collectors.joining(": "));
-        return String.format(HTML_TEMPLATE, CSS, term.getName(), termID, definition, comment, synonyms, pmidList,diseaseTable);
+        String subtree = getSubtreeStatsHTML(term.getId(), stats) + getInformationContentHTML(term.getId(), ic);
+        return String.format(HTML_TEMPLATE, CSS, term.getName(), termID, definition, comment, synonyms, pmidList, subtree, diseaseTable);
+    }
+
+    /** @return a paragraph with the counts for the subtree of the term, or an empty String if stats is null. */
+    private static String getSubtreeStatsHTML(TermId tid, TermStatisticsTable stats) {
+        if (stats == null || !stats.contains(tid)) {
+            return "";
+        }
+        return String.format("<p><b>Subtree:</b> %d terms (%d with definition, %d synonyms); " +
+                        "diseases: OMIM %d, Orphanet %d, DECIPHER %d</p>",
+                stats.getDescendantCount(tid), stats.getDefinitionCount(tid), stats.getSynonymCount(tid),
+                stats.getDiseaseCount(tid, Database.OMIM), stats.getDiseaseCount(tid, Database.ORPHA),
+                stats.getDiseaseCount(tid, Database.DECIPHER));
+    }
+
+    /** @return a paragraph with the information content of the term, or an empty String if ic is null. */
+    private static String getInformationContentHTML(TermId tid, InformationContent ic) {
+        if (ic == null || ic.diseaseCount() == 0 || ic.getGraph().index(tid) < 0) {
+            return "";
+        }
+        return String.format("<p><b>Information content:</b> %.3f (maximum %.3f, %d annotated diseases)</p>",
+                ic.ic(tid), ic.maxIc(), ic.diseaseCount());
     }
 
     /**
@@ -71,7 +105,7 @@ class HpoHtmlPageGenerator {
                     <tr>
                             <td><a href="%s">%s</a></td>
                             <td>%s</td>
-                          </tr>""", s.getName(), s.getDiseaseDatabaseId().getValue(), s.getName());
+                          </tr>""", s.getDiseaseDatabaseId().getValue(), s.getDiseaseDatabaseId().getValue(), s.getName());
             sb.append(row);
         }
         return String.format("%s<tbody>%s</tbody></table></div>", header, sb);
@@ -87,8 +121,8 @@ class HpoHtmlPageGenerator {
             "</body></html>";
 
 
-    static String getDiseaseHTML(HpoDisease disease, Ontology ontology) {
-        String listOfCategories = getListOfTermsHTML(disease, ontology);
+    static String getDiseaseHTML(HpoDisease disease, Ontology ontology, HpoCategoryTable categories) {
+        String listOfCategories = getListOfTermsHTML(disease, ontology, categories);
         return String.format(DISEASE_TEMPLATE, CSS,  listOfCategories);
     }
 
@@ -155,7 +189,7 @@ class HpoHtmlPageGenerator {
     /**
      * Create a table with the HPO Categories and annotations.
      */
-    private static String getListOfTermsHTML(HpoDisease disease, Ontology ontology) {
+    private static String getListOfTermsHTML(HpoDisease disease, Ontology ontology, HpoCategoryTable categories) {
         List<Term> modesOfInheritance = getTerms(disease.getModesOfInheritance(),ontology);
         List<Term> negativeTerms=getTerms(disease.getNegativeAnnotations(),ontology);
         List<HpoAnnotation> annotations = disease.getPhenotypicAbnormalities();
@@ -174,18 +208,17 @@ class HpoHtmlPageGenerator {
         }
         sb.append("<b>Inheritance:</b>").append(inheritanceString).append("<br/>");
         sb.append("<b>Number of annotations:</b>").append(annotations.size()).append("</p>\n");
-        HpoCategoryMap hpocatmap = new HpoCategoryMap();
         Map<TermId,HpoAnnotation> id2annotationmap=new HashMap<>();
         for (HpoAnnotation annot : annotations) {
-            TermId tid = annot.getTermId();
-            hpocatmap.addAnnotatedTerm(tid, ontology);
-            id2annotationmap.put(tid,annot);
+            id2annotationmap.put(annot.getTermId(),annot);
         }
-        List<HpoCategory> hpocatlist = hpocatmap.getActiveCategoryList();
+        HpoCategoryTable.CategorizedTerms catterms =
+                categories.categorize(disease.getPhenotypicAbnormalityTermIdList());
 
-        for (HpoCategory cat : hpocatlist) {
-            String template=cat.getNumberOfAnnotations()>1?"%s (%d annotations)":"%s (%d annotation)";
-            String title = String.format(template, cat.getLabel(), cat.getNumberOfAnnotations());
+        for (HpoCategoryTable.Category cat : catterms.getActiveCategories()) {
+            List<TermId> termIdList = catterms.getTerms(cat);
+            String template=termIdList.size()>1?"%s (%d annotations)":"%s (%d annotation)";
+            String title = String.format(template, cat.getLabel(), termIdList.size());
             sb.append(String.format("""
                       <table class="zebra">
                         <caption  style="color:#222;text-shadow:0px 1px 2px #555;font-size:24px;">%s</caption>
@@ -195,7 +228,6 @@ class HpoHtmlPageGenerator {
                           </tr>
                         </thead>
                     """, title));
-            List<TermId> termIdList = cat.getAnnotatingTermIds();
             for (TermId tid : termIdList) {
                 HpoAnnotation annot = id2annotationmap.get(tid);
                 sb.append(getAnnotationTableRow(annot,ontology));
@@ -227,6 +259,7 @@ class HpoHtmlPageGenerator {
             "<p><b>Synonyms:</b> %s</p>" +
             "<p><b>PMID:</b> %s</p>" +
             "%s" +
+            "%s" +
             "</body></html>";
 
 
@@ -4,6 +4,7 @@ import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.concurrent.Worker;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -16,12 +17,20 @@ import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebView;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import org.controlsfx.control.textfield.AutoCompletionBinding;
 import org.monarchinitiative.hpoworkbench.StartupTask;
 import org.monarchinitiative.hpoworkbench.analysis.AnnotationTlc;
 import org.monarchinitiative.hpoworkbench.analysis.HpoStats;
+import org.monarchinitiative.hpoworkbench.analysis.NegationConflicts;
+import org.monarchinitiative.hpoworkbench.analysis.RedundantAnnotations;
+import org.monarchinitiative.hpoworkbench.analysis.TermStatisticsTable;
+import org.monarchinitiative.hpoworkbench.annotation.HpoCategoryTable;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
 import org.monarchinitiative.hpoworkbench.excel.HierarchicalExcelExporter;
 import org.monarchinitiative.hpoworkbench.excel.Hpo2ExcelExporter;
 import org.monarchinitiative.hpoworkbench.exception.HPOException;
+import org.monarchinitiative.hpoworkbench.graph.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.gui.AutocompleteSuggestionProvider;
 import org.monarchinitiative.hpoworkbench.gui.HelpViewFactory;
 import org.monarchinitiative.hpoworkbench.gui.PopUps;
 import org.monarchinitiative.hpoworkbench.gui.WidthAwareTextFields;
@@ -29,10 +38,17 @@ import org.monarchinitiative.hpoworkbench.gui.webpopup.SettingsPopup;
 import org.monarchinitiative.hpoworkbench.gui.webviewerutil.WebViewerFactory;
 import org.monarchinitiative.hpoworkbench.gui.webviewerutil.WebViewerPopup;
 import org.monarchinitiative.hpoworkbench.html.AnnotationTlcHtmlGenerator;
+import org.monarchinitiative.hpoworkbench.html.DiseaseRankingHtmlGenerator;
 import org.monarchinitiative.hpoworkbench.html.HpoStatsHtmlGenerator;
+import org.monarchinitiative.hpoworkbench.html.NegationConflictHtmlGenerator;
+import org.monarchinitiative.hpoworkbench.html.RedundantAnnotationHtmlGenerator;
+import org.monarchinitiative.hpoworkbench.html.TermSearchHtmlGenerator;
 import org.monarchinitiative.hpoworkbench.io.*;
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoResource;
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoaResource;
+import org.monarchinitiative.hpoworkbench.search.AutocompleteIndex;
+import org.monarchinitiative.hpoworkbench.search.TermTextIndex;
+import org.monarchinitiative.hpoworkbench.similarity.DiseaseRanker;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.Term;
@@ -49,6 +65,7 @@ import org.w3c.dom.events.EventTarget;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 
@@ -116,9 +133,16 @@ public class MainController {
     private RadioButton mondoRadioButton;
 
     /**
-     * Key: a term name such as "Myocardial infarction"; value: the corresponding HPO id as a {@link TermId}.
+     * Key: a term name such as "Myocardial infarction" (or a synonym or id); value: the corresponding HPO id as a
+     * {@link TermId}.
      */
     private final Map<String, TermId> ontologyLabelsAndTermIdMap = new HashMap<>();
+    /** Maximum number of suggestions shown by the {@link #autocompleteTextfield}. */
+    private static final int AUTOCOMPLETE_LIMIT = 25;
+    /** Current autocompletion of the {@link #autocompleteTextfield}, disposed when the ontology is reloaded. */
+    private AutoCompletionBinding<AutocompleteIndex.Suggestion> autoCompletionBinding = null;
+    /** The suggestion that was last chosen in the {@link #autocompleteTextfield}, which identifies its term. */
+    private AutocompleteIndex.Suggestion chosenSuggestion = null;
     /**
      * The term that is currently selected in the Browser window.
      */
@@ -127,6 +151,8 @@ public class MainController {
      * Github password. Username and password will be stored for the current session only.
      */
     private String githubPassword;
+    /** Statistics for all terms, see {@link #getTermStatistics()}. */
+    private TermStatisticsTable termStatistics = null;
 
 
     @Autowired
@@ -145,7 +171,8 @@ public class MainController {
     @FXML
     private void initialize() {
         logger.info("Initializing main controller");
-        StartupTask task = new StartupTask(optionalHpoResource, optionalHpoaResource, pgProperties);
+        StartupTask task = new StartupTask(optionalHpoResource, optionalHpoaResource, pgProperties, hpoWorkbenchDir,
+                executor);
         publishMessage("Loading resources");
         ProgressIndicator pb = new ProgressIndicator();
         pb.setProgress(0);
@@ -168,8 +195,7 @@ public class MainController {
 
         ChangeListener<? super Object> listener = (obs, oldval, newval) -> activateIfResourcesAvailable();
         optionalHpoResource.ontologyProperty().addListener(listener);
-        optionalHpoaResource.directAnnotMapProperty().addListener(listener);
-        optionalHpoaResource.indirectAnnotMapProperty().addListener(listener);
+        optionalHpoaResource.annotationIndexProperty().addListener(listener);
         logger.info("Done initialization");
         checkAll();
         logger.info("done activate");
@@ -190,7 +216,7 @@ public class MainController {
     private void checkAll() {
         if (optionalHpoResource.getOntology() == null) { // hpo obo file is missing
             publishMessage("hpo json file is missing", MessageType.ERROR);
-        } else if (optionalHpoaResource.getDirectAnnotMap() == null) {
+        } else if (optionalHpoaResource.getAnnotationIndex() == null) {
             publishMessage("phenotype.hpoa file is missing", MessageType.ERROR);
         } else {
             logger.info("All three resources loaded");
@@ -354,7 +380,9 @@ public class MainController {
             return;
         }
         try {
-            HpoStats stats = new HpoStats(hpo, optionalHpoaResource.getId2diseaseModelMap());
+            HpoStats stats = optionalHpoaResource.getAnnotationIndex() == null ?
+                    new HpoStats(hpo, optionalHpoaResource.getId2diseaseModelMap()) :
+                    new HpoStats(hpo, optionalHpoaResource.getAnnotationIndex());
             Stage stage = (Stage) this.copyrightLabel.getScene().getWindow();
             String html = HpoStatsHtmlGenerator.getHTML(stats);
             WebViewerPopup popup = WebViewerFactory.hpoStats(html, stage);
@@ -375,7 +403,8 @@ public class MainController {
             logger.error("Attempt to show HPO stats before initializing HPO ontology object");
             return;
         }
-        AnnotationTlc tlc = new AnnotationTlc(hpo, optionalHpoaResource.getId2diseaseModelMap());
+        AnnotationTlc tlc = new AnnotationTlc(hpo, optionalHpoaResource.getId2diseaseModelMap(),
+                optionalHpoaResource.getInformationContent());
         String html = AnnotationTlcHtmlGenerator.getHTML(tlc);
         Stage stage = (Stage) this.copyrightLabel.getScene().getWindow();
         WebViewerPopup popup = WebViewerFactory.entriesNeedingMoreAnnotations(html, stage);
@@ -396,7 +425,8 @@ public class MainController {
             logger.error("Attempt to show HPO stats but id2diseaseModel map was empty");
             return;
         }
-        AnnotationTlc tlc = new AnnotationTlc(hpo, optionalHpoaResource.getId2diseaseModelMap());
+        AnnotationTlc tlc = new AnnotationTlc(hpo, optionalHpoaResource.getId2diseaseModelMap(),
+                optionalHpoaResource.getInformationContent());
         String html = AnnotationTlcHtmlGenerator.getHTMLSpecificTerms(tlc);
         Stage stage = (Stage) this.copyrightLabel.getScene().getWindow();
         WebViewerPopup popup = WebViewerFactory.entriesNeedingSpecificAnnotations(html, stage);
@@ -404,11 +434,160 @@ public class MainController {
 
     }
 
+    @FXML
+    private void showRedundantAnnotations(ActionEvent e) {
+        e.consume();
+        Ontology hpo = optionalHpoResource.getOntology();
+        TermDiseaseIndex index = optionalHpoaResource.getAnnotationIndex();
+        if (hpo == null || index == null) {
+            logger.error("Attempt to check annotations before initializing HPO and annotations");
+            return;
+        }
+        RedundantAnnotations redundant = RedundantAnnotations.of(index);
+        String html = RedundantAnnotationHtmlGenerator.getHTML(redundant, hpo);
+        Stage stage = (Stage) this.copyrightLabel.getScene().getWindow();
+        WebViewerPopup popup = WebViewerFactory.redundantAnnotations(html, stage);
+        popup.popup();
+    }
+
+    @FXML
+    private void showNegationConflicts(ActionEvent e) {
+        e.consume();
+        Ontology hpo = optionalHpoResource.getOntology();
+        TermDiseaseIndex index = optionalHpoaResource.getAnnotationIndex();
+        if (hpo == null || index == null) {
+            logger.error("Attempt to check annotations before initializing HPO and annotations");
+            return;
+        }
+        NegationConflicts conflicts = NegationConflicts.of(index);
+        String html = NegationConflictHtmlGenerator.getHTML(conflicts, hpo);
+        Stage stage = (Stage) this.copyrightLabel.getScene().getWindow();
+        WebViewerPopup popup = WebViewerFactory.negationConflicts(html, stage);
+        popup.popup();
+    }
+
+    /** Number of diseases shown by {@link #rankDiseasesByPhenotype(ActionEvent)}. */
+    private static final int RANKED_DISEASES_TO_SHOW = 50;
+
+    @FXML
+    private void rankDiseasesByPhenotype(ActionEvent e) {
+        e.consume();
+        Ontology hpo = optionalHpoResource.getOntology();
+        if (hpo == null || optionalHpoaResource.getAnnotationIndex() == null) {
+            logger.error("Attempt to rank diseases before initializing HPO and annotations");
+            return;
+        }
+        String prompt = selectedTerm == null ? "" : selectedTerm.getId().getValue();
+        String input = PopUps.getStringFromUser("Rank diseases", prompt,
+                "HPO terms of the patient (comma-separated):");
+        if (input == null) {
+            return;
+        }
+        List<Term> query = new ArrayList<>();
+        for (String id : input.trim().split("[,;\\s]+")) {
+            Term term = id.startsWith("HP:") && id.length() == 10 ? hpo.getTermMap().get(TermId.of(id)) : null;
+            if (term == null) {
+                logger.warn("Skipping \"{}\", which is not an HPO term", id);
+                continue;
+            }
+            query.add(term);
+        }
+        if (query.isEmpty()) {
+            PopUps.showInfoMessage("Please enter at least one HPO term id such as HP:0001250", "Error");
+            return;
+        }
+        // building the ranker on first use and scoring all diseases take a while, so both run in the background
+        Task<String> task = new Task<>() {
+            @Override
+            protected String call() throws InterruptedException, ExecutionException {
+                DiseaseRanker ranker = optionalHpoaResource.getDiseaseRanker();
+                if (ranker == null) {
+                    throw new IllegalStateException("Information content of the annotations is not available");
+                }
+                int[] profile = ranker.profile(query.stream().map(Term::getId).toList());
+                // this task occupies one thread of the executor, the partitions run on the others
+                int partitions = Runtime.getRuntime().availableProcessors() - 1;
+                List<DiseaseRanker.RankedDisease> ranking = partitions < 2
+                        ? ranker.rank(profile, RANKED_DISEASES_TO_SHOW)
+                        : ranker.rank(profile, RANKED_DISEASES_TO_SHOW, executor, partitions);
+                return DiseaseRankingHtmlGenerator.getHTML(query, ranking);
+            }
+        };
+        task.setOnSucceeded(event -> {
+            publishMessage("Ranked diseases");
+            Stage stage = (Stage) this.copyrightLabel.getScene().getWindow();
+            WebViewerPopup popup = WebViewerFactory.diseaseRanking(task.getValue(), stage);
+            popup.popup();
+        });
+        task.setOnFailed(event -> {
+            publishMessage("Unable to rank diseases", MessageType.ERROR);
+            logger.error("Could not rank diseases", task.getException());
+        });
+        publishMessage("Ranking diseases");
+        executor.submit(task);
+    }
+
+    /** Number of terms shown by {@link #searchTermText(ActionEvent)}. */
+    private static final int TERM_SEARCH_HITS_TO_SHOW = 50;
+
+    @FXML
+    private void searchTermText(ActionEvent e) {
+        e.consume();
+        Ontology hpo = optionalHpoResource.getOntology();
+        if (hpo == null) {
+            logger.error("Attempt to search terms before initializing HPO");
+            return;
+        }
+        String query = PopUps.getStringFromUser("Search HPO terms", "",
+                "Words to search for in labels, synonyms, definitions and comments:");
+        if (query == null || query.isBlank()) {
+            return;
+        }
+        TermTextIndex index = optionalHpoResource.getTextIndex();
+        if (index != null) {
+            showTermSearch(index, query, hpo);
+            return;
+        }
+        // the ontology was loaded without the startup task, e.g., after a download, so we build the index in the
+        // background and search once it is ready
+        Task<TermTextIndex> task = new Task<>() {
+            @Override
+            protected TermTextIndex call() {
+                return TermTextIndex.of(hpo);
+            }
+        };
+        task.setOnSucceeded(event -> {
+            if (optionalHpoResource.getOntology() == hpo) {
+                optionalHpoResource.setTextIndex(task.getValue());
+            }
+            publishMessage("Built full-text index");
+            showTermSearch(task.getValue(), query, hpo);
+        });
+        task.setOnFailed(event -> {
+            publishMessage("Unable to build full-text index", MessageType.ERROR);
+            logger.error("Could not build full-text index", task.getException());
+        });
+        publishMessage("Building full-text index");
+        executor.submit(task);
+    }
+
+    private void showTermSearch(TermTextIndex index, String query, Ontology hpo) {
+        List<TermTextIndex.Hit> hits = index.search(query, TERM_SEARCH_HITS_TO_SHOW);
+        String html = TermSearchHtmlGenerator.getHTML(query, hits, hpo);
+        Stage stage = (Stage) this.copyrightLabel.getScene().getWindow();
+        WebViewerPopup popup = WebViewerFactory.termSearch(html, stage);
+        popup.popup();
+    }
+
     // from HPO Tab Controller
 
     @FXML
     public void goButtonAction() {
-        TermId id = ontologyLabelsAndTermIdMap.get(autocompleteTextfield.getText());
+        String text = autocompleteTextfield.getText();
+        // a label or synonym may belong to several terms, so the chosen suggestion decides; typed text (e.g., an id)
+        // is looked up in the map
+        TermId id = chosenSuggestion != null && chosenSuggestion.getText().equals(text) ? chosenSuggestion.getTermId()
+                : ontologyLabelsAndTermIdMap.get(text);
         if (id == null) return; // button was clicked while field was hasTermsUniqueToOnlyOneDisease, no need to do anything
         Ontology hpo = optionalHpoResource.getOntology();
         if (hpo == null) {
@@ -422,6 +601,7 @@ public class MainController {
         }
         expandUntilTerm(term);
         autocompleteTextfield.clear();
+        chosenSuggestion = null;
     }
 
     /**
@@ -501,7 +681,6 @@ public class MainController {
                 final Ontology hpo = optionalHpoResource.getOntology();
                 Platform.runLater(()->{
                     initTree(hpo, k -> System.out.println("Consumed " + k));
-                    WidthAwareTextFields.bindWidthAwareAutoCompletion(autocompleteTextfield, ontologyLabelsAndTermIdMap.keySet());
                 });
             }
     }
@@ -556,6 +735,22 @@ public class MainController {
     }
 
 
+    /**
+     * @return statistics for all terms, built on first use and again whenever a new annotation index is loaded, or
+     * null if the ontology or the annotations are not available
+     */
+    private TermStatisticsTable getTermStatistics() {
+        Ontology hpo = optionalHpoResource.getOntology();
+        TermDiseaseIndex index = optionalHpoaResource.getAnnotationIndex();
+        if (hpo == null || index == null) {
+            return null;
+        }
+        if (termStatistics == null || termStatistics.getGraph() != index.getGraph()) {
+            termStatistics = TermStatisticsTable.of(hpo, index);
+        }
+        return termStatistics;
+    }
+
     /**
      * Update content of the {@link #infoWebView} with currently selected {@link Term}.
      *
@@ -565,14 +760,13 @@ public class MainController {
         if (treeItem == null)
             return;
         Term term = treeItem.getValue().term;
-        if (optionalHpoaResource.getIndirectAnnotMap() == null) {
-            logger.error("Attempt to get Indirect annotation map but it was null");
+        if (optionalHpoaResource.getAnnotationIndex() == null) {
+            logger.error("Attempt to get annotation index but it was null");
             return;
         }
-        List<HpoDisease> annotatedDiseases =  optionalHpoaResource.getIndirectAnnotMap().getOrDefault(term.getId(), List.of());
-        int n_descendents = 42;//getDescendents(model.getHpoOntology(),term.getId()).size();
-        //todo--add number of descendents to HTML
-        String content = HpoHtmlPageGenerator.getHTML(term, annotatedDiseases);
+        List<HpoDisease> annotatedDiseases =  optionalHpoaResource.getAnnotationIndex().annotatedDiseaseList(term.getId());
+        String content = HpoHtmlPageGenerator.getHTML(term, annotatedDiseases, getTermStatistics(),
+                optionalHpoaResource.getInformationContent());
         //System.out.print(content);
         // infoWebEngine=this.infoWebView.getEngine();
         infoWebEngine.loadContent(content);
@@ -591,6 +785,15 @@ public class MainController {
                                             return; // the external link is taken care of by the Webengine
                                             // therefore, we do not need to do anything special here
                                         }
+                                        // the links of the disease table are the disease ids (e.g., OMIM:100100),
+                                        // which, unlike the names, are unique
+                                        for (HpoDisease disease : annotatedDiseases) {
+                                            if (href.equals(disease.getDiseaseDatabaseId().getValue())) {
+                                                event.preventDefault();
+                                                Platform.runLater(() -> showDisease(disease));
+                                                return;
+                                            }
+                                        }
                                     }
                                 };
 
@@ -604,6 +807,17 @@ public class MainController {
 
     }
 
+    /** Show the annotations of the disease, grouped by the category table of the current ontology. */
+    private void showDisease(HpoDisease disease) {
+        Ontology ontology = optionalHpoResource.getOntology();
+        HpoCategoryTable categories = optionalHpoResource.getCategoryTable();
+        if (ontology == null || categories == null) {
+            logger.error("Attempt to show {} but the ontology was null", disease.getDiseaseDatabaseId().getValue());
+            return;
+        }
+        infoWebEngine.loadContent(HpoHtmlPageGenerator.getDiseaseHTML(disease, ontology, categories));
+    }
+
     /**
      * Initialize the ontology browser-tree in the left column of the app.
      *
@@ -611,6 +825,9 @@ public class MainController {
      * @param addHook  function hook (currently unused)
      */
     private void initTree(Ontology ontology, Consumer<Term> addHook) {
+        // the lookups of the previous ontology are no longer valid
+        ontologyLabelsAndTermIdMap.clear();
+        chosenSuggestion = null;
         // populate the TreeView with top-level elements from ontology hierarchy
         if (ontology == null) {
             ontologyTreeView.setRoot(null);
@@ -639,8 +856,18 @@ public class MainController {
         ontology.getTermMap().values().forEach(term -> {
             ontologyLabelsAndTermIdMap.put(term.getName(), term.getId());
             ontologyLabelsAndTermIdMap.put(term.getId().getValue(), term.getId());
+            term.getSynonyms().forEach(tsyn -> ontologyLabelsAndTermIdMap.putIfAbsent(tsyn.getValue(), term.getId()));
         });
-        WidthAwareTextFields.bindWidthAwareAutoCompletion(autocompleteTextfield, ontologyLabelsAndTermIdMap.keySet());
+        // rank the suggestions by the number of annotated diseases if the annotations are available
+        TermDiseaseIndex annotationIndex = optionalHpoaResource.getAnnotationIndex();
+        AutocompleteIndex autocompleteIndex = annotationIndex == null ? AutocompleteIndex.of(ontology) :
+                AutocompleteIndex.of(ontology, annotationIndex::countAnnotatedDiseases);
+        if (autoCompletionBinding != null) {
+            autoCompletionBinding.dispose();
+        }
+        autoCompletionBinding = WidthAwareTextFields.bindWidthAwareAutoCompletion(autocompleteTextfield,
+                new AutocompleteSuggestionProvider(autocompleteIndex, AUTOCOMPLETE_LIMIT));
+        autoCompletionBinding.setOnAutoCompleted(event -> chosenSuggestion = event.getCompletion());
 
         // show intro message in the infoWebView
         Platform.runLater(() -> {
@@ -714,7 +941,11 @@ public class MainController {
         }
         TermId rootId = ontology.getRootTermId();
         TermId tid = term.getId();
-        return existsPath(ontology, tid, rootId);
+        AncestorClosure closure = optionalHpoResource.getAncestorClosure();
+        if (closure == null) {
+            return existsPath(ontology, tid, rootId);
+        }
+        return closure.isAncestor(rootId, tid);
     }
 
 
@@ -0,0 +1,34 @@
+package org.monarchinitiative.hpoworkbench.gui;
+
+import javafx.util.Callback;
+import org.controlsfx.control.textfield.AutoCompletionBinding;
+import org.monarchinitiative.hpoworkbench.search.AutocompleteIndex;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Suggestion provider for the ControlsFX autocompletion that queries an {@link AutocompleteIndex} instead of
+ * scanning all possible suggestions on every keystroke (which is what ControlsFX's {@code SuggestionProvider} does).
+ * The suggestions are shown by their text and keep their term, since the same synonym can belong to several terms.
+ */
+public class AutocompleteSuggestionProvider
+        implements Callback<AutoCompletionBinding.ISuggestionRequest, Collection<AutocompleteIndex.Suggestion>> {
+
+    private final AutocompleteIndex index;
+    /** Maximum number of suggestions that are shown. */
+    private final int limit;
+
+    public AutocompleteSuggestionProvider(AutocompleteIndex index, int limit) {
+        this.index = index;
+        this.limit = limit;
+    }
+
+    @Override
+    public Collection<AutocompleteIndex.Suggestion> call(AutoCompletionBinding.ISuggestionRequest request) {
+        if (request.isCancelled()) {
+            return List.of();
+        }
+        return index.complete(request.getUserText(), limit);
+    }
+}
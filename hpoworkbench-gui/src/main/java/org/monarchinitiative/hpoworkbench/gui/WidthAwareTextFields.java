@@ -3,6 +3,7 @@ package org.monarchinitiative.hpoworkbench.gui;
 import impl.org.controlsfx.autocompletion.AutoCompletionTextFieldBinding;
 import impl.org.controlsfx.autocompletion.SuggestionProvider;
 import javafx.scene.control.TextField;
+import javafx.util.Callback;
 import org.controlsfx.control.textfield.AutoCompletionBinding;
 
 import java.util.Collection;
@@ -26,4 +27,21 @@ public class WidthAwareTextFields {
         return k;
     }
 
+    /**
+     * Create autocompletion binding between given {@link TextField} instance and a suggestion provider, e.g., an
+     * {@link AutocompleteSuggestionProvider}. Additionally, bind the minWidthProperty of suggestion box to
+     * widthProperty of textField.
+     *
+     * @param textField          TextField to which the suggestions will be offered.
+     * @param suggestionProvider returns the suggestions for the text typed by the user.
+     * @param <T>                type
+     * @return the binding object
+     */
+    public static <T> AutoCompletionBinding<T> bindWidthAwareAutoCompletion(
+            TextField textField, Callback<AutoCompletionBinding.ISuggestionRequest, Collection<T>> suggestionProvider) {
+        AutoCompletionTextFieldBinding<T> k = new AutoCompletionTextFieldBinding<>(textField, suggestionProvider);
+        k.minWidthProperty().bind(textField.widthProperty());
+        return k;
+    }
+
 }
@@ -54,15 +54,10 @@ public class SettingsPopup extends WebViewerPopup {
         } else {
             items.put("id2disease map", NOT_INITIALIZED);
         }
-        if (optionalHpoaResource.getDirectAnnotMap() != null) {
-            items.put("Direct annotation map", "initialized");
+        if (optionalHpoaResource.getAnnotationIndex() != null) {
+            items.put("Annotation index", "initialized");
         } else {
-            items.put("Direct annotation map", NOT_INITIALIZED);
-        }
-        if (optionalHpoaResource.getIndirectAnnotMap() != null) {
-            items.put("Indirect annotation map", "initialized");
-        } else {
-            items.put("Indirect annotation map", NOT_INITIALIZED);
+            items.put("Annotation index", NOT_INITIALIZED);
         }
 
 
@@ -34,4 +34,28 @@ public class WebViewerFactory {
         WebViewerPopup popup = new SimpleWebViewerPopup(title, html, stage);
         return popup;
     }
+
+    public static WebViewerPopup diseaseRanking(String html, Stage stage) {
+        String title = "Diseases ranked by phenotypic similarity";
+        WebViewerPopup popup = new SimpleWebViewerPopup(title, html, stage);
+        return popup;
+    }
+
+    public static WebViewerPopup redundantAnnotations(String html, Stage stage) {
+        String title = "HPO disease entries with redundant annotations";
+        WebViewerPopup popup = new SimpleWebViewerPopup(title, html, stage);
+        return popup;
+    }
+
+    public static WebViewerPopup negationConflicts(String html, Stage stage) {
+        String title = "HPO disease entries with contradictory negated annotations";
+        WebViewerPopup popup = new SimpleWebViewerPopup(title, html, stage);
+        return popup;
+    }
+
+    public static WebViewerPopup termSearch(String html, Stage stage) {
+        String title = "HPO terms matching the full-text query";
+        WebViewerPopup popup = new SimpleWebViewerPopup(title, html, stage);
+        return popup;
+    }
 }
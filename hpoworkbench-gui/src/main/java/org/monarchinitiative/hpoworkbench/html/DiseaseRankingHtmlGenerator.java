@@ -0,0 +1,44 @@
+package org.monarchinitiative.hpoworkbench.html;
+
+import org.monarchinitiative.hpoworkbench.similarity.DiseaseRanker;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.Term;
+
+import java.util.List;
+
+/**
+ * Generate the HTML for the list of diseases that are most similar to a set of query terms.
+ */
+public class DiseaseRankingHtmlGenerator {
+
+    private static final String HTML_TEMPLATE = """
+            <!DOCTYPE html><html lang="en"><head><style>%s</style>
+            <meta charset="UTF-8"><title>Human Phenotype Ontology: Disease ranking</title></head><body>%s\s
+            </body></html>""";
+
+    public static String getHTML(List<Term> query, List<DiseaseRanker.RankedDisease> ranking) {
+        return String.format(HTML_TEMPLATE, Css.getCSS(), getRanking(query, ranking));
+    }
+
+    private static String getRanking(List<Term> query, List<DiseaseRanker.RankedDisease> ranking) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<h1>Diseases ranked by phenotypic similarity</h1>");
+        sb.append("<p>Query terms:</p><ul>");
+        for (Term term : query) {
+            sb.append("<li>").append(term.getName()).append(" [").append(term.getId().getValue()).append("]</li>");
+        }
+        sb.append("</ul>");
+        if (ranking.isEmpty()) {
+            sb.append("<p>No diseases found.</p>");
+            return sb.toString();
+        }
+        sb.append("<table class=\"zebra\"><thead><tr><th>Rank</th><th>Disease</th><th>Id</th><th>Score</th></tr></thead><tbody>");
+        for (int i = 0; i < ranking.size(); i++) {
+            HpoDisease disease = ranking.get(i).getDisease();
+            sb.append(String.format("<tr><td>%d</td><td>%s</td><td>%s</td><td>%.3f</td></tr>", i + 1,
+                    disease.getName(), disease.getDiseaseDatabaseId().getValue(), ranking.get(i).getScore()));
+        }
+        sb.append("</tbody></table>");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package org.monarchinitiative.hpoworkbench.html;
+
+import org.monarchinitiative.hpoworkbench.analysis.NegationConflicts;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+/**
+ * Generate the HTML for the list of negated annotations that contradict a positive annotation of the same disease.
+ */
+public class NegationConflictHtmlGenerator {
+
+    private static final String HTML_TEMPLATE = """
+            <!DOCTYPE html><html lang="en"><head><style>%s</style>
+            <meta charset="UTF-8"><title>Human Phenotype Ontology: Negation conflicts</title></head><body>%s\s
+            </body></html>""";
+
+    public static String getHTML(NegationConflicts conflicts, Ontology ontology) {
+        return String.format(HTML_TEMPLATE, Css.getCSS(), getConflicts(conflicts, ontology));
+    }
+
+    private static String label(Ontology ontology, TermId tid) {
+        Term term = ontology.getTermMap().get(tid);
+        return String.format("%s [%s]", term == null ? "?" : term.getName(), tid.getValue());
+    }
+
+    private static String getConflicts(NegationConflicts conflicts, Ontology ontology) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<h1>Negation conflicts</h1>");
+        sb.append(String.format("<p>%d negated (NOT) annotations in %d entries contradict an annotation to the " +
+                "same term or one of its descendents.</p>", conflicts.getConflictCount(),
+                conflicts.getAffectedDiseaseCount()));
+        if (conflicts.getConflicts().isEmpty()) {
+            return sb.toString();
+        }
+        sb.append("<table class=\"zebra\"><thead><tr><th>Disease</th><th>Negated (NOT) annotation</th>" +
+                "<th>Annotation</th></tr></thead><tbody>");
+        for (NegationConflicts.Conflict c : conflicts.getConflicts()) {
+            HpoDisease disease = c.getDisease();
+            sb.append(String.format("<tr><td>%s [%s]</td><td>%s</td><td>%s</td></tr>", disease.getName(),
+                    disease.getDiseaseDatabaseId().getValue(), label(ontology, c.getNegatedTerm()),
+                    label(ontology, c.getAnnotatedTerm())));
+        }
+        sb.append("</tbody></table>");
+        return sb.toString();
+    }
+}
@@ -1,9 +1,9 @@
 package org.monarchinitiative.hpoworkbench.html;
 
 import org.monarchinitiative.hpoworkbench.annotation.CategoryMerge;
+import org.monarchinitiative.hpoworkbench.annotation.HpoCategoryTable;
 import org.monarchinitiative.hpoworkbench.annotation.SubClassTermPair;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
-import org.monarchinitiative.phenol.annotations.formats.hpo.category.HpoCategory;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.Term;
 import org.monarchinitiative.phenol.ontology.data.TermId;
@@ -19,7 +19,7 @@ public class OmimOrphanetDiseaseHtmlGenerator {
     private final static String EMPTY_STRING="";
 
 
-    public static String getHTML(HpoDisease omim, HpoDisease orpha, Map<HpoCategory,CategoryMerge> catmap, Ontology ontology) {
+    public static String getHTML(HpoDisease omim, HpoDisease orpha, Map<HpoCategoryTable.Category,CategoryMerge> catmap, Ontology ontology) {
         return getMergerTable(catmap,ontology);
     }
 
@@ -150,9 +150,9 @@ public class OmimOrphanetDiseaseHtmlGenerator {
      * @param ontology
      * @return
      */
-    private static String getMergerTable(Map<HpoCategory,CategoryMerge> catmap, Ontology ontology) {
+    private static String getMergerTable(Map<HpoCategoryTable.Category,CategoryMerge> catmap, Ontology ontology) {
         StringBuilder sb = new StringBuilder();
-        for (HpoCategory cat : catmap.keySet()) {
+        for (HpoCategoryTable.Category cat : catmap.keySet()) {
             CategoryMerge catmerge = catmap.get(cat);
             logger.trace("Get table for cat {} ({})",cat.getLabel(),catmerge.getCounts());
             String disease1name = catmerge.getDisease1name();
@@ -0,0 +1,51 @@
+package org.monarchinitiative.hpoworkbench.html;
+
+import org.monarchinitiative.hpoworkbench.analysis.RedundantAnnotations;
+import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+import org.monarchinitiative.phenol.ontology.data.TermId;
+
+import java.util.stream.Collectors;
+
+/**
+ * Generate the HTML for the list of annotations that are implied by a more specific annotation of the same disease.
+ */
+public class RedundantAnnotationHtmlGenerator {
+
+    private static final String HTML_TEMPLATE = """
+            <!DOCTYPE html><html lang="en"><head><style>%s</style>
+            <meta charset="UTF-8"><title>Human Phenotype Ontology: Redundant annotations</title></head><body>%s\s
+            </body></html>""";
+
+    public static String getHTML(RedundantAnnotations redundant, Ontology ontology) {
+        return String.format(HTML_TEMPLATE, Css.getCSS(), getRedundancies(redundant, ontology));
+    }
+
+    private static String label(Ontology ontology, TermId tid) {
+        Term term = ontology.getTermMap().get(tid);
+        return String.format("%s [%s]", term == null ? "?" : term.getName(), tid.getValue());
+    }
+
+    private static String getRedundancies(RedundantAnnotations redundant, Ontology ontology) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<h1>Redundant annotations</h1>");
+        sb.append(String.format("<p>%d annotations in %d entries are implied by a more specific annotation " +
+                "of the same entry.</p>", redundant.getRedundantAnnotationCount(), redundant.getAffectedDiseaseCount()));
+        if (redundant.getRedundancies().isEmpty()) {
+            return sb.toString();
+        }
+        sb.append("<table class=\"zebra\"><thead><tr><th>Disease</th><th>Redundant annotation</th>" +
+                "<th>Implied by</th></tr></thead><tbody>");
+        for (RedundantAnnotations.Redundancy r : redundant.getRedundancies()) {
+            HpoDisease disease = r.getDisease();
+            String impliedBy = r.getImpliedBy().stream()
+                    .map(tid -> label(ontology, tid))
+                    .collect(Collectors.joining("<br/>"));
+            sb.append(String.format("<tr><td>%s [%s]</td><td>%s</td><td>%s</td></tr>", disease.getName(),
+                    disease.getDiseaseDatabaseId().getValue(), label(ontology, r.getRedundantTerm()), impliedBy));
+        }
+        sb.append("</tbody></table>");
+        return sb.toString();
+    }
+}
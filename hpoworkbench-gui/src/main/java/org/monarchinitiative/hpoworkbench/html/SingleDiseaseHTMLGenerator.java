@@ -1,10 +1,9 @@
 package org.monarchinitiative.hpoworkbench.html;
 
 
+import org.monarchinitiative.hpoworkbench.annotation.HpoCategoryTable;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
-import org.monarchinitiative.phenol.annotations.formats.hpo.category.HpoCategory;
-import org.monarchinitiative.phenol.annotations.formats.hpo.category.HpoCategoryMap;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.Term;
 import org.monarchinitiative.phenol.ontology.data.TermId;
@@ -23,10 +22,11 @@ public class SingleDiseaseHTMLGenerator {
      *
      * @param disease Object with HPO annotations for the disease
      * @param ontology reference to HPO ontology object
+     * @param categories category table for {@code ontology}
      * @return HTML with tables representing a disease that has only OMIM or Orphanet annotations but not both
      */
-    public static String getHTML(HpoDisease disease, Ontology ontology) {
-        return getListOfTermsHTML(disease,ontology);
+    public static String getHTML(HpoDisease disease, Ontology ontology, HpoCategoryTable categories) {
+        return getListOfTermsHTML(disease,ontology,categories);
     }
 
 
@@ -35,21 +35,18 @@ public class SingleDiseaseHTMLGenerator {
     /**
      * Create a table with the HPO Categories and annotations.
      */
-    private static String getListOfTermsHTML(HpoDisease disease, Ontology ontology) {
+    private static String getListOfTermsHTML(HpoDisease disease, Ontology ontology, HpoCategoryTable categories) {
         List<HpoAnnotation> annotations = disease.getPhenotypicAbnormalities();
         if (annotations == null) {
             return "<p>No HPO annotations found.</p>";
         }
-        HpoCategoryMap hpocatmap = new HpoCategoryMap();
-        for (HpoAnnotation annot : annotations) {
-            TermId tid = annot.getTermId();
-            hpocatmap.addAnnotatedTerm(tid, ontology);
-        }
-        List<HpoCategory> hpocatlist = hpocatmap.getActiveCategoryList();
+        HpoCategoryTable.CategorizedTerms catterms =
+                categories.categorize(disease.getPhenotypicAbnormalityTermIdList());
         StringBuilder sb = new StringBuilder();
-        for (HpoCategory cat : hpocatlist) {
-            String template=cat.getNumberOfAnnotations()>1?"%s (%d annotations)":"%s (%d annotation)";
-            String title = String.format(template, cat.getLabel(), cat.getNumberOfAnnotations());
+        for (HpoCategoryTable.Category cat : catterms.getActiveCategories()) {
+            List<TermId> termIdList = catterms.getTerms(cat);
+            String template=termIdList.size()>1?"%s (%d annotations)":"%s (%d annotation)";
+            String title = String.format(template, cat.getLabel(), termIdList.size());
             sb.append(String.format("""
                     <table class="zebra">
                         <caption  style="color:#222;text-shadow:0px 1px 2px #555;font-size:24px;">%s</caption>
@@ -63,7 +60,6 @@ public class SingleDiseaseHTMLGenerator {
                             <td colspan="3">More information: <a href="http://www.human-phenotype-ontology.org">HPO Website</a></td>
                           </tr>
                         </tfoot><br/>""", title));
-            List<TermId> termIdList = cat.getAnnotatingTermIds();
             for (TermId tid : termIdList) {
                 Term term = ontology.getTermMap().get(tid);
                 String row = String.format("""
@@ -0,0 +1,47 @@
+package org.monarchinitiative.hpoworkbench.html;
+
+import org.monarchinitiative.hpoworkbench.search.TermTextIndex;
+import org.monarchinitiative.phenol.ontology.data.Ontology;
+import org.monarchinitiative.phenol.ontology.data.Term;
+
+import java.util.List;
+
+/**
+ * Generate the HTML for the HPO terms that match a full-text query.
+ */
+public class TermSearchHtmlGenerator {
+
+    private static final String HTML_TEMPLATE = """
+            <!DOCTYPE html><html lang="en"><head><style>%s</style>
+            <meta charset="UTF-8"><title>Human Phenotype Ontology: Term search</title></head><body>%s\s
+            </body></html>""";
+
+    public static String getHTML(String query, List<TermTextIndex.Hit> hits, Ontology ontology) {
+        return String.format(HTML_TEMPLATE, Css.getCSS(), getHits(query, hits, ontology));
+    }
+
+    private static String getHits(String query, List<TermTextIndex.Hit> hits, Ontology ontology) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<h1>Full-text search of HPO terms</h1>");
+        sb.append("<p>Query: ").append(escape(query)).append("</p>");
+        if (hits.isEmpty()) {
+            sb.append("<p>No terms found.</p>");
+            return sb.toString();
+        }
+        sb.append("<table class=\"zebra\"><thead><tr><th>Rank</th><th>Term</th><th>Id</th><th>Definition</th><th>Score</th></tr></thead><tbody>");
+        for (int i = 0; i < hits.size(); i++) {
+            TermTextIndex.Hit hit = hits.get(i);
+            Term term = ontology.getTermMap().get(hit.getTermId());
+            String label = term == null ? "n/a" : term.getName();
+            String definition = term == null || term.getDefinition() == null ? "" : term.getDefinition();
+            sb.append(String.format("<tr><td>%d</td><td>%s</td><td>%s</td><td>%s</td><td>%.3f</td></tr>", i + 1,
+                    escape(label), hit.getTermId().getValue(), escape(definition), hit.getScore()));
+        }
+        sb.append("</tbody></table>");
+        return sb.toString();
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
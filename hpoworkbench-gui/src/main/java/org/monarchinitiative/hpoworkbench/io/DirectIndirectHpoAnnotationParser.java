@@ -1,13 +1,11 @@
 package org.monarchinitiative.hpoworkbench.io;
 
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
 import org.monarchinitiative.hpoworkbench.exception.HPOWorkbenchException;
-import org.monarchinitiative.phenol.annotations.formats.hpo.HpoAnnotation;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
 import org.monarchinitiative.phenol.annotations.obo.hpo.HpoDiseaseAnnotationParser;
-import org.monarchinitiative.phenol.ontology.algo.OntologyAlgorithm;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
 import org.slf4j.Logger;
@@ -17,8 +15,9 @@ import java.util.*;
 
 /**
  * The purpose of this class is to parse the phenotype.hpoa file in order to give the user
- * and overview of the diseases annotated to any given HPO term. The {@link #directAnnotationMap} and
- * {@link #totalAnnotationMap} are used to generate the displays for each disease annotated with HPO terms.
+ * and overview of the diseases annotated to any given HPO term. The {@link #annotationIndex} holds the
+ * direct and indirect annotations of each HPO term and is used to generate the displays for each disease
+ * annotated with HPO terms.
  *
  * @author <a href="mailto:peter.robinson@jax.org">Peter Robinson</a>
  * @version 0.2.14
@@ -29,10 +28,10 @@ public class DirectIndirectHpoAnnotationParser {
     private final String pathToPhenotypeAnnotationTab;
     /** Reference to HPO ontology object. */
     private final Ontology ontology;
-    /** Key: term id of an HPO term; value: List of references to diseases directly annotated to his term */
-    private Map<TermId,List<HpoDisease>> directAnnotationMap;
-    /** Key: term id of an HPO term; value: List of references to diseases directly or indirectly annotated to his term */
-    private Map<TermId,List<HpoDisease>> totalAnnotationMap;
+    /** Key: disease id such as OMIM:100100; value: the corresponding disease model. */
+    private Map<TermId, HpoDisease> diseaseMap;
+    /** Inverted index with the diseases directly and indirectly annotated to each HPO term. */
+    private TermDiseaseIndex annotationIndex;
 
     /**
      * @param path Path to phenotype.hpoa
@@ -50,27 +49,26 @@ public class DirectIndirectHpoAnnotationParser {
 
 
     /**
-     * Get map with direct annotations. The map will be <code>null</code>, if the {@link #doParse()} method have not been
-     * invoked.
+     * Get the disease models. The map will be <code>null</code>, if the {@link #doParse()} method failed.
      *
-     * @return {@link Map} mapping {@link TermId}s to {@link List} of their {@link HpoDisease}s
+     * @return {@link Map} mapping disease ids to {@link HpoDisease}s
      */
-    public Map<TermId, List<HpoDisease>> getDirectAnnotMap() {
-        return directAnnotationMap;
+    public Map<TermId, HpoDisease> getDiseaseMap() {
+        return diseaseMap;
     }
 
     /**
-     * Get map with indirect annotations. The map will be <code>null</code>, if the {@link #doParse()} method have not been
-     * invoked.
+     * Get the index with direct and indirect annotations. The index will be <code>null</code>, if the
+     * {@link #doParse()} method failed.
      *
-     * @return {@link Map} mapping {@link TermId}s to {@link List} of their {@link HpoDisease}s
+     * @return {@link TermDiseaseIndex} mapping {@link TermId}s to their {@link HpoDisease}s
      */
-    public Map<TermId, List<HpoDisease>> getTotalAnnotationMap() {
-        return totalAnnotationMap;
+    public TermDiseaseIndex getAnnotationIndex() {
+        return annotationIndex;
     }
 
     /**
-     * Parse annotations file and populate maps containing direct and indirect annotations.
+     * Parse annotations file and build the index containing direct and indirect annotations.
      */
     private void doParse()  throws HPOWorkbenchException {
         if (ontology == null) {
@@ -78,46 +76,12 @@ public class DirectIndirectHpoAnnotationParser {
             return;
         }
         logger.trace("doParse in DirectIndirectParser");
-        Map<TermId, HpoDisease> diseaseMap = HpoDiseaseAnnotationParser.loadDiseaseMap(this.pathToPhenotypeAnnotationTab,this.ontology);
-        directAnnotationMap=new HashMap<>();
-        totalAnnotationMap=new HashMap<>();
-        Map<TermId, Set<HpoDisease>> tempmap = new HashMap<>();
-        if (diseaseMap==null) {
+        Map<TermId, HpoDisease> diseases = HpoDiseaseAnnotationParser.loadDiseaseMap(this.pathToPhenotypeAnnotationTab,this.ontology);
+        if (diseases==null) {
             throw new HPOWorkbenchException("disease map was null after parse of "+pathToPhenotypeAnnotationTab);
         }
-        for (TermId diseaseId : diseaseMap.keySet()) {
-            HpoDisease disease = diseaseMap.get(diseaseId);
-            for (HpoAnnotation annot : disease.getPhenotypicAbnormalities()) {
-                TermId hpoId = annot.getTermId();
-                directAnnotationMap.putIfAbsent(hpoId,new ArrayList<>());
-                directAnnotationMap.get(hpoId).add(disease);
-                Set<TermId> ancs = OntologyAlgorithm.getAncestorTerms(ontology, hpoId, true);
-                for (TermId t : ancs) {
-                    tempmap.putIfAbsent(t, new HashSet<>());
-                    Set<HpoDisease> diseaseset = tempmap.get(t);
-                    diseaseset.add(disease);
-                }
-            }
-            // Also add the modes of inheritance to the annotations
-            for (TermId inheritanceId : disease.getModesOfInheritance()) {
-                directAnnotationMap.putIfAbsent(inheritanceId,new ArrayList<>());
-                directAnnotationMap.get(inheritanceId).add(disease);
-                Set<TermId> ancs = OntologyAlgorithm.getAncestorTerms(ontology, inheritanceId, true);
-                for (TermId t : ancs) {
-                    tempmap.putIfAbsent(t, new HashSet<>());
-                    Set<HpoDisease> diseaseset = tempmap.get(t);
-                    diseaseset.add(disease);
-                }
-            }
-        }
-        // When we get here, we transform the sets into an immutable, sorted list
-        ImmutableMap.Builder<TermId, List<HpoDisease>> mapbuilder = new ImmutableMap.Builder<>();
-        for (TermId key : tempmap.keySet()) {
-            ImmutableList.Builder<HpoDisease> listbuilder = new ImmutableList.Builder<>();
-            listbuilder.addAll(tempmap.get(key));
-            mapbuilder.put(key, listbuilder.build());
-        }
-        this.totalAnnotationMap = mapbuilder.build();
+        this.annotationIndex = TermDiseaseIndex.of(diseases, CompactOntologyGraph.of(ontology));
+        this.diseaseMap = diseases;
     }
 
 }
@@ -11,7 +11,6 @@ import org.monarchinitiative.hpoworkbench.gui.PlatformUtil;
 import org.monarchinitiative.hpoworkbench.gui.PopUps;
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoResource;
 import org.monarchinitiative.hpoworkbench.resources.OptionalHpoaResource;
-import org.monarchinitiative.phenol.io.OntologyLoader;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -85,8 +84,6 @@ public class DownloaderFactory {
             LOGGER.trace(String.format("Successfully downloaded %s to %s",
                     PlatformUtil.HPO_ANNOTATIONS_FILENAME, hpoWebConfigurationDirectory));
             String hpoAnnotationsFileName = hpoWebConfigurationDirectory + File.separator + PlatformUtil.HPO_ANNOTATIONS_FILENAME;
-            DirectIndirectHpoAnnotationParser parser = new DirectIndirectHpoAnnotationParser(hpoAnnotationsFileName, optionalHpoResources
-                    .getOntology());
             optionalHpoaResource.setAnnotationResources(hpoAnnotationsFileName, optionalHpoResources.getOntology());
 
             pgProperties.setProperty(HPOA_PATH_PROPERTY, hpoAnnotationsFileName);
@@ -117,7 +114,7 @@ public class DownloaderFactory {
             window.close();
             LOGGER.trace(String.format("Successfully downloaded hp.json to %s", hpoWebConfigurationDirectory));
             String hpoJsonPath = hpoWebConfigurationDirectory + File.separator + PlatformUtil.HPO_JSON_FILENAME;
-            Ontology hpo =  OntologyLoader.loadOntology(new File(hpoJsonPath));
+            Ontology hpo =  OntologySnapshot.load(new File(hpoJsonPath));
             optionalHpoResources.setOntology(hpo);
             pgProperties.setProperty(OptionalHpoResource.HP_JSON_PATH_PROPERTY, hpoJsonPath);
 
@@ -4,6 +4,10 @@ import javafx.beans.binding.Bindings;
 import javafx.beans.binding.BooleanBinding;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
+import org.monarchinitiative.hpoworkbench.annotation.HpoCategoryTable;
+import org.monarchinitiative.hpoworkbench.graph.AncestorClosure;
+import org.monarchinitiative.hpoworkbench.graph.CompactOntologyGraph;
+import org.monarchinitiative.hpoworkbench.search.TermTextIndex;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 
 public class OptionalHpoResource implements OptionalOntologyResource {
@@ -11,6 +15,12 @@ public class OptionalHpoResource implements OptionalOntologyResource {
     private final BooleanBinding hpoResourceIsMissing;
 
     private final ObjectProperty<Ontology> hpoOntology = new SimpleObjectProperty<>(this, "hpoOntology", null);
+    /** Ancestor closure of {@link #hpoOntology}, rebuilt whenever a new ontology is set. */
+    private volatile AncestorClosure ancestorClosure = null;
+    /** Category of each term of {@link #hpoOntology}, rebuilt whenever a new ontology is set. */
+    private volatile HpoCategoryTable categoryTable = null;
+    /** Full-text index of {@link #hpoOntology}, cleared whenever a new ontology is set. */
+    private volatile TermTextIndex textIndex = null;
 
     public final static String HP_JSON_PATH_PROPERTY = "hp.json.path";
 
@@ -36,8 +46,41 @@ public class OptionalHpoResource implements OptionalOntologyResource {
 
     @Override
     public void setOntology(Ontology ontology) {
+        CompactOntologyGraph graph = ontology == null ? null : CompactOntologyGraph.of(ontology);
+        setOntology(ontology, graph == null ? null : AncestorClosure.of(graph), null);
+    }
+
+    /**
+     * Set an ontology whose ancestor closure (and possibly full-text index) has already been built, e.g., by the
+     * {@link org.monarchinitiative.hpoworkbench.StartupTask} while the annotations were being loaded.
+     * @param closure ancestor closure of {@code ontology}, or null if ontology is null
+     * @param textIndex full-text index of {@code ontology}, or null if it has not been built
+     */
+    public void setOntology(Ontology ontology, AncestorClosure closure, TermTextIndex textIndex) {
+        ancestorClosure = closure;
+        categoryTable = closure == null ? null : HpoCategoryTable.of(closure.getGraph());
+        this.textIndex = textIndex;
         hpoOntology.set(ontology);
     }
 
+    /** @return ancestor closure of the current ontology, or null if no ontology has been loaded. */
+    public AncestorClosure getAncestorClosure() {
+        return ancestorClosure;
+    }
+
+    /** @return category table of the current ontology, or null if no ontology has been loaded. */
+    public HpoCategoryTable getCategoryTable() {
+        return categoryTable;
+    }
+
+    /** @return full-text index of the current ontology, or null if it has not been built yet. */
+    public TermTextIndex getTextIndex() {
+        return textIndex;
+    }
+
+    public void setTextIndex(TermTextIndex textIndex) {
+        this.textIndex = textIndex;
+    }
+
 
 }
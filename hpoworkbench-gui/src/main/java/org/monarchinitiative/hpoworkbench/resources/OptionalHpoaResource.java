@@ -4,7 +4,12 @@ import javafx.beans.binding.Bindings;
 import javafx.beans.binding.BooleanBinding;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
+import org.monarchinitiative.hpoworkbench.annotation.InformationContent;
+import org.monarchinitiative.hpoworkbench.annotation.TermDiseaseIndex;
+import org.monarchinitiative.hpoworkbench.io.AnnotationIndexCache;
 import org.monarchinitiative.hpoworkbench.io.DirectIndirectHpoAnnotationParser;
+import org.monarchinitiative.hpoworkbench.similarity.DiseaseRanker;
+import org.monarchinitiative.hpoworkbench.similarity.MicaTable;
 import org.monarchinitiative.phenol.annotations.formats.hpo.HpoDisease;
 import org.monarchinitiative.phenol.ontology.data.Ontology;
 import org.monarchinitiative.phenol.ontology.data.TermId;
@@ -14,83 +19,126 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class OptionalHpoaResource {
     private static final Logger LOGGER = LoggerFactory.getLogger(OptionalHpoaResource.class);
     private final BooleanBinding hpoaResourceIsMissing;
     public final static String HPOA_PATH_PROPERTY = "hpoa/path";
-    private final ObjectProperty<Map<TermId, List<HpoDisease>>> indirectAnnotMap =
-            new SimpleObjectProperty<>(this, "indirectAnnotMap", null);
-
-    private final ObjectProperty<Map<TermId, List<HpoDisease>>> directAnnotMap =
-            new SimpleObjectProperty<>(this, "directAnnotMap", null);
+    /** Inverted index with the diseases directly and indirectly annotated to each HPO term. */
+    private final ObjectProperty<TermDiseaseIndex> annotationIndex =
+            new SimpleObjectProperty<>(this, "annotationIndex", null);
 
     private Map<String, TermId> name2diseaseIdMap;
     private Map<TermId, HpoDisease> id2diseaseModelMap;
+    /** Information content of all terms, computed from {@link #annotationIndex} on first use. */
+    private InformationContent informationContent;
+    /** Ranks diseases by phenotypic similarity, built from {@link #informationContent} on first use. */
+    private DiseaseRanker diseaseRanker;
 
 
     public OptionalHpoaResource(){
-        hpoaResourceIsMissing = Bindings.createBooleanBinding(() -> Stream.of( indirectAnnotMapProperty(),
-                directAnnotMapProperty()).anyMatch(op -> op.get() == null));
-    }
-
-    public ObjectProperty<Map<TermId, List<HpoDisease>>> directAnnotMapProperty() {
-        return directAnnotMap;
+        hpoaResourceIsMissing = Bindings.createBooleanBinding(() -> annotationIndexProperty().get() == null);
     }
 
-    public ObjectProperty<Map<TermId, List<HpoDisease>>> indirectAnnotMapProperty() {
-        return indirectAnnotMap;
+    public ObjectProperty<TermDiseaseIndex> annotationIndexProperty() {
+        return annotationIndex;
     }
 
     public void setAnnotationResources(String phenotypeDotHpoaPath, Ontology hpo){
         DirectIndirectHpoAnnotationParser parser =
                 new DirectIndirectHpoAnnotationParser(phenotypeDotHpoaPath, hpo);
-        Map<TermId, List<HpoDisease>> directMap = parser.getDirectAnnotMap();
-        LOGGER.info("Setting direct annotation map with size {}", directMap.size());
-        this.directAnnotMap.set(directMap);
-        this.indirectAnnotMap.set(parser.getTotalAnnotationMap());
-        if (getDirectAnnotMap() != null) {
-            Set<HpoDisease> diseaseSet = directAnnotMap.get().values().stream()
-                    .flatMap(Collection::stream)
-                    .collect(Collectors.toSet());
-            LOGGER.info("Found {} diseases (diseaseSet)", diseaseSet.size());
-            // for some reason the stream implementation is choking
-            name2diseaseIdMap = new HashMap<>();
-            for (var disease : diseaseSet) {
-                name2diseaseIdMap.put(disease.getName(), disease.getDiseaseDatabaseId());
-            }
-            LOGGER.info("name2diseaseIdMap initialized with {} entries", name2diseaseIdMap.size());
-            id2diseaseModelMap = diseaseSet.stream()
-                    .collect(Collectors.toMap(HpoDisease::getDiseaseDatabaseId, Function.identity()));
-            LOGGER.info("id2diseaseModelMap initialized with {} entries", id2diseaseModelMap.size());
+        setAnnotationIndex(parser.getAnnotationIndex());
+    }
+
+    /**
+     * Set an annotation index that has already been built, e.g., by {@link AnnotationIndexCache}.
+     * @param index the annotation index, or null if phenotype.hpoa could not be parsed
+     */
+    public synchronized void setAnnotationIndex(TermDiseaseIndex index) {
+        if (index != null) {
+            LOGGER.info("Setting annotation index with {} diseases", index.diseaseCount());
         } else {
             // should never happen
-            LOGGER.error("getDirectAnnotMap() was null after initialization");
+            LOGGER.error("annotation index was null after initialization");
         }
+        // the disease maps are built from the index on first use
+        name2diseaseIdMap = null;
+        id2diseaseModelMap = null;
+        informationContent = null;
+        diseaseRanker = null;
+        this.annotationIndex.set(index);
     }
 
-    public Map<TermId, List<HpoDisease>> getDirectAnnotMap() {
-        return directAnnotMap.get();
-    }
-    public Map<TermId, List<HpoDisease>> getIndirectAnnotMap() {
-        return indirectAnnotMap.get();
+    public TermDiseaseIndex getAnnotationIndex() {
+        return annotationIndex.get();
     }
 
-    public Map<String, TermId> getName2diseaseIdMap() {
+    public synchronized Map<String, TermId> getName2diseaseIdMap() {
+        initializeDiseaseMaps();
         return name2diseaseIdMap;
     }
 
-    public Map<TermId, HpoDisease> getId2diseaseModelMap() {
+    public synchronized Map<TermId, HpoDisease> getId2diseaseModelMap() {
+        initializeDiseaseMaps();
         return id2diseaseModelMap;
     }
 
+    /**
+     * @return information content of all HPO terms with respect to the current annotations, or null if no
+     * annotations were loaded
+     */
+    public synchronized InformationContent getInformationContent() {
+        TermDiseaseIndex index = annotationIndex.get();
+        if (informationContent == null && index != null) {
+            informationContent = InformationContent.of(index);
+        }
+        return informationContent;
+    }
+
+    /**
+     * @return ranker for the diseases with phenotypic abnormalities in the current annotations, or null if no
+     * annotations were loaded
+     */
+    public synchronized DiseaseRanker getDiseaseRanker() {
+        InformationContent ic = getInformationContent();
+        if (diseaseRanker == null && ic != null) {
+            diseaseRanker = DiseaseRanker.of(annotationIndex.get(), MicaTable.of(ic));
+        }
+        return diseaseRanker;
+    }
+
+    private void initializeDiseaseMaps() {
+        TermDiseaseIndex index = annotationIndex.get();
+        if (id2diseaseModelMap != null || index == null) {
+            return;
+        }
+        // only diseases with at least one annotation are shown in the GUI
+        List<HpoDisease> diseaseList = new ArrayList<>(index.diseaseCount());
+        for (int d = 0; d < index.diseaseCount(); d++) {
+            HpoDisease disease = index.disease(d);
+            if (!disease.getPhenotypicAbnormalities().isEmpty() || !disease.getModesOfInheritance().isEmpty()) {
+                diseaseList.add(disease);
+            }
+        }
+        LOGGER.info("Found {} diseases (diseaseSet)", diseaseList.size());
+        // for some reason the stream implementation is choking
+        name2diseaseIdMap = new HashMap<>();
+        for (var disease : diseaseList) {
+            name2diseaseIdMap.put(disease.getName(), disease.getDiseaseDatabaseId());
+        }
+        LOGGER.info("name2diseaseIdMap initialized with {} entries", name2diseaseIdMap.size());
+        id2diseaseModelMap = diseaseList.stream()
+                .collect(Collectors.toMap(HpoDisease::getDiseaseDatabaseId, Function.identity()));
+        LOGGER.info("id2diseaseModelMap initialized with {} entries", id2diseaseModelMap.size());
+    }
+
     /**
      * If we cannot initialize these resources, create empty maps to avoid null pointer errors.
      */
-    public void initializeWithEmptyMaps() {
-        directAnnotMap.set(Map.of());
-        indirectAnnotMap.set(Map.of());
+    public synchronized void initializeWithEmptyMaps() {
+        annotationIndex.set(TermDiseaseIndex.empty());
+        informationContent = null;
+        diseaseRanker = null;
         name2diseaseIdMap = Map.of();
         id2diseaseModelMap = Map.of();
     }
@@ -98,9 +146,8 @@ public class OptionalHpoaResource {
 
     @Override
     public String toString() {
-        return String.format("OptionalHpoaResource\n\tdirectAnnotMap: n=%d\n\tindirectAnnotMap: n=%d\n\tname2diseaseIdMap: n=%d\n\tid2diseaseModelMap: n=%d\n",
-                    directAnnotMap.get() == null ? 0 : directAnnotMap.get().size(),
-                indirectAnnotMap.get() == null ? 0 : indirectAnnotMap.get().size(),
+        return String.format("OptionalHpoaResource\n\tannotationIndex: n=%d\n\tname2diseaseIdMap: n=%d\n\tid2diseaseModelMap: n=%d\n",
+                annotationIndex.get() == null ? 0 : annotationIndex.get().diseaseCount(),
                 name2diseaseIdMap == null ? 0 : name2diseaseIdMap.size(),
                 id2diseaseModelMap == null ? 0 :  id2diseaseModelMap.size()
         );